@@ -19,6 +19,8 @@ import com.facebook.presto.spi.TupleDomain;
 
 import java.nio.ByteBuffer;
 
+import static com.google.common.base.Preconditions.checkState;
+
 public class CassandraPartition
         implements ConnectorPartition
 {
@@ -28,19 +30,27 @@ public class CassandraPartition
     private final String partitionId;
     private final byte[] key;
     private final TupleDomain<ConnectorColumnHandle> tupleDomain;
+    private final String clusteringCondition;
 
     private CassandraPartition()
     {
         partitionId = UNPARTITIONED_ID;
         tupleDomain = TupleDomain.all();
         key = null;
+        clusteringCondition = null;
     }
 
     public CassandraPartition(byte[] key, String partitionId, TupleDomain<ConnectorColumnHandle> tupleDomain)
+    {
+        this(key, partitionId, tupleDomain, null);
+    }
+
+    public CassandraPartition(byte[] key, String partitionId, TupleDomain<ConnectorColumnHandle> tupleDomain, String clusteringCondition)
     {
         this.key = key;
         this.partitionId = partitionId;
         this.tupleDomain = tupleDomain;
+        this.clusteringCondition = clusteringCondition;
     }
 
     public boolean isUnpartitioned()
@@ -59,6 +69,20 @@ public class CassandraPartition
         return partitionId;
     }
 
+    /**
+     * CQL restriction on the clustering columns to apply when reading this partition, or null.
+     */
+    public String getClusteringCondition()
+    {
+        return clusteringCondition;
+    }
+
+    public CassandraPartition withClusteringCondition(String clusteringCondition)
+    {
+        checkState(!isUnpartitioned(), "clustering columns can only be restricted within a partition");
+        return new CassandraPartition(key, partitionId, tupleDomain, clusteringCondition);
+    }
+
     @Override
     public String toString()
     {
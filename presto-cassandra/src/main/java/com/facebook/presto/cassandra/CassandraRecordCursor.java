@@ -19,35 +19,58 @@ import com.facebook.presto.spi.RecordCursor;
 import com.facebook.presto.spi.type.Type;
 import io.airlift.slice.Slice;
 
+import java.util.Iterator;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static io.airlift.slice.Slices.utf8Slice;
 
 public class CassandraRecordCursor
         implements RecordCursor
 {
+    private final CassandraSession cassandraSession;
     private final List<FullCassandraType> fullCassandraTypes;
-    private final ResultSet rs;
+    private final Iterator<String> cqls;
+    private ResultSet rs;
+    private int prefetchThreshold;
     private Row currentRow;
     private long atLeastCount;
     private long count;
 
     public CassandraRecordCursor(CassandraSession cassandraSession,
-            List<FullCassandraType> fullCassandraTypes, String cql)
+            List<FullCassandraType> fullCassandraTypes, List<String> cqls)
     {
+        checkArgument(!cqls.isEmpty(), "cqls is empty");
+        this.cassandraSession = cassandraSession;
         this.fullCassandraTypes = fullCassandraTypes;
-        rs = cassandraSession.executeQuery(cql);
+        this.cqls = cqls.iterator();
         currentRow = null;
-        atLeastCount = rs.getAvailableWithoutFetching();
+        executeNextQuery();
+    }
+
+    private void executeNextQuery()
+    {
+        rs = cassandraSession.executeQuery(cqls.next());
+        atLeastCount = count + rs.getAvailableWithoutFetching();
+        prefetchThreshold = rs.getAvailableWithoutFetching() / 2;
     }
 
     @Override
     public boolean advanceNextPosition()
     {
+        // the queries of a split are read one after the other
+        while (rs.isExhausted() && cqls.hasNext()) {
+            executeNextQuery();
+        }
         if (!rs.isExhausted()) {
             currentRow = rs.one();
             count++;
-            atLeastCount = count + rs.getAvailableWithoutFetching();
+            int available = rs.getAvailableWithoutFetching();
+            atLeastCount = count + available;
+            // fetch the next page in the background while the rest of the current one is consumed
+            if (available <= prefetchThreshold && !rs.isFullyFetched()) {
+                rs.fetchMoreResults();
+            }
             return true;
         }
         return false;
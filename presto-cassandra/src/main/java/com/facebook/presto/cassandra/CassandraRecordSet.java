@@ -16,6 +16,7 @@ package com.facebook.presto.cassandra;
 import com.facebook.presto.spi.RecordCursor;
 import com.facebook.presto.spi.RecordSet;
 import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
 
 import java.util.List;
 
@@ -27,15 +28,15 @@ import static com.google.common.collect.Lists.transform;
 public class CassandraRecordSet
         implements RecordSet
 {
-    private final String cql;
+    private final List<String> cqls;
     private final List<FullCassandraType> cassandraTypes;
     private final List<Type> columnTypes;
     private final CassandraSession cassandraSession;
 
-    public CassandraRecordSet(CassandraSession cassandraSession, String cql, List<CassandraColumnHandle> cassandraColumns)
+    public CassandraRecordSet(CassandraSession cassandraSession, List<String> cqls, List<CassandraColumnHandle> cassandraColumns)
     {
         this.cassandraSession = checkNotNull(cassandraSession, "cassandraSession is null");
-        this.cql = checkNotNull(cql, "cql is null");
+        this.cqls = ImmutableList.copyOf(checkNotNull(cqls, "cqls is null"));
         checkNotNull(cassandraColumns, "cassandraColumns is null");
         this.cassandraTypes = transform(cassandraColumns, cassandraFullTypeGetter());
         this.columnTypes = transform(cassandraColumns, nativeTypeGetter());
@@ -50,6 +51,6 @@ public class CassandraRecordSet
     @Override
     public RecordCursor cursor()
     {
-        return new CassandraRecordCursor(cassandraSession, cassandraTypes, cql);
+        return new CassandraRecordCursor(cassandraSession, cassandraTypes, cqls);
     }
 }
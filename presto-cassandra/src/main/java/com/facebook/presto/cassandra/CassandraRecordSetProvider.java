@@ -55,15 +55,18 @@ public class CassandraRecordSetProvider
         List<CassandraColumnHandle> cassandraColumns = ImmutableList.copyOf(transform(columns, CassandraColumnHandle.cassandraColumnHandle()));
 
         String selectCql = CassandraCqlUtils.selectFrom(cassandraSplit.getCassandraTableHandle(), cassandraColumns).getQueryString();
-        StringBuilder sb = new StringBuilder(selectCql);
-        if (sb.charAt(sb.length() - 1) == ';') {
-            sb.setLength(sb.length() - 1);
+        if (selectCql.endsWith(";")) {
+            selectCql = selectCql.substring(0, selectCql.length() - 1);
         }
-        sb.append(cassandraSplit.getWhereClause());
-        String cql = sb.toString();
-        log.debug("Creating record set: %s", cql);
 
-        return new CassandraRecordSet(cassandraSession, cql, cassandraColumns);
+        ImmutableList.Builder<String> cqls = ImmutableList.builder();
+        for (String whereClause : cassandraSplit.getWhereClauses()) {
+            String cql = selectCql + whereClause;
+            log.debug("Creating record set: %s", cql);
+            cqls.add(cql);
+        }
+
+        return new CassandraRecordSet(cassandraSession, cqls.build(), cassandraColumns);
     }
 
     @Override
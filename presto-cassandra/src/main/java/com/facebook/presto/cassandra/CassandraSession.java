@@ -28,24 +28,34 @@ import com.datastax.driver.core.querybuilder.Clause;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.querybuilder.Select;
 import com.facebook.presto.cassandra.util.CassandraCqlUtils;
+import com.facebook.presto.cassandra.util.HostAddressFactory;
 import com.facebook.presto.spi.ConnectorColumnHandle;
+import com.facebook.presto.spi.HostAddress;
 import com.facebook.presto.spi.SchemaNotFoundException;
 import com.facebook.presto.spi.SchemaTableName;
 import com.facebook.presto.spi.TableNotFoundException;
 import com.facebook.presto.spi.TupleDomain;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 
+import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import static com.datastax.driver.core.querybuilder.Select.Where;
 
 public class CassandraSession
 {
+    private static final String MURMUR3_PARTITIONER = "org.apache.cassandra.dht.Murmur3Partitioner";
+
     protected final String connectorId;
     private final Cluster.Builder clusterBuilder;
     private final int fetchSizeForPartitionKeySelect;
@@ -88,6 +98,138 @@ public class CassandraSession
         return session.getCluster().getMetadata().getAllHosts();
     }
 
+    /**
+     * Returns the token ranges of the ring with the addresses of their replicas, or an
+     * empty list if the ring cannot be determined or does not use the Murmur3 partitioner.
+     */
+    public List<CassandraTokenRange> getTokenRanges(String schema)
+    {
+        ResultSet local = executeQuery("SELECT partitioner, tokens FROM system.local");
+        Row localRow = local.one();
+        if (localRow == null) {
+            return ImmutableList.of();
+        }
+        return getTokenRanges(
+                localRow,
+                local.getExecutionInfo().getQueriedHost(),
+                executeQuery("SELECT peer, rpc_address, tokens FROM system.peers"),
+                getAllHosts(),
+                getCheckedKeyspaceMetadata(schema).getReplication());
+    }
+
+    /**
+     * Builds the token ranges from the {@code system.local} row of the queried host and the
+     * {@code system.peers} rows. The driver identifies hosts by the address clients connect to,
+     * so peers are looked up by their {@code rpc_address}, falling back to the listen address
+     * ({@code peer}) when the node binds its RPC interface to all addresses.
+     */
+    @VisibleForTesting
+    static List<CassandraTokenRange> getTokenRanges(Row localRow, Host localHost, Iterable<Row> peerRows, Collection<Host> allHosts, Map<String, String> replication)
+    {
+        if (!MURMUR3_PARTITIONER.equals(localRow.getString("partitioner"))) {
+            return ImmutableList.of();
+        }
+
+        Map<InetAddress, Host> hosts = new HashMap<>();
+        for (Host host : allHosts) {
+            hosts.put(host.getAddress(), host);
+        }
+
+        // the local row and the peers may come from different coordinators, so merge both
+        SortedMap<Long, Host> ring = new TreeMap<>();
+        addTokens(ring, localRow.getSet("tokens", String.class), localHost);
+        for (Row row : peerRows) {
+            InetAddress address = row.getInet("rpc_address");
+            if (address == null || address.isAnyLocalAddress()) {
+                address = row.getInet("peer");
+            }
+            Host host = hosts.get(address);
+            if (host == null) {
+                // driver metadata is not yet in sync with the ring
+                return ImmutableList.of();
+            }
+            addTokens(ring, row.getSet("tokens", String.class), host);
+        }
+        if (ring.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        List<Long> tokens = ImmutableList.copyOf(ring.keySet());
+        List<Host> owners = ImmutableList.copyOf(ring.values());
+        HostAddressFactory hostAddressFactory = new HostAddressFactory();
+
+        ImmutableList.Builder<CassandraTokenRange> ranges = ImmutableList.builder();
+        for (int i = 0; i < tokens.size(); i++) {
+            List<HostAddress> addresses = hostAddressFactory.toHostAddressList(getReplicas(owners, i, replication));
+            long endToken = tokens.get(i);
+            if (i > 0) {
+                ranges.add(new CassandraTokenRange(tokens.get(i - 1) + 1, endToken, addresses));
+                continue;
+            }
+
+            // the first host also owns the range that wraps around the end of the ring
+            long lastToken = tokens.get(tokens.size() - 1);
+            if (lastToken != Long.MAX_VALUE) {
+                ranges.add(new CassandraTokenRange(lastToken + 1, Long.MAX_VALUE, addresses));
+            }
+            ranges.add(new CassandraTokenRange(Long.MIN_VALUE, endToken, addresses));
+        }
+        return ranges.build();
+    }
+
+    private static void addTokens(SortedMap<Long, Host> ring, Set<String> tokens, Host host)
+    {
+        for (String token : tokens) {
+            ring.put(Long.parseLong(token), host);
+        }
+    }
+
+    /**
+     * Walks the ring from the owner of the range, picking the hosts the replication strategy
+     * would place the replicas on. Rack placement is not taken into account.
+     */
+    private static Set<Host> getReplicas(List<Host> owners, int ownerIndex, Map<String, String> replication)
+    {
+        String strategy = replication.get("class");
+        boolean networkTopology = strategy != null && strategy.endsWith("NetworkTopologyStrategy");
+
+        int replicationFactor = 1;
+        Map<String, Integer> remaining = new HashMap<>();
+        if (networkTopology) {
+            replicationFactor = 0;
+            for (Map.Entry<String, String> entry : replication.entrySet()) {
+                if (!entry.getKey().equals("class")) {
+                    int replicas = Integer.parseInt(entry.getValue());
+                    remaining.put(entry.getKey(), replicas);
+                    replicationFactor += replicas;
+                }
+            }
+        }
+        else if (replication.containsKey("replication_factor")) {
+            replicationFactor = Integer.parseInt(replication.get("replication_factor"));
+        }
+
+        Set<Host> replicas = new LinkedHashSet<>();
+        for (int i = 0; i < owners.size() && replicas.size() < replicationFactor; i++) {
+            Host host = owners.get((ownerIndex + i) % owners.size());
+            if (replicas.contains(host)) {
+                continue;
+            }
+            if (networkTopology) {
+                Integer datacenterReplicas = remaining.get(host.getDatacenter());
+                if (datacenterReplicas == null || datacenterReplicas == 0) {
+                    continue;
+                }
+                remaining.put(host.getDatacenter(), datacenterReplicas - 1);
+            }
+            replicas.add(host);
+        }
+        if (replicas.isEmpty()) {
+            replicas.add(owners.get(ownerIndex));
+        }
+        return replicas;
+    }
+
     public List<String> getAllSchemas()
     {
         ImmutableList.Builder<String> builder = ImmutableList.builder();
@@ -33,7 +33,7 @@ public class CassandraSplit
     private final List<HostAddress> addresses;
     private final String schema;
     private final String table;
-    private final String splitCondition;
+    private final List<String> splitConditions;
 
     @JsonCreator
     public CassandraSplit(
@@ -41,13 +41,14 @@ public class CassandraSplit
             @JsonProperty("schema") String schema,
             @JsonProperty("table") String table,
             @JsonProperty("partitionId") String partitionId,
-            @JsonProperty("splitCondition") String splitCondition,
+            @JsonProperty("splitConditions") List<String> splitConditions,
             @JsonProperty("addresses") List<HostAddress> addresses)
     {
         checkNotNull(connectorId, "connectorId is null");
         checkNotNull(schema, "schema is null");
         checkNotNull(table, "table is null");
         checkNotNull(partitionId, "partitionName is null");
+        checkNotNull(splitConditions, "splitConditions is null");
         checkNotNull(addresses, "addresses is null");
 
         this.connectorId = connectorId;
@@ -55,7 +56,7 @@ public class CassandraSplit
         this.table = table;
         this.partitionId = partitionId;
         this.addresses = ImmutableList.copyOf(addresses);
-        this.splitCondition = splitCondition;
+        this.splitConditions = ImmutableList.copyOf(splitConditions);
     }
 
     @JsonProperty
@@ -70,10 +71,14 @@ public class CassandraSplit
         return schema;
     }
 
+    /**
+     * Returns the conditions that select the rows of this split. Each one is read with a
+     * separate query, since CQL can not combine token ranges with OR.
+     */
     @JsonProperty
-    public String getSplitCondition()
+    public List<String> getSplitConditions()
     {
-        return splitCondition;
+        return splitConditions;
     }
 
     @JsonProperty
@@ -121,7 +126,20 @@ public class CassandraSplit
                 .toString();
     }
 
-    public String getWhereClause()
+    public List<String> getWhereClauses()
+    {
+        if (splitConditions.isEmpty()) {
+            return ImmutableList.of(getWhereClause(null));
+        }
+
+        ImmutableList.Builder<String> whereClauses = ImmutableList.builder();
+        for (String splitCondition : splitConditions) {
+            whereClauses.add(getWhereClause(splitCondition));
+        }
+        return whereClauses.build();
+    }
+
+    private String getWhereClause(String splitCondition)
     {
         if (partitionId.equals(CassandraPartition.UNPARTITIONED_ID)) {
             if (splitCondition != null) {
@@ -14,6 +14,7 @@
 package com.facebook.presto.cassandra;
 
 import com.datastax.driver.core.Host;
+import com.facebook.presto.cassandra.util.CassandraCqlUtils;
 import com.facebook.presto.cassandra.util.HostAddressFactory;
 import com.facebook.presto.spi.ConnectorColumnHandle;
 import com.facebook.presto.spi.ConnectorPartition;
@@ -25,12 +26,15 @@ import com.facebook.presto.spi.ConnectorTableHandle;
 import com.facebook.presto.spi.Domain;
 import com.facebook.presto.spi.FixedSplitSource;
 import com.facebook.presto.spi.HostAddress;
+import com.facebook.presto.spi.Marker;
 import com.facebook.presto.spi.Range;
 import com.facebook.presto.spi.TupleDomain;
+import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
@@ -38,7 +42,9 @@ import io.airlift.log.Logger;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -50,6 +56,7 @@ public class CassandraSplitManager
         implements ConnectorSplitManager
 {
     private static final Logger log = Logger.get(ConnectorSplitManager.class);
+    private static final BigInteger RING_SIZE = BigInteger.ONE.shiftLeft(64);
 
     private final String connectorId;
     private final CassandraSession cassandraSession;
@@ -109,11 +116,20 @@ public class CassandraSplitManager
         log.debug("%s.%s #partitions: %d", cassandraTableHandle.getSchemaName(), cassandraTableHandle.getTableName(), allPartitions.size());
 
         // do a final pass to filter based on fields that could not be used to build the prefix
-        List<ConnectorPartition> partitions = FluentIterable.from(allPartitions)
+        List<CassandraPartition> matchingPartitions = FluentIterable.from(allPartitions)
                 .filter(partitionMatches(tupleDomain))
-                .filter(ConnectorPartition.class)
                 .toList();
 
+        // within a partition, Cassandra can restrict the clustering columns itself
+        ImmutableList.Builder<ConnectorPartition> partitions = ImmutableList.builder();
+        String clusteringCondition = buildClusteringCondition(table.getClusteringKeyColumns(), tupleDomain);
+        for (CassandraPartition partition : matchingPartitions) {
+            if (clusteringCondition != null && !partition.isUnpartitioned()) {
+                partition = partition.withClusteringCondition(clusteringCondition);
+            }
+            partitions.add(partition);
+        }
+
         // All partition key domains will be fully evaluated, so we don't need to include those
         TupleDomain<ConnectorColumnHandle> remainingTupleDomain = TupleDomain.none();
         if (!tupleDomain.isNone()) {
@@ -122,7 +138,89 @@ public class CassandraSplitManager
             remainingTupleDomain = TupleDomain.withColumnDomains(Maps.filterKeys(tupleDomain.getDomains(), not(in(partitionColumns))));
         }
 
-        return new ConnectorPartitionResult(partitions, remainingTupleDomain);
+        // clustering column domains are still evaluated since only part of them may have been pushed into the query
+        return new ConnectorPartitionResult(partitions.build(), remainingTupleDomain);
+    }
+
+    /**
+     * Builds a CQL restriction from equality predicates on a prefix of the clustering columns,
+     * optionally followed by a range on the next clustering column, as Cassandra requires.
+     */
+    static String buildClusteringCondition(List<CassandraColumnHandle> clusteringColumns, TupleDomain<ConnectorColumnHandle> tupleDomain)
+    {
+        if (tupleDomain.isNone()) {
+            return null;
+        }
+
+        List<String> clauses = new ArrayList<>();
+        for (CassandraColumnHandle column : clusteringColumns) {
+            Domain domain = tupleDomain.getDomains().get(column);
+            if (domain == null || domain.getRanges().getRangeCount() != 1) {
+                break;
+            }
+            // clustering columns can never be NULL
+            Range range = Iterables.getOnlyElement(domain.getRanges());
+            String columnName = CassandraCqlUtils.validColumnName(column.getName());
+            CassandraType type = column.getCassandraType();
+
+            if (range.isSingleValue()) {
+                String value = toCqlLiteral(type, range.getSingleValue());
+                if (value == null) {
+                    break;
+                }
+                clauses.add(columnName + " = " + value);
+                continue;
+            }
+
+            // a range ends the prefix; only push it for types Cassandra orders the same way as Presto
+            if (type == CassandraType.INT || type == CassandraType.BIGINT || type == CassandraType.DOUBLE || type == CassandraType.TIMESTAMP) {
+                Marker low = range.getLow();
+                String lowValue = low.isLowerUnbounded() ? null : toCqlLiteral(type, low.getValue());
+                if (lowValue != null) {
+                    clauses.add(columnName + (low.getBound() == Marker.Bound.EXACTLY ? " >= " : " > ") + lowValue);
+                }
+                Marker high = range.getHigh();
+                String highValue = high.isUpperUnbounded() ? null : toCqlLiteral(type, high.getValue());
+                if (highValue != null) {
+                    clauses.add(columnName + (high.getBound() == Marker.Bound.EXACTLY ? " <= " : " < ") + highValue);
+                }
+            }
+            break;
+        }
+
+        if (clauses.isEmpty()) {
+            return null;
+        }
+        return Joiner.on(" AND ").join(clauses);
+    }
+
+    private static String toCqlLiteral(CassandraType type, Comparable<?> value)
+    {
+        switch (type) {
+            case ASCII:
+            case TEXT:
+            case VARCHAR:
+                return CassandraCqlUtils.quoteStringLiteral((String) value);
+            case INT:
+                long intValue = (Long) value;
+                if (intValue < Integer.MIN_VALUE || intValue > Integer.MAX_VALUE) {
+                    return null;
+                }
+                return Long.toString(intValue);
+            case BIGINT:
+            case TIMESTAMP:
+                return Long.toString((Long) value);
+            case DOUBLE:
+                double doubleValue = (Double) value;
+                if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+                    return null;
+                }
+                return Double.toString(doubleValue);
+            case BOOLEAN:
+                return Boolean.toString((Boolean) value);
+            default:
+                return null;
+        }
     }
 
     @Override
@@ -159,32 +257,86 @@ public class CassandraSplitManager
         String tableName = table.getTableHandle().getTableName();
         String tokenExpression = table.getTokenExpression();
 
-        List<HostAddress> addresses = new HostAddressFactory().toHostAddressList(cassandraSession.getAllHosts());
+        List<CassandraTokenRange> tokenRanges = cassandraSession.getTokenRanges(schema);
+        if (tokenRanges.isEmpty()) {
+            // the ring is unknown, so split the whole token range into equal parts that can run anywhere
+            List<HostAddress> addresses = new HostAddressFactory().toHostAddressList(cassandraSession.getAllHosts());
+            tokenRanges = ImmutableList.of(new CassandraTokenRange(Long.MIN_VALUE, Long.MAX_VALUE, addresses));
+        }
 
-        BigInteger start = BigInteger.valueOf(Long.MIN_VALUE);
-        BigInteger end = BigInteger.valueOf(Long.MAX_VALUE);
-        BigInteger one = BigInteger.valueOf(1);
-        BigInteger splits = BigInteger.valueOf(unpartitionedSplits);
-        long delta = end.subtract(start).subtract(one).divide(splits).longValue();
-        long startToken = start.longValue();
+        // with virtual nodes every host owns hundreds of small ranges, so the ranges are
+        // grouped by their replicas and the configured split count is divided among the groups
+        Map<Set<HostAddress>, List<CassandraTokenRange>> rangesByReplicas = new LinkedHashMap<>();
+        for (CassandraTokenRange tokenRange : tokenRanges) {
+            Set<HostAddress> replicas = ImmutableSet.copyOf(tokenRange.getAddresses());
+            List<CassandraTokenRange> ranges = rangesByReplicas.get(replicas);
+            if (ranges == null) {
+                ranges = new ArrayList<>();
+                rangesByReplicas.put(replicas, ranges);
+            }
+            ranges.add(tokenRange);
+        }
 
         ImmutableList.Builder<ConnectorSplit> builder = ImmutableList.builder();
-        for (int i = 0; i < unpartitionedSplits - 1; i++) {
-            long endToken = startToken + delta;
-            String condition = buildTokenCondition(tokenExpression, startToken, endToken);
-
-            CassandraSplit split = new CassandraSplit(connectorId, schema, tableName, partitionId, condition, addresses);
-            builder.add(split);
+        for (List<CassandraTokenRange> ranges : rangesByReplicas.values()) {
+            List<HostAddress> addresses = ranges.get(0).getAddresses();
+            for (List<String> conditions : splitTokenRanges(tokenExpression, ranges, unpartitionedSplits)) {
+                builder.add(new CassandraSplit(connectorId, schema, tableName, partitionId, conditions, addresses));
+            }
+        }
+        return builder.build();
+    }
 
-            startToken = endToken + 1;
+    /**
+     * Divides the token ranges of one replica set into splits sized by the share of the ring
+     * they cover. A split may span several ranges and a range may be cut between two splits.
+     */
+    private static List<List<String>> splitTokenRanges(String tokenExpression, List<CassandraTokenRange> ranges, int ringSplits)
+    {
+        BigInteger totalSize = BigInteger.ZERO;
+        for (CassandraTokenRange range : ranges) {
+            totalSize = totalSize.add(range.getSize());
         }
+        // round, since a replica set rarely owns an exact fraction of the ring
+        BigInteger splitCount = totalSize.multiply(BigInteger.valueOf(ringSplits)).add(RING_SIZE.shiftRight(1)).divide(RING_SIZE)
+                .max(BigInteger.ONE)
+                .min(totalSize);
+
+        ImmutableList.Builder<List<String>> splits = ImmutableList.builder();
+        List<String> conditions = new ArrayList<>();
+        BigInteger splitIndex = BigInteger.ONE;
+        // number of tokens assigned so far and where the current split ends
+        BigInteger assigned = BigInteger.ZERO;
+        BigInteger splitEnd = totalSize.divide(splitCount);
+        for (CassandraTokenRange range : ranges) {
+            BigInteger startToken = BigInteger.valueOf(range.getStartToken());
+            BigInteger endToken = BigInteger.valueOf(range.getEndToken());
+            while (startToken.compareTo(endToken) <= 0) {
+                BigInteger available = endToken.subtract(startToken).add(BigInteger.ONE);
+                BigInteger needed = splitEnd.subtract(assigned);
+
+                // the last split takes the remainder of the ranges
+                if (available.compareTo(needed) < 0 || splitIndex.equals(splitCount)) {
+                    conditions.add(buildTokenCondition(tokenExpression, startToken.longValue(), endToken.longValue()));
+                    assigned = assigned.add(available);
+                    break;
+                }
 
-        // special handling for last split
-        String condition = buildTokenCondition(tokenExpression, startToken, end.longValue());
-        CassandraSplit split = new CassandraSplit(connectorId, schema, tableName, partitionId, condition, addresses);
-        builder.add(split);
+                BigInteger lastToken = startToken.add(needed).subtract(BigInteger.ONE);
+                conditions.add(buildTokenCondition(tokenExpression, startToken.longValue(), lastToken.longValue()));
+                assigned = splitEnd;
+                splits.add(ImmutableList.copyOf(conditions));
+                conditions.clear();
 
-        return builder.build();
+                splitIndex = splitIndex.add(BigInteger.ONE);
+                splitEnd = totalSize.multiply(splitIndex).divide(splitCount);
+                startToken = lastToken.add(BigInteger.ONE);
+            }
+        }
+        if (!conditions.isEmpty()) {
+            splits.add(ImmutableList.copyOf(conditions));
+        }
+        return splits.build();
     }
 
     private static String buildTokenCondition(String tokenExpression, long startToken, long endToken)
@@ -204,7 +356,9 @@ public class CassandraSplitManager
 
             Set<Host> hosts = cassandraSession.getReplicas(schema, cassandraPartition.getKeyAsByteBuffer());
             List<HostAddress> addresses = hostAddressFactory.toHostAddressList(hosts);
-            CassandraSplit split = new CassandraSplit(connectorId, schema, table, cassandraPartition.getPartitionId(), null, addresses);
+            String clusteringCondition = cassandraPartition.getClusteringCondition();
+            List<String> conditions = clusteringCondition == null ? ImmutableList.<String>of() : ImmutableList.of(clusteringCondition);
+            CassandraSplit split = new CassandraSplit(connectorId, schema, table, cassandraPartition.getPartitionId(), conditions, addresses);
             builder.add(split);
         }
         return builder.build();
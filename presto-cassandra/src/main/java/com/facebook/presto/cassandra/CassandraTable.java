@@ -50,6 +50,17 @@ public class CassandraTable
         return columns.subList(0, partitionKeyColumns);
     }
 
+    public List<CassandraColumnHandle> getClusteringKeyColumns()
+    {
+        ImmutableList.Builder<CassandraColumnHandle> builder = ImmutableList.builder();
+        for (CassandraColumnHandle column : columns) {
+            if (column.isClusteringKey()) {
+                builder.add(column);
+            }
+        }
+        return builder.build();
+    }
+
     public String getTokenExpression()
     {
         StringBuilder sb = new StringBuilder();
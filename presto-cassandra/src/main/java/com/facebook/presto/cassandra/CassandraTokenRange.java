@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cassandra;
+
+import com.facebook.presto.spi.HostAddress;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Inclusive range of Murmur3 tokens and the addresses of the hosts that replicate it.
+ */
+public class CassandraTokenRange
+{
+    private final long startToken;
+    private final long endToken;
+    private final List<HostAddress> addresses;
+
+    public CassandraTokenRange(long startToken, long endToken, List<HostAddress> addresses)
+    {
+        checkArgument(startToken <= endToken, "startToken is greater than endToken");
+        this.startToken = startToken;
+        this.endToken = endToken;
+        this.addresses = ImmutableList.copyOf(checkNotNull(addresses, "addresses is null"));
+    }
+
+    public long getStartToken()
+    {
+        return startToken;
+    }
+
+    public long getEndToken()
+    {
+        return endToken;
+    }
+
+    public List<HostAddress> getAddresses()
+    {
+        return addresses;
+    }
+
+    /**
+     * Number of tokens in this range. This can exceed a long when the range covers the whole ring.
+     */
+    public BigInteger getSize()
+    {
+        return BigInteger.valueOf(endToken).subtract(BigInteger.valueOf(startToken)).add(BigInteger.ONE);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Objects.toStringHelper(this)
+                .add("startToken", startToken)
+                .add("endToken", endToken)
+                .add("addresses", addresses)
+                .toString();
+    }
+}
@@ -17,6 +17,8 @@ import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.datastax.driver.core.ColumnDefinitions.Definition;
 
@@ -31,4 +33,15 @@ public final class RowUtil
         ColumnDefinitions definitions = new ColumnDefinitions(new Definition[] {new Definition("keyspace", "table", "column", DataType.ascii())});
         return Row.fromData(definitions, ImmutableList.of(ByteBuffer.wrap(value.getBytes(Charsets.UTF_8))));
     }
+
+    public static Row createRow(List<String> names, List<DataType> types, List<?> values)
+    {
+        Definition[] definitions = new Definition[names.size()];
+        List<ByteBuffer> data = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            definitions[i] = new Definition("keyspace", "table", names.get(i), types.get(i));
+            data.add(values.get(i) == null ? null : types.get(i).serialize(values.get(i)));
+        }
+        return Row.fromData(new ColumnDefinitions(definitions), data);
+    }
 }
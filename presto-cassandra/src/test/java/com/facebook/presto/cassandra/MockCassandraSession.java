@@ -41,6 +41,7 @@ public class MockCassandraSession
 
     private final AtomicInteger accessCount = new AtomicInteger();
     private boolean throwException;
+    private List<CassandraTokenRange> tokenRanges = ImmutableList.of();
 
     public MockCassandraSession(String connectorId, CassandraClientConfig config)
     {
@@ -55,6 +56,11 @@ public class MockCassandraSession
         this.throwException = throwException;
     }
 
+    public void setTokenRanges(List<CassandraTokenRange> tokenRanges)
+    {
+        this.tokenRanges = ImmutableList.copyOf(tokenRanges);
+    }
+
     public int getAccessCount()
     {
         return accessCount.get();
@@ -148,6 +154,12 @@ public class MockCassandraSession
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public List<CassandraTokenRange> getTokenRanges(String schema)
+    {
+        return tokenRanges;
+    }
+
     @Override
     public ResultSet executeQuery(String cql)
     {
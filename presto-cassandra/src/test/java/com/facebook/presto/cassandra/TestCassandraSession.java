@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cassandra;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.TestHost;
+import com.facebook.presto.spi.HostAddress;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.datastax.driver.core.RowUtil.createRow;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestCassandraSession
+{
+    private static final String MURMUR3_PARTITIONER = "org.apache.cassandra.dht.Murmur3Partitioner";
+    private static final Map<String, String> REPLICATION = ImmutableMap.of(
+            "class", "org.apache.cassandra.locator.SimpleStrategy",
+            "replication_factor", "2");
+
+    private Host host1;
+    private Host host2;
+    private Host host3;
+
+    @BeforeMethod
+    public void setUp()
+            throws Exception
+    {
+        // the driver knows the hosts by the address clients connect to
+        host1 = new TestHost(InetAddress.getByName("10.0.0.1"));
+        host2 = new TestHost(InetAddress.getByName("10.0.0.2"));
+        host3 = new TestHost(InetAddress.getByName("10.0.0.3"));
+    }
+
+    @Test
+    public void testTokenRanges()
+            throws Exception
+    {
+        List<Row> peers = ImmutableList.of(
+                // listen address differs from the rpc address
+                createPeerRow("192.168.0.2", "10.0.0.2", "0"),
+                // rpc interface bound to all addresses, so only the listen address identifies the host
+                createPeerRow("10.0.0.3", "0.0.0.0", "100"));
+
+        List<CassandraTokenRange> ranges = CassandraSession.getTokenRanges(createLocalRow(MURMUR3_PARTITIONER, "-100"), host1, peers, getAllHosts(), REPLICATION);
+
+        assertEquals(ranges.size(), 4);
+        assertTokenRange(ranges.get(0), 101, Long.MAX_VALUE, "10.0.0.1", "10.0.0.2");
+        assertTokenRange(ranges.get(1), Long.MIN_VALUE, -100, "10.0.0.1", "10.0.0.2");
+        assertTokenRange(ranges.get(2), -99, 0, "10.0.0.2", "10.0.0.3");
+        assertTokenRange(ranges.get(3), 1, 100, "10.0.0.3", "10.0.0.1");
+    }
+
+    @Test
+    public void testTokenRangesWithNullRpcAddress()
+            throws Exception
+    {
+        List<Row> peers = ImmutableList.of(createPeerRow("10.0.0.2", null, "0"));
+
+        List<CassandraTokenRange> ranges = CassandraSession.getTokenRanges(createLocalRow(MURMUR3_PARTITIONER, "-100"), host1, peers, getAllHosts(), REPLICATION);
+
+        assertEquals(ranges.size(), 3);
+        assertTokenRange(ranges.get(0), 1, Long.MAX_VALUE, "10.0.0.1", "10.0.0.2");
+        assertTokenRange(ranges.get(1), Long.MIN_VALUE, -100, "10.0.0.1", "10.0.0.2");
+        assertTokenRange(ranges.get(2), -99, 0, "10.0.0.2", "10.0.0.1");
+    }
+
+    @Test
+    public void testUnknownPeer()
+            throws Exception
+    {
+        List<Row> peers = ImmutableList.of(createPeerRow("192.168.0.4", "10.0.0.4", "0"));
+
+        List<CassandraTokenRange> ranges = CassandraSession.getTokenRanges(createLocalRow(MURMUR3_PARTITIONER, "-100"), host1, peers, getAllHosts(), REPLICATION);
+        assertTrue(ranges.isEmpty());
+    }
+
+    @Test
+    public void testOtherPartitioner()
+            throws Exception
+    {
+        List<Row> peers = ImmutableList.of(createPeerRow("10.0.0.2", "10.0.0.2", "0"));
+
+        List<CassandraTokenRange> ranges = CassandraSession.getTokenRanges(createLocalRow("org.apache.cassandra.dht.RandomPartitioner", "-100"), host1, peers, getAllHosts(), REPLICATION);
+        assertTrue(ranges.isEmpty());
+    }
+
+    private List<Host> getAllHosts()
+    {
+        return ImmutableList.of(host1, host2, host3);
+    }
+
+    private static Row createLocalRow(String partitioner, String token)
+    {
+        return createRow(
+                ImmutableList.of("partitioner", "tokens"),
+                ImmutableList.of(DataType.varchar(), DataType.set(DataType.varchar())),
+                ImmutableList.of(partitioner, ImmutableSet.of(token)));
+    }
+
+    private static Row createPeerRow(String peer, String rpcAddress, String token)
+            throws Exception
+    {
+        return createRow(
+                ImmutableList.of("peer", "rpc_address", "tokens"),
+                ImmutableList.of(DataType.inet(), DataType.inet(), DataType.set(DataType.varchar())),
+                Arrays.asList(InetAddress.getByName(peer), rpcAddress == null ? null : InetAddress.getByName(rpcAddress), ImmutableSet.of(token)));
+    }
+
+    private static void assertTokenRange(CassandraTokenRange range, long startToken, long endToken, String... addresses)
+    {
+        assertEquals(range.getStartToken(), startToken);
+        assertEquals(range.getEndToken(), endToken);
+        ImmutableList.Builder<HostAddress> expected = ImmutableList.builder();
+        for (String address : addresses) {
+            expected.add(HostAddress.fromString(address));
+        }
+        assertEquals(range.getAddresses(), expected.build());
+    }
+}
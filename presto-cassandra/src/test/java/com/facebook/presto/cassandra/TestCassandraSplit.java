@@ -31,7 +31,7 @@ public class TestCassandraSplit
     @Test
     public void testJsonRoundTrip()
     {
-        CassandraSplit expected = new CassandraSplit("connectorId", "schema1", "table1", "partitionId", "condition", addresses);
+        CassandraSplit expected = new CassandraSplit("connectorId", "schema1", "table1", "partitionId", ImmutableList.of("condition"), addresses);
 
         String json = codec.toJson(expected);
         CassandraSplit actual = codec.fromJson(json);
@@ -39,7 +39,7 @@ public class TestCassandraSplit
         assertEquals(actual.getConnectorId(), expected.getConnectorId());
         assertEquals(actual.getSchema(), expected.getSchema());
         assertEquals(actual.getTable(), expected.getTable());
-        assertEquals(actual.getSplitCondition(), expected.getSplitCondition());
+        assertEquals(actual.getSplitConditions(), expected.getSplitConditions());
         assertEquals(actual.getAddresses(), expected.getAddresses());
     }
 
@@ -52,17 +52,17 @@ public class TestCassandraSplit
                 "schema1",
                 "table1",
                 CassandraPartition.UNPARTITIONED_ID,
-                "token(k) >= 0 AND token(k) <= 2",
+                ImmutableList.of("token(k) >= 0 AND token(k) <= 2", "token(k) >= 5 AND token(k) <= 7"),
                 addresses);
-        assertEquals(split.getWhereClause(), " WHERE token(k) >= 0 AND token(k) <= 2");
+        assertEquals(split.getWhereClauses(), ImmutableList.of(" WHERE token(k) >= 0 AND token(k) <= 2", " WHERE token(k) >= 5 AND token(k) <= 7"));
 
         split = new CassandraSplit(
                 "connectorId",
                 "schema1",
                 "table1",
                 "key = 123",
-                null,
+                ImmutableList.<String>of(),
                 addresses);
-        assertEquals(split.getWhereClause(), " WHERE key = 123");
+        assertEquals(split.getWhereClauses(), ImmutableList.of(" WHERE key = 123"));
     }
 }
@@ -0,0 +1,186 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cassandra;
+
+import com.facebook.presto.spi.ConnectorColumnHandle;
+import com.facebook.presto.spi.ConnectorPartition;
+import com.facebook.presto.spi.ConnectorSplit;
+import com.facebook.presto.spi.Domain;
+import com.facebook.presto.spi.HostAddress;
+import com.facebook.presto.spi.Range;
+import com.facebook.presto.spi.SortedRangeSet;
+import com.facebook.presto.spi.TupleDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.facebook.presto.cassandra.CassandraSplitManager.buildClusteringCondition;
+import static com.facebook.presto.cassandra.MockCassandraSession.TEST_SCHEMA;
+import static com.facebook.presto.cassandra.MockCassandraSession.TEST_TABLE;
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestCassandraSplitManager
+{
+    private static final String CONNECTOR_ID = "test-cassandra";
+
+    private static final CassandraColumnHandle CLUSTERING_BIGINT = new CassandraColumnHandle(CONNECTOR_ID, "c1", 0, CassandraType.BIGINT, null, false, true);
+    private static final CassandraColumnHandle CLUSTERING_DOUBLE = new CassandraColumnHandle(CONNECTOR_ID, "c2", 1, CassandraType.DOUBLE, null, false, true);
+    private static final CassandraColumnHandle CLUSTERING_VARCHAR = new CassandraColumnHandle(CONNECTOR_ID, "c3", 2, CassandraType.VARCHAR, null, false, true);
+    private static final List<CassandraColumnHandle> CLUSTERING_COLUMNS = ImmutableList.of(CLUSTERING_BIGINT, CLUSTERING_DOUBLE, CLUSTERING_VARCHAR);
+
+    @Test
+    public void testSplitsFollowTokenOwnership()
+            throws Exception
+    {
+        HostAddress host1 = HostAddress.fromString("10.0.0.1");
+        HostAddress host2 = HostAddress.fromString("10.0.0.2");
+        HostAddress host3 = HostAddress.fromString("10.0.0.3");
+
+        CassandraClientConfig config = new CassandraClientConfig().setUnpartitionedSplits(8);
+        MockCassandraSession session = new MockCassandraSession(CONNECTOR_ID, config);
+        // host1 owns half of the ring, the others a quarter each
+        session.setTokenRanges(ImmutableList.of(
+                new CassandraTokenRange(Long.MIN_VALUE, -1, ImmutableList.of(host1, host2)),
+                new CassandraTokenRange(0, (1L << 62) - 1, ImmutableList.of(host2, host3)),
+                new CassandraTokenRange(1L << 62, Long.MAX_VALUE, ImmutableList.of(host3, host1))));
+
+        CassandraSplitManager splitManager = createSplitManager(session, config);
+        CassandraTableHandle tableHandle = new CassandraTableHandle(CONNECTOR_ID, TEST_SCHEMA, TEST_TABLE);
+        List<ConnectorSplit> splits = splitManager.getPartitionSplits(tableHandle, ImmutableList.<ConnectorPartition>of(CassandraPartition.UNPARTITIONED)).getNextBatch(100);
+
+        assertEquals(splits.size(), 8);
+        assertEquals(countSplits(splits, ImmutableList.of(host1, host2)), 4);
+        assertEquals(countSplits(splits, ImmutableList.of(host2, host3)), 2);
+        assertEquals(countSplits(splits, ImmutableList.of(host3, host1)), 2);
+
+        assertEquals(((CassandraSplit) splits.get(0)).getSplitConditions(), ImmutableList.of("token(column1) >= " + Long.MIN_VALUE + " AND token(column1) <= " + (Long.MIN_VALUE + (1L << 61) - 1)));
+        assertEquals(((CassandraSplit) splits.get(3)).getSplitConditions(), ImmutableList.of("token(column1) >= " + -(1L << 61) + " AND token(column1) <= -1"));
+        assertEquals(((CassandraSplit) splits.get(7)).getSplitConditions(), ImmutableList.of("token(column1) >= " + ((1L << 62) + (1L << 61)) + " AND token(column1) <= " + Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testVirtualNodes()
+            throws Exception
+    {
+        List<HostAddress> hosts = ImmutableList.of(
+                HostAddress.fromString("10.0.0.1"),
+                HostAddress.fromString("10.0.0.2"),
+                HostAddress.fromString("10.0.0.3"));
+
+        // 256 tokens per host, each range replicated to its owner and the next host
+        int rangeCount = 256 * hosts.size();
+        long rangeSize = -(Long.MIN_VALUE / rangeCount) * 2;
+        ImmutableList.Builder<CassandraTokenRange> tokenRanges = ImmutableList.builder();
+        for (int i = 0; i < rangeCount; i++) {
+            long startToken = Long.MIN_VALUE + i * rangeSize;
+            long endToken = i == rangeCount - 1 ? Long.MAX_VALUE : startToken + rangeSize - 1;
+            tokenRanges.add(new CassandraTokenRange(startToken, endToken, ImmutableList.of(hosts.get(i % 3), hosts.get((i + 1) % 3))));
+        }
+
+        CassandraClientConfig config = new CassandraClientConfig().setUnpartitionedSplits(12);
+        MockCassandraSession session = new MockCassandraSession(CONNECTOR_ID, config);
+        session.setTokenRanges(tokenRanges.build());
+
+        CassandraSplitManager splitManager = createSplitManager(session, config);
+        CassandraTableHandle tableHandle = new CassandraTableHandle(CONNECTOR_ID, TEST_SCHEMA, TEST_TABLE);
+        List<ConnectorSplit> splits = splitManager.getPartitionSplits(tableHandle, ImmutableList.<ConnectorPartition>of(CassandraPartition.UNPARTITIONED)).getNextBatch(1000);
+
+        // the configured split count is honored instead of creating one split per range
+        assertEquals(splits.size(), 12);
+        assertEquals(countSplits(splits, ImmutableList.of(hosts.get(0), hosts.get(1))), 4);
+        assertEquals(countSplits(splits, ImmutableList.of(hosts.get(1), hosts.get(2))), 4);
+        assertEquals(countSplits(splits, ImmutableList.of(hosts.get(2), hosts.get(0))), 4);
+
+        // every range is read exactly once; a range is only cut where one split ends
+        int conditions = 0;
+        for (ConnectorSplit split : splits) {
+            int splitConditions = ((CassandraSplit) split).getSplitConditions().size();
+            assertTrue(splitConditions >= 64 && splitConditions <= 65, "split has " + splitConditions + " conditions");
+            conditions += splitConditions;
+        }
+        assertTrue(conditions >= rangeCount && conditions <= rangeCount + 9, "splits have " + conditions + " conditions");
+    }
+
+    @Test
+    public void testClusteringCondition()
+    {
+        TupleDomain<ConnectorColumnHandle> tupleDomain = TupleDomain.withColumnDomains(ImmutableMap.<ConnectorColumnHandle, Domain>of(
+                CLUSTERING_BIGINT, Domain.singleValue(5L),
+                CLUSTERING_DOUBLE, Domain.create(SortedRangeSet.of(Range.range(1.0, false, 2.5, true)), false),
+                CLUSTERING_VARCHAR, Domain.singleValue("ignored")));
+        assertEquals(buildClusteringCondition(CLUSTERING_COLUMNS, tupleDomain), "c1 = 5 AND c2 > 1.0 AND c2 <= 2.5");
+
+        tupleDomain = TupleDomain.withColumnDomains(ImmutableMap.<ConnectorColumnHandle, Domain>of(
+                CLUSTERING_BIGINT, Domain.singleValue(5L),
+                CLUSTERING_DOUBLE, Domain.singleValue(1.5),
+                CLUSTERING_VARCHAR, Domain.singleValue("it's")));
+        assertEquals(buildClusteringCondition(CLUSTERING_COLUMNS, tupleDomain), "c1 = 5 AND c2 = 1.5 AND c3 = 'it''s'");
+    }
+
+    @Test
+    public void testClusteringConditionNotPushed()
+    {
+        // a restriction on a later clustering column can not be used without the preceding ones
+        TupleDomain<ConnectorColumnHandle> tupleDomain = TupleDomain.withColumnDomains(ImmutableMap.<ConnectorColumnHandle, Domain>of(
+                CLUSTERING_DOUBLE, Domain.singleValue(1.5)));
+        assertNull(buildClusteringCondition(CLUSTERING_COLUMNS, tupleDomain));
+
+        // multiple ranges can not be expressed in CQL
+        tupleDomain = TupleDomain.withColumnDomains(ImmutableMap.<ConnectorColumnHandle, Domain>of(
+                CLUSTERING_BIGINT, Domain.create(SortedRangeSet.of(Range.lessThan(1L), Range.greaterThan(5L)), false)));
+        assertNull(buildClusteringCondition(CLUSTERING_COLUMNS, tupleDomain));
+
+        // varchar ranges are compared differently by Cassandra
+        tupleDomain = TupleDomain.withColumnDomains(ImmutableMap.<ConnectorColumnHandle, Domain>of(
+                CLUSTERING_BIGINT, Domain.singleValue(5L),
+                CLUSTERING_DOUBLE, Domain.singleValue(1.5),
+                CLUSTERING_VARCHAR, Domain.create(SortedRangeSet.of(Range.greaterThan("a")), false)));
+        assertEquals(buildClusteringCondition(CLUSTERING_COLUMNS, tupleDomain), "c1 = 5 AND c2 = 1.5");
+
+        assertNull(buildClusteringCondition(CLUSTERING_COLUMNS, TupleDomain.<ConnectorColumnHandle>none()));
+    }
+
+    private static CassandraSplitManager createSplitManager(MockCassandraSession session, CassandraClientConfig config)
+    {
+        ListeningExecutorService executor = listeningDecorator(newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).build()));
+        CachingCassandraSchemaProvider schemaProvider = new CachingCassandraSchemaProvider(
+                CONNECTOR_ID,
+                session,
+                executor,
+                new Duration(5, TimeUnit.MINUTES),
+                new Duration(1, TimeUnit.MINUTES));
+        return new CassandraSplitManager(new CassandraConnectorId(CONNECTOR_ID), config, session, schemaProvider);
+    }
+
+    private static int countSplits(List<ConnectorSplit> splits, List<HostAddress> addresses)
+    {
+        int count = 0;
+        for (ConnectorSplit split : splits) {
+            if (split.getAddresses().equals(addresses)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
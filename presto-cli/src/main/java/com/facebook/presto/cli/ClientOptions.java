@@ -51,6 +51,18 @@ public class ClientOptions
     @Option(name = "--output-format", title = "output-format", description = "Output format for batch mode (default: CSV)")
     public OutputFormat outputFormat = OutputFormat.CSV;
 
+    @Option(name = "--export", title = "export", description = "Stream the results of --execute or --file in CSV or TSV format for bulk export")
+    public boolean export;
+
+    @Option(name = "--output-file", title = "output-file", description = "Export to a file instead of standard output")
+    public String outputFile;
+
+    @Option(name = "--gzip", title = "gzip", description = "Compress exported output with gzip")
+    public boolean gzip;
+
+    @Option(name = "--progress", title = "progress", description = "Report export progress on standard error")
+    public boolean progress;
+
     public enum OutputFormat
     {
         ALIGNED,
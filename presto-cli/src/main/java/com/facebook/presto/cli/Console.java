@@ -35,9 +35,14 @@ import org.fusesource.jansi.AnsiConsole;
 
 import javax.inject.Inject;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.zip.GZIPOutputStream;
 
 import static com.facebook.presto.cli.Help.getHelpText;
 import static com.facebook.presto.sql.parser.StatementSplitter.Statement;
@@ -52,6 +57,7 @@ public class Console
         implements Runnable
 {
     private static final String PROMPT_NAME = "presto";
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
 
     @Inject
     public HelpOption helpOption;
@@ -86,8 +92,20 @@ public class Console
             }
         }
 
+        if (clientOptions.export) {
+            if (!hasQuery) {
+                throw new RuntimeException("--export requires --execute or --file");
+            }
+            if (!ExportPrinter.isSupported(clientOptions.outputFormat)) {
+                throw new RuntimeException(format("Output format %s is not supported for export", clientOptions.outputFormat));
+            }
+        }
+
         try (QueryRunner queryRunner = QueryRunner.create(session)) {
-            if (hasQuery) {
+            if (hasQuery && clientOptions.export) {
+                executeExport(queryRunner, query, clientOptions);
+            }
+            else if (hasQuery) {
                 executeCommand(queryRunner, query, clientOptions.outputFormat);
             }
             else {
@@ -217,6 +235,54 @@ public class Console
         }
     }
 
+    private static void executeExport(QueryRunner queryRunner, String query, ClientOptions clientOptions)
+    {
+        try (OutputStream out = openExportOutput(clientOptions.outputFile, clientOptions.gzip)) {
+            StatementSplitter splitter = new StatementSplitter(query + ";");
+            for (Statement split : splitter.getCompleteStatements()) {
+                try (Query exportQuery = queryRunner.startQuery(split.statement())) {
+                    exportQuery.exportOutput(out, clientOptions.outputFormat, clientOptions.progress);
+                }
+                catch (RuntimeException e) {
+                    System.err.println("Error running command: " + e.getMessage());
+                    if (queryRunner.getSession().isDebug()) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException(format("Error writing export output: %s", e.getMessage()));
+        }
+    }
+
+    private static OutputStream openExportOutput(String file, boolean gzip)
+            throws IOException
+    {
+        OutputStream out;
+        if (file == null) {
+            // write to the process output directly, bypassing the ANSI console stream
+            out = new FileOutputStream(FileDescriptor.out)
+            {
+                @Override
+                public void close()
+                        throws IOException
+                {
+                    flush();
+                }
+            };
+        }
+        else {
+            out = new FileOutputStream(file);
+        }
+
+        out = new BufferedOutputStream(out, EXPORT_BUFFER_SIZE);
+        if (gzip) {
+            out = new GZIPOutputStream(out, EXPORT_BUFFER_SIZE);
+        }
+        return out;
+    }
+
     private static void process(QueryRunner queryRunner, String sql, OutputFormat outputFormat, boolean interactive)
     {
         try (Query query = queryRunner.startQuery(sql)) {
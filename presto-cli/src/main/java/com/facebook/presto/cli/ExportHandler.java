@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cli;
+
+import com.facebook.presto.client.QueryResults;
+import com.facebook.presto.client.StatementClient;
+import com.facebook.presto.client.StatementStats;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.facebook.presto.cli.FormatUtils.formatCount;
+import static com.facebook.presto.cli.FormatUtils.formatCountRate;
+import static com.facebook.presto.cli.FormatUtils.formatDataSize;
+import static com.facebook.presto.cli.FormatUtils.formatTime;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static io.airlift.units.Duration.nanosSince;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Streams all results of a query to a printer. Result batches are fetched and
+ * decoded on a background thread, which stays up to {@link #MAX_BUFFERED_BATCHES}
+ * batches ahead of the writer, so the server is not idle while rows are written.
+ */
+public final class ExportHandler
+{
+    private static final int MAX_BUFFERED_BATCHES = 16;
+    private static final Duration PROGRESS_INTERVAL = new Duration(1, SECONDS);
+
+    private final StatementClient client;
+    private final OutputPrinter printer;
+    private final PrintStream progressOut;
+
+    private final BlockingQueue<List<List<?>>> batches = new ArrayBlockingQueue<>(MAX_BUFFERED_BATCHES);
+    private final AtomicReference<StatementStats> stats = new AtomicReference<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private final long start = System.nanoTime();
+    private long rows;
+
+    public ExportHandler(StatementClient client, OutputPrinter printer, @Nullable PrintStream progressOut)
+    {
+        this.client = checkNotNull(client, "client is null");
+        this.printer = checkNotNull(printer, "printer is null");
+        this.progressOut = progressOut;
+    }
+
+    public void export()
+            throws IOException
+    {
+        Thread fetcher = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                fetchResults();
+            }
+        }, "export-fetcher");
+        fetcher.setDaemon(true);
+        fetcher.start();
+
+        try {
+            long lastProgress = System.nanoTime();
+            while (true) {
+                boolean done = finished.get();
+
+                List<List<?>> batch = batches.poll(PROGRESS_INTERVAL.toMillis(), MILLISECONDS);
+                while (batch != null) {
+                    printer.printRows(batch, false);
+                    rows += batch.size();
+                    batch = batches.poll();
+                }
+
+                if (progressOut != null && nanosSince(lastProgress).compareTo(PROGRESS_INTERVAL) >= 0) {
+                    printProgress();
+                    lastProgress = System.nanoTime();
+                }
+
+                // the fetcher was already finished before the queue was drained
+                if (done) {
+                    break;
+                }
+            }
+            printer.finish();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting results", e);
+        }
+        finally {
+            if (!finished.get()) {
+                // the writer failed, so stop the query
+                client.close();
+                fetcher.interrupt();
+            }
+        }
+
+        if (failure.get() != null) {
+            throw Throwables.propagate(failure.get());
+        }
+
+        if (progressOut != null) {
+            printProgress();
+        }
+    }
+
+    private void fetchResults()
+    {
+        try {
+            while (client.isValid()) {
+                QueryResults results = client.current();
+                stats.set(results.getStats());
+
+                Iterable<List<Object>> data = results.getData();
+                if (data != null) {
+                    batches.put(ImmutableList.<List<?>>copyOf(data));
+                }
+                client.advance();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (RuntimeException e) {
+            failure.set(e);
+        }
+        finally {
+            finished.set(true);
+        }
+    }
+
+    private void printProgress()
+    {
+        Duration elapsed = nanosSince(start);
+        String line = format("%s: %s rows exported (%s)",
+                formatTime(elapsed),
+                formatCount(rows),
+                formatCountRate(rows, elapsed, false));
+
+        StatementStats statementStats = stats.get();
+        if (statementStats != null) {
+            line += format(", query %s: %s rows, %s processed, %s/%s splits",
+                    statementStats.getState(),
+                    formatCount(statementStats.getProcessedRows()),
+                    formatDataSize(new DataSize(statementStats.getProcessedBytes(), BYTE), true),
+                    statementStats.getCompletedSplits(),
+                    statementStats.getTotalSplits());
+        }
+        progressOut.println(line);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cli;
+
+import com.facebook.presto.cli.ClientOptions.OutputFormat;
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes CSV or TSV output identical to {@link CsvPrinter} and {@link TsvPrinter},
+ * but formats each row into a reused buffer instead of allocating strings per row.
+ */
+public class ExportPrinter
+        implements OutputPrinter
+{
+    private final List<String> fieldNames;
+    private final Writer writer;
+    private final boolean csv;
+    private final StringBuilder line = new StringBuilder();
+
+    private char[] buffer = new char[1024];
+    private boolean needHeader;
+
+    public ExportPrinter(List<String> fieldNames, Writer writer, OutputFormat format)
+    {
+        this.fieldNames = ImmutableList.copyOf(checkNotNull(fieldNames, "fieldNames is null"));
+        this.writer = checkNotNull(writer, "writer is null");
+        checkArgument(isSupported(format), "Output format %s is not supported for export", format);
+        this.csv = (format == OutputFormat.CSV) || (format == OutputFormat.CSV_HEADER);
+        this.needHeader = (format == OutputFormat.CSV_HEADER) || (format == OutputFormat.TSV_HEADER);
+    }
+
+    public static boolean isSupported(OutputFormat format)
+    {
+        switch (format) {
+            case CSV:
+            case CSV_HEADER:
+            case TSV:
+            case TSV_HEADER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void printRows(List<List<?>> rows, boolean complete)
+            throws IOException
+    {
+        if (needHeader) {
+            needHeader = false;
+            printRow(fieldNames);
+        }
+
+        for (List<?> row : rows) {
+            printRow(row);
+        }
+    }
+
+    @Override
+    public void finish()
+            throws IOException
+    {
+        printRows(ImmutableList.<List<?>>of(), true);
+        writer.flush();
+    }
+
+    private void printRow(List<?> row)
+            throws IOException
+    {
+        line.setLength(0);
+        for (int i = 0; i < row.size(); i++) {
+            if (i > 0) {
+                line.append(csv ? ',' : '\t');
+            }
+            appendValue(row.get(i));
+        }
+        line.append('\n');
+
+        int length = line.length();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        line.getChars(0, length, buffer, 0);
+        writer.write(buffer, 0, length);
+    }
+
+    private void appendValue(Object value)
+    {
+        if (csv) {
+            line.append('"');
+        }
+
+        // numbers and booleans never need escaping
+        if (value instanceof Long) {
+            line.append(((Long) value).longValue());
+        }
+        else if (value instanceof Double) {
+            line.append(((Double) value).doubleValue());
+        }
+        else if (value instanceof Boolean) {
+            line.append(((Boolean) value).booleanValue());
+        }
+        else if (value != null) {
+            String string = value.toString();
+            for (int i = 0; i < string.length(); i++) {
+                if (csv) {
+                    escapeCsvCharacter(string.charAt(i));
+                }
+                else {
+                    escapeTsvCharacter(string.charAt(i));
+                }
+            }
+        }
+
+        if (csv) {
+            line.append('"');
+        }
+    }
+
+    private void escapeCsvCharacter(char c)
+    {
+        if (c == '"') {
+            line.append('"');
+        }
+        line.append(c);
+    }
+
+    private void escapeTsvCharacter(char c)
+    {
+        switch (c) {
+            case '\0':
+                line.append('\\').append('0');
+                break;
+            case '\b':
+                line.append('\\').append('b');
+                break;
+            case '\f':
+                line.append('\\').append('f');
+                break;
+            case '\n':
+                line.append('\\').append('n');
+                break;
+            case '\r':
+                line.append('\\').append('r');
+                break;
+            case '\t':
+                line.append('\\').append('t');
+                break;
+            case '\\':
+                line.append('\\').append('\\');
+                break;
+            default:
+                line.append(c);
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.fusesource.jansi.Ansi;
 import sun.misc.Signal;
 import sun.misc.SignalHandler;
 
+import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -48,6 +49,7 @@ public class Query
     private static final Logger log = Logger.get(Query.class);
 
     private static final Signal SIGINT = new Signal("INT");
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
 
     private final AtomicBoolean ignoreUserInterrupt = new AtomicBoolean();
     private final StatementClient client;
@@ -59,7 +61,33 @@ public class Query
 
     public void renderOutput(PrintStream out, OutputFormat outputFormat, boolean interactive)
     {
-        SignalHandler oldHandler = Signal.handle(SIGINT, new SignalHandler()
+        SignalHandler oldHandler = installCancelHandler();
+        try {
+            renderQueryOutput(out, outputFormat, interactive);
+        }
+        finally {
+            Signal.handle(SIGINT, oldHandler);
+        }
+    }
+
+    /**
+     * Streams all results to the output without paging or a status display.
+     * Errors and, if requested, progress are reported on standard error.
+     */
+    public void exportOutput(OutputStream out, OutputFormat outputFormat, boolean progress)
+    {
+        SignalHandler oldHandler = installCancelHandler();
+        try {
+            exportQueryOutput(out, outputFormat, progress);
+        }
+        finally {
+            Signal.handle(SIGINT, oldHandler);
+        }
+    }
+
+    private SignalHandler installCancelHandler()
+    {
+        return Signal.handle(SIGINT, new SignalHandler()
         {
             @Override
             public void handle(Signal signal)
@@ -78,12 +106,6 @@ public class Query
                 }
             }
         });
-        try {
-            renderQueryOutput(out, outputFormat, interactive);
-        }
-        finally {
-            Signal.handle(SIGINT, oldHandler);
-        }
     }
 
     private void renderQueryOutput(PrintStream out, OutputFormat outputFormat, boolean interactive)
@@ -123,6 +145,35 @@ public class Query
             statusPrinter.printFinalInfo();
         }
 
+        renderFinalState(errorChannel);
+    }
+
+    private void exportQueryOutput(OutputStream out, OutputFormat outputFormat, boolean progress)
+    {
+        waitForData();
+
+        if ((!client.isFailed()) && (!client.isGone()) && (!client.isClosed())) {
+            QueryResults results = client.isValid() ? client.current() : client.finalResults();
+            if (results.getColumns() == null) {
+                System.err.printf("Query %s has no columns\n", results.getId());
+                return;
+            }
+
+            List<String> fieldNames = Lists.transform(results.getColumns(), Column.nameGetter());
+            Writer writer = new BufferedWriter(createWriter(out), EXPORT_BUFFER_SIZE);
+            try {
+                new ExportHandler(client, new ExportPrinter(fieldNames, writer, outputFormat), progress ? System.err : null).export();
+            }
+            catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+
+        renderFinalState(System.err);
+    }
+
+    private void renderFinalState(PrintStream errorChannel)
+    {
         if (client.isClosed()) {
             errorChannel.println("Query aborted by user");
         }
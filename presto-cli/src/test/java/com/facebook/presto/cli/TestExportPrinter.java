@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.cli;
+
+import com.facebook.presto.cli.ClientOptions.OutputFormat;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import static com.facebook.presto.cli.TestAlignedTablePrinter.row;
+import static com.facebook.presto.cli.TestAlignedTablePrinter.rows;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class TestExportPrinter
+{
+    private static final List<String> FIELD_NAMES = ImmutableList.of("first", "last", "quantity", "flag");
+    private static final List<List<?>> ROWS = rows(
+            row("hello", "world", 123L, true),
+            row("a", null, 4.5, false),
+            row("some \"quoted\"\ntext", "tab\there\\", -15L, null),
+            row("bye", "done", 1.0E-7, true));
+
+    @Test
+    public void testMatchesCsvPrinter()
+            throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        assertMatches(OutputFormat.CSV, new CsvPrinter(FIELD_NAMES, writer, false), writer);
+
+        writer = new StringWriter();
+        assertMatches(OutputFormat.CSV_HEADER, new CsvPrinter(FIELD_NAMES, writer, true), writer);
+    }
+
+    @Test
+    public void testMatchesTsvPrinter()
+            throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        assertMatches(OutputFormat.TSV, new TsvPrinter(FIELD_NAMES, writer, false), writer);
+
+        writer = new StringWriter();
+        assertMatches(OutputFormat.TSV_HEADER, new TsvPrinter(FIELD_NAMES, writer, true), writer);
+    }
+
+    @Test
+    public void testNoRows()
+            throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        OutputPrinter printer = new ExportPrinter(ImmutableList.of("first", "last"), writer, OutputFormat.CSV_HEADER);
+        printer.finish();
+
+        assertEquals(writer.getBuffer().toString(), "\"first\",\"last\"\n");
+    }
+
+    @Test
+    public void testUnsupportedFormats()
+    {
+        assertFalse(ExportPrinter.isSupported(OutputFormat.ALIGNED));
+        assertFalse(ExportPrinter.isSupported(OutputFormat.VERTICAL));
+    }
+
+    private static void assertMatches(OutputFormat format, OutputPrinter reference, StringWriter expected)
+            throws Exception
+    {
+        StringWriter actual = new StringWriter();
+        OutputPrinter printer = new ExportPrinter(FIELD_NAMES, actual, format);
+        printer.printRows(ROWS.subList(0, 2), false);
+        printer.printRows(ROWS.subList(2, ROWS.size()), false);
+        printer.finish();
+
+        reference.printRows(ROWS, true);
+        reference.finish();
+
+        assertEquals(actual.getBuffer().toString(), expected.getBuffer().toString());
+    }
+}
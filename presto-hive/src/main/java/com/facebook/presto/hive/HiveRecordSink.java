@@ -61,6 +61,7 @@ import static org.apache.hadoop.hive.metastore.api.hive_metastoreConstants.META_
 import static org.apache.hadoop.hive.ql.exec.FileSinkOperator.RecordWriter;
 import static org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory.getStandardStructObjectInspector;
 import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaBooleanObjectInspector;
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaByteArrayObjectInspector;
 import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaDoubleObjectInspector;
 import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaLongObjectInspector;
 import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaStringObjectInspector;
@@ -76,6 +77,7 @@ public class HiveRecordSink
     private final List<StructField> structFields;
     private final Object row;
     private final int sampleWeightField;
+    private final List<HiveType> fieldTypes;
 
     private int field = -1;
 
@@ -85,7 +87,7 @@ public class HiveRecordSink
 
         sampleWeightField = handle.getColumnNames().indexOf(SAMPLE_WEIGHT_COLUMN_NAME);
 
-        Iterable<HiveType> hiveTypes = transform(handle.getColumnTypes(), columnTypeToHiveType());
+        List<HiveType> hiveTypes = ImmutableList.copyOf(transform(handle.getColumnTypes(), columnTypeToHiveType()));
         Iterable<String> hiveTypeNames = transform(hiveTypes, hiveTypeNameGetter());
 
         Properties properties = new Properties();
@@ -98,6 +100,7 @@ public class HiveRecordSink
         tableInspector = getStandardStructObjectInspector(handle.getColumnNames(), getJavaObjectInspectors(hiveTypes));
         structFields = ImmutableList.copyOf(tableInspector.getAllStructFieldRefs());
         row = tableInspector.create();
+        fieldTypes = hiveTypes;
     }
 
     @Override
@@ -155,7 +158,15 @@ public class HiveRecordSink
     @Override
     public void appendString(byte[] value)
     {
-        append(new String(value, UTF_8));
+        checkState(field != -1, "not in record");
+        checkState(field < fieldCount, "all fields already set");
+
+        if (fieldTypes.get(field) == HiveType.BINARY) {
+            append(value);
+        }
+        else {
+            append(new String(value, UTF_8));
+        }
     }
 
     @Override
@@ -227,6 +238,8 @@ public class HiveRecordSink
                 return javaDoubleObjectInspector;
             case STRING:
                 return javaStringObjectInspector;
+            case BINARY:
+                return javaByteArrayObjectInspector;
         }
         throw new IllegalArgumentException("unsupported type: " + type);
     }
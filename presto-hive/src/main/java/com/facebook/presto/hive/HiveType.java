@@ -16,6 +16,8 @@ package com.facebook.presto.hive;
 import com.facebook.presto.spi.type.BigintType;
 import com.facebook.presto.spi.type.BooleanType;
 import com.facebook.presto.spi.type.DoubleType;
+import com.facebook.presto.spi.type.HyperLogLogType;
+import com.facebook.presto.spi.type.QuantileDigestType;
 import com.facebook.presto.spi.type.TimestampType;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.spi.type.VarbinaryType;
@@ -176,6 +178,10 @@ public enum HiveType
         if (VarcharType.VARCHAR.equals(type)) {
             return STRING;
         }
+        if (VarbinaryType.VARBINARY.equals(type) || HyperLogLogType.HYPER_LOG_LOG.equals(type) || QuantileDigestType.QUANTILE_DIGEST.equals(type)) {
+            // sketches are stored in their serialized form and can be cast back when read
+            return BINARY;
+        }
         throw new IllegalArgumentException("unsupported type: " + type);
     }
 
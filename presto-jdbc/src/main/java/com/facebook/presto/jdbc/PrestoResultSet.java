@@ -17,8 +17,6 @@ import com.facebook.presto.client.Column;
 import com.facebook.presto.client.QueryError;
 import com.facebook.presto.client.QueryResults;
 import com.facebook.presto.client.StatementClient;
-import com.google.common.base.Function;
-import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.joda.time.DateTimeZone;
@@ -53,17 +51,14 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.Calendar;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.base.Throwables.propagate;
 import static com.google.common.base.Throwables.propagateIfInstanceOf;
-import static com.google.common.collect.Iterators.concat;
-import static com.google.common.collect.Iterators.transform;
 import static java.lang.String.format;
 
 public class PrestoResultSet
@@ -126,14 +121,15 @@ public class PrestoResultSet
 
     private final StatementClient client;
     private final DateTimeZone sessionTimeZone;
-    private final Iterator<List<Object>> results;
+    private final ResultsFetcher fetcher;
     private final Map<String, Integer> fieldMap;
     private final List<ColumnInfo> columnInfoList;
     private final ResultSetMetaData resultSetMetaData;
-    private final AtomicReference<List<Object>> row = new AtomicReference<>();
+    private final AtomicReference<ResultsBatch> batch = new AtomicReference<>();
+    private final AtomicInteger position = new AtomicInteger();
     private final AtomicBoolean wasNull = new AtomicBoolean();
 
-    PrestoResultSet(StatementClient client)
+    PrestoResultSet(StatementClient client, int fetchSize)
             throws SQLException
     {
         this.client = checkNotNull(client, "client is null");
@@ -144,7 +140,12 @@ public class PrestoResultSet
         this.columnInfoList = getColumnInfo(columns);
         this.resultSetMetaData = new PrestoResultSetMetaData(columnInfoList);
 
-        this.results = flatten(new ResultsPageIterator(client));
+        ImmutableList.Builder<String> columnTypes = ImmutableList.builder();
+        for (Column column : columns) {
+            columnTypes.add(column.getType());
+        }
+        this.fetcher = new ResultsFetcher(client, columnTypes.build(), fetchSize);
+        fetcher.start();
     }
 
     @Override
@@ -153,12 +154,20 @@ public class PrestoResultSet
     {
         checkOpen();
         try {
-            if (!results.hasNext()) {
-                row.set(null);
-                return false;
+            ResultsBatch current = batch.get();
+            if ((current != null) && (position.get() + 1 < current.getRowCount())) {
+                position.incrementAndGet();
+                return true;
+            }
+
+            do {
+                current = fetcher.next();
             }
-            row.set(results.next());
-            return true;
+            while ((current != null) && (current.getRowCount() == 0));
+
+            batch.set(current);
+            position.set(0);
+            return current != null;
         }
         catch (RuntimeException e) {
             propagateIfInstanceOf(e, SQLException.class);
@@ -170,7 +179,7 @@ public class PrestoResultSet
     public void close()
             throws SQLException
     {
-        client.close();
+        fetcher.close();
     }
 
     @Override
@@ -192,56 +201,70 @@ public class PrestoResultSet
     public boolean getBoolean(int columnIndex)
             throws SQLException
     {
-        Object value = column(columnIndex);
-        return (value != null) ? (Boolean) value : false;
+        if (isNullColumn(columnIndex)) {
+            return false;
+        }
+        return batch.get().getBoolean(position.get(), columnIndex - 1);
     }
 
     @Override
     public byte getByte(int columnIndex)
             throws SQLException
     {
-        Object value = column(columnIndex);
-        return (value != null) ? ((Number) value).byteValue() : 0;
+        if (isNullColumn(columnIndex)) {
+            return 0;
+        }
+        return (byte) batch.get().getLong(position.get(), columnIndex - 1);
     }
 
     @Override
     public short getShort(int columnIndex)
             throws SQLException
     {
-        Object value = column(columnIndex);
-        return (value != null) ? ((Number) value).shortValue() : 0;
+        if (isNullColumn(columnIndex)) {
+            return 0;
+        }
+        return (short) batch.get().getLong(position.get(), columnIndex - 1);
     }
 
     @Override
     public int getInt(int columnIndex)
             throws SQLException
     {
-        Object value = column(columnIndex);
-        return (value != null) ? ((Number) value).intValue() : 0;
+        if (isNullColumn(columnIndex)) {
+            return 0;
+        }
+        return (int) batch.get().getLong(position.get(), columnIndex - 1);
     }
 
     @Override
     public long getLong(int columnIndex)
             throws SQLException
     {
-        Object value = column(columnIndex);
-        return (value != null) ? ((Number) value).longValue() : 0;
+        if (isNullColumn(columnIndex)) {
+            return 0;
+        }
+        return batch.get().getLong(position.get(), columnIndex - 1);
     }
 
     @Override
     public float getFloat(int columnIndex)
             throws SQLException
     {
-        Object value = column(columnIndex);
-        return (value != null) ? ((Number) value).floatValue() : 0;
+        if (isNullColumn(columnIndex)) {
+            return 0;
+        }
+        return (float) batch.get().getDouble(position.get(), columnIndex - 1);
     }
 
     @Override
     public double getDouble(int columnIndex)
             throws SQLException
     {
-        Object value = column(columnIndex);
-        return (value != null) ? ((Number) value).doubleValue() : 0;
+        if (isNullColumn(columnIndex)) {
+            return 0;
+        }
+        return batch.get().getDouble(position.get(), columnIndex - 1);
     }
 
     @Override
@@ -388,56 +411,49 @@ public class PrestoResultSet
     public boolean getBoolean(String columnLabel)
             throws SQLException
     {
-        Object value = column(columnLabel);
-        return (value != null) ? (Boolean) value : false;
+        return getBoolean(columnIndex(columnLabel));
     }
 
     @Override
     public byte getByte(String columnLabel)
             throws SQLException
     {
-        Object value = column(columnLabel);
-        return (value != null) ? ((Number) value).byteValue() : 0;
+        return getByte(columnIndex(columnLabel));
     }
 
     @Override
     public short getShort(String columnLabel)
             throws SQLException
     {
-        Object value = column(columnLabel);
-        return (value != null) ? ((Number) value).shortValue() : 0;
+        return getShort(columnIndex(columnLabel));
     }
 
     @Override
     public int getInt(String columnLabel)
             throws SQLException
     {
-        Object value = column(columnLabel);
-        return (value != null) ? ((Number) value).intValue() : 0;
+        return getInt(columnIndex(columnLabel));
     }
 
     @Override
     public long getLong(String columnLabel)
             throws SQLException
     {
-        Object value = column(columnLabel);
-        return (value != null) ? ((Number) value).longValue() : 0;
+        return getLong(columnIndex(columnLabel));
     }
 
     @Override
     public float getFloat(String columnLabel)
             throws SQLException
     {
-        Object value = column(columnLabel);
-        return (value != null) ? ((Number) value).floatValue() : 0;
+        return getFloat(columnIndex(columnLabel));
     }
 
     @Override
     public double getDouble(String columnLabel)
             throws SQLException
     {
-        Object value = column(columnLabel);
-        return (value != null) ? ((Number) value).doubleValue() : 0;
+        return getDouble(columnIndex(columnLabel));
     }
 
     @Override
@@ -724,14 +740,19 @@ public class PrestoResultSet
     public void setFetchSize(int rows)
             throws SQLException
     {
-        throw new UnsupportedOperationException("setFetchSize");
+        checkOpen();
+        if (rows < 0) {
+            throw new SQLException("Fetch size must not be negative");
+        }
+        fetcher.setFetchSize(rows);
     }
 
     @Override
     public int getFetchSize()
             throws SQLException
     {
-        throw new UnsupportedOperationException("getFetchSize");
+        checkOpen();
+        return fetcher.getFetchSize();
     }
 
     @Override
@@ -1652,12 +1673,12 @@ public class PrestoResultSet
     private void checkValidRow()
             throws SQLException
     {
-        if (row.get() == null) {
+        if (batch.get() == null) {
             throw new SQLException("Not on a valid row");
         }
     }
 
-    private Object column(int index)
+    private void checkColumn(int index)
             throws SQLException
     {
         checkOpen();
@@ -1665,7 +1686,24 @@ public class PrestoResultSet
         if ((index <= 0) || (index > resultSetMetaData.getColumnCount())) {
             throw new SQLException("Invalid column index: " + index);
         }
-        return row.get().get(index - 1);
+    }
+
+    private boolean isNullColumn(int index)
+            throws SQLException
+    {
+        checkColumn(index);
+        boolean isNull = batch.get().isNull(position.get(), index - 1);
+        wasNull.set(isNull);
+        return isNull;
+    }
+
+    private Object column(int index)
+            throws SQLException
+    {
+        checkColumn(index);
+        Object value = batch.get().getObject(position.get(), index - 1);
+        wasNull.set(value == null);
+        return value;
     }
 
     private Object column(String label)
@@ -1673,7 +1711,7 @@ public class PrestoResultSet
     {
         checkOpen();
         checkValidRow();
-        return row.get().get(columnIndex(label) - 1);
+        return column(columnIndex(label));
     }
 
     private int columnIndex(String label)
@@ -1707,48 +1745,7 @@ public class PrestoResultSet
         throw resultsException(results);
     }
 
-    private static <T> Iterator<T> flatten(Iterator<Iterable<T>> iterator)
-    {
-        return concat(transform(iterator, new Function<Iterable<T>, Iterator<T>>()
-        {
-            @Override
-            public Iterator<T> apply(Iterable<T> input)
-            {
-                return input.iterator();
-            }
-        }));
-    }
-
-    private static class ResultsPageIterator
-            extends AbstractIterator<Iterable<List<Object>>>
-    {
-        private final StatementClient client;
-
-        private ResultsPageIterator(StatementClient client)
-        {
-            this.client = checkNotNull(client, "client is null");
-        }
-
-        @Override
-        protected Iterable<List<Object>> computeNext()
-        {
-            while (client.isValid()) {
-                Iterable<List<Object>> data = client.current().getData();
-                client.advance();
-                if (data != null) {
-                    return data;
-                }
-            }
-
-            if (client.isFailed()) {
-                throw propagate(resultsException(client.finalResults()));
-            }
-
-            return endOfData();
-        }
-    }
-
-    private static SQLException resultsException(QueryResults results)
+    static SQLException resultsException(QueryResults results)
     {
         QueryError error = results.getError();
         String message = format("Query failed (#%s): %s", results.getId(), error.getMessage());
@@ -46,7 +46,7 @@ public class PrestoStatement
             throws SQLException
     {
         try {
-            ResultSet result = new PrestoResultSet(connection().startQuery(sql));
+            ResultSet result = new PrestoResultSet(connection().startQuery(sql), fetchSize.get());
             currentResult.set(result);
             return result;
         }
@@ -227,7 +227,7 @@ public class PrestoStatement
     {
         checkOpen();
         if (rows < 0) {
-            throw new SQLException("Fetch size must be positive");
+            throw new SQLException("Fetch size must not be negative");
         }
         fetchSize.set(rows);
     }
@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.jdbc;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * One batch of query results stored by column. Bigint, double and boolean
+ * columns are kept in primitive arrays so reading them does not box.
+ */
+final class ResultsBatch
+{
+    private final int rowCount;
+    private final long[][] longColumns;
+    private final double[][] doubleColumns;
+    private final boolean[][] booleanColumns;
+    private final Object[][] objectColumns;
+    private final boolean[][] nulls;
+
+    ResultsBatch(List<String> columnTypes, List<List<Object>> rows)
+    {
+        checkNotNull(columnTypes, "columnTypes is null");
+        checkNotNull(rows, "rows is null");
+
+        int columnCount = columnTypes.size();
+        rowCount = rows.size();
+        longColumns = new long[columnCount][];
+        doubleColumns = new double[columnCount][];
+        booleanColumns = new boolean[columnCount][];
+        objectColumns = new Object[columnCount][];
+        nulls = new boolean[columnCount][rowCount];
+
+        for (int column = 0; column < columnCount; column++) {
+            switch (columnTypes.get(column)) {
+                case "bigint":
+                    longColumns[column] = new long[rowCount];
+                    break;
+                case "double":
+                    doubleColumns[column] = new double[rowCount];
+                    break;
+                case "boolean":
+                    booleanColumns[column] = new boolean[rowCount];
+                    break;
+                default:
+                    objectColumns[column] = new Object[rowCount];
+            }
+        }
+
+        for (int row = 0; row < rowCount; row++) {
+            List<Object> values = rows.get(row);
+            for (int column = 0; column < columnCount; column++) {
+                Object value = values.get(column);
+                if (value == null) {
+                    nulls[column][row] = true;
+                }
+                else if (longColumns[column] != null) {
+                    longColumns[column][row] = ((Number) value).longValue();
+                }
+                else if (doubleColumns[column] != null) {
+                    doubleColumns[column][row] = ((Number) value).doubleValue();
+                }
+                else if (booleanColumns[column] != null) {
+                    booleanColumns[column][row] = (Boolean) value;
+                }
+                else {
+                    objectColumns[column][row] = value;
+                }
+            }
+        }
+    }
+
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    public boolean isNull(int row, int column)
+    {
+        return nulls[column][row];
+    }
+
+    public long getLong(int row, int column)
+    {
+        if (longColumns[column] != null) {
+            return longColumns[column][row];
+        }
+        if (doubleColumns[column] != null) {
+            return (long) doubleColumns[column][row];
+        }
+        return ((Number) getObject(row, column)).longValue();
+    }
+
+    public double getDouble(int row, int column)
+    {
+        if (doubleColumns[column] != null) {
+            return doubleColumns[column][row];
+        }
+        if (longColumns[column] != null) {
+            return longColumns[column][row];
+        }
+        return ((Number) getObject(row, column)).doubleValue();
+    }
+
+    public boolean getBoolean(int row, int column)
+    {
+        if (booleanColumns[column] != null) {
+            return booleanColumns[column][row];
+        }
+        return (Boolean) getObject(row, column);
+    }
+
+    public Object getObject(int row, int column)
+    {
+        if (nulls[column][row]) {
+            return null;
+        }
+        if (longColumns[column] != null) {
+            return longColumns[column][row];
+        }
+        if (doubleColumns[column] != null) {
+            return doubleColumns[column][row];
+        }
+        if (booleanColumns[column] != null) {
+            return booleanColumns[column][row];
+        }
+        return objectColumns[column][row];
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.jdbc;
+
+import com.facebook.presto.client.StatementClient;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads result batches ahead of the consumer on a background thread. The
+ * thread requests the next batch from the server as soon as the previous one
+ * is buffered, and waits while the buffered rows exceed the fetch size. At
+ * least one batch is always buffered, regardless of the fetch size.
+ */
+@ThreadSafe
+class ResultsFetcher
+        implements Runnable, Closeable
+{
+    static final int DEFAULT_FETCH_SIZE = 10_000;
+
+    private final StatementClient client;
+    private final List<String> columnTypes;
+
+    @GuardedBy("this")
+    private final ArrayDeque<ResultsBatch> batches = new ArrayDeque<>();
+    @GuardedBy("this")
+    private int bufferedRows;
+    @GuardedBy("this")
+    private int fetchSize;
+    @GuardedBy("this")
+    private boolean finished;
+    @GuardedBy("this")
+    private boolean closed;
+    @GuardedBy("this")
+    private Throwable failure;
+
+    ResultsFetcher(StatementClient client, List<String> columnTypes, int fetchSize)
+    {
+        this.client = checkNotNull(client, "client is null");
+        this.columnTypes = ImmutableList.copyOf(checkNotNull(columnTypes, "columnTypes is null"));
+        setFetchSize(fetchSize);
+    }
+
+    public void start()
+    {
+        Thread thread = new Thread(this, "presto-jdbc-results-" + client.current().getId());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized int getFetchSize()
+    {
+        return fetchSize;
+    }
+
+    public synchronized void setFetchSize(int fetchSize)
+    {
+        checkArgument(fetchSize >= 0, "fetchSize is negative");
+        this.fetchSize = (fetchSize == 0) ? DEFAULT_FETCH_SIZE : fetchSize;
+        notifyAll();
+    }
+
+    @Override
+    public void run()
+    {
+        try {
+            while (client.isValid()) {
+                Iterable<List<Object>> data = client.current().getData();
+                if (data != null && !buffer(new ResultsBatch(columnTypes, ImmutableList.copyOf(data)))) {
+                    return;
+                }
+                client.advance();
+            }
+
+            if (client.isFailed()) {
+                fail(PrestoResultSet.resultsException(client.finalResults()));
+            }
+        }
+        catch (Throwable t) {
+            fail(t);
+        }
+        finally {
+            finish();
+        }
+    }
+
+    /**
+     * Returns the next batch, or null when all results have been read.
+     */
+    public synchronized ResultsBatch next()
+            throws SQLException
+    {
+        while (batches.isEmpty() && !finished) {
+            try {
+                wait();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while fetching results", e);
+            }
+        }
+
+        ResultsBatch batch = batches.poll();
+        if (batch != null) {
+            bufferedRows -= batch.getRowCount();
+            notifyAll();
+            return batch;
+        }
+
+        if (failure != null) {
+            if (failure instanceof SQLException) {
+                throw (SQLException) failure;
+            }
+            throw new SQLException("Error fetching results", failure);
+        }
+        return null;
+    }
+
+    @Override
+    public void close()
+    {
+        synchronized (this) {
+            closed = true;
+            batches.clear();
+            notifyAll();
+        }
+        client.close();
+    }
+
+    private synchronized boolean buffer(ResultsBatch batch)
+            throws InterruptedException
+    {
+        while (!closed && !batches.isEmpty() && bufferedRows + batch.getRowCount() > fetchSize) {
+            wait();
+        }
+        if (closed) {
+            return false;
+        }
+        batches.add(batch);
+        bufferedRows += batch.getRowCount();
+        notifyAll();
+        return true;
+    }
+
+    private synchronized void fail(Throwable throwable)
+    {
+        if (!closed) {
+            failure = throwable;
+        }
+    }
+
+    private synchronized void finish()
+    {
+        finished = true;
+        notifyAll();
+    }
+}
@@ -45,6 +45,7 @@ import static java.lang.String.format;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -812,6 +813,52 @@ public class TestDriver
         }
     }
 
+    @Test
+    public void testFetchSize()
+            throws Exception
+    {
+        try (Connection connection = createConnection("default", "tiny")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(100);
+                try (ResultSet rs = statement.executeQuery("SELECT orderkey, totalprice, orderstatus FROM orders")) {
+                    assertEquals(rs.getFetchSize(), 100);
+
+                    long rows = 0;
+                    while (rs.next()) {
+                        assertTrue(rs.getLong(1) > 0);
+                        assertTrue(rs.getDouble("totalprice") > 0);
+                        assertNotNull(rs.getString(3));
+                        rows++;
+                    }
+                    assertEquals(rows, 15000);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNullValues()
+            throws Exception
+    {
+        try (Connection connection = createConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                try (ResultSet rs = statement.executeQuery("SELECT 123 x, CAST(NULL AS bigint) y")) {
+                    assertTrue(rs.next());
+
+                    assertEquals(rs.getLong(1), 123);
+                    assertFalse(rs.wasNull());
+
+                    assertEquals(rs.getLong(2), 0);
+                    assertTrue(rs.wasNull());
+                    assertNull(rs.getObject("y"));
+                    assertTrue(rs.wasNull());
+
+                    assertFalse(rs.next());
+                }
+            }
+        }
+    }
+
     @Test
     public void testConnectionResourceHandling()
             throws Exception
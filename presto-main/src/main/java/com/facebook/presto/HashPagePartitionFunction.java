@@ -116,11 +116,7 @@ public final class HashPagePartitionFunction
 
     private int getPartitionHashBucket(BlockCursor[] cursors)
     {
-        long hashCode = 1;
-        for (int channel : partitioningChannels) {
-            hashCode *= 31;
-            hashCode += cursors[channel].hash();
-        }
+        long hashCode = hashPartitioningChannels(partitioningChannels, cursors);
         // clear the sign bit
         hashCode &= 0x7fff_ffff_ffff_ffffL;
 
@@ -129,6 +125,19 @@ public final class HashPagePartitionFunction
         return bucket;
     }
 
+    /**
+     * Combines the hashes of the partitioning channels at the current position of the cursors.
+     */
+    public static long hashPartitioningChannels(List<Integer> partitioningChannels, BlockCursor[] cursors)
+    {
+        long hashCode = 1;
+        for (int channel : partitioningChannels) {
+            hashCode *= 31;
+            hashCode += cursors[channel].hash();
+        }
+        return hashCode;
+    }
+
     @Override
     public int hashCode()
     {
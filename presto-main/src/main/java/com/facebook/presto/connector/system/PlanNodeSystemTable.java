@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.connector.system;
+
+import com.facebook.presto.execution.PlanNodeStats;
+import com.facebook.presto.execution.QueryInfo;
+import com.facebook.presto.execution.QueryManager;
+import com.facebook.presto.spi.ConnectorTableMetadata;
+import com.facebook.presto.spi.InMemoryRecordSet;
+import com.facebook.presto.spi.InMemoryRecordSet.Builder;
+import com.facebook.presto.spi.RecordCursor;
+import com.facebook.presto.spi.SchemaTableName;
+import com.facebook.presto.spi.SystemTable;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import io.airlift.node.NodeInfo;
+
+import javax.inject.Inject;
+
+import java.util.List;
+
+import static com.facebook.presto.execution.PlanNodeStats.aggregatePlanNodeStats;
+import static com.facebook.presto.metadata.MetadataUtil.TableMetadataBuilder.tableMetadataBuilder;
+import static com.facebook.presto.metadata.MetadataUtil.columnTypeGetter;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.google.common.collect.Iterables.transform;
+
+public class PlanNodeSystemTable
+        implements SystemTable
+{
+    public static final SchemaTableName PLAN_NODE_TABLE_NAME = new SchemaTableName("sys", "plan_node");
+
+    public static final ConnectorTableMetadata PLAN_NODE_TABLE = tableMetadataBuilder(PLAN_NODE_TABLE_NAME)
+            .column("node_id", VARCHAR)
+            .column("query_id", VARCHAR)
+            .column("stage_id", VARCHAR)
+            .column("plan_node_id", VARCHAR)
+            .column("operator_types", VARCHAR)
+
+            .column("cpu_time_ms", BIGINT)
+            .column("wall_time_ms", BIGINT)
+            .column("blocked_time_ms", BIGINT)
+
+            .column("input_bytes", BIGINT)
+            .column("input_rows", BIGINT)
+
+            .column("output_bytes", BIGINT)
+            .column("output_rows", BIGINT)
+
+            .column("memory_reservation_bytes", BIGINT)
+            .build();
+
+    private final QueryManager queryManager;
+    private final String nodeId;
+
+    @Inject
+    public PlanNodeSystemTable(QueryManager queryManager, NodeInfo nodeInfo)
+    {
+        this.queryManager = queryManager;
+        this.nodeId = nodeInfo.getNodeId();
+    }
+
+    @Override
+    public boolean isDistributed()
+    {
+        return true;
+    }
+
+    @Override
+    public ConnectorTableMetadata getTableMetadata()
+    {
+        return PLAN_NODE_TABLE;
+    }
+
+    @Override
+    public List<Type> getColumnTypes()
+    {
+        return ImmutableList.copyOf(transform(PLAN_NODE_TABLE.getColumns(), columnTypeGetter()));
+    }
+
+    @Override
+    public RecordCursor cursor()
+    {
+        Builder table = InMemoryRecordSet.builder(PLAN_NODE_TABLE);
+        for (QueryInfo queryInfo : queryManager.getAllQueryInfo()) {
+            for (PlanNodeStats stats : aggregatePlanNodeStats(queryInfo.getOutputStage()).values()) {
+                table.addRow(
+                        nodeId,
+                        queryInfo.getQueryId().toString(),
+                        stats.getStageId().toString(),
+                        stats.getPlanNodeId().toString(),
+                        Joiner.on(", ").join(stats.getOperatorTypes()),
+
+                        stats.getCpuTime().toMillis(),
+                        stats.getWallTime().toMillis(),
+                        stats.getBlockedTime().toMillis(),
+
+                        stats.getInputDataSize().toBytes(),
+                        stats.getInputPositions(),
+
+                        stats.getOutputDataSize().toBytes(),
+                        stats.getOutputPositions(),
+
+                        stats.getMemoryReservation().toBytes());
+            }
+        }
+        return table.build().cursor();
+    }
+}
@@ -37,6 +37,7 @@ public class SystemTablesModule
         globalTableBinder.addBinding().to(NodesSystemTable.class).in(Scopes.SINGLETON);
         globalTableBinder.addBinding().to(QuerySystemTable.class).in(Scopes.SINGLETON);
         globalTableBinder.addBinding().to(TaskSystemTable.class).in(Scopes.SINGLETON);
+        globalTableBinder.addBinding().to(PlanNodeSystemTable.class).in(Scopes.SINGLETON);
         globalTableBinder.addBinding().to(CatalogSystemTable.class).in(Scopes.SINGLETON);
     }
 }
@@ -69,6 +69,8 @@ public class QueryCompletionEvent
 
     private final String inputsJson;
 
+    private final String planNodeStatsJson;
+
     public QueryCompletionEvent(
             QueryId queryId,
             String user,
@@ -98,7 +100,8 @@ public class QueryCompletionEvent
             String failureMessage,
             String outputStageJson,
             String failuresJson,
-            String inputsJson)
+            String inputsJson,
+            String planNodeStatsJson)
     {
         this.queryId = queryId;
         this.user = user;
@@ -129,6 +132,7 @@ public class QueryCompletionEvent
         this.outputStageJson = outputStageJson;
         this.failuresJson = failuresJson;
         this.inputsJson = inputsJson;
+        this.planNodeStatsJson = planNodeStatsJson;
     }
 
     @Nullable
@@ -375,4 +379,10 @@ public class QueryCompletionEvent
     {
         return inputsJson;
     }
+
+    @EventField
+    public String getPlanNodeStatsJson()
+    {
+        return planNodeStatsJson;
+    }
 }
@@ -35,6 +35,7 @@ import javax.annotation.Nullable;
 
 import java.util.List;
 
+import static com.facebook.presto.execution.PlanNodeStats.aggregatePlanNodeStats;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
@@ -112,7 +113,8 @@ public class QueryMonitor
                             failureMessage,
                             objectMapper.writeValueAsString(queryInfo.getOutputStage()),
                             objectMapper.writeValueAsString(queryInfo.getFailureInfo()),
-                            objectMapper.writeValueAsString(queryInfo.getInputs())
+                            objectMapper.writeValueAsString(queryInfo.getInputs()),
+                            objectMapper.writeValueAsString(aggregatePlanNodeStats(queryInfo.getOutputStage()).values())
                     )
             );
 
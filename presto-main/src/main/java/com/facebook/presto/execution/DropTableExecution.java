@@ -108,6 +108,12 @@ public class DropTableExecution
         // no-op
     }
 
+    @Override
+    public void addStageStateChangeListener(StateChangeListener<StageInfo> stateChangeListener)
+    {
+        // this query does not have stages
+    }
+
     @Override
     public void recordHeartbeat()
     {
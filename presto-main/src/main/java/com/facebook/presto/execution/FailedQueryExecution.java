@@ -76,6 +76,12 @@ public class FailedQueryExecution
         // no-op
     }
 
+    @Override
+    public void addStageStateChangeListener(StateChangeListener<StageInfo> stateChangeListener)
+    {
+        // this query does not have stages
+    }
+
     @Override
     public void recordHeartbeat()
     {
@@ -14,9 +14,11 @@
 package com.facebook.presto.execution;
 
 import com.facebook.presto.metadata.Split;
+import com.facebook.presto.operator.TaskStats;
 import com.facebook.presto.spi.HostAddress;
 import com.facebook.presto.spi.Node;
 import com.facebook.presto.spi.NodeManager;
+import com.google.common.base.Functions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
@@ -24,9 +26,12 @@ import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.SetMultimap;
 import com.google.common.net.InetAddresses;
 import org.weakref.jmx.Managed;
@@ -35,6 +40,7 @@ import javax.inject.Inject;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -48,16 +54,24 @@ import java.util.concurrent.atomic.AtomicReference;
 import static com.facebook.presto.spi.StandardErrorCode.NO_NODES_AVAILABLE;
 import static com.facebook.presto.util.Failures.checkCondition;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Predicates.in;
+import static com.google.common.base.Predicates.not;
 
 public class NodeScheduler
 {
+    private static final int MIN_STRAGGLER_DETECTION_SPLITS = 4;
+    private static final int MIN_STRAGGLER_DETECTION_TASKS = 2;
+
     private final NodeManager nodeManager;
     private final AtomicLong scheduleLocal = new AtomicLong();
     private final AtomicLong scheduleRack = new AtomicLong();
     private final AtomicLong scheduleRandom = new AtomicLong();
+    private final AtomicLong scheduleAvoidedStraggler = new AtomicLong();
     private final int minCandidates;
     private final boolean locationAwareScheduling;
     private final boolean includeCoordinator;
+    private final int maxSplitsPerNode;
+    private final double stragglerThroughputRatio;
 
     @Inject
     public NodeScheduler(NodeManager nodeManager, NodeSchedulerConfig config)
@@ -66,6 +80,8 @@ public class NodeScheduler
         this.minCandidates = config.getMinCandidates();
         this.locationAwareScheduling = config.isLocationAwareSchedulingEnabled();
         this.includeCoordinator = config.isIncludeCoordinator();
+        this.maxSplitsPerNode = config.getMaxSplitsPerNode();
+        this.stragglerThroughputRatio = config.getStragglerThroughputRatio();
     }
 
     @Managed
@@ -86,12 +102,19 @@ public class NodeScheduler
         return scheduleRandom.get();
     }
 
+    @Managed
+    public long getScheduleAvoidedStraggler()
+    {
+        return scheduleAvoidedStraggler.get();
+    }
+
     @Managed
     public void reset()
     {
         scheduleLocal.set(0);
         scheduleRack.set(0);
         scheduleRandom.set(0);
+        scheduleAvoidedStraggler.set(0);
     }
 
     public NodeSelector createNodeSelector(final String dataSourceName, Map<Node, RemoteTask> taskMap, int maxPendingSplitsPerTask)
@@ -184,6 +207,10 @@ public class NodeScheduler
         {
             Multimap<Node, Split> assignment = HashMultimap.create();
 
+            // snapshot the load of each task once per batch, since fetching task info is not free
+            Map<Node, TaskLoad> taskLoads = new HashMap<>();
+            Set<Node> laggingNodes = findLaggingNodes();
+
             for (Split split : splits) {
                 List<Node> candidateNodes;
                 if (locationAwareScheduling) {
@@ -194,17 +221,43 @@ public class NodeScheduler
                 }
                 checkCondition(!candidateNodes.isEmpty(), NO_NODES_AVAILABLE, "No nodes available to run query");
 
+                // route around busy stragglers, unless the split can only run on lagging nodes
+                if (!laggingNodes.isEmpty()) {
+                    List<Node> fastNodes = ImmutableList.copyOf(Iterables.filter(candidateNodes, not(in(getBusyNodes(taskLoads, assignment, laggingNodes)))));
+                    if (!fastNodes.isEmpty() && fastNodes.size() < candidateNodes.size()) {
+                        candidateNodes = fastNodes;
+                        scheduleAvoidedStraggler.incrementAndGet();
+                    }
+                }
+
+                // prefer the least loaded node that is below the total split limit, where the load
+                // includes splits that are running, so nodes that drain their queues quickly get more work
                 Node chosen = null;
                 int min = Integer.MAX_VALUE;
                 for (Node node : candidateNodes) {
-                    RemoteTask task = taskMap.get(node);
-                    int currentSplits = (task == null) ? 0 : task.getQueuedSplits();
-                    int assignedSplits = currentSplits + assignment.get(node).size();
-                    if (assignedSplits < min && assignedSplits < maxPendingSplitsPerTask) {
+                    TaskLoad load = getTaskLoad(taskLoads, node);
+                    int assignedSplits = assignment.get(node).size();
+                    int totalSplits = load.getTotalSplits() + assignedSplits;
+                    int queuedSplits = load.getQueuedSplits() + assignedSplits;
+                    if (totalSplits < min && totalSplits < maxSplitsPerNode && queuedSplits < maxPendingSplitsPerTask) {
                         chosen = node;
-                        min = assignedSplits;
+                        min = totalSplits;
+                    }
+                }
+
+                // otherwise, queue the split on the node with the shortest queue
+                if (chosen == null) {
+                    min = Integer.MAX_VALUE;
+                    for (Node node : candidateNodes) {
+                        TaskLoad load = getTaskLoad(taskLoads, node);
+                        int queuedSplits = load.getQueuedSplits() + assignment.get(node).size();
+                        if (queuedSplits < min && queuedSplits < maxPendingSplitsPerTask) {
+                            chosen = node;
+                            min = queuedSplits;
+                        }
                     }
                 }
+
                 if (chosen != null) {
                     assignment.put(chosen, split);
                 }
@@ -212,6 +265,99 @@ public class NodeScheduler
             return assignment;
         }
 
+        /**
+         * Finds the nodes whose task processes splits at less than the configured
+         * fraction of the median per split rate of the other tasks in this stage.
+         * The candidate is left out of the median, so with two tasks the slower one
+         * is compared against the faster one. The rate only counts the time spent on
+         * finished splits, so it does not depend on how many splits a node was given
+         * or how long it has been idle.
+         */
+        private Set<Node> findLaggingNodes()
+        {
+            if (stragglerThroughputRatio <= 0) {
+                return ImmutableSet.of();
+            }
+
+            Map<Node, Double> splitRates = new HashMap<>();
+            for (Map.Entry<Node, RemoteTask> entry : taskMap.entrySet()) {
+                TaskInfo taskInfo = entry.getValue().getTaskInfo();
+                TaskStats taskStats = taskInfo.getStats();
+                if (taskInfo.getState().isDone() || taskStats.getCompletedPartitionedDrivers() < MIN_STRAGGLER_DETECTION_SPLITS) {
+                    continue;
+                }
+                double scheduledSeconds = taskStats.getCompletedPartitionedDriversScheduledTime().getValue(TimeUnit.SECONDS);
+                if (scheduledSeconds <= 0) {
+                    continue;
+                }
+                splitRates.put(entry.getKey(), taskStats.getCompletedPartitionedDrivers() / scheduledSeconds);
+            }
+
+            if (splitRates.size() < MIN_STRAGGLER_DETECTION_TASKS) {
+                return ImmutableSet.of();
+            }
+
+            List<Node> sortedNodes = Ordering.natural().onResultOf(Functions.forMap(splitRates)).sortedCopy(splitRates.keySet());
+            List<Double> sortedRates = Lists.transform(sortedNodes, Functions.forMap(splitRates));
+
+            ImmutableSet.Builder<Node> laggingNodes = ImmutableSet.builder();
+            for (int i = 0; i < sortedNodes.size(); i++) {
+                if (sortedRates.get(i) < medianExcluding(sortedRates, i) * stragglerThroughputRatio) {
+                    laggingNodes.add(sortedNodes.get(i));
+                }
+            }
+            return laggingNodes.build();
+        }
+
+        private double medianExcluding(List<Double> sortedRates, int excluded)
+        {
+            int count = sortedRates.size() - 1;
+            double median = rateExcluding(sortedRates, count / 2, excluded);
+            if (count % 2 == 0) {
+                median = (median + rateExcluding(sortedRates, (count / 2) - 1, excluded)) / 2;
+            }
+            return median;
+        }
+
+        private double rateExcluding(List<Double> sortedRates, int index, int excluded)
+        {
+            if (index >= excluded) {
+                index++;
+            }
+            return sortedRates.get(index);
+        }
+
+        /**
+         * Returns the lagging nodes that still have splits to work on. An idle lagging
+         * node is given splits again, so its rate is refreshed and it can recover.
+         */
+        private Set<Node> getBusyNodes(Map<Node, TaskLoad> taskLoads, Multimap<Node, Split> assignment, Set<Node> laggingNodes)
+        {
+            ImmutableSet.Builder<Node> busyNodes = ImmutableSet.builder();
+            for (Node node : laggingNodes) {
+                if (getTaskLoad(taskLoads, node).getTotalSplits() + assignment.get(node).size() > 0) {
+                    busyNodes.add(node);
+                }
+            }
+            return busyNodes.build();
+        }
+
+        private TaskLoad getTaskLoad(Map<Node, TaskLoad> taskLoads, Node node)
+        {
+            TaskLoad load = taskLoads.get(node);
+            if (load == null) {
+                RemoteTask task = taskMap.get(node);
+                if (task == null) {
+                    load = new TaskLoad(0, 0);
+                }
+                else {
+                    load = new TaskLoad(task.getQueuedSplits(), task.getRunningSplits());
+                }
+                taskLoads.put(node, load);
+            }
+            return load;
+        }
+
         private List<Node> selectCandidateNodes(NodeMap nodeMap, Split split)
         {
             Set<Node> chosen = new LinkedHashSet<>(minCandidates);
@@ -320,6 +466,28 @@ public class NodeScheduler
         };
     }
 
+    private static class TaskLoad
+    {
+        private final int queuedSplits;
+        private final int runningSplits;
+
+        private TaskLoad(int queuedSplits, int runningSplits)
+        {
+            this.queuedSplits = queuedSplits;
+            this.runningSplits = runningSplits;
+        }
+
+        public int getQueuedSplits()
+        {
+            return queuedSplits;
+        }
+
+        public int getTotalSplits()
+        {
+            return queuedSplits + runningSplits;
+        }
+    }
+
     private static class NodeMap
     {
         private final SetMultimap<HostAddress, Node> nodesByHostAndPort;
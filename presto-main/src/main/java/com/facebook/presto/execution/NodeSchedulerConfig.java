@@ -14,7 +14,10 @@
 package com.facebook.presto.execution;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
 
 public class NodeSchedulerConfig
@@ -22,6 +25,8 @@ public class NodeSchedulerConfig
     private int minCandidates = 10;
     private boolean locationAwareScheduling = true;
     private boolean includeCoordinator = true;
+    private int maxSplitsPerNode = 100;
+    private double stragglerThroughputRatio = 0.25;
 
     @Min(1)
     public int getMinCandidates()
@@ -59,4 +64,32 @@ public class NodeSchedulerConfig
         this.includeCoordinator = includeCoordinator;
         return this;
     }
+
+    @Min(1)
+    public int getMaxSplitsPerNode()
+    {
+        return maxSplitsPerNode;
+    }
+
+    @Config("node-scheduler.max-splits-per-node")
+    public NodeSchedulerConfig setMaxSplitsPerNode(int maxSplitsPerNode)
+    {
+        this.maxSplitsPerNode = maxSplitsPerNode;
+        return this;
+    }
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    public double getStragglerThroughputRatio()
+    {
+        return stragglerThroughputRatio;
+    }
+
+    @Config("node-scheduler.straggler-throughput-ratio")
+    @ConfigDescription("Busy nodes processing splits slower than this fraction of the median rate of the other nodes in the stage get no new splits (0 to disable)")
+    public NodeSchedulerConfig setStragglerThroughputRatio(double stragglerThroughputRatio)
+    {
+        this.stragglerThroughputRatio = stragglerThroughputRatio;
+        return this;
+    }
 }
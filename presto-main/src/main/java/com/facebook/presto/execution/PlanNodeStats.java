@@ -0,0 +1,310 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.operator.OperatorStats;
+import com.facebook.presto.operator.PipelineStats;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+
+import javax.annotation.concurrent.Immutable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Runtime statistics of all the operators that implement a plan node, summed across all tasks of a query.
+ */
+@Immutable
+public class PlanNodeStats
+{
+    private final PlanNodeId planNodeId;
+    private final StageId stageId;
+    private final List<String> operatorTypes;
+
+    private final Duration cpuTime;
+    private final Duration wallTime;
+    private final Duration blockedTime;
+
+    private final DataSize inputDataSize;
+    private final long inputPositions;
+
+    private final DataSize outputDataSize;
+    private final long outputPositions;
+
+    private final DataSize memoryReservation;
+
+    private final int tasks;
+    private final long minTaskOutputPositions;
+    private final long maxTaskOutputPositions;
+
+    @JsonCreator
+    public PlanNodeStats(
+            @JsonProperty("planNodeId") PlanNodeId planNodeId,
+            @JsonProperty("stageId") StageId stageId,
+            @JsonProperty("operatorTypes") List<String> operatorTypes,
+
+            @JsonProperty("cpuTime") Duration cpuTime,
+            @JsonProperty("wallTime") Duration wallTime,
+            @JsonProperty("blockedTime") Duration blockedTime,
+
+            @JsonProperty("inputDataSize") DataSize inputDataSize,
+            @JsonProperty("inputPositions") long inputPositions,
+
+            @JsonProperty("outputDataSize") DataSize outputDataSize,
+            @JsonProperty("outputPositions") long outputPositions,
+
+            @JsonProperty("memoryReservation") DataSize memoryReservation,
+
+            @JsonProperty("tasks") int tasks,
+            @JsonProperty("minTaskOutputPositions") long minTaskOutputPositions,
+            @JsonProperty("maxTaskOutputPositions") long maxTaskOutputPositions)
+    {
+        this.planNodeId = checkNotNull(planNodeId, "planNodeId is null");
+        this.stageId = checkNotNull(stageId, "stageId is null");
+        this.operatorTypes = ImmutableList.copyOf(checkNotNull(operatorTypes, "operatorTypes is null"));
+
+        this.cpuTime = checkNotNull(cpuTime, "cpuTime is null");
+        this.wallTime = checkNotNull(wallTime, "wallTime is null");
+        this.blockedTime = checkNotNull(blockedTime, "blockedTime is null");
+
+        this.inputDataSize = checkNotNull(inputDataSize, "inputDataSize is null");
+        checkArgument(inputPositions >= 0, "inputPositions is negative");
+        this.inputPositions = inputPositions;
+
+        this.outputDataSize = checkNotNull(outputDataSize, "outputDataSize is null");
+        checkArgument(outputPositions >= 0, "outputPositions is negative");
+        this.outputPositions = outputPositions;
+
+        this.memoryReservation = checkNotNull(memoryReservation, "memoryReservation is null");
+
+        checkArgument(tasks >= 0, "tasks is negative");
+        this.tasks = tasks;
+        checkArgument(minTaskOutputPositions <= maxTaskOutputPositions, "minTaskOutputPositions is greater than maxTaskOutputPositions");
+        this.minTaskOutputPositions = minTaskOutputPositions;
+        this.maxTaskOutputPositions = maxTaskOutputPositions;
+    }
+
+    @JsonProperty
+    public PlanNodeId getPlanNodeId()
+    {
+        return planNodeId;
+    }
+
+    @JsonProperty
+    public StageId getStageId()
+    {
+        return stageId;
+    }
+
+    @JsonProperty
+    public List<String> getOperatorTypes()
+    {
+        return operatorTypes;
+    }
+
+    @JsonProperty
+    public Duration getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    @JsonProperty
+    public Duration getWallTime()
+    {
+        return wallTime;
+    }
+
+    @JsonProperty
+    public Duration getBlockedTime()
+    {
+        return blockedTime;
+    }
+
+    @JsonProperty
+    public DataSize getInputDataSize()
+    {
+        return inputDataSize;
+    }
+
+    @JsonProperty
+    public long getInputPositions()
+    {
+        return inputPositions;
+    }
+
+    @JsonProperty
+    public DataSize getOutputDataSize()
+    {
+        return outputDataSize;
+    }
+
+    @JsonProperty
+    public long getOutputPositions()
+    {
+        return outputPositions;
+    }
+
+    @JsonProperty
+    public DataSize getMemoryReservation()
+    {
+        return memoryReservation;
+    }
+
+    @JsonProperty
+    public int getTasks()
+    {
+        return tasks;
+    }
+
+    /**
+     * Together with {@link #getMaxTaskOutputPositions()}, shows how evenly the output of this node is spread over its tasks.
+     */
+    @JsonProperty
+    public long getMinTaskOutputPositions()
+    {
+        return minTaskOutputPositions;
+    }
+
+    @JsonProperty
+    public long getMaxTaskOutputPositions()
+    {
+        return maxTaskOutputPositions;
+    }
+
+    /**
+     * Aggregates the operator statistics of every task in the stage tree by plan node.
+     * Operators without a known plan node are ignored.
+     */
+    public static Map<PlanNodeId, PlanNodeStats> aggregatePlanNodeStats(StageInfo outputStage)
+    {
+        Map<PlanNodeId, Builder> builders = new LinkedHashMap<>();
+        for (StageInfo stageInfo : StageInfo.getAllStages(outputStage)) {
+            for (TaskInfo taskInfo : stageInfo.getTasks()) {
+                for (PipelineStats pipelineStats : taskInfo.getStats().getPipelines()) {
+                    for (OperatorStats operatorStats : pipelineStats.getOperatorSummaries()) {
+                        PlanNodeId planNodeId = operatorStats.getPlanNodeId();
+                        if (planNodeId == null) {
+                            continue;
+                        }
+                        Builder builder = builders.get(planNodeId);
+                        if (builder == null) {
+                            builder = new Builder(planNodeId, stageInfo.getStageId());
+                            builders.put(planNodeId, builder);
+                        }
+                        builder.add(taskInfo.getTaskId(), operatorStats);
+                    }
+                }
+            }
+        }
+
+        ImmutableMap.Builder<PlanNodeId, PlanNodeStats> planNodeStats = ImmutableMap.builder();
+        for (Map.Entry<PlanNodeId, Builder> entry : builders.entrySet()) {
+            planNodeStats.put(entry.getKey(), entry.getValue().build());
+        }
+        return planNodeStats.build();
+    }
+
+    private static class Builder
+    {
+        private final PlanNodeId planNodeId;
+        private final StageId stageId;
+        private final Set<String> operatorTypes = new LinkedHashSet<>();
+
+        private long cpuNanos;
+        private long wallNanos;
+        private long blockedNanos;
+
+        private long inputBytes;
+        private long inputPositions;
+
+        private long outputBytes;
+        private long outputPositions;
+
+        private long memoryReservationBytes;
+
+        private final Map<TaskId, Long> outputPositionsByTask = new HashMap<>();
+
+        private Builder(PlanNodeId planNodeId, StageId stageId)
+        {
+            this.planNodeId = planNodeId;
+            this.stageId = stageId;
+        }
+
+        public void add(TaskId taskId, OperatorStats operatorStats)
+        {
+            operatorTypes.add(operatorStats.getOperatorType());
+
+            cpuNanos += operatorStats.getAddInputCpu().roundTo(NANOSECONDS);
+            cpuNanos += operatorStats.getGetOutputCpu().roundTo(NANOSECONDS);
+            cpuNanos += operatorStats.getFinishCpu().roundTo(NANOSECONDS);
+
+            wallNanos += operatorStats.getAddInputWall().roundTo(NANOSECONDS);
+            wallNanos += operatorStats.getGetOutputWall().roundTo(NANOSECONDS);
+            wallNanos += operatorStats.getFinishWall().roundTo(NANOSECONDS);
+
+            blockedNanos += operatorStats.getBlockedWall().roundTo(NANOSECONDS);
+
+            inputBytes += operatorStats.getInputDataSize().toBytes();
+            inputPositions += operatorStats.getInputPositions();
+
+            outputBytes += operatorStats.getOutputDataSize().toBytes();
+            outputPositions += operatorStats.getOutputPositions();
+
+            memoryReservationBytes += operatorStats.getMemoryReservation().toBytes();
+
+            Long taskOutputPositions = outputPositionsByTask.get(taskId);
+            outputPositionsByTask.put(taskId, (taskOutputPositions == null ? 0 : taskOutputPositions) + operatorStats.getOutputPositions());
+        }
+
+        public PlanNodeStats build()
+        {
+            return new PlanNodeStats(
+                    planNodeId,
+                    stageId,
+                    ImmutableList.copyOf(operatorTypes),
+
+                    new Duration(cpuNanos, NANOSECONDS).convertToMostSuccinctTimeUnit(),
+                    new Duration(wallNanos, NANOSECONDS).convertToMostSuccinctTimeUnit(),
+                    new Duration(blockedNanos, NANOSECONDS).convertToMostSuccinctTimeUnit(),
+
+                    new DataSize(inputBytes, BYTE).convertToMostSuccinctDataSize(),
+                    inputPositions,
+
+                    new DataSize(outputBytes, BYTE).convertToMostSuccinctDataSize(),
+                    outputPositions,
+
+                    new DataSize(memoryReservationBytes, BYTE).convertToMostSuccinctDataSize(),
+
+                    outputPositionsByTask.size(),
+                    outputPositionsByTask.isEmpty() ? 0 : Collections.min(outputPositionsByTask.values()),
+                    outputPositionsByTask.isEmpty() ? 0 : Collections.max(outputPositionsByTask.values()));
+        }
+    }
+}
@@ -37,6 +37,8 @@ public interface QueryExecution
 
     void addStateChangeListener(StateChangeListener<QueryState> stateChangeListener);
 
+    void addStageStateChangeListener(StateChangeListener<StageInfo> stateChangeListener);
+
     interface QueryExecutionFactory<T extends QueryExecution>
     {
         T createQueryExecution(QueryId queryId, String query, ConnectorSession session, Statement statement);
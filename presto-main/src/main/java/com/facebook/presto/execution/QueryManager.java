@@ -19,6 +19,7 @@ import io.airlift.units.Duration;
 import java.util.List;
 
 public interface QueryManager
+        extends QueryPerformanceFetcher
 {
     List<QueryInfo> getAllQueryInfo();
 
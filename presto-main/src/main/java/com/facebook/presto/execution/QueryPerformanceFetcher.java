@@ -0,0 +1,26 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.execution.StateMachine.StateChangeListener;
+
+public interface QueryPerformanceFetcher
+{
+    QueryInfo getQueryInfo(QueryId queryId);
+
+    /**
+     * Adds a listener that is notified whenever any stage of the query changes state.
+     */
+    void addStageStateChangeListener(QueryId queryId, StateChangeListener<StageInfo> stateChangeListener);
+}
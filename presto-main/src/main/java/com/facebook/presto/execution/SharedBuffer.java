@@ -341,6 +341,10 @@ public class SharedBuffer
         if (state.get() == QueueState.NO_MORE_QUEUES && closed.get() && openQueuesBySequenceId.isEmpty()) {
             destroy();
         }
+        else if (state.get() == QueueState.NO_MORE_QUEUES && !namedQueues.isEmpty() && openQueuesBySequenceId.isEmpty()) {
+            // every consumer has aborted its queue (e.g., a downstream LIMIT is satisfied), so any further output would be discarded
+            destroy();
+        }
 
         this.notifyAll();
     }
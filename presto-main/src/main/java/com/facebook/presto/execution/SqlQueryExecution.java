@@ -50,6 +50,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import static com.facebook.presto.OutputBuffers.INITIAL_EMPTY_OUTPUT_BUFFERS;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 @ThreadSafe
 public class SqlQueryExecution
@@ -285,6 +286,18 @@ public class SqlQueryExecution
         }
     }
 
+    @Override
+    public void addStageStateChangeListener(StateChangeListener<StageInfo> stateChangeListener)
+    {
+        checkNotNull(stateChangeListener, "stateChangeListener is null");
+
+        try (SetThreadName setThreadName = new SetThreadName("Query-%s", stateMachine.getQueryId())) {
+            SqlStageExecution stageExecution = outputStage.get();
+            checkState(stageExecution != null, "Query %s has not been planned", stateMachine.getQueryId());
+            stageExecution.addStageTreeStateChangeListener(stateChangeListener);
+        }
+    }
+
     @Override
     public void fail(Throwable cause)
     {
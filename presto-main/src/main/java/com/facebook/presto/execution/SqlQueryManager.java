@@ -187,6 +187,19 @@ public class SqlQueryManager
         return query.getQueryInfo();
     }
 
+    @Override
+    public void addStageStateChangeListener(QueryId queryId, StateChangeListener<StageInfo> stateChangeListener)
+    {
+        checkNotNull(queryId, "queryId is null");
+
+        QueryExecution query = queries.get(queryId);
+        if (query == null) {
+            throw new NoSuchElementException();
+        }
+
+        query.addStageStateChangeListener(stateChangeListener);
+    }
+
     @Override
     public QueryInfo createQuery(ConnectorSession session, String query)
     {
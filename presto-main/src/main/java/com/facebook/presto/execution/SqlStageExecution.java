@@ -260,6 +260,15 @@ public class SqlStageExecution
         }
     }
 
+    @Override
+    public void addStageTreeStateChangeListener(StateChangeListener<StageInfo> stateChangeListener)
+    {
+        addStateChangeListener(stateChangeListener);
+        for (StageExecutionNode subStage : subStages.values()) {
+            subStage.addStageTreeStateChangeListener(stateChangeListener);
+        }
+    }
+
     @Override
     @VisibleForTesting
     public StageState getState()
@@ -623,11 +632,17 @@ public class SqlStageExecution
                     break;
                 }
 
+                // if the consumers of this stage no longer need its output (e.g., a LIMIT has been satisfied), stop reading the source
+                if (isOutputNoLongerNeeded()) {
+                    log.debug("Stage %s: output is no longer needed, skipping remaining splits", stageId);
+                    break;
+                }
+
                 long start = System.nanoTime();
                 Set<Split> pendingSplits = ImmutableSet.copyOf(splitSource.getNextBatch(splitBatchSize));
                 getSplitDistribution.add(System.nanoTime() - start);
 
-                while (!pendingSplits.isEmpty() && !getState().isDone()) {
+                while (!pendingSplits.isEmpty() && !getState().isDone() && !isOutputNoLongerNeeded()) {
                     Multimap<Node, Split> splitAssignment = nodeSelector.computeAssignments(pendingSplits);
                     pendingSplits = ImmutableSet.copyOf(Sets.difference(pendingSplits, ImmutableSet.copyOf(splitAssignment.values())));
 
@@ -649,6 +664,21 @@ public class SqlStageExecution
         setNoMoreStageNodes();
     }
 
+    /**
+     * A task can only finish before it has been told there are no more splits if all of its
+     * output buffers have been aborted by the downstream tasks, which only happens when they
+     * stop reading early.
+     */
+    private boolean isOutputNoLongerNeeded()
+    {
+        for (RemoteTask task : tasks.values()) {
+            if (task.getTaskInfo().getState() == TaskState.FINISHED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void assignSplits(AtomicInteger nextTaskId, Multimap<Node, Split> splitAssignment)
     {
         for (Entry<Node, Collection<Split>> taskSplits : splitAssignment.asMap().entrySet()) {
@@ -1010,6 +1040,11 @@ interface StageExecutionNode
 
     void addStateChangeListener(StateChangeListener<StageInfo> stateChangeListener);
 
+    /**
+     * Adds the listener to this stage and to every stage below it.
+     */
+    void addStageTreeStateChangeListener(StateChangeListener<StageInfo> stateChangeListener);
+
     void cancelStage(StageId stageId);
 
     void cancel(boolean force);
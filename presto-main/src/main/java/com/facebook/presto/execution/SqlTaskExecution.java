@@ -27,6 +27,7 @@ import com.facebook.presto.operator.DriverStats;
 import com.facebook.presto.operator.PipelineContext;
 import com.facebook.presto.operator.TaskContext;
 import com.facebook.presto.operator.TaskOutputOperator.TaskOutputFactory;
+import com.facebook.presto.operator.TaskStats;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.sql.planner.LocalExecutionPlanner;
 import com.facebook.presto.sql.planner.LocalExecutionPlanner.LocalExecutionPlan;
@@ -220,10 +221,10 @@ public class SqlTaskExecution
             for (DriverFactory driverFactory : driverFactories) {
                 if (driverFactory.getSourceIds().contains(fragment.getPartitionedSource())) {
                     checkState(partitionedDriverFactory == null, "multiple partitioned sources are not supported");
-                    partitionedDriverFactory = new DriverSplitRunnerFactory(driverFactory);
+                    partitionedDriverFactory = new DriverSplitRunnerFactory(driverFactory, true);
                 }
                 else {
-                    unpartitionedDriverFactories.add(new DriverSplitRunnerFactory(driverFactory));
+                    unpartitionedDriverFactories.add(new DriverSplitRunnerFactory(driverFactory, false));
                 }
             }
             this.unpartitionedDriverFactories = unpartitionedDriverFactories.build();
@@ -244,7 +245,9 @@ public class SqlTaskExecution
         // start unpartitioned drivers
         List<DriverSplitRunner> runners = new ArrayList<>();
         for (DriverSplitRunnerFactory driverFactory : unpartitionedDriverFactories) {
-            runners.add(driverFactory.createDriverRunner(null));
+            for (int i = 0; i < driverFactory.getDriverInstances(); i++) {
+                runners.add(driverFactory.createDriverRunner(null));
+            }
             driverFactory.setNoMoreSplits();
         }
         enqueueDrivers(true, runners);
@@ -283,6 +286,12 @@ public class SqlTaskExecution
                 failures = toFailures(taskStateMachine.getFailureCauses());
             }
 
+            // the pipeline details are only sent when requested, or once the task is done so the final info is complete
+            TaskStats taskStats = taskContext.getTaskStats();
+            if (!full && !state.isDone()) {
+                taskStats = taskStats.summarize();
+            }
+
             return new TaskInfo(
                     taskStateMachine.getTaskId(),
                     nextTaskInfoVersion.getAndIncrement(),
@@ -291,7 +300,7 @@ public class SqlTaskExecution
                     lastHeartbeat.get(),
                     sharedBuffer.getInfo(),
                     getNoMoreSplits(),
-                    taskContext.getTaskStats(),
+                    taskStats,
                     failures);
         }
     }
@@ -469,6 +478,13 @@ public class SqlTaskExecution
             return;
         }
 
+        // the output buffer only finishes before the drivers do when every consumer has aborted,
+        // so the remaining splits can be dropped
+        if (sharedBuffer.isFinished()) {
+            taskStateMachine.finished();
+            return;
+        }
+
         // are there more partition splits expected?
         if (partitionedDriverFactory != null && !partitionedDriverFactory.isNoMoreSplits()) {
             return;
@@ -552,10 +568,15 @@ public class SqlTaskExecution
         private final AtomicInteger pendingCreation = new AtomicInteger();
         private final AtomicBoolean noMoreSplits = new AtomicBoolean();
 
-        private DriverSplitRunnerFactory(DriverFactory driverFactory)
+        private DriverSplitRunnerFactory(DriverFactory driverFactory, boolean partitioned)
         {
             this.driverFactory = driverFactory;
-            this.pipelineContext = taskContext.addPipelineContext(driverFactory.isInputDriver(), driverFactory.isOutputDriver());
+            this.pipelineContext = taskContext.addPipelineContext(driverFactory.isInputDriver(), driverFactory.isOutputDriver(), partitioned, driverFactory.getOperatorPlanNodeIds());
+        }
+
+        private int getDriverInstances()
+        {
+            return driverFactory.getDriverInstances();
         }
 
         private DriverSplitRunner createDriverRunner(@Nullable ScheduledSplit partitionedSplit)
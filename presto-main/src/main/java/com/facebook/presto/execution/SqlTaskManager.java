@@ -293,6 +293,8 @@ public class SqlTaskManager
                     return taskInfo;
                 }
 
+                // the coordinator only sends the fragment until the task has been created
+                Preconditions.checkArgument(fragment != null, "Task %s does not exist and no fragment was provided", taskId);
                 taskExecution = SqlTaskExecution.createSqlTaskExecution(session,
                         taskId,
                         location,
@@ -14,6 +14,7 @@
 package com.facebook.presto.execution;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
 import io.airlift.units.Duration;
@@ -30,12 +31,16 @@ public class TaskManagerConfig
     private DataSize maxTaskMemoryUsage = new DataSize(256, Unit.MEGABYTE);
     private DataSize operatorPreAllocatedMemory = new DataSize(16, Unit.MEGABYTE);
     private int maxShardProcessorThreads = Runtime.getRuntime().availableProcessors() * 4;
+    private int taskDefaultConcurrency = 1;
 
     private DataSize sinkMaxBufferSize = new DataSize(32, Unit.MEGABYTE);
 
     private Duration clientTimeout = new Duration(5, TimeUnit.MINUTES);
     private Duration infoMaxAge = new Duration(15, TimeUnit.MINUTES);
 
+    private DataSize indexCacheMaxMemory = new DataSize(0, Unit.BYTE);
+    private Duration indexCacheTtl = new Duration(5, TimeUnit.MINUTES);
+
     public boolean isTaskCpuTimerEnabled()
     {
         return taskCpuTimerEnabled;
@@ -87,6 +92,20 @@ public class TaskManagerConfig
         return this;
     }
 
+    @Min(1)
+    public int getTaskDefaultConcurrency()
+    {
+        return taskDefaultConcurrency;
+    }
+
+    @Config("task.default-concurrency")
+    @ConfigDescription("Number of local drivers that run the final aggregation and window pipelines of a task")
+    public TaskManagerConfig setTaskDefaultConcurrency(int taskDefaultConcurrency)
+    {
+        this.taskDefaultConcurrency = taskDefaultConcurrency;
+        return this;
+    }
+
     @NotNull
     public DataSize getSinkMaxBufferSize()
     {
@@ -126,4 +145,32 @@ public class TaskManagerConfig
         this.infoMaxAge = infoMaxAge;
         return this;
     }
+
+    @NotNull
+    public DataSize getIndexCacheMaxMemory()
+    {
+        return indexCacheMaxMemory;
+    }
+
+    @Config("task.index-cache.max-memory")
+    @ConfigDescription("Memory used to cache index lookups across the queries of a worker (zero disables the cache)")
+    public TaskManagerConfig setIndexCacheMaxMemory(DataSize indexCacheMaxMemory)
+    {
+        this.indexCacheMaxMemory = indexCacheMaxMemory;
+        return this;
+    }
+
+    @NotNull
+    public Duration getIndexCacheTtl()
+    {
+        return indexCacheTtl;
+    }
+
+    @Config("task.index-cache.ttl")
+    @ConfigDescription("How long index lookup results are cached")
+    public TaskManagerConfig setIndexCacheTtl(Duration indexCacheTtl)
+    {
+        this.indexCacheTtl = indexCacheTtl;
+        return this;
+    }
 }
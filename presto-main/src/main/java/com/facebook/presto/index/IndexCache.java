@@ -0,0 +1,346 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.index;
+
+import com.facebook.presto.metadata.ColumnHandle;
+import com.facebook.presto.metadata.IndexHandle;
+import com.facebook.presto.spi.InMemoryRecordSet;
+import com.facebook.presto.spi.Index;
+import com.facebook.presto.spi.RecordCursor;
+import com.facebook.presto.spi.RecordSet;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Caches the rows returned by index lookups on this worker, so drivers and queries that
+ * look up the same keys in the same index do not go back to the connector for them.
+ * Keys that produced no rows are cached too. Entries are evicted by age and by their
+ * estimated size.
+ */
+@ThreadSafe
+public class IndexCache
+{
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int VALUE_OVERHEAD = 16;
+
+    private final Cache<IndexCacheKey, IndexCacheEntry> cache;
+
+    public IndexCache(DataSize maxMemory, Duration ttl)
+    {
+        checkNotNull(maxMemory, "maxMemory is null");
+        checkNotNull(ttl, "ttl is null");
+
+        if (maxMemory.toBytes() == 0) {
+            cache = null;
+        }
+        else {
+            cache = CacheBuilder.newBuilder()
+                    .maximumWeight(maxMemory.toBytes())
+                    .weigher(new Weigher<IndexCacheKey, IndexCacheEntry>()
+                    {
+                        @Override
+                        public int weigh(IndexCacheKey key, IndexCacheEntry entry)
+                        {
+                            return entry.getSizeInBytes();
+                        }
+                    })
+                    .expireAfterWrite(ttl.toMillis(), MILLISECONDS)
+                    .recordStats()
+                    .build();
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return cache != null;
+    }
+
+    public Index getIndex(IndexHandle indexHandle, List<ColumnHandle> lookupSchema, List<ColumnHandle> outputSchema, Index index)
+    {
+        checkNotNull(index, "index is null");
+        if (cache == null) {
+            return index;
+        }
+        return new CachingIndex(indexHandle, lookupSchema, outputSchema, index);
+    }
+
+    @Managed
+    public long getSize()
+    {
+        return cache == null ? 0 : cache.size();
+    }
+
+    @Managed
+    public long getHitCount()
+    {
+        return cache == null ? 0 : cache.stats().hitCount();
+    }
+
+    @Managed
+    public long getMissCount()
+    {
+        return cache == null ? 0 : cache.stats().missCount();
+    }
+
+    @Managed
+    public long getEvictionCount()
+    {
+        return cache == null ? 0 : cache.stats().evictionCount();
+    }
+
+    private class CachingIndex
+            implements Index
+    {
+        private final IndexHandle indexHandle;
+        private final List<ColumnHandle> lookupSchema;
+        private final List<ColumnHandle> outputSchema;
+        private final Index delegate;
+        private final int[] lookupChannels;
+
+        private CachingIndex(IndexHandle indexHandle, List<ColumnHandle> lookupSchema, List<ColumnHandle> outputSchema, Index delegate)
+        {
+            this.indexHandle = checkNotNull(indexHandle, "indexHandle is null");
+            this.lookupSchema = ImmutableList.copyOf(checkNotNull(lookupSchema, "lookupSchema is null"));
+            this.outputSchema = ImmutableList.copyOf(checkNotNull(outputSchema, "outputSchema is null"));
+            this.delegate = checkNotNull(delegate, "delegate is null");
+
+            // the output rows are assigned to the lookup keys through the lookup columns in the output
+            lookupChannels = new int[this.lookupSchema.size()];
+            for (int i = 0; i < lookupChannels.length; i++) {
+                lookupChannels[i] = this.outputSchema.indexOf(this.lookupSchema.get(i));
+                checkArgument(lookupChannels[i] >= 0, "Lookup column %s is not part of the output", this.lookupSchema.get(i));
+            }
+        }
+
+        @Override
+        public RecordSet lookup(RecordSet recordSet)
+        {
+            List<Type> keyTypes = recordSet.getColumnTypes();
+
+            List<Type> outputTypes = null;
+            List<List<Object>> rows = new ArrayList<>();
+            Set<List<Object>> keys = new HashSet<>();
+            Map<List<Object>, List<Object>> missingKeys = new LinkedHashMap<>();
+
+            RecordCursor keyCursor = recordSet.cursor();
+            try {
+                while (keyCursor.advanceNextPosition()) {
+                    List<Object> values = readValues(keyCursor, keyTypes);
+                    List<Object> key = toKey(values);
+                    if (!keys.add(key)) {
+                        continue;
+                    }
+
+                    IndexCacheEntry entry = cache.getIfPresent(new IndexCacheKey(indexHandle, lookupSchema, outputSchema, key));
+                    if (entry == null) {
+                        missingKeys.put(key, values);
+                    }
+                    else {
+                        outputTypes = entry.getTypes();
+                        rows.addAll(entry.getRows());
+                    }
+                }
+            }
+            finally {
+                keyCursor.close();
+            }
+
+            if (outputTypes == null || !missingKeys.isEmpty()) {
+                RecordSet result = delegate.lookup(new InMemoryRecordSet(keyTypes, missingKeys.values()));
+                outputTypes = ImmutableList.copyOf(result.getColumnTypes());
+
+                Map<List<Object>, List<List<Object>>> loadedRows = new LinkedHashMap<>();
+                RecordCursor cursor = result.cursor();
+                try {
+                    while (cursor.advanceNextPosition()) {
+                        List<Object> row = readValues(cursor, outputTypes);
+                        List<Object> key = new ArrayList<>(lookupChannels.length);
+                        for (int lookupChannel : lookupChannels) {
+                            key.add(row.get(lookupChannel));
+                        }
+                        key = toKey(key);
+
+                        List<List<Object>> keyRows = loadedRows.get(key);
+                        if (keyRows == null) {
+                            keyRows = new ArrayList<>();
+                            loadedRows.put(key, keyRows);
+                        }
+                        keyRows.add(row);
+                        rows.add(row);
+                    }
+                }
+                finally {
+                    cursor.close();
+                }
+
+                for (List<Object> key : missingKeys.keySet()) {
+                    List<List<Object>> keyRows = loadedRows.get(key);
+                    if (keyRows == null) {
+                        keyRows = ImmutableList.of();
+                    }
+                    cache.put(new IndexCacheKey(indexHandle, lookupSchema, outputSchema, key), new IndexCacheEntry(outputTypes, keyRows));
+                }
+            }
+
+            return new InMemoryRecordSet(outputTypes, rows);
+        }
+    }
+
+    /**
+     * Reads the current row as the values accepted by {@link InMemoryRecordSet}.
+     */
+    private static List<Object> readValues(RecordCursor cursor, List<Type> types)
+    {
+        List<Object> values = new ArrayList<>(types.size());
+        for (int field = 0; field < types.size(); field++) {
+            if (cursor.isNull(field)) {
+                values.add(null);
+                continue;
+            }
+            Class<?> javaType = types.get(field).getJavaType();
+            if (javaType == boolean.class) {
+                values.add(cursor.getBoolean(field));
+            }
+            else if (javaType == long.class) {
+                values.add(cursor.getLong(field));
+            }
+            else if (javaType == double.class) {
+                values.add(cursor.getDouble(field));
+            }
+            else if (javaType == Slice.class) {
+                values.add(cursor.getSlice(field).getBytes());
+            }
+            else {
+                throw new IllegalArgumentException("Unsupported type " + types.get(field));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Byte arrays do not implement equals, so they are wrapped in slices in the cache keys.
+     */
+    private static List<Object> toKey(List<Object> values)
+    {
+        Object[] key = new Object[values.size()];
+        for (int i = 0; i < key.length; i++) {
+            Object value = values.get(i);
+            key[i] = (value instanceof byte[]) ? Slices.wrappedBuffer((byte[]) value) : value;
+        }
+        return Arrays.asList(key);
+    }
+
+    private static final class IndexCacheKey
+    {
+        private final IndexHandle indexHandle;
+        private final List<ColumnHandle> lookupSchema;
+        private final List<ColumnHandle> outputSchema;
+        private final List<Object> key;
+
+        private IndexCacheKey(IndexHandle indexHandle, List<ColumnHandle> lookupSchema, List<ColumnHandle> outputSchema, List<Object> key)
+        {
+            this.indexHandle = indexHandle;
+            this.lookupSchema = lookupSchema;
+            this.outputSchema = outputSchema;
+            this.key = key;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(indexHandle, lookupSchema, outputSchema, key);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            IndexCacheKey other = (IndexCacheKey) obj;
+            return Objects.equals(this.indexHandle, other.indexHandle) &&
+                    Objects.equals(this.lookupSchema, other.lookupSchema) &&
+                    Objects.equals(this.outputSchema, other.outputSchema) &&
+                    Objects.equals(this.key, other.key);
+        }
+    }
+
+    private static final class IndexCacheEntry
+    {
+        private final List<Type> types;
+        private final List<List<Object>> rows;
+        private final int sizeInBytes;
+
+        private IndexCacheEntry(List<Type> types, List<List<Object>> rows)
+        {
+            this.types = types;
+            this.rows = rows;
+
+            long sizeInBytes = ENTRY_OVERHEAD;
+            for (List<Object> row : rows) {
+                for (Object value : row) {
+                    sizeInBytes += VALUE_OVERHEAD;
+                    if (value instanceof byte[]) {
+                        sizeInBytes += ((byte[]) value).length;
+                    }
+                    else if (value != null) {
+                        sizeInBytes += 8;
+                    }
+                }
+            }
+            this.sizeInBytes = (int) Math.min(sizeInBytes, Integer.MAX_VALUE);
+        }
+
+        public List<Type> getTypes()
+        {
+            return types;
+        }
+
+        public List<List<Object>> getRows()
+        {
+            return rows;
+        }
+
+        public int getSizeInBytes()
+        {
+            return sizeInBytes;
+        }
+    }
+}
@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.index;
 
+import com.facebook.presto.execution.TaskManagerConfig;
 import com.facebook.presto.metadata.ColumnHandle;
 import com.facebook.presto.metadata.IndexHandle;
 import com.facebook.presto.metadata.ResolvedIndex;
@@ -26,6 +27,10 @@ import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.inject.Inject;
 
 import java.util.List;
 import java.util.Set;
@@ -35,11 +40,32 @@ import java.util.concurrent.ConcurrentMap;
 import static com.facebook.presto.metadata.ColumnHandle.connectorHandleGetter;
 import static com.facebook.presto.metadata.Util.toConnectorDomain;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 public class IndexManager
 {
     private final ConcurrentMap<String, ConnectorIndexResolver> resolvers = new ConcurrentHashMap<>();
+    private final IndexCache indexCache;
+
+    public IndexManager()
+    {
+        this(new TaskManagerConfig());
+    }
+
+    @Inject
+    public IndexManager(TaskManagerConfig config)
+    {
+        checkNotNull(config, "config is null");
+        this.indexCache = new IndexCache(config.getIndexCacheMaxMemory(), config.getIndexCacheTtl());
+    }
+
+    @Managed
+    @Nested
+    public IndexCache getIndexCache()
+    {
+        return indexCache;
+    }
 
     public void addIndexResolver(String connectorId, ConnectorIndexResolver resolver)
     {
@@ -65,8 +91,9 @@ public class IndexManager
 
     public Index getIndex(IndexHandle indexHandle, List<ColumnHandle> lookupSchema, List<ColumnHandle> outputSchema)
     {
-        return getResolver(indexHandle)
+        Index index = getResolver(indexHandle)
                 .getIndex(indexHandle.getConnectorHandle(), Lists.transform(lookupSchema, connectorHandleGetter()), Lists.transform(outputSchema, connectorHandleGetter()));
+        return indexCache.getIndex(indexHandle, lookupSchema, outputSchema, index);
     }
 
     private ConnectorIndexResolver getResolver(IndexHandle handle)
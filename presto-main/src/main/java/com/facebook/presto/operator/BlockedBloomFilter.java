@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.sizeOf;
+
+/**
+ * Bloom filter that keeps all bits of a key in one 512 bit block, so that a lookup
+ * touches a single cache line. Keys are identified by their (type) hash code.
+ */
+public final class BlockedBloomFilter
+{
+    private static final int LONGS_PER_BLOCK = 8;
+    private static final int BITS_PER_BLOCK = LONGS_PER_BLOCK * Long.SIZE;
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASH_FUNCTIONS = 6;
+    private static final int MAX_BLOCKS = 1 << 21;
+
+    private final long[] bits;
+    private final int blockMask;
+
+    public BlockedBloomFilter(int expectedKeys)
+    {
+        checkArgument(expectedKeys >= 0, "expectedKeys is negative");
+
+        long blocks = Math.max(1, ((long) expectedKeys * BITS_PER_KEY + BITS_PER_BLOCK - 1) / BITS_PER_BLOCK);
+        // round up to a power of two
+        int blockCount = (int) Math.min(MAX_BLOCKS, Math.max(1, Long.highestOneBit(blocks - 1) << 1));
+
+        bits = new long[blockCount * LONGS_PER_BLOCK];
+        blockMask = blockCount - 1;
+    }
+
+    public void add(int hashCode)
+    {
+        long hash = mix(hashCode);
+        int block = blockOffset(hash);
+        long bitPositions = mix(hash);
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int bit = (int) (bitPositions >>> (i * 9)) & (BITS_PER_BLOCK - 1);
+            bits[block + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(int hashCode)
+    {
+        long hash = mix(hashCode);
+        int block = blockOffset(hash);
+        long bitPositions = mix(hash);
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            int bit = (int) (bitPositions >>> (i * 9)) & (BITS_PER_BLOCK - 1);
+            if ((bits[block + (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getSizeInBytes()
+    {
+        return sizeOf(bits);
+    }
+
+    private int blockOffset(long hash)
+    {
+        return ((int) hash & blockMask) * LONGS_PER_BLOCK;
+    }
+
+    // finalization step of murmur3, spreads the 32 bit type hash over all 64 bits
+    private static long mix(long hash)
+    {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -37,8 +37,12 @@ public class ChannelSet
 {
     public static final long CURRENT_VALUE_ADDRESS = 0xFF_FF_FF_FF_FF_FF_FF_FFL;
 
+    // sets smaller than this are probed quickly enough without a filter
+    private static final int MIN_BLOOM_FILTER_SIZE = 64 * 1024;
+
     private final BlockBuilderHashStrategy strategy;
     private final AddressValueSet addressValueSet;
+    private final BlockedBloomFilter bloomFilter;
     private final boolean containsNull;
     private final DataSize estimatedSize;
 
@@ -47,14 +51,16 @@ public class ChannelSet
         checkNotNull(channelSet, "channelSet is null");
         this.strategy = new BlockBuilderHashStrategy(channelSet.strategy);
         this.addressValueSet = new AddressValueSet(channelSet.addressValueSet, strategy);
+        this.bloomFilter = channelSet.bloomFilter;
         this.containsNull = channelSet.containsNull;
         this.estimatedSize = channelSet.estimatedSize;
     }
 
-    private ChannelSet(BlockBuilderHashStrategy strategy, AddressValueSet addressValueSet, boolean containsNull, DataSize estimatedSize)
+    private ChannelSet(BlockBuilderHashStrategy strategy, AddressValueSet addressValueSet, BlockedBloomFilter bloomFilter, boolean containsNull, DataSize estimatedSize)
     {
         this.strategy = strategy;
         this.addressValueSet = addressValueSet;
+        this.bloomFilter = bloomFilter;
         this.containsNull = containsNull;
         this.estimatedSize = estimatedSize;
     }
@@ -71,6 +77,10 @@ public class ChannelSet
 
     public boolean containsCurrentValue()
     {
+        // most values of a selective semi join are not in the set, so reject them without probing the set
+        if (bloomFilter != null && !bloomFilter.mightContain(strategy.hashCurrentRow())) {
+            return false;
+        }
         return addressValueSet.contains(CURRENT_VALUE_ADDRESS);
     }
 
@@ -168,8 +178,20 @@ public class ChannelSet
 
         public ChannelSet build()
         {
-            DataSize estimatedSize = new DataSize(addressValueSet.getEstimatedSize().toBytes() + blocksMemorySize + openBlockBuilder.getSizeInBytes(), BYTE);
-            return new ChannelSet(strategy, addressValueSet, containsNull, estimatedSize);
+            BlockedBloomFilter bloomFilter = null;
+            long bloomFilterSize = 0;
+            if (addressValueSet.size() >= MIN_BLOOM_FILTER_SIZE) {
+                bloomFilter = new BlockedBloomFilter(addressValueSet.size());
+                for (BlockBuilder block : blocks) {
+                    for (int position = 0; position < block.getPositionCount(); position++) {
+                        bloomFilter.add(block.hash(position));
+                    }
+                }
+                bloomFilterSize = bloomFilter.getSizeInBytes();
+            }
+
+            DataSize estimatedSize = new DataSize(addressValueSet.getEstimatedSize().toBytes() + blocksMemorySize + openBlockBuilder.getSizeInBytes() + bloomFilterSize, BYTE);
+            return new ChannelSet(strategy, addressValueSet, bloomFilter, containsNull, estimatedSize);
         }
     }
 
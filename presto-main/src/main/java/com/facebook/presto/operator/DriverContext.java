@@ -82,7 +82,7 @@ public class DriverContext
             checkArgument(operatorId != operatorContext.getOperatorId(), "A context already exists for operatorId %s", operatorId);
         }
 
-        OperatorContext operatorContext = new OperatorContext(operatorId, operatorType, this, executor);
+        OperatorContext operatorContext = new OperatorContext(operatorId, operatorType, pipelineContext.getOperatorPlanNodeId(operatorId), this, executor);
         operatorContexts.add(operatorContext);
         return operatorContext;
     }
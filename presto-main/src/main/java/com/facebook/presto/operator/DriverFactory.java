@@ -15,10 +15,12 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
 import java.io.Closeable;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -31,7 +33,9 @@ public class DriverFactory
     private final boolean inputDriver;
     private final boolean outputDriver;
     private final List<OperatorFactory> operatorFactories;
+    private final Map<Integer, PlanNodeId> operatorPlanNodeIds;
     private final Set<PlanNodeId> sourceIds;
+    private final int driverInstances;
     private boolean closed;
 
     public DriverFactory(boolean inputDriver, boolean outputDriver, OperatorFactory firstOperatorFactory, OperatorFactory... otherOperatorFactories)
@@ -46,11 +50,22 @@ public class DriverFactory
     }
 
     public DriverFactory(boolean inputDriver, boolean outputDriver, List<OperatorFactory> operatorFactories)
+    {
+        this(inputDriver, outputDriver, operatorFactories, ImmutableMap.<Integer, PlanNodeId>of());
+    }
+
+    public DriverFactory(boolean inputDriver, boolean outputDriver, List<OperatorFactory> operatorFactories, Map<Integer, PlanNodeId> operatorPlanNodeIds)
+    {
+        this(inputDriver, outputDriver, operatorFactories, operatorPlanNodeIds, 1);
+    }
+
+    public DriverFactory(boolean inputDriver, boolean outputDriver, List<OperatorFactory> operatorFactories, Map<Integer, PlanNodeId> operatorPlanNodeIds, int driverInstances)
     {
         this.inputDriver = inputDriver;
         this.outputDriver = outputDriver;
         this.operatorFactories = ImmutableList.copyOf(checkNotNull(operatorFactories, "operatorFactories is null"));
         checkArgument(!operatorFactories.isEmpty(), "There must be at least one operator");
+        this.operatorPlanNodeIds = ImmutableMap.copyOf(checkNotNull(operatorPlanNodeIds, "operatorPlanNodeIds is null"));
 
         ImmutableSet.Builder<PlanNodeId> sourceIds = ImmutableSet.builder();
         for (OperatorFactory operatorFactory : operatorFactories) {
@@ -60,6 +75,9 @@ public class DriverFactory
             }
         }
         this.sourceIds = sourceIds.build();
+
+        checkArgument(driverInstances > 0, "driverInstances must be greater than zero");
+        this.driverInstances = driverInstances;
     }
 
     public boolean isInputDriver()
@@ -77,6 +95,22 @@ public class DriverFactory
         return sourceIds;
     }
 
+    /**
+     * Maps the id of each operator in this pipeline to the plan node it implements.
+     */
+    public Map<Integer, PlanNodeId> getOperatorPlanNodeIds()
+    {
+        return operatorPlanNodeIds;
+    }
+
+    /**
+     * Number of drivers to create for this pipeline when it does not read a partitioned source.
+     */
+    public int getDriverInstances()
+    {
+        return driverInstances;
+    }
+
     public synchronized Driver createDriver(DriverContext driverContext)
     {
         checkState(!closed, "DriverFactory is already closed");
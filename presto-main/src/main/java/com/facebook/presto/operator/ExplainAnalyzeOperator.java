@@ -0,0 +1,232 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.execution.QueryInfo;
+import com.facebook.presto.execution.QueryPerformanceFetcher;
+import com.facebook.presto.execution.StageId;
+import com.facebook.presto.execution.StageInfo;
+import com.facebook.presto.execution.StateMachine.StateChangeListener;
+import com.facebook.presto.metadata.Metadata;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.PlanPrinter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.slice.Slices;
+
+import java.util.List;
+
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+
+/**
+ * Discards the output of the analyzed query, waits for all stages below it to finish,
+ * and then produces the executed plan annotated with the collected statistics.
+ */
+public class ExplainAnalyzeOperator
+        implements Operator
+{
+    public static final List<Type> TYPES = ImmutableList.<Type>of(VARCHAR);
+
+    public static class ExplainAnalyzeOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final QueryPerformanceFetcher queryPerformanceFetcher;
+        private final Metadata metadata;
+        private boolean closed;
+
+        public ExplainAnalyzeOperatorFactory(int operatorId, QueryPerformanceFetcher queryPerformanceFetcher, Metadata metadata)
+        {
+            this.operatorId = operatorId;
+            this.queryPerformanceFetcher = checkNotNull(queryPerformanceFetcher, "queryPerformanceFetcher is null");
+            this.metadata = checkNotNull(metadata, "metadata is null");
+        }
+
+        @Override
+        public List<Type> getTypes()
+        {
+            return TYPES;
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            OperatorContext context = driverContext.addOperatorContext(operatorId, ExplainAnalyzeOperator.class.getSimpleName());
+            return new ExplainAnalyzeOperator(context, queryPerformanceFetcher, metadata);
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+
+    private enum State
+    {
+        RUNNING, FINISHING, FINISHED
+    }
+
+    private final OperatorContext operatorContext;
+    private final QueryPerformanceFetcher queryPerformanceFetcher;
+    private final Metadata metadata;
+
+    private State state = State.RUNNING;
+    private ListenableFuture<?> analyzedStagesDone;
+
+    public ExplainAnalyzeOperator(OperatorContext operatorContext, QueryPerformanceFetcher queryPerformanceFetcher, Metadata metadata)
+    {
+        this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        this.queryPerformanceFetcher = checkNotNull(queryPerformanceFetcher, "queryPerformanceFetcher is null");
+        this.metadata = checkNotNull(metadata, "metadata is null");
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public List<Type> getTypes()
+    {
+        return TYPES;
+    }
+
+    @Override
+    public void finish()
+    {
+        if (state == State.RUNNING) {
+            state = State.FINISHING;
+            analyzedStagesDone = waitForAnalyzedStages();
+        }
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return state == State.FINISHED;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        if (state != State.FINISHING) {
+            return NOT_BLOCKED;
+        }
+        return analyzedStagesDone;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return state == State.RUNNING;
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        checkNotNull(page, "page is null");
+        checkState(state == State.RUNNING, "Operator is %s", state);
+
+        // the output of the analyzed query is discarded
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        if (state != State.FINISHING || !analyzedStagesDone.isDone()) {
+            return null;
+        }
+        getUnchecked(analyzedStagesDone);
+        state = State.FINISHED;
+
+        String plan = PlanPrinter.textDistributedPlan(getAnalyzedStage(), metadata);
+
+        PageBuilder page = new PageBuilder(getTypes());
+        page.getBlockBuilder(0).appendSlice(Slices.utf8Slice(plan));
+        return page.build();
+    }
+
+    /**
+     * Returns a future that completes once every stage of the analyzed query is done, because the
+     * statistics are only complete once every task of the analyzed query has reported its final state.
+     */
+    private ListenableFuture<?> waitForAnalyzedStages()
+    {
+        final SettableFuture<?> done = SettableFuture.create();
+        queryPerformanceFetcher.addStageStateChangeListener(getStageId().getQueryId(), new StateChangeListener<StageInfo>()
+        {
+            @Override
+            public void stateChanged(StageInfo stageInfo)
+            {
+                checkAnalyzedStages(done);
+            }
+        });
+
+        // the stages may have finished before the listener was added
+        checkAnalyzedStages(done);
+        return done;
+    }
+
+    private void checkAnalyzedStages(SettableFuture<?> done)
+    {
+        try {
+            if (isDone(getAnalyzedStage())) {
+                done.set(null);
+            }
+        }
+        catch (Throwable e) {
+            done.setException(e);
+        }
+    }
+
+    private StageInfo getAnalyzedStage()
+    {
+        StageId stageId = getStageId();
+        QueryInfo queryInfo = queryPerformanceFetcher.getQueryInfo(stageId.getQueryId());
+        return getOnlyElement(findStage(queryInfo.getOutputStage(), stageId).getSubStages());
+    }
+
+    private StageId getStageId()
+    {
+        return operatorContext.getDriverContext().getTaskId().getStageId();
+    }
+
+    private static StageInfo findStage(StageInfo outputStage, StageId stageId)
+    {
+        for (StageInfo stageInfo : StageInfo.getAllStages(checkNotNull(outputStage, "outputStage is null"))) {
+            if (stageInfo.getStageId().equals(stageId)) {
+                return stageInfo;
+            }
+        }
+        throw new IllegalStateException("Stage not found: " + stageId);
+    }
+
+    private static boolean isDone(StageInfo stageInfo)
+    {
+        for (StageInfo stage : StageInfo.getAllStages(stageInfo)) {
+            if (!stage.getState().isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -16,12 +16,16 @@ package com.facebook.presto.operator;
 import com.facebook.presto.ExceededMemoryLimitException;
 import com.facebook.presto.operator.aggregation.AggregationFunction;
 import com.facebook.presto.operator.aggregation.GroupedAccumulator;
+import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.planner.plan.AggregationNode.Step;
 import com.facebook.presto.sql.tree.Input;
+import com.google.common.base.Supplier;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
 import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ListenableFuture;
 
@@ -29,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -36,6 +41,11 @@ import static com.google.common.base.Preconditions.checkState;
 public class HashAggregationOperator
         implements Operator
 {
+    // a partial aggregation that has seen this many positions stops aggregating
+    // when its groups are more than this fraction of its input positions
+    private static final long MIN_ADAPTIVE_INPUT_POSITIONS = 100_000;
+    private static final double MAX_GROUPS_RATIO = 0.8;
+
     public static class HashAggregationOperatorFactory
             implements OperatorFactory
     {
@@ -109,6 +119,12 @@ public class HashAggregationOperator
     private Iterator<Page> outputIterator;
     private boolean finishing;
 
+    // read by the info supplier from other threads
+    private volatile boolean passThrough;
+    private volatile long aggregatedPositions;
+    private volatile long flushedGroups;
+    private volatile long passThroughPositions;
+
     public HashAggregationOperator(
             OperatorContext operatorContext,
             List<Type> groupByTypes,
@@ -130,6 +146,17 @@ public class HashAggregationOperator
         this.memoryManager = new MemoryManager(operatorContext);
 
         this.types = toTypes(groupByTypes, step, functionDefinitions);
+
+        if (step == Step.PARTIAL) {
+            operatorContext.setInfoSupplier(new Supplier<Object>()
+            {
+                @Override
+                public Object get()
+                {
+                    return new PartialAggregationInfo(passThrough, aggregatedPositions, flushedGroups, passThroughPositions);
+                }
+            });
+        }
     }
 
     @Override
@@ -165,7 +192,7 @@ public class HashAggregationOperator
     @Override
     public boolean needsInput()
     {
-        return !finishing && outputIterator == null && (aggregationBuilder == null || !aggregationBuilder.isFull());
+        return !finishing && (outputIterator == null || !outputIterator.hasNext()) && (aggregationBuilder == null || !aggregationBuilder.isFull());
     }
 
     @Override
@@ -173,6 +200,13 @@ public class HashAggregationOperator
     {
         checkState(!finishing, "Operator is already finishing");
         checkNotNull(page, "page is null");
+
+        if (passThrough) {
+            passThroughPositions += page.getPositionCount();
+            outputIterator = Iterators.singletonIterator(passThroughPage(page));
+            return;
+        }
+
         if (aggregationBuilder == null) {
             aggregationBuilder = new GroupByHashAggregationBuilder(
                     functionDefinitions,
@@ -188,6 +222,15 @@ public class HashAggregationOperator
             checkState(!aggregationBuilder.isFull(), "Aggregation buffer is full");
         }
         aggregationBuilder.processPage(page);
+        aggregatedPositions += page.getPositionCount();
+
+        if (step == Step.PARTIAL &&
+                aggregatedPositions >= MIN_ADAPTIVE_INPUT_POSITIONS &&
+                flushedGroups + aggregationBuilder.getGroupCount() > aggregatedPositions * MAX_GROUPS_RATIO) {
+            // the keys are nearly unique, so hashing them only costs CPU and memory without reducing the output
+            passThrough = true;
+            flushAggregationBuilder();
+        }
     }
 
     @Override
@@ -209,8 +252,7 @@ public class HashAggregationOperator
                 throw new ExceededMemoryLimitException(memoryManager.getMaxMemorySize());
             }
 
-            outputIterator = aggregationBuilder.build();
-            aggregationBuilder = null;
+            flushAggregationBuilder();
 
             if (!outputIterator.hasNext()) {
                 return null;
@@ -220,6 +262,43 @@ public class HashAggregationOperator
         return outputIterator.next();
     }
 
+    private void flushAggregationBuilder()
+    {
+        flushedGroups += aggregationBuilder.getGroupCount();
+        outputIterator = aggregationBuilder.build();
+        aggregationBuilder = null;
+    }
+
+    /**
+     * Converts every position of the page into its own group, which produces the intermediate state without hashing the keys.
+     */
+    private Page passThroughPage(Page page)
+    {
+        int positionCount = page.getPositionCount();
+
+        BlockBuilder groupIdsBuilder = BIGINT.createFixedSizeBlockBuilder(positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            groupIdsBuilder.appendLong(position);
+        }
+        GroupByIdBlock groupIds = new GroupByIdBlock(positionCount, groupIdsBuilder.build());
+
+        Block[] blocks = new Block[types.size()];
+        for (int i = 0; i < groupByChannels.size(); i++) {
+            blocks[i] = page.getBlock(groupByChannels.get(i));
+        }
+        for (int i = 0; i < functionDefinitions.size(); i++) {
+            Aggregator aggregator = new Aggregator(functionDefinitions.get(i), step);
+            aggregator.processPage(groupIds, page);
+
+            BlockBuilder output = aggregator.getType().createBlockBuilder(new BlockBuilderStatus());
+            for (int groupId = 0; groupId < positionCount; groupId++) {
+                aggregator.evaluate(groupId, output);
+            }
+            blocks[groupByChannels.size() + i] = output.build();
+        }
+        return new Page(positionCount, blocks);
+    }
+
     private static List<Type> toTypes(List<? extends Type> groupByType, Step step, List<AggregationFunctionDefinition> functionDefinitions)
     {
         ImmutableList.Builder<Type> types = ImmutableList.builder();
@@ -269,6 +348,11 @@ public class HashAggregationOperator
             }
         }
 
+        public int getGroupCount()
+        {
+            return groupByHash.getGroupCount();
+        }
+
         public boolean isFull()
         {
             long memorySize = groupByHash.getEstimatedSize();
@@ -22,6 +22,7 @@ import io.airlift.units.DataSize;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -32,11 +33,17 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 
+/**
+ * Passes pages between the drivers of a task. When the exchange has more than one buffer,
+ * the sinks partition the rows by the hash of the partition channels, and each source
+ * reads the pages of one buffer.
+ */
 @ThreadSafe
 public class InMemoryExchange
 {
     private final List<Type> types;
-    private final Queue<Page> buffer;
+    private final List<Integer> partitionChannels;
+    private final List<Queue<Page>> buffers;
     private final long maxBufferedBytes;
 
     @GuardedBy("this")
@@ -55,7 +62,7 @@ public class InMemoryExchange
     private long bufferBytes;
 
     @GuardedBy("this")
-    private SettableFuture<?> readerFuture;
+    private final List<SettableFuture<?>> readerFutures;
 
     @GuardedBy("this")
     private SettableFuture<?> writerFuture;
@@ -66,9 +73,31 @@ public class InMemoryExchange
     }
 
     public InMemoryExchange(List<Type> types, DataSize maxBufferedBytes)
+    {
+        this(types, 1, ImmutableList.<Integer>of(), maxBufferedBytes);
+    }
+
+    public InMemoryExchange(List<Type> types, int bufferCount, List<Integer> partitionChannels)
+    {
+        this(types, bufferCount, partitionChannels, new DataSize(32, MEGABYTE));
+    }
+
+    public InMemoryExchange(List<Type> types, int bufferCount, List<Integer> partitionChannels, DataSize maxBufferedBytes)
     {
         this.types = ImmutableList.copyOf(checkNotNull(types, "types is null"));
-        this.buffer = new ConcurrentLinkedQueue<>();
+        this.partitionChannels = ImmutableList.copyOf(checkNotNull(partitionChannels, "partitionChannels is null"));
+
+        checkArgument(bufferCount > 0, "bufferCount must be greater than zero");
+        checkArgument(bufferCount == 1 || !partitionChannels.isEmpty(), "partitionChannels is empty");
+        ImmutableList.Builder<Queue<Page>> buffers = ImmutableList.builder();
+        for (int i = 0; i < bufferCount; i++) {
+            buffers.add(new ConcurrentLinkedQueue<Page>());
+        }
+        this.buffers = buffers.build();
+        this.readerFutures = new ArrayList<>();
+        for (int i = 0; i < bufferCount; i++) {
+            readerFutures.add(null);
+        }
 
         checkArgument(maxBufferedBytes.toBytes() > 0, "maxBufferedBytes must be greater than zero");
         this.maxBufferedBytes = maxBufferedBytes.toBytes();
@@ -79,6 +108,16 @@ public class InMemoryExchange
         return types;
     }
 
+    public int getBufferCount()
+    {
+        return buffers.size();
+    }
+
+    public List<Integer> getPartitionChannels()
+    {
+        return partitionChannels;
+    }
+
     public synchronized OperatorFactory createSinkFactory(int operatorId)
     {
         sinkFactories++;
@@ -126,48 +165,72 @@ public class InMemoryExchange
     public synchronized void finish()
     {
         finishing = true;
-        notifyBlockedReaders();
+        for (int bufferIndex = 0; bufferIndex < buffers.size(); bufferIndex++) {
+            notifyBlockedReader(bufferIndex);
+        }
         notifyBlockedWriters();
     }
 
     public synchronized boolean isFinished()
     {
-        return finishing && buffer.isEmpty();
+        if (!finishing) {
+            return false;
+        }
+        for (Queue<Page> buffer : buffers) {
+            if (!buffer.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized boolean isFinished(int bufferIndex)
+    {
+        return finishing && buffers.get(bufferIndex).isEmpty();
     }
 
     public synchronized void addPage(Page page)
+    {
+        checkState(buffers.size() == 1, "Pages of a partitioned exchange must be added to a buffer");
+        addPage(0, page);
+    }
+
+    public synchronized void addPage(int bufferIndex, Page page)
     {
         if (finishing) {
             return;
         }
-        buffer.add(page);
+        buffers.get(bufferIndex).add(page);
         bufferBytes += page.getDataSize().toBytes();
         // TODO: record memory usage using OperatorContext.setMemoryReservation()
-        notifyBlockedReaders();
+        notifyBlockedReader(bufferIndex);
     }
 
-    private synchronized void notifyBlockedReaders()
+    private synchronized void notifyBlockedReader(int bufferIndex)
     {
+        SettableFuture<?> readerFuture = readerFutures.get(bufferIndex);
         if (readerFuture != null) {
             readerFuture.set(null);
-            readerFuture = null;
+            readerFutures.set(bufferIndex, null);
         }
     }
 
-    public synchronized ListenableFuture<?> waitForReading()
+    public synchronized ListenableFuture<?> waitForReading(int bufferIndex)
     {
-        if (finishing || !buffer.isEmpty()) {
+        if (finishing || !buffers.get(bufferIndex).isEmpty()) {
             return NOT_BLOCKED;
         }
+        SettableFuture<?> readerFuture = readerFutures.get(bufferIndex);
         if (readerFuture == null) {
             readerFuture = SettableFuture.create();
+            readerFutures.set(bufferIndex, readerFuture);
         }
         return readerFuture;
     }
 
-    public synchronized Page removePage()
+    public synchronized Page removePage(int bufferIndex)
     {
-        Page page = buffer.poll();
+        Page page = buffers.get(bufferIndex).poll();
         if (page != null) {
             bufferBytes -= page.getDataSize().toBytes();
         }
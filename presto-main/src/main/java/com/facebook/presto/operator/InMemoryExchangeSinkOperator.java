@@ -13,11 +13,14 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.spi.block.BlockCursor;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.slice.Murmur3;
 
 import java.util.List;
 
+import static com.facebook.presto.HashPagePartitionFunction.hashPartitioningChannels;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -26,12 +29,23 @@ public class InMemoryExchangeSinkOperator
 {
     private final OperatorContext operatorContext;
     private final InMemoryExchange inMemoryExchange;
+    private final PageBuilder[] pageBuilders;
     private boolean finished;
 
     InMemoryExchangeSinkOperator(OperatorContext operatorContext, InMemoryExchange inMemoryExchange)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
         this.inMemoryExchange = checkNotNull(inMemoryExchange, "inMemoryExchange is null");
+
+        if (inMemoryExchange.getBufferCount() > 1) {
+            pageBuilders = new PageBuilder[inMemoryExchange.getBufferCount()];
+            for (int i = 0; i < pageBuilders.length; i++) {
+                pageBuilders[i] = new PageBuilder(inMemoryExchange.getTypes());
+            }
+        }
+        else {
+            pageBuilders = null;
+        }
     }
 
     @Override
@@ -51,6 +65,11 @@ public class InMemoryExchangeSinkOperator
     {
         if (!finished) {
             finished = true;
+            if (pageBuilders != null) {
+                for (int bufferIndex = 0; bufferIndex < pageBuilders.length; bufferIndex++) {
+                    flush(bufferIndex);
+                }
+            }
             inMemoryExchange.sinkFinished();
         }
     }
@@ -85,10 +104,54 @@ public class InMemoryExchangeSinkOperator
     {
         checkNotNull(page, "page is null");
         checkState(!finished, "Already finished");
-        inMemoryExchange.addPage(page);
+        if (pageBuilders == null) {
+            inMemoryExchange.addPage(page);
+        }
+        else {
+            partitionPage(page);
+        }
         operatorContext.recordGeneratedOutput(page.getDataSize(), page.getPositionCount());
     }
 
+    private void partitionPage(Page page)
+    {
+        List<Integer> partitionChannels = inMemoryExchange.getPartitionChannels();
+
+        BlockCursor[] cursors = new BlockCursor[page.getChannelCount()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = page.getBlock(i).cursor();
+        }
+
+        for (int position = 0; position < page.getPositionCount(); position++) {
+            for (BlockCursor cursor : cursors) {
+                cursor.advanceNextPosition();
+            }
+
+            // the rows of a task are often already hash partitioned across nodes on the same
+            // channels, so the hash is mixed again before picking a buffer
+            long hash = Murmur3.hash64(hashPartitioningChannels(partitionChannels, cursors));
+            int bufferIndex = (int) ((hash & Long.MAX_VALUE) % pageBuilders.length);
+            PageBuilder pageBuilder = pageBuilders[bufferIndex];
+            for (int channel = 0; channel < cursors.length; channel++) {
+                cursors[channel].appendTo(pageBuilder.getBlockBuilder(channel));
+            }
+
+            // rows are kept until a full page can be added, so the buffers do not fill up with tiny pages
+            if (pageBuilder.isFull()) {
+                flush(bufferIndex);
+            }
+        }
+    }
+
+    private void flush(int bufferIndex)
+    {
+        PageBuilder pageBuilder = pageBuilders[bufferIndex];
+        if (!pageBuilder.isEmpty()) {
+            inMemoryExchange.addPage(bufferIndex, pageBuilder.build());
+            pageBuilder.reset();
+        }
+    }
+
     @Override
     public Page getOutput()
     {
@@ -18,6 +18,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
@@ -29,6 +30,7 @@ public class InMemoryExchangeSourceOperator
     {
         private final int operatorId;
         private final InMemoryExchange inMemoryExchange;
+        private int nextBufferIndex;
         private boolean closed;
 
         public InMemoryExchangeSourceOperatorFactory(int operatorId, InMemoryExchange inMemoryExchange)
@@ -47,8 +49,11 @@ public class InMemoryExchangeSourceOperator
         public Operator createOperator(DriverContext driverContext)
         {
             checkState(!closed, "Factory is already closed");
+            checkState(nextBufferIndex < inMemoryExchange.getBufferCount(), "All exchange buffers already have a reader");
             OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, InMemoryExchangeSourceOperator.class.getSimpleName());
-            return new InMemoryExchangeSourceOperator(operatorContext, inMemoryExchange);
+            // each operator reads its own buffer of a partitioned exchange
+            int bufferIndex = inMemoryExchange.getBufferCount() > 1 ? nextBufferIndex++ : 0;
+            return new InMemoryExchangeSourceOperator(operatorContext, inMemoryExchange, bufferIndex);
         }
 
         @Override
@@ -60,11 +65,19 @@ public class InMemoryExchangeSourceOperator
 
     private final OperatorContext operatorContext;
     private final InMemoryExchange exchange;
+    private final int bufferIndex;
 
     public InMemoryExchangeSourceOperator(OperatorContext operatorContext, InMemoryExchange exchange)
+    {
+        this(operatorContext, exchange, 0);
+    }
+
+    public InMemoryExchangeSourceOperator(OperatorContext operatorContext, InMemoryExchange exchange, int bufferIndex)
     {
         this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
         this.exchange = checkNotNull(exchange, "exchange is null");
+        checkArgument(bufferIndex >= 0 && bufferIndex < exchange.getBufferCount(), "bufferIndex is out of range");
+        this.bufferIndex = bufferIndex;
     }
 
     @Override
@@ -88,13 +101,13 @@ public class InMemoryExchangeSourceOperator
     @Override
     public boolean isFinished()
     {
-        return exchange.isFinished();
+        return exchange.isFinished(bufferIndex);
     }
 
     @Override
     public ListenableFuture<?> isBlocked()
     {
-        ListenableFuture<?> blocked = exchange.waitForReading();
+        ListenableFuture<?> blocked = exchange.waitForReading(bufferIndex);
         if (blocked.isDone()) {
             return NOT_BLOCKED;
         }
@@ -116,7 +129,7 @@ public class InMemoryExchangeSourceOperator
     @Override
     public Page getOutput()
     {
-        Page page = exchange.removePage();
+        Page page = exchange.removePage(bufferIndex);
         if (page != null) {
             operatorContext.recordGeneratedInput(page.getDataSize(), page.getPositionCount());
         }
@@ -14,12 +14,18 @@
 package com.facebook.presto.operator;
 
 import com.facebook.presto.spi.block.BlockCursor;
+import com.google.common.base.Throwables;
 import com.google.common.primitives.Ints;
 import io.airlift.slice.Murmur3;
 import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
 import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
@@ -30,14 +36,29 @@ import static io.airlift.slice.SizeOf.sizeOfIntArray;
 public final class InMemoryJoinHash
         implements LookupSource
 {
+    // builds smaller than this are hashed by the calling thread into a single partition
+    private static final int MIN_PARALLEL_BUILD_POSITIONS = 256 * 1024;
+    // keeps the slots of a partition (two ints per slot) around the size of an L2 cache
+    private static final int POSITIONS_PER_PARTITION = 16 * 1024;
+    private static final int MAX_PARTITIONS = 1024;
+    private static final int HASH_TASK_POSITIONS = 64 * 1024;
+
     private final LongArrayList addresses;
     private final PagesHashStrategy pagesHashStrategy;
 
     private final int channelCount;
-    private final int mask;
-    private final int[] key;
+    private final int partitionShift;
+    private final int partitionMask;
+    private final int[] masks;
+    // each slot holds the key position followed by the full hash of that position
+    private final int[][] keys;
     private final int[] positionLinks;
 
+    // only used while building
+    private int[] positionHashes;
+    private int[] partitionPositions;
+    private int[] partitionOffsets;
+
     public InMemoryJoinHash(LongArrayList addresses, PagesHashStrategy pagesHashStrategy, OperatorContext operatorContext)
     {
         this.addresses = checkNotNull(addresses, "addresses is null");
@@ -46,25 +67,104 @@ public final class InMemoryJoinHash
 
         checkNotNull(operatorContext, "operatorContext is null");
 
-        // reserve memory for the arrays
-        int hashSize = HashCommon.arraySize(addresses.size(), 0.75f);
-        operatorContext.reserveMemory(sizeOfIntArray(hashSize) + sizeOfIntArray(addresses.size()));
+        int positionCount = addresses.size();
+        int partitionCount = 1;
+        if (positionCount >= MIN_PARALLEL_BUILD_POSITIONS) {
+            partitionCount = Math.min(MAX_PARTITIONS, Integer.highestOneBit(positionCount / POSITIONS_PER_PARTITION));
+        }
+        partitionMask = partitionCount - 1;
+        // the partition is taken from the high bits of the hash and the slot from the low bits
+        partitionShift = Integer.SIZE - Integer.numberOfTrailingZeros(partitionCount);
 
-        mask = hashSize - 1;
-        key = new int[hashSize];
-        Arrays.fill(key, -1);
+        // the hashes and the partitioned positions are only needed during the build,
+        // but operator memory is never released, so they are reserved for the lifetime of the hash
+        reserveMemory(operatorContext, sizeOfIntArray(positionCount) * 3);
 
-        this.positionLinks = new int[addresses.size()];
+        positionLinks = new int[positionCount];
         Arrays.fill(positionLinks, -1);
 
-        // index pages
-        for (int position = 0; position < addresses.size(); position++) {
-            int pos = ((int) Murmur3.hash64(hashPosition(position))) & mask;
+        positionHashes = new int[positionCount];
+        partitionPositions = new int[positionCount];
+        partitionOffsets = new int[partitionCount + 1];
+
+        // hash all positions
+        int hashTasks = (positionCount + HASH_TASK_POSITIONS - 1) / HASH_TASK_POSITIONS;
+        if (partitionCount == 1) {
+            for (int task = 0; task < hashTasks; task++) {
+                hashPositions(task);
+            }
+        }
+        else {
+            new ParallelBuilder(this, ParallelBuilder.HASH_POSITIONS, hashTasks).run(operatorContext);
+        }
+
+        // group the positions by partition, keeping them in position order within each partition
+        for (int position = 0; position < positionCount; position++) {
+            partitionOffsets[getPartition(positionHashes[position]) + 1]++;
+        }
+        for (int partition = 0; partition < partitionCount; partition++) {
+            partitionOffsets[partition + 1] += partitionOffsets[partition];
+        }
+        int[] nextPositions = Arrays.copyOf(partitionOffsets, partitionCount);
+        for (int position = 0; position < positionCount; position++) {
+            partitionPositions[nextPositions[getPartition(positionHashes[position])]++] = position;
+        }
+
+        // reserve memory for the hash slots
+        masks = new int[partitionCount];
+        keys = new int[partitionCount][];
+        long keysSize = 0;
+        for (int partition = 0; partition < partitionCount; partition++) {
+            int hashSize = HashCommon.arraySize(partitionOffsets[partition + 1] - partitionOffsets[partition], 0.75f);
+            masks[partition] = hashSize - 1;
+            keysSize += sizeOfIntArray(hashSize * 2);
+        }
+        reserveMemory(operatorContext, keysSize);
+
+        // index the partitions, each partition only touches its own slots and the links of its own positions
+        if (partitionCount == 1) {
+            buildPartition(0);
+        }
+        else {
+            new ParallelBuilder(this, ParallelBuilder.BUILD_PARTITIONS, partitionCount).run(operatorContext);
+        }
+
+        positionHashes = null;
+        partitionPositions = null;
+        partitionOffsets = null;
+    }
+
+    private static void reserveMemory(OperatorContext operatorContext, long bytes)
+    {
+        if (!operatorContext.reserveMemory(bytes)) {
+            throw new ExceededMemoryLimitException(operatorContext.getMaxMemorySize());
+        }
+    }
+
+    private void hashPositions(int task)
+    {
+        int end = Math.min(addresses.size(), (task + 1) * HASH_TASK_POSITIONS);
+        for (int position = task * HASH_TASK_POSITIONS; position < end; position++) {
+            positionHashes[position] = (int) Murmur3.hash64(hashPosition(position));
+        }
+    }
+
+    private void buildPartition(int partition)
+    {
+        int mask = masks[partition];
+        int[] key = new int[(mask + 1) * 2];
+        Arrays.fill(key, -1);
+
+        for (int index = partitionOffsets[partition]; index < partitionOffsets[partition + 1]; index++) {
+            int position = partitionPositions[index];
+            int hash = positionHashes[position];
+            int pos = hash & mask;
 
             // look for an empty slot or a slot containing this key
-            while (key[pos] != -1) {
-                int currentKey = key[pos];
-                if (positionEqualsPosition(currentKey, position)) {
+            while (key[pos * 2] != -1) {
+                int currentKey = key[pos * 2];
+                // only compare the values when the full hashes match
+                if (key[pos * 2 + 1] == hash && positionEqualsPosition(currentKey, position)) {
                     // found a slot for this key
                     // link the new key position to the current key position
                     positionLinks[position] = currentKey;
@@ -76,8 +176,15 @@ public final class InMemoryJoinHash
                 pos = (pos + 1) & mask;
             }
 
-            key[pos] = position;
+            key[pos * 2] = position;
+            key[pos * 2 + 1] = hash;
         }
+        keys[partition] = key;
+    }
+
+    private int getPartition(int hash)
+    {
+        return (hash >>> partitionShift) & partitionMask;
     }
 
     @Override
@@ -89,11 +196,15 @@ public final class InMemoryJoinHash
     @Override
     public final long getJoinPosition(BlockCursor... cursors)
     {
-        int pos = ((int) Murmur3.hash64(hashCursor(cursors))) & mask;
+        int hash = (int) Murmur3.hash64(hashCursor(cursors));
+        int partition = getPartition(hash);
+        int mask = masks[partition];
+        int[] key = keys[partition];
+        int pos = hash & mask;
 
-        while (key[pos] != -1) {
-            if (positionEqualsCurrentRow(key[pos], cursors)) {
-                return key[pos];
+        while (key[pos * 2] != -1) {
+            if (key[pos * 2 + 1] == hash && positionEqualsCurrentRow(key[pos * 2], cursors)) {
+                return key[pos * 2];
             }
             // increment position and mask to handler wrap around
             pos = (pos + 1) & mask;
@@ -155,4 +266,84 @@ public final class InMemoryJoinHash
 
         return pagesHashStrategy.positionEqualsPosition(leftBlockIndex, leftBlockPosition, rightBlockIndex, rightBlockPosition);
     }
+
+    /**
+     * Runs the tasks of one build phase on the calling thread and on helper threads of the executor.
+     * Tasks are claimed one at a time, so the build completes even if no helper thread ever runs.
+     */
+    public static class ParallelBuilder
+            implements Runnable
+    {
+        private static final int HASH_POSITIONS = 0;
+        private static final int BUILD_PARTITIONS = 1;
+
+        private final InMemoryJoinHash joinHash;
+        private final int phase;
+        private final int taskCount;
+        private final AtomicInteger nextTask = new AtomicInteger();
+        private final CountDownLatch finishedTasks;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ParallelBuilder(InMemoryJoinHash joinHash, int phase, int taskCount)
+        {
+            this.joinHash = joinHash;
+            this.phase = phase;
+            this.taskCount = taskCount;
+            this.finishedTasks = new CountDownLatch(taskCount);
+        }
+
+        void run(OperatorContext operatorContext)
+        {
+            // helpers run on the task's bounded helper executor and are charged to the operator
+            Executor executor = operatorContext.getHelperExecutor();
+            Runnable helper = operatorContext.timeFinishHelper(this);
+            int helpers = Math.min(taskCount - 1, TaskContext.MAX_HELPER_THREADS);
+            try {
+                for (int i = 0; i < helpers; i++) {
+                    executor.execute(helper);
+                }
+            }
+            catch (RejectedExecutionException ignored) {
+                // the calling thread does the remaining work
+            }
+
+            run();
+
+            try {
+                finishedTasks.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throwables.propagate(e);
+            }
+
+            Throwable throwable = failure.get();
+            if (throwable != null) {
+                throw Throwables.propagate(throwable);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            for (int task = nextTask.getAndIncrement(); task < taskCount; task = nextTask.getAndIncrement()) {
+                try {
+                    if (failure.get() == null) {
+                        if (phase == HASH_POSITIONS) {
+                            joinHash.hashPositions(task);
+                        }
+                        else {
+                            joinHash.buildPartition(task);
+                        }
+                    }
+                }
+                catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+                finally {
+                    finishedTasks.countDown();
+                }
+            }
+        }
+    }
 }
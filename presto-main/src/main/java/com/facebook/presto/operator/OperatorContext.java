@@ -15,6 +15,7 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.ExceededMemoryLimitException;
 import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.base.Function;
 import com.google.common.base.Supplier;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -22,6 +23,7 @@ import io.airlift.stats.CounterStat;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.lang.management.ManagementFactory;
@@ -42,6 +44,8 @@ public class OperatorContext
 
     private final int operatorId;
     private final String operatorType;
+    @Nullable
+    private final PlanNodeId planNodeId;
     private final DriverContext driverContext;
     private final Executor executor;
 
@@ -75,10 +79,16 @@ public class OperatorContext
     private final AtomicReference<Supplier<Object>> infoSupplier = new AtomicReference<>();
 
     public OperatorContext(int operatorId, String operatorType, DriverContext driverContext, Executor executor)
+    {
+        this(operatorId, operatorType, null, driverContext, executor);
+    }
+
+    public OperatorContext(int operatorId, String operatorType, @Nullable PlanNodeId planNodeId, DriverContext driverContext, Executor executor)
     {
         checkArgument(operatorId >= 0, "operatorId is negative");
         this.operatorId = operatorId;
         this.operatorType = checkNotNull(operatorType, "operatorType is null");
+        this.planNodeId = planNodeId;
         this.driverContext = checkNotNull(driverContext, "driverContext is null");
         this.executor = checkNotNull(executor, "executor is null");
     }
@@ -93,6 +103,12 @@ public class OperatorContext
         return operatorType;
     }
 
+    @Nullable
+    public PlanNodeId getPlanNodeId()
+    {
+        return planNodeId;
+    }
+
     public DriverContext getDriverContext()
     {
         return driverContext;
@@ -103,6 +119,15 @@ public class OperatorContext
         return driverContext.getSession();
     }
 
+    /**
+     * Executor of the task. Operators may use it to spread CPU intensive work over
+     * several threads, but must not assume that submitted work runs immediately.
+     */
+    public Executor getExecutor()
+    {
+        return executor;
+    }
+
     public boolean isDone()
     {
         return driverContext.isDone();
@@ -182,6 +207,36 @@ public class OperatorContext
         finishUserNanos.getAndAdd(nanosBetween(intervalUserStart.get(), currentThreadUserTime()));
     }
 
+    public Executor getHelperExecutor()
+    {
+        return driverContext.getPipelineContext().getTaskContext().getHelperExecutor();
+    }
+
+    /**
+     * Wraps work the operator does on a helper thread while finishing, so the CPU
+     * time of the helper thread is added to the finish time of this operator.
+     */
+    public Runnable timeFinishHelper(final Runnable helper)
+    {
+        checkNotNull(helper, "helper is null");
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                long cpuStart = currentThreadCpuTime();
+                long userStart = currentThreadUserTime();
+                try {
+                    helper.run();
+                }
+                finally {
+                    finishCpuNanos.getAndAdd(nanosBetween(cpuStart, currentThreadCpuTime()));
+                    finishUserNanos.getAndAdd(nanosBetween(userStart, currentThreadUserTime()));
+                }
+            }
+        };
+    }
+
     public DataSize getMaxMemorySize()
     {
         return driverContext.getMaxMemorySize();
@@ -252,6 +307,7 @@ public class OperatorContext
         return new OperatorStats(
                 operatorId,
                 operatorType,
+                planNodeId,
 
                 addInputCalls.get(),
                 new Duration(addInputWallNanos.get(), NANOSECONDS).convertToMostSuccinctTimeUnit(),
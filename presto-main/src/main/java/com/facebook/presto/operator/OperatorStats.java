@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
@@ -32,6 +33,7 @@ public class OperatorStats
 {
     private final int operatorId;
     private final String operatorType;
+    private final PlanNodeId planNodeId;
 
     private final long addInputCalls;
     private final Duration addInputWall;
@@ -62,6 +64,7 @@ public class OperatorStats
     public OperatorStats(
             @JsonProperty("operatorId") int operatorId,
             @JsonProperty("operatorType") String operatorType,
+            @JsonProperty("planNodeId") @Nullable PlanNodeId planNodeId,
 
             @JsonProperty("addInputCalls") long addInputCalls,
             @JsonProperty("addInputWall") Duration addInputWall,
@@ -91,6 +94,7 @@ public class OperatorStats
         checkArgument(operatorId >= 0, "operatorId is negative");
         this.operatorId = operatorId;
         this.operatorType = checkNotNull(operatorType, "operatorType is null");
+        this.planNodeId = planNodeId;
 
         this.addInputCalls = addInputCalls;
         this.addInputWall = checkNotNull(addInputWall, "addInputWall is null");
@@ -132,6 +136,13 @@ public class OperatorStats
         return operatorType;
     }
 
+    @Nullable
+    @JsonProperty
+    public PlanNodeId getPlanNodeId()
+    {
+        return planNodeId;
+    }
+
     @JsonProperty
     public long getAddInputCalls()
     {
@@ -307,6 +318,7 @@ public class OperatorStats
         return new OperatorStats(
                 operatorId,
                 operatorType,
+                planNodeId,
 
                 addInputCalls,
                 new Duration(addInputWall, NANOSECONDS).convertToMostSuccinctTimeUnit(),
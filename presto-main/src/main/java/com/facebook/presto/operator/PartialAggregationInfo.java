@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Objects;
+
+/**
+ * Shows whether a partial hash aggregation stopped aggregating because it was not reducing its input.
+ */
+public class PartialAggregationInfo
+{
+    private final boolean passThrough;
+    private final long aggregatedPositions;
+    private final long groups;
+    private final long passThroughPositions;
+
+    @JsonCreator
+    public PartialAggregationInfo(
+            @JsonProperty("passThrough") boolean passThrough,
+            @JsonProperty("aggregatedPositions") long aggregatedPositions,
+            @JsonProperty("groups") long groups,
+            @JsonProperty("passThroughPositions") long passThroughPositions)
+    {
+        this.passThrough = passThrough;
+        this.aggregatedPositions = aggregatedPositions;
+        this.groups = groups;
+        this.passThroughPositions = passThroughPositions;
+    }
+
+    @JsonProperty
+    public boolean isPassThrough()
+    {
+        return passThrough;
+    }
+
+    /**
+     * Number of input positions added to the hash table.
+     */
+    @JsonProperty
+    public long getAggregatedPositions()
+    {
+        return aggregatedPositions;
+    }
+
+    /**
+     * Number of groups produced from the aggregated positions.
+     */
+    @JsonProperty
+    public long getGroups()
+    {
+        return groups;
+    }
+
+    /**
+     * Number of input positions converted to intermediate state without aggregation.
+     */
+    @JsonProperty
+    public long getPassThroughPositions()
+    {
+        return passThroughPositions;
+    }
+
+    @Override
+    public String toString()
+    {
+        return Objects.toStringHelper(this)
+                .add("passThrough", passThrough)
+                .add("aggregatedPositions", aggregatedPositions)
+                .add("groups", groups)
+                .add("passThroughPositions", passThroughPositions)
+                .toString();
+    }
+}
@@ -15,19 +15,25 @@ package com.facebook.presto.operator;
 
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.base.Function;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import io.airlift.stats.CounterStat;
 import io.airlift.stats.Distribution;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
@@ -52,6 +58,9 @@ public class PipelineContext
 
     private final boolean inputPipeline;
     private final boolean outputPipeline;
+    private final boolean partitionedPipeline;
+
+    private final Map<Integer, PlanNodeId> operatorPlanNodeIds;
 
     private final List<DriverContext> drivers = new CopyOnWriteArrayList<>();
 
@@ -79,9 +88,21 @@ public class PipelineContext
     private final ConcurrentMap<Integer, OperatorStats> operatorSummaries = new ConcurrentHashMap<>();
 
     public PipelineContext(TaskContext taskContext, Executor executor, boolean inputPipeline, boolean outputPipeline)
+    {
+        this(taskContext, executor, inputPipeline, outputPipeline, ImmutableMap.<Integer, PlanNodeId>of());
+    }
+
+    public PipelineContext(TaskContext taskContext, Executor executor, boolean inputPipeline, boolean outputPipeline, Map<Integer, PlanNodeId> operatorPlanNodeIds)
+    {
+        this(taskContext, executor, inputPipeline, outputPipeline, false, operatorPlanNodeIds);
+    }
+
+    public PipelineContext(TaskContext taskContext, Executor executor, boolean inputPipeline, boolean outputPipeline, boolean partitionedPipeline, Map<Integer, PlanNodeId> operatorPlanNodeIds)
     {
         this.inputPipeline = inputPipeline;
         this.outputPipeline = outputPipeline;
+        this.partitionedPipeline = partitionedPipeline;
+        this.operatorPlanNodeIds = ImmutableMap.copyOf(checkNotNull(operatorPlanNodeIds, "operatorPlanNodeIds is null"));
         this.taskContext = checkNotNull(taskContext, "taskContext is null");
         this.executor = checkNotNull(executor, "executor is null");
     }
@@ -106,6 +127,23 @@ public class PipelineContext
         return outputPipeline;
     }
 
+    /**
+     * Returns true if each driver of this pipeline processes one split of the task's partitioned source.
+     */
+    public boolean isPartitionedPipeline()
+    {
+        return partitionedPipeline;
+    }
+
+    /**
+     * Returns the id of the plan node the operator was planned for, or null if unknown.
+     */
+    @Nullable
+    public PlanNodeId getOperatorPlanNodeId(int operatorId)
+    {
+        return operatorPlanNodeIds.get(operatorId);
+    }
+
     public DriverContext addDriverContext()
     {
         DriverContext driverContext = new DriverContext(this, executor);
@@ -261,6 +299,14 @@ public class PipelineContext
         return stat;
     }
 
+    /**
+     * Returns the time scheduled by the drivers of this pipeline that have finished.
+     */
+    public Duration getCompletedDriversScheduledTime()
+    {
+        return new Duration(totalScheduledTime.get(), NANOSECONDS);
+    }
+
     public PipelineStats getPipelineStats()
     {
         List<DriverContext> driverContexts = ImmutableList.copyOf(this.drivers);
@@ -324,12 +370,15 @@ public class PipelineContext
             outputPositions += driverStats.getOutputPositions();
         }
 
-        // merge the operator stats into the operator summary
-        TreeMap<Integer, OperatorStats> operatorSummaries = new TreeMap<>();
-        for (Entry<Integer, OperatorStats> entry : this.operatorSummaries.entrySet()) {
-            OperatorStats operator = entry.getValue();
-            operator.add(runningOperators.get(entry.getKey()));
-            operatorSummaries.put(entry.getKey(), operator);
+        // merge the running operator stats into the operator summary
+        TreeMap<Integer, OperatorStats> operatorSummaries = new TreeMap<>(this.operatorSummaries);
+        for (Entry<Integer, Collection<OperatorStats>> entry : runningOperators.asMap().entrySet()) {
+            Iterator<OperatorStats> running = entry.getValue().iterator();
+            OperatorStats operator = operatorSummaries.get(entry.getKey());
+            if (operator == null) {
+                operator = running.next();
+            }
+            operatorSummaries.put(entry.getKey(), operator.add(ImmutableList.copyOf(running)));
         }
 
         return new PipelineStats(
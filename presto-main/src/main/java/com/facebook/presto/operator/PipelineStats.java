@@ -255,4 +255,34 @@ public class PipelineStats
     {
         return drivers;
     }
+
+    /**
+     * Returns a copy of these stats without the per driver details. The operator summaries
+     * are kept, so the stats can still be aggregated by plan node.
+     */
+    public PipelineStats summarize()
+    {
+        return new PipelineStats(
+                inputPipeline,
+                outputPipeline,
+                totalDrivers,
+                queuedDrivers,
+                runningDrivers,
+                completedDrivers,
+                memoryReservation,
+                queuedTime,
+                elapsedTime,
+                totalScheduledTime,
+                totalCpuTime,
+                totalUserTime,
+                totalBlockedTime,
+                rawInputDataSize,
+                rawInputPositions,
+                processedInputDataSize,
+                processedInputPositions,
+                outputDataSize,
+                outputPositions,
+                operatorSummaries,
+                ImmutableList.<DriverStats>of());
+    }
 }
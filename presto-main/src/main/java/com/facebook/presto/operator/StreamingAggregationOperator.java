@@ -0,0 +1,373 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.ExceededMemoryLimitException;
+import com.facebook.presto.operator.aggregation.AggregationFunction;
+import com.facebook.presto.operator.aggregation.GroupedAccumulator;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.RandomAccessBlock;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.plan.AggregationNode.Step;
+import com.facebook.presto.sql.tree.Input;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.List;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Aggregates input in which all rows of a group are adjacent, such as input sorted on the group by channels.
+ * Each group is emitted as soon as a row of the next group arrives. The groups share grouped accumulators, which
+ * are replaced after a fixed number of groups, so only the state of a bounded number of groups is kept in memory.
+ */
+public class StreamingAggregationOperator
+        implements Operator
+{
+    public static class StreamingAggregationOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final List<Type> groupByTypes;
+        private final List<Integer> groupByChannels;
+        private final Step step;
+        private final List<AggregationFunctionDefinition> functionDefinitions;
+        private final List<Type> types;
+        private boolean closed;
+
+        public StreamingAggregationOperatorFactory(
+                int operatorId,
+                List<? extends Type> groupByTypes,
+                List<Integer> groupByChannels,
+                Step step,
+                List<AggregationFunctionDefinition> functionDefinitions)
+        {
+            this.operatorId = operatorId;
+            this.groupByTypes = ImmutableList.copyOf(checkNotNull(groupByTypes, "groupByTypes is null"));
+            this.groupByChannels = ImmutableList.copyOf(checkNotNull(groupByChannels, "groupByChannels is null"));
+            this.step = checkNotNull(step, "step is null");
+            this.functionDefinitions = ImmutableList.copyOf(checkNotNull(functionDefinitions, "functionDefinitions is null"));
+
+            this.types = toTypes(groupByTypes, step, functionDefinitions);
+        }
+
+        @Override
+        public List<Type> getTypes()
+        {
+            return types;
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, StreamingAggregationOperator.class.getSimpleName());
+            return new StreamingAggregationOperator(operatorContext, groupByTypes, groupByChannels, step, functionDefinitions);
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+
+    // groups are numbered in the grouped accumulators until this many have been started
+    private static final int MAX_GROUPS_PER_ACCUMULATOR = 1024;
+
+    private final OperatorContext operatorContext;
+    private final int[] groupByChannels;
+    private final Step step;
+    private final List<AggregationFunctionDefinition> functionDefinitions;
+    private final List<Type> types;
+    private final MemoryManager memoryManager;
+    private final PageBuilder pageBuilder;
+
+    private List<Aggregator> aggregators;
+    // number of groups started in the current aggregators; the last one is the open group
+    private int groupCount;
+
+    // the key of the open group is the position of its first row, or null before the first row
+    private RandomAccessBlock[] currentGroupBlocks;
+    private int currentGroupPosition;
+    private boolean finishing;
+
+    public StreamingAggregationOperator(
+            OperatorContext operatorContext,
+            List<Type> groupByTypes,
+            List<Integer> groupByChannels,
+            Step step,
+            List<AggregationFunctionDefinition> functionDefinitions)
+    {
+        this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        checkNotNull(groupByTypes, "groupByTypes is null");
+        this.groupByChannels = Ints.toArray(checkNotNull(groupByChannels, "groupByChannels is null"));
+        this.step = checkNotNull(step, "step is null");
+        this.functionDefinitions = ImmutableList.copyOf(checkNotNull(functionDefinitions, "functionDefinitions is null"));
+        checkArgument(!groupByChannels.isEmpty(), "groupByChannels is empty");
+
+        this.types = toTypes(groupByTypes, step, functionDefinitions);
+        this.memoryManager = new MemoryManager(operatorContext);
+        this.pageBuilder = new PageBuilder(types);
+        this.aggregators = createAggregators();
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    @Override
+    public void finish()
+    {
+        finishing = true;
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return finishing && currentGroupBlocks == null && pageBuilder.isEmpty();
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        return NOT_BLOCKED;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return !finishing && !pageBuilder.isFull();
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        checkState(needsInput(), "Operator can not take input at this time");
+        checkNotNull(page, "page is null");
+
+        if (groupCount >= MAX_GROUPS_PER_ACCUMULATOR) {
+            resetAggregators();
+        }
+
+        RandomAccessBlock[] groupByBlocks = new RandomAccessBlock[groupByChannels.length];
+        for (int i = 0; i < groupByChannels.length; i++) {
+            groupByBlocks[i] = page.getBlock(groupByChannels[i]).toRandomAccessBlock();
+        }
+
+        // number the groups of the page; the keys of each group are output as soon as the next group starts
+        int firstGroupId = currentGroupBlocks == null ? groupCount : groupCount - 1;
+        int positionCount = page.getPositionCount();
+        BlockBuilder groupIdsBuilder = BIGINT.createFixedSizeBlockBuilder(positionCount);
+        for (int position = 0; position < positionCount; position++) {
+            if (currentGroupBlocks == null || !isCurrentGroup(groupByBlocks, position)) {
+                if (currentGroupBlocks != null) {
+                    appendCurrentGroupKeys();
+                }
+                currentGroupBlocks = groupByBlocks;
+                currentGroupPosition = position;
+                groupCount++;
+            }
+            groupIdsBuilder.appendLong(groupCount - 1);
+        }
+        GroupByIdBlock groupIds = new GroupByIdBlock(groupCount, groupIdsBuilder.build());
+
+        long memorySize = 0;
+        for (Aggregator aggregator : aggregators) {
+            aggregator.processPage(groupIds, page);
+            memorySize += aggregator.getEstimatedSize();
+        }
+        if (!memoryManager.canUse(memorySize)) {
+            throw new ExceededMemoryLimitException(memoryManager.getMaxMemorySize());
+        }
+
+        // every group but the last of the page is complete
+        for (int groupId = firstGroupId; groupId < groupCount - 1; groupId++) {
+            appendAggregations(groupId);
+        }
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        if (finishing && currentGroupBlocks != null) {
+            appendCurrentGroupKeys();
+            appendAggregations(groupCount - 1);
+            currentGroupBlocks = null;
+        }
+
+        // output full pages, and the remaining groups once the input is finished
+        if (pageBuilder.isEmpty() || (!finishing && !pageBuilder.isFull())) {
+            return null;
+        }
+
+        Page page = pageBuilder.build();
+        pageBuilder.reset();
+        return page;
+    }
+
+    private boolean isCurrentGroup(RandomAccessBlock[] groupByBlocks, int position)
+    {
+        for (int i = 0; i < groupByBlocks.length; i++) {
+            if (!currentGroupBlocks[i].equalTo(currentGroupPosition, groupByBlocks[i], position)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void appendCurrentGroupKeys()
+    {
+        for (int i = 0; i < currentGroupBlocks.length; i++) {
+            currentGroupBlocks[i].appendTo(currentGroupPosition, pageBuilder.getBlockBuilder(i));
+        }
+    }
+
+    private void appendAggregations(int groupId)
+    {
+        for (int i = 0; i < aggregators.size(); i++) {
+            aggregators.get(i).evaluate(groupId, pageBuilder.getBlockBuilder(groupByChannels.length + i));
+        }
+    }
+
+    /**
+     * Replaces the aggregators, so that the state of completed groups is released. The open
+     * group is carried over as the first group of the new aggregators through its intermediate state.
+     */
+    private void resetAggregators()
+    {
+        List<Aggregator> newAggregators = createAggregators();
+        if (currentGroupBlocks != null) {
+            BlockBuilder groupIdsBuilder = BIGINT.createFixedSizeBlockBuilder(1);
+            groupIdsBuilder.appendLong(0);
+            GroupByIdBlock groupIds = new GroupByIdBlock(1, groupIdsBuilder.build());
+            for (int i = 0; i < aggregators.size(); i++) {
+                newAggregators.get(i).addIntermediate(groupIds, aggregators.get(i).evaluateIntermediate(groupCount - 1));
+            }
+            groupCount = 1;
+        }
+        else {
+            groupCount = 0;
+        }
+        aggregators = newAggregators;
+    }
+
+    private List<Aggregator> createAggregators()
+    {
+        ImmutableList.Builder<Aggregator> builder = ImmutableList.builder();
+        for (AggregationFunctionDefinition functionDefinition : functionDefinitions) {
+            builder.add(new Aggregator(functionDefinition, step));
+        }
+        return builder.build();
+    }
+
+    private static List<Type> toTypes(List<? extends Type> groupByTypes, Step step, List<AggregationFunctionDefinition> functionDefinitions)
+    {
+        ImmutableList.Builder<Type> types = ImmutableList.builder();
+        types.addAll(groupByTypes);
+        for (AggregationFunctionDefinition functionDefinition : functionDefinitions) {
+            if (step != Step.PARTIAL) {
+                types.add(functionDefinition.getFunction().getFinalType());
+            }
+            else {
+                types.add(functionDefinition.getFunction().getIntermediateType());
+            }
+        }
+        return types.build();
+    }
+
+    private static class Aggregator
+    {
+        private final GroupedAccumulator aggregation;
+        private final Step step;
+
+        private final int intermediateChannel;
+
+        private Aggregator(AggregationFunctionDefinition functionDefinition, Step step)
+        {
+            AggregationFunction function = functionDefinition.getFunction();
+
+            if (step != Step.FINAL) {
+                int[] argumentChannels = new int[functionDefinition.getInputs().size()];
+                for (int i = 0; i < argumentChannels.length; i++) {
+                    argumentChannels[i] = functionDefinition.getInputs().get(i).getChannel();
+                }
+                intermediateChannel = -1;
+                aggregation = function.createGroupedAggregation(
+                        functionDefinition.getMask().transform(Input.channelGetter()),
+                        functionDefinition.getSampleWeight().transform(Input.channelGetter()),
+                        functionDefinition.getConfidence(),
+                        argumentChannels);
+            }
+            else {
+                checkArgument(functionDefinition.getInputs().size() == 1, "Expected a single input for an intermediate aggregation");
+                intermediateChannel = functionDefinition.getInputs().get(0).getChannel();
+                aggregation = function.createGroupedIntermediateAggregation(functionDefinition.getConfidence());
+            }
+            this.step = step;
+        }
+
+        public long getEstimatedSize()
+        {
+            return aggregation.getEstimatedSize();
+        }
+
+        public void processPage(GroupByIdBlock groupIds, Page page)
+        {
+            if (step == Step.FINAL) {
+                aggregation.addIntermediate(groupIds, page.getBlock(intermediateChannel));
+            }
+            else {
+                aggregation.addInput(groupIds, page);
+            }
+        }
+
+        public void addIntermediate(GroupByIdBlock groupIds, Block block)
+        {
+            aggregation.addIntermediate(groupIds, block);
+        }
+
+        public Block evaluateIntermediate(int groupId)
+        {
+            BlockBuilder output = aggregation.getIntermediateType().createBlockBuilder(new BlockBuilderStatus());
+            aggregation.evaluateIntermediate(groupId, output);
+            return output.build();
+        }
+
+        public void evaluate(int groupId, BlockBuilder output)
+        {
+            if (step == Step.PARTIAL) {
+                aggregation.evaluateIntermediate(groupId, output);
+            }
+            else {
+                aggregation.evaluateFinal(groupId, output);
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 
 import java.util.List;
@@ -210,7 +211,8 @@ public class TableWriterOperator
         else if (type.equals(DOUBLE)) {
             recordSink.appendDouble(cursor.getDouble());
         }
-        else if (type.equals(VARCHAR)) {
+        else if (type.getJavaType() == Slice.class) {
+            // varchar, varbinary and serialized sketches such as HyperLogLog
             recordSink.appendString(cursor.getSlice().getBytes());
         }
         else {
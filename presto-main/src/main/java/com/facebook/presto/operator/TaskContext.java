@@ -18,8 +18,11 @@ import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskState;
 import com.facebook.presto.execution.TaskStateMachine;
 import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.facebook.presto.util.BoundedExecutor;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.airlift.stats.CounterStat;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
@@ -28,6 +31,7 @@ import org.joda.time.DateTime;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
@@ -45,8 +49,15 @@ import static java.util.concurrent.TimeUnit.NANOSECONDS;
 @ThreadSafe
 public class TaskContext
 {
+    /**
+     * Maximum number of threads a task may use for work its operators split
+     * over several threads, such as a parallel hash build.
+     */
+    public static final int MAX_HELPER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+
     private final TaskStateMachine taskStateMachine;
     private final Executor executor;
+    private final Executor helperExecutor;
     private final ConnectorSession session;
 
     private final long maxMemory;
@@ -92,6 +103,7 @@ public class TaskContext
     {
         this.taskStateMachine = checkNotNull(taskStateMachine, "taskStateMachine is null");
         this.executor = checkNotNull(executor, "executor is null");
+        this.helperExecutor = new BoundedExecutor(executor, MAX_HELPER_THREADS);
         this.session = session;
         this.maxMemory = checkNotNull(maxMemory, "maxMemory is null").toBytes();
         this.operatorPreAllocatedMemory = checkNotNull(operatorPreAllocatedMemory, "operatorPreAllocatedMemory is null");
@@ -118,7 +130,17 @@ public class TaskContext
 
     public PipelineContext addPipelineContext(boolean inputPipeline, boolean outputPipeline)
     {
-        PipelineContext pipelineContext = new PipelineContext(this, executor, inputPipeline, outputPipeline);
+        return addPipelineContext(inputPipeline, outputPipeline, ImmutableMap.<Integer, PlanNodeId>of());
+    }
+
+    public PipelineContext addPipelineContext(boolean inputPipeline, boolean outputPipeline, Map<Integer, PlanNodeId> operatorPlanNodeIds)
+    {
+        return addPipelineContext(inputPipeline, outputPipeline, false, operatorPlanNodeIds);
+    }
+
+    public PipelineContext addPipelineContext(boolean inputPipeline, boolean outputPipeline, boolean partitionedPipeline, Map<Integer, PlanNodeId> operatorPlanNodeIds)
+    {
+        PipelineContext pipelineContext = new PipelineContext(this, executor, inputPipeline, outputPipeline, partitionedPipeline, operatorPlanNodeIds);
         pipelineContexts.add(pipelineContext);
         return pipelineContext;
     }
@@ -133,6 +155,15 @@ public class TaskContext
         return session;
     }
 
+    /**
+     * Executor for helper threads of the operators of this task. The task executor
+     * is not bounded, so this limits the task to {@link #MAX_HELPER_THREADS} threads.
+     */
+    public Executor getHelperExecutor()
+    {
+        return helperExecutor;
+    }
+
     public void start()
     {
         if (!startNanos.compareAndSet(0, System.nanoTime())) {
@@ -241,6 +272,7 @@ public class TaskContext
             }
         }
 
+        List<PipelineContext> pipelineContexts = ImmutableList.copyOf(this.pipelineContexts);
         List<PipelineStats> pipelineStats = ImmutableList.copyOf(transform(pipelineContexts, pipelineStatsGetter()));
 
         int totalDrivers = 0;
@@ -248,6 +280,11 @@ public class TaskContext
         int runningDrivers = 0;
         int completedDrivers = 0;
 
+        int queuedPartitionedDrivers = 0;
+        int runningPartitionedDrivers = 0;
+        int completedPartitionedDrivers = 0;
+        long completedPartitionedDriversScheduledTime = 0;
+
         long totalScheduledTime = 0;
         long totalCpuTime = 0;
         long totalUserTime = 0;
@@ -287,6 +324,18 @@ public class TaskContext
             }
         }
 
+        // the scheduler balances splits using the drivers of the pipeline that processes the partitioned source
+        for (int i = 0; i < pipelineContexts.size(); i++) {
+            PipelineContext pipelineContext = pipelineContexts.get(i);
+            if (pipelineContext.isPartitionedPipeline()) {
+                PipelineStats pipeline = pipelineStats.get(i);
+                queuedPartitionedDrivers += pipeline.getQueuedDrivers();
+                runningPartitionedDrivers += pipeline.getRunningDrivers();
+                completedPartitionedDrivers += pipeline.getCompletedDrivers();
+                completedPartitionedDriversScheduledTime += pipelineContext.getCompletedDriversScheduledTime().roundTo(NANOSECONDS);
+            }
+        }
+
         long startNanos = this.startNanos.get();
         if (startNanos < createNanos) {
             startNanos = System.nanoTime();
@@ -313,6 +362,10 @@ public class TaskContext
                 queuedDrivers,
                 runningDrivers,
                 completedDrivers,
+                queuedPartitionedDrivers,
+                runningPartitionedDrivers,
+                completedPartitionedDrivers,
+                new Duration(completedPartitionedDriversScheduledTime, NANOSECONDS).convertToMostSuccinctTimeUnit(),
                 new DataSize(memoryReservation.get(), BYTE).convertToMostSuccinctDataSize(),
                 new Duration(totalScheduledTime, NANOSECONDS).convertToMostSuccinctTimeUnit(),
                 new Duration(totalCpuTime, NANOSECONDS).convertToMostSuccinctTimeUnit(),
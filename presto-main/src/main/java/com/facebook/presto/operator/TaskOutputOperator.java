@@ -110,7 +110,8 @@ public class TaskOutputOperator
             blocked = NOT_BLOCKED;
         }
 
-        return finished && blocked == NOT_BLOCKED;
+        // the buffer is finished early when all consumers of this task have gone away
+        return (finished && blocked == NOT_BLOCKED) || sharedBuffer.isFinished();
     }
 
     @Override
@@ -128,7 +129,7 @@ public class TaskOutputOperator
         if (blocked != NOT_BLOCKED && blocked.isDone()) {
             blocked = NOT_BLOCKED;
         }
-        return !finished && blocked == NOT_BLOCKED;
+        return !finished && blocked == NOT_BLOCKED && !sharedBuffer.isFinished();
     }
 
     @Override
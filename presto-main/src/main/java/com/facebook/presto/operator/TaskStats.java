@@ -15,6 +15,7 @@ package com.facebook.presto.operator;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
@@ -26,6 +27,7 @@ import java.util.List;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.transform;
 
 public class TaskStats
 {
@@ -42,6 +44,11 @@ public class TaskStats
     private final int runningDrivers;
     private final int completedDrivers;
 
+    private final int queuedPartitionedDrivers;
+    private final int runningPartitionedDrivers;
+    private final int completedPartitionedDrivers;
+    private final Duration completedPartitionedDriversScheduledTime;
+
     private final DataSize memoryReservation;
 
     private final Duration totalScheduledTime;
@@ -74,6 +81,11 @@ public class TaskStats
             @JsonProperty("runningDrivers") int runningDrivers,
             @JsonProperty("completedDrivers") int completedDrivers,
 
+            @JsonProperty("queuedPartitionedDrivers") int queuedPartitionedDrivers,
+            @JsonProperty("runningPartitionedDrivers") int runningPartitionedDrivers,
+            @JsonProperty("completedPartitionedDrivers") int completedPartitionedDrivers,
+            @JsonProperty("completedPartitionedDriversScheduledTime") Duration completedPartitionedDriversScheduledTime,
+
             @JsonProperty("memoryReservation") DataSize memoryReservation,
 
             @JsonProperty("totalScheduledTime") Duration totalScheduledTime,
@@ -108,6 +120,14 @@ public class TaskStats
         checkArgument(completedDrivers >= 0, "completedDrivers is negative");
         this.completedDrivers = completedDrivers;
 
+        checkArgument(queuedPartitionedDrivers >= 0, "queuedPartitionedDrivers is negative");
+        this.queuedPartitionedDrivers = queuedPartitionedDrivers;
+        checkArgument(runningPartitionedDrivers >= 0, "runningPartitionedDrivers is negative");
+        this.runningPartitionedDrivers = runningPartitionedDrivers;
+        checkArgument(completedPartitionedDrivers >= 0, "completedPartitionedDrivers is negative");
+        this.completedPartitionedDrivers = completedPartitionedDrivers;
+        this.completedPartitionedDriversScheduledTime = checkNotNull(completedPartitionedDriversScheduledTime, "completedPartitionedDriversScheduledTime is null");
+
         this.memoryReservation = checkNotNull(memoryReservation, "memoryReservation is null");
 
         this.totalScheduledTime = checkNotNull(totalScheduledTime, "totalScheduledTime is null");
@@ -193,6 +213,34 @@ public class TaskStats
         return completedDrivers;
     }
 
+    @JsonProperty
+    public int getQueuedPartitionedDrivers()
+    {
+        return queuedPartitionedDrivers;
+    }
+
+    @JsonProperty
+    public int getRunningPartitionedDrivers()
+    {
+        return runningPartitionedDrivers;
+    }
+
+    @JsonProperty
+    public int getCompletedPartitionedDrivers()
+    {
+        return completedPartitionedDrivers;
+    }
+
+    /**
+     * Returns the time scheduled by the completed drivers of the partitioned source,
+     * which is the time the task spent processing its finished splits.
+     */
+    @JsonProperty
+    public Duration getCompletedPartitionedDriversScheduledTime()
+    {
+        return completedPartitionedDriversScheduledTime;
+    }
+
     @JsonProperty
     public DataSize getMemoryReservation()
     {
@@ -264,4 +312,47 @@ public class TaskStats
     {
         return pipelines;
     }
+
+    /**
+     * Returns a copy of these stats without the per driver and operator details.
+     * The pipelines keep their operator summaries, which back the plan node stats
+     * of running queries.
+     */
+    public TaskStats summarize()
+    {
+        return new TaskStats(
+                createTime,
+                firstStartTime,
+                lastStartTime,
+                endTime,
+                elapsedTime,
+                queuedTime,
+                totalDrivers,
+                queuedDrivers,
+                runningDrivers,
+                completedDrivers,
+                queuedPartitionedDrivers,
+                runningPartitionedDrivers,
+                completedPartitionedDrivers,
+                completedPartitionedDriversScheduledTime,
+                memoryReservation,
+                totalScheduledTime,
+                totalCpuTime,
+                totalUserTime,
+                totalBlockedTime,
+                rawInputDataSize,
+                rawInputPositions,
+                processedInputDataSize,
+                processedInputPositions,
+                outputDataSize,
+                outputPositions,
+                ImmutableList.copyOf(transform(pipelines, new Function<PipelineStats, PipelineStats>()
+                {
+                    @Override
+                    public PipelineStats apply(PipelineStats pipeline)
+                    {
+                        return pipeline.summarize();
+                    }
+                })));
+    }
 }
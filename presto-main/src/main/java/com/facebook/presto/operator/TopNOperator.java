@@ -13,26 +13,30 @@
  */
 package com.facebook.presto.operator;
 
-import com.facebook.presto.spi.block.BlockBuilderStatus;
-import com.facebook.presto.spi.block.BlockCursor;
-import com.facebook.presto.spi.block.RandomAccessBlock;
 import com.facebook.presto.spi.block.SortOrder;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Ordering;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.units.DataSize;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
 
-import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
+import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddress;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
 
 /**
  * Returns the top N rows from the source sorted according to the specified ordering in the keyChannelIndex channel.
@@ -98,8 +102,8 @@ public class TopNOperator
         }
     }
 
-    private static final int MAX_INITIAL_PRIORITY_QUEUE_SIZE = 10000;
-    private static final DataSize OVERHEAD_PER_VALUE = new DataSize(100, DataSize.Unit.BYTE); // for estimating in-memory size. This is a completely arbitrary number
+    private static final int MAX_INITIAL_HEAP_SIZE = 10000;
+    private static final DataSize MIN_COMPACTION_SIZE = new DataSize(1, DataSize.Unit.MEGABYTE);
 
     private final OperatorContext operatorContext;
     private final List<Type> types;
@@ -110,12 +114,10 @@ public class TopNOperator
     private final boolean partial;
     private final Optional<Integer> sampleWeight;
 
-    private final PageBuilder pageBuilder;
-
     private TopNBuilder topNBuilder;
     private boolean finishing;
 
-    private Iterator<RandomAccessBlock[]> outputIterator;
+    private Iterator<Page> outputIterator;
 
     public TopNOperator(
             OperatorContext operatorContext,
@@ -139,8 +141,6 @@ public class TopNOperator
 
         this.memoryManager = new TopNMemoryManager(checkNotNull(operatorContext, "operatorContext is null"));
 
-        this.pageBuilder = new PageBuilder(getTypes());
-
         this.sampleWeight = sampleWeight;
     }
 
@@ -188,6 +188,7 @@ public class TopNOperator
         if (topNBuilder == null) {
             topNBuilder = new TopNBuilder(
                     n,
+                    types,
                     sortChannels,
                     sortOrders,
                     sampleWeight,
@@ -219,32 +220,48 @@ public class TopNOperator
             topNBuilder = null;
         }
 
-        pageBuilder.reset();
-        while (!pageBuilder.isFull() && outputIterator.hasNext()) {
-            RandomAccessBlock[] next = outputIterator.next();
-            for (int i = 0; i < next.length; i++) {
-                next[i].appendTo(0, pageBuilder.getBlockBuilder(i));
-            }
+        if (!outputIterator.hasNext()) {
+            return null;
         }
-
-        Page page = pageBuilder.build();
-        return page;
+        return outputIterator.next();
     }
 
+    /**
+     * Keeps the best N candidate rows referenced in place in the pages they arrived in, ordered
+     * by a max heap of row ids with the worst candidate at the root. Input rows that can not
+     * displace the root are skipped without being copied, and once most of the retained
+     * positions are dead the live rows are compacted into fresh pages.
+     */
     private static class TopNBuilder
     {
         private final int n;
+        private final List<Type> types;
         private final List<Integer> sortChannels;
         private final List<SortOrder> sortOrders;
-        private final TopNMemoryManager memoryManager;
-        private final PriorityQueue<RandomAccessBlock[]> globalCandidates;
         private final Optional<Integer> sampleWeightChannel;
+        private final TopNMemoryManager memoryManager;
 
-        private long memorySize;
+        private final ObjectArrayList<RandomAccessPage> pages = new ObjectArrayList<>();
+        private final IntArrayList pageReferenceCounts = new IntArrayList();
+        private long retainedPositions;
+        private long retainedBytes;
 
-        private TopNBuilder(int n, List<Integer> sortChannels, List<SortOrder> sortOrders, Optional<Integer> sampleWeightChannel, TopNMemoryManager memoryManager)
+        // row state indexed by row id; a row's weight is the number of times it occurs in the result
+        private long[] rowAddresses;
+        private long[] rowWeights;
+        private long[] rowSequences;
+        private final IntArrayList freeRows = new IntArrayList();
+        private int nextRow;
+        private long nextSequence;
+
+        private int[] heap;
+        private int heapSize;
+        private long totalWeight;
+
+        private TopNBuilder(int n, List<Type> types, List<Integer> sortChannels, List<SortOrder> sortOrders, Optional<Integer> sampleWeightChannel, TopNMemoryManager memoryManager)
         {
             this.n = n;
+            this.types = types;
 
             this.sortChannels = sortChannels;
             this.sortOrders = sortOrders;
@@ -252,145 +269,287 @@ public class TopNOperator
             this.memoryManager = memoryManager;
             this.sampleWeightChannel = sampleWeightChannel;
 
-            Ordering<RandomAccessBlock[]> comparator = Ordering.from(new RowComparator(sortChannels, sortOrders)).reverse();
-            this.globalCandidates = new PriorityQueue<>(Math.min(n, MAX_INITIAL_PRIORITY_QUEUE_SIZE), comparator);
+            int initialCapacity = Math.min(n, MAX_INITIAL_HEAP_SIZE) + 1;
+            this.rowAddresses = new long[initialCapacity];
+            this.rowWeights = new long[initialCapacity];
+            this.rowSequences = new long[initialCapacity];
+            this.heap = new int[initialCapacity];
         }
 
         public void processPage(Page page)
         {
-            long sizeDelta = mergeWithGlobalCandidates(page);
-            memorySize += sizeDelta;
-        }
-
-        private long mergeWithGlobalCandidates(Page page)
-        {
-            long sizeDelta = 0;
+            RandomAccessPage randomAccessPage = page.toRandomAccessPage();
 
-            BlockCursor[] cursors = new BlockCursor[page.getChannelCount()];
-            for (int i = 0; i < page.getChannelCount(); i++) {
-                cursors[i] = page.getBlock(i).cursor();
-            }
-
-            for (int i = 0; i < page.getPositionCount(); i++) {
-                for (BlockCursor cursor : cursors) {
-                    checkState(cursor.advanceNextPosition());
+            // the page is pinned while it is processed, so rows evicted by later rows of the same page do not release it
+            int pageIndex = -1;
+            for (int position = 0; position < randomAccessPage.getPositionCount(); position++) {
+                if (totalWeight >= n && compareToRow(randomAccessPage, position, heap[0]) >= 0) {
+                    continue;
                 }
 
-                if (globalCandidates.size() < n) {
-                    sizeDelta += addRow(cursors);
+                long weight = 1;
+                if (sampleWeightChannel.isPresent()) {
+                    weight = randomAccessPage.getLong(sampleWeightChannel.get(), position);
+                    if (weight <= 0) {
+                        continue;
+                    }
                 }
-                else if (compare(cursors, globalCandidates.peek()) < 0) {
-                    sizeDelta += addRow(cursors);
+
+                if (pageIndex < 0) {
+                    pageIndex = addPage(randomAccessPage);
                 }
+                addRow(encodeSyntheticAddress(pageIndex, position), weight);
             }
 
-            return sizeDelta;
+            if (pageIndex >= 0) {
+                dereferencePage(pageIndex);
+            }
+
+            if (retainedBytes >= MIN_COMPACTION_SIZE.toBytes() && retainedPositions > 2L * heapSize) {
+                compact();
+            }
         }
 
-        private int compare(BlockCursor[] cursors, RandomAccessBlock[] currentMax)
+        private int addPage(RandomAccessPage page)
         {
-            for (int i = 0; i < sortChannels.size(); i++) {
-                int sortChannel = sortChannels.get(i);
-                SortOrder sortOrder = sortOrders.get(i);
-
-                BlockCursor cursor = cursors[sortChannel];
-                RandomAccessBlock currentMaxValue = currentMax[sortChannel];
+            pages.add(page);
+            pageReferenceCounts.add(1);
+            retainedPositions += page.getPositionCount();
+            retainedBytes += page.getDataSize().toBytes();
+            return pages.size() - 1;
+        }
 
-                // compare the right value to the left cursor but negate the result since we are evaluating in the opposite order
-                int compare = -currentMaxValue.compareTo(sortOrder, 0, cursor);
-                if (compare != 0) {
-                    return compare;
-                }
+        private void dereferencePage(int pageIndex)
+        {
+            int referenceCount = pageReferenceCounts.getInt(pageIndex) - 1;
+            pageReferenceCounts.set(pageIndex, referenceCount);
+            if (referenceCount == 0) {
+                RandomAccessPage page = pages.set(pageIndex, null);
+                retainedPositions -= page.getPositionCount();
+                retainedBytes -= page.getDataSize().toBytes();
             }
-            return 0;
         }
 
-        private long addRow(BlockCursor[] cursors)
+        private void addRow(long address, long weight)
         {
-            long sizeDelta = 0;
-            RandomAccessBlock[] row = getValues(cursors);
-            long sampleWeight = 1;
-            if (sampleWeightChannel.isPresent()) {
-                sampleWeight = row[sampleWeightChannel.get()].getLong(0);
-                // Set the weight to one, since we're going to insert it multiple times in the priority queue
-                row[sampleWeightChannel.get()] = createBigintBlock(1);
+            int row = allocateRow();
+            rowAddresses[row] = address;
+            rowWeights[row] = weight;
+            rowSequences[row] = nextSequence++;
+            int pageIndex = decodeSliceIndex(address);
+            pageReferenceCounts.set(pageIndex, pageReferenceCounts.getInt(pageIndex) + 1);
+
+            heap[heapSize] = row;
+            heapSize++;
+            siftUp(heapSize - 1);
+            totalWeight += weight;
+
+            // drop the worst candidates that are no longer needed to make up N rows, then trim the weight of the new worst
+            while (totalWeight - rowWeights[heap[0]] >= n) {
+                removeRoot();
             }
+            if (totalWeight > n) {
+                rowWeights[heap[0]] -= totalWeight - n;
+                totalWeight = n;
+            }
+        }
 
-            // Count the column sizes only once, because we insert the same object reference multiple times for sampled rows
-            sizeDelta += sizeOfRow(row);
-            globalCandidates.add(row);
-            sizeDelta += (sampleWeight - 1) * OVERHEAD_PER_VALUE.toBytes();
-            for (int i = 1; i < sampleWeight; i++) {
-                globalCandidates.add(row);
+        private int allocateRow()
+        {
+            if (!freeRows.isEmpty()) {
+                return freeRows.removeInt(freeRows.size() - 1);
             }
+            if (nextRow == heap.length) {
+                int capacity = heap.length * 2;
+                rowAddresses = Arrays.copyOf(rowAddresses, capacity);
+                rowWeights = Arrays.copyOf(rowWeights, capacity);
+                rowSequences = Arrays.copyOf(rowSequences, capacity);
+                heap = Arrays.copyOf(heap, capacity);
+            }
+            return nextRow++;
+        }
 
-            while (globalCandidates.size() > n) {
-                RandomAccessBlock[] previous = globalCandidates.remove();
-                // We insert sampled rows multiple times, so use reference equality when checking if this row is still in the queue
-                if (previous != globalCandidates.peek()) {
-                    sizeDelta -= sizeOfRow(previous);
-                }
-                else {
-                    sizeDelta -= OVERHEAD_PER_VALUE.toBytes();
+        private void removeRoot()
+        {
+            int row = heap[0];
+            totalWeight -= rowWeights[row];
+            dereferencePage(decodeSliceIndex(rowAddresses[row]));
+            freeRows.add(row);
+
+            heapSize--;
+            heap[0] = heap[heapSize];
+            siftDown(0);
+        }
+
+        private void siftUp(int index)
+        {
+            int row = heap[index];
+            while (index > 0) {
+                int parentIndex = (index - 1) >>> 1;
+                int parent = heap[parentIndex];
+                if (compareCandidates(row, parent) <= 0) {
+                    break;
                 }
+                heap[index] = parent;
+                index = parentIndex;
             }
-            return sizeDelta;
+            heap[index] = row;
         }
 
-        private long sizeOfRow(RandomAccessBlock[] row)
+        private void siftDown(int index)
         {
-            long size = OVERHEAD_PER_VALUE.toBytes();
-            for (RandomAccessBlock value : row) {
-                size += value.getSizeInBytes();
+            int row = heap[index];
+            while (true) {
+                int childIndex = 2 * index + 1;
+                if (childIndex >= heapSize) {
+                    break;
+                }
+                if (childIndex + 1 < heapSize && compareCandidates(heap[childIndex + 1], heap[childIndex]) > 0) {
+                    childIndex++;
+                }
+                int child = heap[childIndex];
+                if (compareCandidates(row, child) >= 0) {
+                    break;
+                }
+                heap[index] = child;
+                index = childIndex;
             }
-            return size;
+            heap[index] = row;
         }
 
-        private RandomAccessBlock[] getValues(BlockCursor[] cursors)
+        /**
+         * Orders candidates from best to worst; among rows with equal keys the oldest is considered the worst.
+         */
+        private int compareCandidates(int leftRow, int rightRow)
         {
-            RandomAccessBlock[] row = new RandomAccessBlock[cursors.length];
-            for (int i = 0; i < cursors.length; i++) {
-                row[i] = cursors[i].getSingleValueBlock();
+            int comparison = compareRows(leftRow, rightRow);
+            if (comparison != 0) {
+                return comparison;
             }
-            return row;
+            return Long.compare(rowSequences[rightRow], rowSequences[leftRow]);
         }
 
-        private boolean isFull()
+        private int compareRows(int leftRow, int rightRow)
         {
-            return memoryManager.canUse(memorySize);
+            return compareToRow(pages.get(decodeSliceIndex(rowAddresses[leftRow])), decodePosition(rowAddresses[leftRow]), rightRow);
         }
 
-        public Iterator<RandomAccessBlock[]> build()
+        private int compareToRow(RandomAccessPage page, int position, int row)
         {
-            ImmutableList.Builder<RandomAccessBlock[]> minSortedGlobalCandidates = ImmutableList.builder();
-            long sampleWeight = 1;
-            while (!globalCandidates.isEmpty()) {
-                RandomAccessBlock[] row = globalCandidates.remove();
-                if (sampleWeightChannel.isPresent()) {
-                    // sampled rows are inserted multiple times (we can use identity comparison here)
-                    // we could also test for equality to "pack" results further, but that would require another equality function
-                    if (globalCandidates.peek() != null && row == globalCandidates.peek()) {
-                        sampleWeight++;
-                    }
-                    else {
-                        row[sampleWeightChannel.get()] = createBigintBlock(sampleWeight);
-                        minSortedGlobalCandidates.add(row);
-                        sampleWeight = 1;
-                    }
+            long address = rowAddresses[row];
+            RandomAccessPage rowPage = pages.get(decodeSliceIndex(address));
+            int rowPosition = decodePosition(address);
+            for (int i = 0; i < sortChannels.size(); i++) {
+                int channel = sortChannels.get(i);
+                int comparison = page.getBlock(channel).compareTo(sortOrders.get(i), position, rowPage.getBlock(channel), rowPosition);
+                if (comparison != 0) {
+                    return comparison;
                 }
-                else {
-                    minSortedGlobalCandidates.add(row);
+            }
+            return 0;
+        }
+
+        private void compact()
+        {
+            ObjectArrayList<RandomAccessPage> compactedPages = new ObjectArrayList<>();
+            IntArrayList compactedReferenceCounts = new IntArrayList();
+            long compactedBytes = 0;
+
+            PageBuilder pageBuilder = new PageBuilder(types);
+            int position = 0;
+            for (int i = 0; i < heapSize; i++) {
+                int row = heap[i];
+                long address = rowAddresses[row];
+                appendRow(pages.get(decodeSliceIndex(address)), decodePosition(address), pageBuilder);
+                rowAddresses[row] = encodeSyntheticAddress(compactedPages.size(), position);
+                position++;
+
+                if (pageBuilder.isFull() || i == heapSize - 1) {
+                    RandomAccessPage page = pageBuilder.build().toRandomAccessPage();
+                    compactedPages.add(page);
+                    compactedReferenceCounts.add(position);
+                    compactedBytes += page.getDataSize().toBytes();
+                    pageBuilder.reset();
+                    position = 0;
                 }
             }
-            return minSortedGlobalCandidates.build().reverse().iterator();
+
+            pages.clear();
+            pages.addAll(compactedPages);
+            pageReferenceCounts.clear();
+            pageReferenceCounts.addAll(compactedReferenceCounts);
+            retainedPositions = heapSize;
+            retainedBytes = compactedBytes;
+        }
+
+        private static void appendRow(RandomAccessPage page, int position, PageBuilder pageBuilder)
+        {
+            for (int channel = 0; channel < page.getChannelCount(); channel++) {
+                page.getBlock(channel).appendTo(position, pageBuilder.getBlockBuilder(channel));
+            }
         }
 
-        private static RandomAccessBlock createBigintBlock(long value)
+        private long getMemorySize()
         {
-            return BIGINT.createBlockBuilder(new BlockBuilderStatus())
-                    .appendLong(value)
-                    .build()
-                    .toRandomAccessBlock();
+            // row state arrays: address, weight and sequence per row plus the heap slot
+            return retainedBytes + heap.length * (SIZE_OF_INT + 3L * SIZE_OF_LONG);
+        }
+
+        private boolean isFull()
+        {
+            return memoryManager.canUse(getMemorySize());
+        }
+
+        /**
+         * Returns the candidates as pages sorted by the ordering, with equal rows in arrival order.
+         */
+        public Iterator<Page> build()
+        {
+            final int[] rows = Arrays.copyOf(heap, heapSize);
+            IntArrays.quickSort(rows, 0, rows.length, new AbstractIntComparator()
+            {
+                @Override
+                public int compare(int leftRow, int rightRow)
+                {
+                    int comparison = compareRows(leftRow, rightRow);
+                    if (comparison != 0) {
+                        return comparison;
+                    }
+                    return Long.compare(rowSequences[leftRow], rowSequences[rightRow]);
+                }
+            });
+
+            return new AbstractIterator<Page>()
+            {
+                private final PageBuilder pageBuilder = new PageBuilder(types);
+                private int index;
+
+                @Override
+                protected Page computeNext()
+                {
+                    if (index == rows.length) {
+                        return endOfData();
+                    }
+
+                    pageBuilder.reset();
+                    while (!pageBuilder.isFull() && index < rows.length) {
+                        int row = rows[index];
+                        long address = rowAddresses[row];
+                        RandomAccessPage page = pages.get(decodeSliceIndex(address));
+                        int position = decodePosition(address);
+                        for (int channel = 0; channel < page.getChannelCount(); channel++) {
+                            if (sampleWeightChannel.isPresent() && channel == sampleWeightChannel.get()) {
+                                pageBuilder.getBlockBuilder(channel).appendLong(rowWeights[row]);
+                            }
+                            else {
+                                page.getBlock(channel).appendTo(position, pageBuilder.getBlockBuilder(channel));
+                            }
+                        }
+                        index++;
+                    }
+                    return pageBuilder.build();
+                }
+            };
         }
     }
 
@@ -428,39 +587,4 @@ public class TopNOperator
             return operatorContext.getMaxMemorySize();
         }
     }
-
-    private static class RowComparator
-            implements Comparator<RandomAccessBlock[]>
-    {
-        private final List<Integer> sortChannels;
-        private final List<SortOrder> sortOrders;
-
-        public RowComparator(List<Integer> sortChannels, List<SortOrder> sortOrders)
-        {
-            checkNotNull(sortChannels, "sortChannels is null");
-            checkNotNull(sortOrders, "sortOrders is null");
-            checkArgument(sortChannels.size() == sortOrders.size(), "sortFields size (%s) doesn't match sortOrders size (%s)", sortChannels.size(), sortOrders.size());
-
-            this.sortChannels = ImmutableList.copyOf(sortChannels);
-            this.sortOrders = ImmutableList.copyOf(sortOrders);
-        }
-
-        @Override
-        public int compare(RandomAccessBlock[] leftRow, RandomAccessBlock[] rightRow)
-        {
-            for (int index = 0; index < sortChannels.size(); index++) {
-                int channel = sortChannels.get(index);
-                SortOrder sortOrder = sortOrders.get(index);
-
-                RandomAccessBlock left = leftRow[channel];
-                RandomAccessBlock right = rightRow[channel];
-
-                int comparison = left.compareTo(sortOrder, 0, right, 0);
-                if (comparison != 0) {
-                    return comparison;
-                }
-            }
-            return 0;
-        }
-    }
 }
@@ -0,0 +1,306 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.aggregation;
+
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.Slices;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.slice.SizeOf.SIZE_OF_BYTE;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+
+/**
+ * The buckets of a single {@link HyperLogLog} estimate. Only the touched buckets are stored, sorted by
+ * bucket, until that list would be larger than a byte per bucket, at which point they are converted to
+ * a dense bucket array. Both forms produce the same estimate.
+ * <p>
+ * Serialized form: a format version byte, an encoding byte and the number of buckets, followed by either
+ * the sparse entries or the dense bucket array. This is also the stored form of the HyperLogLog type, so
+ * a change to the layout needs a new format version, and sketches of any older version must stay readable.
+ */
+public class AdaptiveHyperLogLog
+{
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte SPARSE_ENCODING = 0;
+    private static final byte DENSE_ENCODING = 1;
+
+    private static final int HEADER_SIZE = SIZE_OF_BYTE + SIZE_OF_BYTE + SIZE_OF_INT;
+
+    // object header, fields and array header
+    private static final int INSTANCE_SIZE = 64;
+    private static final int INITIAL_SPARSE_CAPACITY = 4;
+
+    public static final int MIN_NUMBER_OF_BUCKETS = 1 << 4;
+    public static final int MAX_NUMBER_OF_BUCKETS = 1 << 16;
+
+    // estimators are immutable, so one per supported bucket count is shared by all instances
+    private static final HyperLogLog[] ESTIMATORS = new HyperLogLog[Integer.numberOfTrailingZeros(MAX_NUMBER_OF_BUCKETS) + 1];
+
+    static {
+        for (int numberOfBuckets = MIN_NUMBER_OF_BUCKETS; numberOfBuckets <= MAX_NUMBER_OF_BUCKETS; numberOfBuckets *= 2) {
+            ESTIMATORS[Integer.numberOfTrailingZeros(numberOfBuckets)] = new HyperLogLog(numberOfBuckets);
+        }
+    }
+
+    private final HyperLogLog estimator;
+
+    // each entry is (bucket << 8) | value
+    private int[] sparseEntries = new int[INITIAL_SPARSE_CAPACITY];
+    private int sparseSize;
+
+    private Slice dense;
+
+    public AdaptiveHyperLogLog(int numberOfBuckets)
+    {
+        checkArgument(Integer.bitCount(numberOfBuckets) == 1 && numberOfBuckets >= MIN_NUMBER_OF_BUCKETS && numberOfBuckets <= MAX_NUMBER_OF_BUCKETS,
+                "numberOfBuckets must be a power of 2 between %s and %s: %s", MIN_NUMBER_OF_BUCKETS, MAX_NUMBER_OF_BUCKETS, numberOfBuckets);
+        this.estimator = ESTIMATORS[Integer.numberOfTrailingZeros(numberOfBuckets)];
+    }
+
+    public static AdaptiveHyperLogLog deserialize(Slice serialized)
+    {
+        AdaptiveHyperLogLog instance = new AdaptiveHyperLogLog(getNumberOfBuckets(serialized));
+        instance.mergeWith(serialized);
+        return instance;
+    }
+
+    public static int getNumberOfBuckets(Slice serialized)
+    {
+        checkArgument(serialized.length() >= HEADER_SIZE, "HyperLogLog is too short: %s bytes", serialized.length());
+        byte version = serialized.getByte(0);
+        checkArgument(version == FORMAT_VERSION, "Unsupported HyperLogLog format version: %s", version);
+        return serialized.getInt(SIZE_OF_BYTE + SIZE_OF_BYTE);
+    }
+
+    public int getNumberOfBuckets()
+    {
+        return estimator.getNumberOfBuckets();
+    }
+
+    public long getEstimatedSizeInBytes()
+    {
+        if (dense != null) {
+            return INSTANCE_SIZE + dense.length();
+        }
+        return INSTANCE_SIZE + sparseEntries.length * SIZE_OF_INT;
+    }
+
+    public void add(long hash)
+    {
+        if (dense != null) {
+            estimator.update(hash, dense, 0);
+        }
+        else {
+            setSparse(estimator.getBucket(hash), estimator.getValue(hash));
+        }
+    }
+
+    public void mergeWith(Slice serialized)
+    {
+        int numberOfBuckets = getNumberOfBuckets(serialized);
+        checkArgument(numberOfBuckets == getNumberOfBuckets(), "Cannot merge HyperLogLog with %s buckets into one with %s buckets", numberOfBuckets, getNumberOfBuckets());
+
+        SliceInput input = serialized.getInput();
+        input.setPosition(SIZE_OF_BYTE);
+        byte encoding = input.readByte();
+        input.setPosition(HEADER_SIZE);
+
+        if (encoding == DENSE_ENCODING) {
+            checkArgument(serialized.length() == HEADER_SIZE + estimator.getSizeInBytes(), "Invalid dense HyperLogLog size: %s bytes", serialized.length());
+            convertToDense();
+            estimator.mergeInto(dense, 0, serialized, HEADER_SIZE);
+            return;
+        }
+
+        checkArgument(encoding == SPARSE_ENCODING, "Unknown HyperLogLog encoding: %s", encoding);
+        int entries = input.readInt();
+        checkArgument(entries >= 0 && serialized.length() == HEADER_SIZE + SIZE_OF_INT + entries * SIZE_OF_INT, "Invalid sparse HyperLogLog size: %s bytes", serialized.length());
+        for (int i = 0; i < entries; i++) {
+            int entry = input.readInt();
+            int bucket = entry >>> 8;
+            checkArgument(bucket < numberOfBuckets, "Invalid HyperLogLog bucket: %s", bucket);
+            set(bucket, entry & 0xFF);
+        }
+    }
+
+    public void mergeWith(AdaptiveHyperLogLog other)
+    {
+        checkArgument(other.getNumberOfBuckets() == getNumberOfBuckets(), "Cannot merge HyperLogLog with %s buckets into one with %s buckets", other.getNumberOfBuckets(), getNumberOfBuckets());
+
+        if (other.dense != null) {
+            convertToDense();
+            estimator.mergeInto(dense, 0, other.dense, 0);
+            return;
+        }
+
+        for (int i = 0; i < other.sparseSize; i++) {
+            set(other.sparseEntries[i] >>> 8, other.sparseEntries[i] & 0xFF);
+        }
+    }
+
+    /**
+     * Returns a copy of this sketch with fewer buckets. The copy is the same as the sketch that adding the same
+     * hashes to an instance with that many buckets would have produced, so it can be merged with such sketches.
+     */
+    public AdaptiveHyperLogLog downsample(int numberOfBuckets)
+    {
+        checkArgument(numberOfBuckets <= getNumberOfBuckets(), "Cannot downsample HyperLogLog with %s buckets to %s buckets", getNumberOfBuckets(), numberOfBuckets);
+
+        AdaptiveHyperLogLog result = new AdaptiveHyperLogLog(numberOfBuckets);
+        if (dense != null) {
+            for (int bucket = 0; bucket < getNumberOfBuckets(); bucket++) {
+                int value = dense.getByte(bucket);
+                if (value != 0) {
+                    result.set(result.estimator.getBucket(bucket), downsampleValue(bucket, value, numberOfBuckets));
+                }
+            }
+        }
+        else {
+            for (int i = 0; i < sparseSize; i++) {
+                int bucket = sparseEntries[i] >>> 8;
+                result.set(result.estimator.getBucket(bucket), downsampleValue(bucket, sparseEntries[i] & 0xFF, numberOfBuckets));
+            }
+        }
+        return result;
+    }
+
+    public long estimate()
+    {
+        if (dense != null) {
+            return estimator.estimate(dense, 0);
+        }
+
+        double currentSum = getNumberOfBuckets() - sparseSize;
+        for (int i = 0; i < sparseSize; i++) {
+            currentSum += 1.0 / (1L << (sparseEntries[i] & 0xFF));
+        }
+        return estimator.estimate(currentSum, getNumberOfBuckets() - sparseSize);
+    }
+
+    public Slice serialize()
+    {
+        if (dense != null) {
+            DynamicSliceOutput output = new DynamicSliceOutput(HEADER_SIZE + dense.length());
+            output.appendByte(FORMAT_VERSION);
+            output.appendByte(DENSE_ENCODING);
+            output.appendInt(getNumberOfBuckets());
+            output.appendBytes(dense);
+            return output.slice();
+        }
+
+        DynamicSliceOutput output = new DynamicSliceOutput(HEADER_SIZE + SIZE_OF_INT + sparseSize * SIZE_OF_INT);
+        output.appendByte(FORMAT_VERSION);
+        output.appendByte(SPARSE_ENCODING);
+        output.appendInt(getNumberOfBuckets());
+        output.appendInt(sparseSize);
+        for (int i = 0; i < sparseSize; i++) {
+            output.appendInt(sparseEntries[i]);
+        }
+        return output.slice();
+    }
+
+    /**
+     * The value of a bucket is one more than the number of leading zeros of the hash bits above the bucket
+     * index. When all of those bits are zero, the index bits that the smaller number of buckets no longer
+     * uses become part of that count.
+     */
+    private int downsampleValue(int bucket, int value, int numberOfBuckets)
+    {
+        int indexBits = Integer.numberOfTrailingZeros(getNumberOfBuckets());
+        int newIndexBits = Integer.numberOfTrailingZeros(numberOfBuckets);
+        if (value <= Long.SIZE - indexBits) {
+            return value;
+        }
+
+        int droppedIndexBits = bucket >>> newIndexBits;
+        return value + (indexBits - newIndexBits) - (Integer.SIZE - Integer.numberOfLeadingZeros(droppedIndexBits));
+    }
+
+    private void set(int bucket, int value)
+    {
+        if (dense != null) {
+            if (value > dense.getByte(bucket)) {
+                dense.setByte(bucket, value);
+            }
+        }
+        else {
+            setSparse(bucket, value);
+        }
+    }
+
+    private void setSparse(int bucket, int value)
+    {
+        int index = findSparseEntry(bucket);
+        if (index >= 0) {
+            if (value > (sparseEntries[index] & 0xFF)) {
+                sparseEntries[index] = (bucket << 8) | value;
+            }
+            return;
+        }
+
+        // a dense array is smaller than a sparse list of this many entries
+        if ((sparseSize + 1) * SIZE_OF_INT > estimator.getSizeInBytes()) {
+            convertToDense();
+            dense.setByte(bucket, value);
+            return;
+        }
+
+        int insertionPoint = -(index + 1);
+        if (sparseSize == sparseEntries.length) {
+            sparseEntries = Arrays.copyOf(sparseEntries, sparseEntries.length * 2);
+        }
+        System.arraycopy(sparseEntries, insertionPoint, sparseEntries, insertionPoint + 1, sparseSize - insertionPoint);
+        sparseEntries[insertionPoint] = (bucket << 8) | value;
+        sparseSize++;
+    }
+
+    private int findSparseEntry(int bucket)
+    {
+        int low = 0;
+        int high = sparseSize - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleBucket = sparseEntries[middle] >>> 8;
+            if (middleBucket < bucket) {
+                low = middle + 1;
+            }
+            else if (middleBucket > bucket) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void convertToDense()
+    {
+        if (dense != null) {
+            return;
+        }
+
+        dense = Slices.allocate(estimator.getSizeInBytes());
+        for (int i = 0; i < sparseSize; i++) {
+            dense.setByte(sparseEntries[i] >>> 8, sparseEntries[i] & 0xFF);
+        }
+        sparseEntries = null;
+        sparseSize = 0;
+    }
+}
@@ -13,116 +13,206 @@
  */
 package com.facebook.presto.operator.aggregation;
 
+import com.facebook.presto.operator.GroupByIdBlock;
+import com.facebook.presto.operator.Page;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
 import com.facebook.presto.spi.block.BlockCursor;
-import com.facebook.presto.operator.GroupByIdBlock;
 import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.util.array.ObjectBigArray;
 import com.google.common.base.Optional;
-import com.google.common.primitives.Ints;
+import com.google.common.collect.ImmutableList;
 import io.airlift.slice.Murmur3;
-import io.airlift.slice.SizeOf;
-import io.airlift.slice.Slice;
-import io.airlift.slice.Slices;
 
-import java.util.ArrayList;
 import java.util.List;
 
-import static com.facebook.presto.spi.block.BlockBuilderStatus.DEFAULT_MAX_BLOCK_SIZE_IN_BYTES;
+import static com.facebook.presto.spi.StandardErrorCode.INVALID_FUNCTION_ARGUMENT;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.util.Failures.checkCondition;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
+/**
+ * Estimates the number of distinct values with an {@link AdaptiveHyperLogLog} per group, so groups
+ * that see few values only pay for the buckets they touched, both in memory and in the intermediate.
+ */
 public class ApproximateCountDistinctAggregation
-        extends SimpleAggregationFunction
+        implements AggregationFunction
 {
-    private static final HyperLogLog ESTIMATOR = new HyperLogLog(2048);
-    // 1 byte for null flag. We use the null flag to propagate a "null" field as intermediate
-    // and thereby avoid sending a full list of buckets when no value has been added (just an optimization)
-    private static final int ENTRY_SIZE = SizeOf.SIZE_OF_BYTE + ESTIMATOR.getSizeInBytes();
-    private static final int SLICE_SIZE = Math.max(ENTRY_SIZE, Ints.checkedCast((DEFAULT_MAX_BLOCK_SIZE_IN_BYTES / ENTRY_SIZE) * ENTRY_SIZE));
-    private static final int ENTRIES_PER_SLICE = SLICE_SIZE / ENTRY_SIZE;
+    private static final int DEFAULT_NUMBER_OF_BUCKETS = 2048;
+
+    // standard errors of the largest and smallest supported bucket counts
+    private static final double LOWEST_MAX_STANDARD_ERROR = 0.0040625;
+    private static final double HIGHEST_MAX_STANDARD_ERROR = 0.26000;
 
     private final Type parameterType;
+    private final boolean hasMaxStandardError;
 
-    public ApproximateCountDistinctAggregation(Type parameterType)
+    public ApproximateCountDistinctAggregation(Type parameterType, boolean hasMaxStandardError)
     {
-        super(BIGINT, VARCHAR, parameterType);
-
         checkArgument(parameterType == BIGINT || parameterType == DOUBLE || parameterType == VARCHAR,
                 "Expected parameter type to be BIGINT, DOUBLE, or VARCHAR, but was %s",
                 parameterType);
 
         this.parameterType = parameterType;
+        this.hasMaxStandardError = hasMaxStandardError;
+    }
+
+    @Override
+    public List<Type> getParameterTypes()
+    {
+        if (hasMaxStandardError) {
+            return ImmutableList.of(parameterType, DOUBLE);
+        }
+        return ImmutableList.of(parameterType);
+    }
+
+    @Override
+    public Type getFinalType()
+    {
+        return BIGINT;
+    }
+
+    @Override
+    public Type getIntermediateType()
+    {
+        return VARCHAR;
+    }
+
+    @Override
+    public boolean isDecomposable()
+    {
+        return true;
+    }
+
+    @Override
+    public ApproximateCountDistinctGroupedAccumulator createGroupedAggregation(Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel, double confidence, int... argumentChannels)
+    {
+        checkArgument(confidence == 1.0, "approximate count distinct does not support approximate queries");
+        return new ApproximateCountDistinctGroupedAccumulator(parameterType, argumentChannels[0], getMaxStandardErrorChannel(argumentChannels), maskChannel);
+    }
+
+    @Override
+    public ApproximateCountDistinctGroupedAccumulator createGroupedIntermediateAggregation(double confidence)
+    {
+        checkArgument(confidence == 1.0, "approximate count distinct does not support approximate queries");
+        return new ApproximateCountDistinctGroupedAccumulator(parameterType, -1, Optional.<Integer>absent(), Optional.<Integer>absent());
     }
 
     @Override
-    protected GroupedAccumulator createGroupedAccumulator(Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel, double confidence, int valueChannel)
+    public ApproximateCountDistinctAccumulator createAggregation(Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel, double confidence, int... argumentChannels)
     {
         checkArgument(confidence == 1.0, "approximate count distinct does not support approximate queries");
-        return new ApproximateCountDistinctGroupedAccumulator(parameterType, valueChannel, maskChannel);
+        return new ApproximateCountDistinctAccumulator(parameterType, argumentChannels[0], getMaxStandardErrorChannel(argumentChannels), maskChannel);
+    }
+
+    @Override
+    public ApproximateCountDistinctAccumulator createIntermediateAggregation(double confidence)
+    {
+        checkArgument(confidence == 1.0, "approximate count distinct does not support approximate queries");
+        return new ApproximateCountDistinctAccumulator(parameterType, -1, Optional.<Integer>absent(), Optional.<Integer>absent());
+    }
+
+    private Optional<Integer> getMaxStandardErrorChannel(int[] argumentChannels)
+    {
+        checkArgument(argumentChannels.length == getParameterTypes().size(), "Expected %s argument channels, but got %s", getParameterTypes().size(), argumentChannels.length);
+        if (hasMaxStandardError) {
+            return Optional.of(argumentChannels[1]);
+        }
+        return Optional.absent();
     }
 
     public static class ApproximateCountDistinctGroupedAccumulator
-            extends SimpleGroupedAccumulator
+            implements GroupedAccumulator
     {
         private final Type parameterType;
-        private final List<Slice> slices = new ArrayList<>();
+        private final int valueChannel;
+        private final Optional<Integer> maxStandardErrorChannel;
+        private final Optional<Integer> maskChannel;
+        private final ObjectBigArray<AdaptiveHyperLogLog> estimators = new ObjectBigArray<>();
+        private long sizeOfValues;
 
-        public ApproximateCountDistinctGroupedAccumulator(Type parameterType, int valueChannel, Optional<Integer> maskChannel)
+        public ApproximateCountDistinctGroupedAccumulator(Type parameterType, int valueChannel, Optional<Integer> maxStandardErrorChannel, Optional<Integer> maskChannel)
         {
-            super(valueChannel, BIGINT, VARCHAR, maskChannel, Optional.<Integer>absent());
             this.parameterType = parameterType;
+            this.valueChannel = valueChannel;
+            this.maxStandardErrorChannel = maxStandardErrorChannel;
+            this.maskChannel = maskChannel;
         }
 
         @Override
         public long getEstimatedSize()
         {
-            return slices.size() * SLICE_SIZE;
+            return estimators.sizeOf() + sizeOfValues;
+        }
+
+        @Override
+        public Type getFinalType()
+        {
+            return BIGINT;
+        }
+
+        @Override
+        public Type getIntermediateType()
+        {
+            return VARCHAR;
         }
 
         @Override
-        protected void processInput(GroupByIdBlock groupIdsBlock, Block valuesBlock, Optional<Block> maskBlock, Optional<Block> sampleWeightBlock)
+        public void addInput(GroupByIdBlock groupIdsBlock, Page page)
         {
-            ensureCapacity(groupIdsBlock.getGroupCount());
+            checkArgument(valueChannel != -1, "Raw input is not allowed for a final aggregation");
+
+            estimators.ensureCapacity(groupIdsBlock.getGroupCount());
 
-            BlockCursor values = valuesBlock.cursor();
+            BlockCursor values = page.getBlock(valueChannel).cursor();
+            BlockCursor maxStandardErrors = null;
+            if (maxStandardErrorChannel.isPresent()) {
+                maxStandardErrors = page.getBlock(maxStandardErrorChannel.get()).cursor();
+            }
             BlockCursor masks = null;
-            if (maskBlock.isPresent()) {
-                masks = maskBlock.get().cursor();
+            if (maskChannel.isPresent()) {
+                masks = page.getBlock(maskChannel.get()).cursor();
             }
 
             for (int position = 0; position < groupIdsBlock.getPositionCount(); position++) {
                 checkState(values.advanceNextPosition());
+                checkState(maxStandardErrors == null || maxStandardErrors.advanceNextPosition());
                 checkState(masks == null || masks.advanceNextPosition());
 
                 // skip null values
                 if (!values.isNull() && (masks == null || masks.getBoolean())) {
                     long groupId = groupIdsBlock.getGroupId(position);
 
-                    // todo do all of this with shifts and masks
-                    long globalOffset = groupId * ENTRY_SIZE;
-                    int sliceIndex = Ints.checkedCast(globalOffset / SLICE_SIZE);
-                    Slice slice = slices.get(sliceIndex);
-                    int sliceOffset = Ints.checkedCast(globalOffset - (sliceIndex * SLICE_SIZE));
-
-                    long hash = hash(values, parameterType);
-
-                    ESTIMATOR.update(hash, slice, sliceOffset + 1);
-                    setNotNull(slice, sliceOffset);
+                    AdaptiveHyperLogLog estimator = estimators.get(groupId);
+                    if (estimator == null) {
+                        estimator = new AdaptiveHyperLogLog(getNumberOfBuckets(maxStandardErrors));
+                        estimators.set(groupId, estimator);
+                        sizeOfValues += estimator.getEstimatedSizeInBytes();
+                    }
+                    else if (maxStandardErrors != null) {
+                        checkSameNumberOfBuckets(estimator, getNumberOfBuckets(maxStandardErrors));
+                    }
+
+                    sizeOfValues -= estimator.getEstimatedSizeInBytes();
+                    add(values, parameterType, estimator);
+                    sizeOfValues += estimator.getEstimatedSizeInBytes();
                 }
             }
             checkState(!values.advanceNextPosition());
         }
 
         @Override
-        protected void processIntermediate(GroupByIdBlock groupIdsBlock, Block valuesBlock)
+        public void addIntermediate(GroupByIdBlock groupIdsBlock, Block block)
         {
-            ensureCapacity(groupIdsBlock.getGroupCount());
+            checkArgument(valueChannel == -1, "Intermediate input is only allowed for a final aggregation");
 
-            BlockCursor intermediates = valuesBlock.cursor();
+            estimators.ensureCapacity(groupIdsBlock.getGroupCount());
+
+            BlockCursor intermediates = block.cursor();
 
             for (int position = 0; position < groupIdsBlock.getPositionCount(); position++) {
                 checkState(intermediates.advanceNextPosition());
@@ -131,175 +221,215 @@ public class ApproximateCountDistinctAggregation
                 if (!intermediates.isNull()) {
                     long groupId = groupIdsBlock.getGroupId(position);
 
-                    // todo do all of this with shifts and masks
-                    long globalOffset = groupId * ENTRY_SIZE;
-                    int sliceIndex = Ints.checkedCast(globalOffset / SLICE_SIZE);
-                    Slice slice = slices.get(sliceIndex);
-                    int sliceOffset = Ints.checkedCast(globalOffset - (sliceIndex * SLICE_SIZE));
-
-                    Slice input = intermediates.getSlice();
-
-                    ESTIMATOR.mergeInto(slice, sliceOffset + 1, input, 0);
-                    setNotNull(slice, sliceOffset);
+                    AdaptiveHyperLogLog estimator = estimators.get(groupId);
+                    if (estimator == null) {
+                        estimator = AdaptiveHyperLogLog.deserialize(intermediates.getSlice());
+                        estimators.set(groupId, estimator);
+                        sizeOfValues += estimator.getEstimatedSizeInBytes();
+                    }
+                    else {
+                        checkSameNumberOfBuckets(estimator, AdaptiveHyperLogLog.getNumberOfBuckets(intermediates.getSlice()));
+                        sizeOfValues -= estimator.getEstimatedSizeInBytes();
+                        estimator.mergeWith(intermediates.getSlice());
+                        sizeOfValues += estimator.getEstimatedSizeInBytes();
+                    }
                 }
             }
             checkState(!intermediates.advanceNextPosition());
         }
 
-        private void ensureCapacity(long groupCount)
-        {
-            long neededPages = (groupCount + ENTRIES_PER_SLICE) / ENTRIES_PER_SLICE;
-            while (slices.size() < neededPages) {
-                slices.add(Slices.allocate(SLICE_SIZE));
-            }
-        }
-
         @Override
         public void evaluateIntermediate(int groupId, BlockBuilder output)
         {
-            // todo do all of this with shifts and masks
-            long globalOffset = groupId * ENTRY_SIZE;
-            int sliceIndex = Ints.checkedCast(globalOffset / SLICE_SIZE);
-            Slice valueSlice = slices.get(sliceIndex);
-            int valueOffset = Ints.checkedCast(globalOffset - (sliceIndex * SLICE_SIZE));
-
-            if (isNull(valueSlice, valueOffset)) {
+            AdaptiveHyperLogLog estimator = estimators.get((long) groupId);
+            if (estimator == null) {
                 output.appendNull();
             }
             else {
-                Slice intermediate = valueSlice.slice(valueOffset + 1, ESTIMATOR.getSizeInBytes());
-                output.appendSlice(intermediate); // TODO: add BlockBuilder.appendSlice(slice, offset, length) to avoid creating intermediate slice
+                output.appendSlice(estimator.serialize());
             }
         }
 
         @Override
         public void evaluateFinal(int groupId, BlockBuilder output)
         {
-            // todo do all of this with shifts and masks
-            long globalOffset = groupId * ENTRY_SIZE;
-            int sliceIndex = Ints.checkedCast(globalOffset / SLICE_SIZE);
-            Slice valueSlice = slices.get(sliceIndex);
-            int valueOffset = Ints.checkedCast(globalOffset - (sliceIndex * SLICE_SIZE));
-
-            if (isNull(valueSlice, valueOffset)) {
+            AdaptiveHyperLogLog estimator = estimators.get((long) groupId);
+            if (estimator == null) {
                 output.appendLong(0);
             }
             else {
-                output.appendLong(ESTIMATOR.estimate(valueSlice, valueOffset + 1));
+                output.appendLong(estimator.estimate());
             }
         }
     }
 
-    @Override
-    protected Accumulator createAccumulator(Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel, double confidence, int valueChannel)
-    {
-        checkArgument(confidence == 1.0, "approximate count distinct does not support approximate queries");
-        return new ApproximateCountDistinctAccumulator(parameterType, valueChannel, maskChannel);
-    }
-
     public static class ApproximateCountDistinctAccumulator
-            extends SimpleAccumulator
+            implements Accumulator
     {
         private final Type parameterType;
+        private final int valueChannel;
+        private final Optional<Integer> maxStandardErrorChannel;
+        private final Optional<Integer> maskChannel;
 
-        private final Slice slice = Slices.allocate(ENTRY_SIZE);
-        private boolean notNull;
+        private AdaptiveHyperLogLog estimator;
 
-        public ApproximateCountDistinctAccumulator(Type parameterType, int valueChannel, Optional<Integer> maskChannel)
+        public ApproximateCountDistinctAccumulator(Type parameterType, int valueChannel, Optional<Integer> maxStandardErrorChannel, Optional<Integer> maskChannel)
         {
-            super(valueChannel, BIGINT, VARCHAR, maskChannel, Optional.<Integer>absent());
-
             this.parameterType = parameterType;
+            this.valueChannel = valueChannel;
+            this.maxStandardErrorChannel = maxStandardErrorChannel;
+            this.maskChannel = maskChannel;
+        }
+
+        @Override
+        public long getEstimatedSize()
+        {
+            if (estimator == null) {
+                return 0;
+            }
+            return estimator.getEstimatedSizeInBytes();
         }
 
         @Override
-        protected void processInput(Block block, Optional<Block> maskBlock, Optional<Block> sampleWeightBlock)
+        public Type getFinalType()
         {
-            BlockCursor values = block.cursor();
+            return BIGINT;
+        }
+
+        @Override
+        public Type getIntermediateType()
+        {
+            return VARCHAR;
+        }
+
+        @Override
+        public void addInput(Page page)
+        {
+            checkArgument(valueChannel != -1, "Raw input is not allowed for a final aggregation");
+
+            BlockCursor values = page.getBlock(valueChannel).cursor();
+            BlockCursor maxStandardErrors = null;
+            if (maxStandardErrorChannel.isPresent()) {
+                maxStandardErrors = page.getBlock(maxStandardErrorChannel.get()).cursor();
+            }
             BlockCursor masks = null;
-            if (maskBlock.isPresent()) {
-                masks = maskBlock.get().cursor();
+            if (maskChannel.isPresent()) {
+                masks = page.getBlock(maskChannel.get()).cursor();
             }
 
-            for (int position = 0; position < block.getPositionCount(); position++) {
+            for (int position = 0; position < page.getPositionCount(); position++) {
                 checkState(values.advanceNextPosition());
+                checkState(maxStandardErrors == null || maxStandardErrors.advanceNextPosition());
                 checkState(masks == null || masks.advanceNextPosition());
-                if (!values.isNull() && (masks == null || masks.getBoolean())) {
-                    notNull = true;
 
-                    long hash = hash(values, parameterType);
-                    ESTIMATOR.update(hash, slice, 0);
+                if (!values.isNull() && (masks == null || masks.getBoolean())) {
+                    if (estimator == null) {
+                        estimator = new AdaptiveHyperLogLog(getNumberOfBuckets(maxStandardErrors));
+                    }
+                    else if (maxStandardErrors != null) {
+                        checkSameNumberOfBuckets(estimator, getNumberOfBuckets(maxStandardErrors));
+                    }
+                    add(values, parameterType, estimator);
                 }
             }
         }
 
         @Override
-        protected void processIntermediate(Block block)
+        public void addIntermediate(Block block)
         {
+            checkArgument(valueChannel == -1, "Intermediate input is only allowed for a final aggregation");
+
             BlockCursor intermediates = block.cursor();
 
             for (int position = 0; position < block.getPositionCount(); position++) {
                 checkState(intermediates.advanceNextPosition());
                 if (!intermediates.isNull()) {
-                    notNull = true;
-
-                    Slice input = intermediates.getSlice();
-                    ESTIMATOR.mergeInto(slice, 0, input, 0);
+                    if (estimator == null) {
+                        estimator = AdaptiveHyperLogLog.deserialize(intermediates.getSlice());
+                    }
+                    else {
+                        checkSameNumberOfBuckets(estimator, AdaptiveHyperLogLog.getNumberOfBuckets(intermediates.getSlice()));
+                        estimator.mergeWith(intermediates.getSlice());
+                    }
                 }
             }
         }
 
         @Override
-        public void evaluateIntermediate(BlockBuilder out)
+        public Block evaluateIntermediate()
         {
-            if (notNull) {
-                out.appendSlice(slice);
+            BlockBuilder out = getIntermediateType().createBlockBuilder(new BlockBuilderStatus());
+            if (estimator == null) {
+                out.appendNull();
             }
             else {
-                out.appendNull();
+                out.appendSlice(estimator.serialize());
             }
+            return out.build();
         }
 
         @Override
-        public void evaluateFinal(BlockBuilder out)
+        public Block evaluateFinal()
         {
-            if (notNull) {
-                out.appendLong(ESTIMATOR.estimate(slice, 0));
+            BlockBuilder out = getFinalType().createBlockBuilder(new BlockBuilderStatus());
+            if (estimator == null) {
+                out.appendLong(0);
             }
             else {
-                out.appendLong(0);
+                out.appendLong(estimator.estimate());
             }
+            return out.build();
         }
     }
 
     public static double getStandardError()
     {
-        return ESTIMATOR.getStandardError();
+        return 1.04 / Math.sqrt(DEFAULT_NUMBER_OF_BUCKETS);
     }
 
-    private static boolean isNull(Slice valueSlice, int offset)
+    private static int getNumberOfBuckets(BlockCursor maxStandardErrors)
     {
-        // first byte in value region is null flag
-        return valueSlice.getByte(offset) == 0;
+        if (maxStandardErrors == null || maxStandardErrors.isNull()) {
+            return DEFAULT_NUMBER_OF_BUCKETS;
+        }
+        return standardErrorToBuckets(maxStandardErrors.getDouble());
+    }
+
+    /**
+     * Only the first max standard error seen by a group selects its number of buckets, so the
+     * argument must be the same for every row of the group, on every worker.
+     */
+    private static void checkSameNumberOfBuckets(AdaptiveHyperLogLog estimator, int numberOfBuckets)
+    {
+        checkCondition(numberOfBuckets == estimator.getNumberOfBuckets(), INVALID_FUNCTION_ARGUMENT, "Max standard error must be constant for all input rows of a group");
     }
 
-    private static void setNotNull(Slice valueSlice, int offset)
+    /**
+     * Returns the smallest power of two number of buckets whose standard error (1.04 / sqrt(buckets)) is at most the given error.
+     */
+    public static int standardErrorToBuckets(double maxStandardError)
     {
-        valueSlice.setByte(offset, 1);
+        checkCondition(maxStandardError >= LOWEST_MAX_STANDARD_ERROR && maxStandardError <= HIGHEST_MAX_STANDARD_ERROR,
+                INVALID_FUNCTION_ARGUMENT,
+                "Max standard error must be in [%s, %s]: %s", LOWEST_MAX_STANDARD_ERROR, HIGHEST_MAX_STANDARD_ERROR, maxStandardError);
+
+        int buckets = AdaptiveHyperLogLog.MIN_NUMBER_OF_BUCKETS;
+        while (1.04 / Math.sqrt(buckets) > maxStandardError) {
+            buckets *= 2;
+        }
+        return buckets;
     }
 
-    private static long hash(BlockCursor values, Type parameterType)
+    private static void add(BlockCursor values, Type parameterType, AdaptiveHyperLogLog estimator)
     {
         if (parameterType == BIGINT) {
-            long value = values.getLong();
-            return Murmur3.hash64(value);
+            estimator.add(Murmur3.hash64(values.getLong()));
         }
         else if (parameterType == DOUBLE) {
-            double value = values.getDouble();
-            return Murmur3.hash64(Double.doubleToLongBits(value));
+            estimator.add(Murmur3.hash64(Double.doubleToLongBits(values.getDouble())));
         }
         else if (parameterType == VARCHAR) {
-            return Murmur3.hash64(values.getSlice());
+            estimator.add(Murmur3.hash64(values.getSlice()));
         }
         else {
             throw new IllegalArgumentException("Expected parameter type to be BIGINT, DOUBLE, or VARCHAR");
@@ -15,8 +15,6 @@ package com.facebook.presto.operator.aggregation;
 
 import com.facebook.presto.operator.aggregation.ApproximateCountDistinctAggregation.ApproximateCountDistinctAccumulator;
 import com.facebook.presto.operator.aggregation.ApproximateCountDistinctAggregation.ApproximateCountDistinctGroupedAccumulator;
-import com.facebook.presto.operator.aggregation.SimpleAggregationFunction.SimpleAccumulator;
-import com.facebook.presto.operator.aggregation.SimpleAggregationFunction.SimpleGroupedAccumulator;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.base.Throwables;
 
@@ -26,30 +24,29 @@ import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 
 public final class ApproximateCountDistinctAggregations
 {
-    public static final AggregationFunction LONG_APPROXIMATE_COUNT_DISTINCT_AGGREGATIONS = createIsolatedAggregation(BIGINT);
-    public static final AggregationFunction DOUBLE_APPROXIMATE_COUNT_DISTINCT_AGGREGATIONS = createIsolatedAggregation(DOUBLE);
-    public static final AggregationFunction VARBINARY_APPROXIMATE_COUNT_DISTINCT_AGGREGATIONS = createIsolatedAggregation(VARCHAR);
+    public static final AggregationFunction LONG_APPROXIMATE_COUNT_DISTINCT_AGGREGATIONS = createIsolatedAggregation(BIGINT, false);
+    public static final AggregationFunction DOUBLE_APPROXIMATE_COUNT_DISTINCT_AGGREGATIONS = createIsolatedAggregation(DOUBLE, false);
+    public static final AggregationFunction VARBINARY_APPROXIMATE_COUNT_DISTINCT_AGGREGATIONS = createIsolatedAggregation(VARCHAR, false);
+
+    public static final AggregationFunction LONG_APPROXIMATE_COUNT_DISTINCT_WITH_ERROR_AGGREGATIONS = createIsolatedAggregation(BIGINT, true);
+    public static final AggregationFunction DOUBLE_APPROXIMATE_COUNT_DISTINCT_WITH_ERROR_AGGREGATIONS = createIsolatedAggregation(DOUBLE, true);
+    public static final AggregationFunction VARBINARY_APPROXIMATE_COUNT_DISTINCT_WITH_ERROR_AGGREGATIONS = createIsolatedAggregation(VARCHAR, true);
 
     private ApproximateCountDistinctAggregations() {}
 
-    private static AggregationFunction createIsolatedAggregation(Type parameterType)
+    private static AggregationFunction createIsolatedAggregation(Type parameterType, boolean hasMaxStandardError)
     {
         Class<? extends AggregationFunction> functionClass = IsolatedClass.isolateClass(
                 AggregationFunction.class,
 
                 ApproximateCountDistinctAggregation.class,
-                SimpleAggregationFunction.class,
-
                 ApproximateCountDistinctGroupedAccumulator.class,
-                SimpleGroupedAccumulator.class,
-
-                ApproximateCountDistinctAccumulator.class,
-                SimpleAccumulator.class);
+                ApproximateCountDistinctAccumulator.class);
 
         try {
             return functionClass
-                    .getConstructor(Type.class)
-                    .newInstance(parameterType);
+                    .getConstructor(Type.class, boolean.class)
+                    .newInstance(parameterType, hasMaxStandardError);
         }
         catch (Exception e) {
             throw Throwables.propagate(e);
@@ -26,7 +26,6 @@ import com.google.common.collect.ImmutableList;
 import io.airlift.slice.DynamicSliceOutput;
 import io.airlift.slice.Slice;
 import io.airlift.slice.SliceInput;
-import io.airlift.stats.QuantileDigest;
 
 import java.util.List;
 
@@ -42,16 +41,26 @@ import static io.airlift.slice.SizeOf.SIZE_OF_DOUBLE;
 public class ApproximatePercentileAggregation
         implements AggregationFunction
 {
+    public static final double DEFAULT_ACCURACY = 0.01;
+
+    // the size of a sketch grows with the inverse of its accuracy, so this bounds the memory of each group
+    public static final double MIN_ACCURACY = 0.001;
+
     private final Type parameterType;
+    private final boolean hasAccuracy;
 
-    public ApproximatePercentileAggregation(Type parameterType)
+    public ApproximatePercentileAggregation(Type parameterType, boolean hasAccuracy)
     {
         this.parameterType = parameterType;
+        this.hasAccuracy = hasAccuracy;
     }
 
     @Override
     public List<Type> getParameterTypes()
     {
+        if (hasAccuracy) {
+            return ImmutableList.of(parameterType, DOUBLE, DOUBLE);
+        }
         return ImmutableList.of(parameterType, DOUBLE);
     }
 
@@ -77,14 +86,14 @@ public class ApproximatePercentileAggregation
     public ApproximatePercentileGroupedAccumulator createGroupedAggregation(Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel, double confidence, int[] argumentChannels)
     {
         checkArgument(confidence == 1.0, "approximate percentile does not support approximate queries");
-        return new ApproximatePercentileGroupedAccumulator(argumentChannels[0], argumentChannels[1], parameterType, maskChannel, sampleWeightChannel);
+        return new ApproximatePercentileGroupedAccumulator(argumentChannels[0], argumentChannels[1], getAccuracyChannel(argumentChannels), parameterType, maskChannel, sampleWeightChannel);
     }
 
     @Override
     public GroupedAccumulator createGroupedIntermediateAggregation(double confidence)
     {
         checkArgument(confidence == 1.0, "approximate percentile does not support approximate queries");
-        return new ApproximatePercentileGroupedAccumulator(-1, -1, parameterType, Optional.<Integer>absent(), Optional.<Integer>absent());
+        return new ApproximatePercentileGroupedAccumulator(-1, -1, Optional.<Integer>absent(), parameterType, Optional.<Integer>absent(), Optional.<Integer>absent());
     }
 
     public static class ApproximatePercentileGroupedAccumulator
@@ -92,17 +101,19 @@ public class ApproximatePercentileAggregation
     {
         private final int valueChannel;
         private final int percentileChannel;
+        private final Optional<Integer> accuracyChannel;
         private final Type parameterType;
-        private final ObjectBigArray<DigestAndPercentile> digests;
+        private final ObjectBigArray<SketchAndPercentile> sketches;
         private final Optional<Integer> maskChannel;
         private final Optional<Integer> sampleWeightChannel;
         private long sizeOfValues;
 
-        public ApproximatePercentileGroupedAccumulator(int valueChannel, int percentileChannel, Type parameterType, Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel)
+        public ApproximatePercentileGroupedAccumulator(int valueChannel, int percentileChannel, Optional<Integer> accuracyChannel, Type parameterType, Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel)
         {
-            this.digests = new ObjectBigArray<>();
+            this.sketches = new ObjectBigArray<>();
             this.valueChannel = valueChannel;
             this.percentileChannel = percentileChannel;
+            this.accuracyChannel = accuracyChannel;
             this.parameterType = parameterType;
             this.maskChannel = maskChannel;
             this.sampleWeightChannel = sampleWeightChannel;
@@ -111,7 +122,7 @@ public class ApproximatePercentileAggregation
         @Override
         public long getEstimatedSize()
         {
-            return digests.sizeOf() + sizeOfValues;
+            return sketches.sizeOf() + sizeOfValues;
         }
 
         @Override
@@ -131,10 +142,14 @@ public class ApproximatePercentileAggregation
         {
             checkArgument(percentileChannel != -1, "Raw input is not allowed for a final aggregation");
 
-            digests.ensureCapacity(groupIdsBlock.getGroupCount());
+            sketches.ensureCapacity(groupIdsBlock.getGroupCount());
 
             BlockCursor values = page.getBlock(valueChannel).cursor();
             BlockCursor percentiles = page.getBlock(percentileChannel).cursor();
+            BlockCursor accuracies = null;
+            if (accuracyChannel.isPresent()) {
+                accuracies = page.getBlock(accuracyChannel.get()).cursor();
+            }
             BlockCursor masks = null;
             if (maskChannel.isPresent()) {
                 masks = page.getBlock(maskChannel.get()).cursor();
@@ -147,6 +162,7 @@ public class ApproximatePercentileAggregation
             for (int position = 0; position < groupIdsBlock.getPositionCount(); position++) {
                 checkState(values.advanceNextPosition());
                 checkState(percentiles.advanceNextPosition());
+                checkState(accuracies == null || accuracies.advanceNextPosition());
                 checkState(masks == null || masks.advanceNextPosition());
                 checkState(sampleWeights == null || sampleWeights.advanceNextPosition());
                 long sampleWeight = SimpleAggregationFunction.computeSampleWeight(masks, sampleWeights);
@@ -155,16 +171,16 @@ public class ApproximatePercentileAggregation
 
                 // skip null values
                 if (!values.isNull() && sampleWeight > 0) {
-                    DigestAndPercentile currentValue = digests.get(groupId);
+                    SketchAndPercentile currentValue = sketches.get(groupId);
                     if (currentValue == null) {
-                        currentValue = new DigestAndPercentile(new QuantileDigest(0.01));
-                        digests.set(groupId, currentValue);
-                        sizeOfValues += currentValue.getDigest().estimatedInMemorySizeInBytes();
+                        currentValue = new SketchAndPercentile(new PercentileSketch(getAccuracy(accuracies)));
+                        sketches.set(groupId, currentValue);
+                        sizeOfValues += currentValue.getSketch().getEstimatedSizeInBytes();
                     }
 
-                    sizeOfValues -= currentValue.getDigest().estimatedInMemorySizeInBytes();
-                    addValue(currentValue.getDigest(), values, parameterType, sampleWeight);
-                    sizeOfValues += currentValue.getDigest().estimatedInMemorySizeInBytes();
+                    sizeOfValues -= currentValue.getSketch().getEstimatedSizeInBytes();
+                    addValue(currentValue.getSketch(), values, parameterType, sampleWeight);
+                    sizeOfValues += currentValue.getSketch().getEstimatedSizeInBytes();
 
                     // use last non-null percentile
                     if (!percentiles.isNull()) {
@@ -181,7 +197,7 @@ public class ApproximatePercentileAggregation
         {
             checkArgument(percentileChannel == -1, "Intermediate input is only allowed for a final aggregation");
 
-            digests.ensureCapacity(groupIdsBlock.getGroupCount());
+            sketches.ensureCapacity(groupIdsBlock.getGroupCount());
 
             BlockCursor intermediates = block.cursor();
 
@@ -191,19 +207,20 @@ public class ApproximatePercentileAggregation
                 if (!intermediates.isNull()) {
                     long groupId = groupIdsBlock.getGroupId(position);
 
-                    DigestAndPercentile currentValue = digests.get(groupId);
-                    if (currentValue == null) {
-                        currentValue = new DigestAndPercentile(new QuantileDigest(0.01));
-                        digests.set(groupId, currentValue);
-                        sizeOfValues += currentValue.getDigest().estimatedInMemorySizeInBytes();
-                    }
-
                     SliceInput input = intermediates.getSlice().getInput();
 
-                    // read digest
-                    sizeOfValues -= currentValue.getDigest().estimatedInMemorySizeInBytes();
-                    currentValue.getDigest().merge(QuantileDigest.deserialize(input));
-                    sizeOfValues += currentValue.getDigest().estimatedInMemorySizeInBytes();
+                    // read sketch, which carries its own accuracy
+                    SketchAndPercentile currentValue = sketches.get(groupId);
+                    if (currentValue == null) {
+                        currentValue = new SketchAndPercentile(PercentileSketch.deserialize(input));
+                        sketches.set(groupId, currentValue);
+                        sizeOfValues += currentValue.getSketch().getEstimatedSizeInBytes();
+                    }
+                    else {
+                        sizeOfValues -= currentValue.getSketch().getEstimatedSizeInBytes();
+                        currentValue.getSketch().merge(PercentileSketch.deserialize(input));
+                        sizeOfValues += currentValue.getSketch().getEstimatedSizeInBytes();
+                    }
 
                     // read percentile
                     currentValue.setPercentile(input.readDouble());
@@ -214,14 +231,14 @@ public class ApproximatePercentileAggregation
         @Override
         public void evaluateIntermediate(int groupId, BlockBuilder output)
         {
-            DigestAndPercentile currentValue = digests.get((long) groupId);
-            if (currentValue == null || currentValue.getDigest().getCount() == 0.0) {
+            SketchAndPercentile currentValue = sketches.get((long) groupId);
+            if (currentValue == null || currentValue.getSketch().getCount() == 0) {
                 output.appendNull();
             }
             else {
-                DynamicSliceOutput sliceOutput = new DynamicSliceOutput(currentValue.getDigest().estimatedSerializedSizeInBytes() + SIZE_OF_DOUBLE);
-                // write digest
-                currentValue.getDigest().serialize(sliceOutput);
+                DynamicSliceOutput sliceOutput = new DynamicSliceOutput(currentValue.getSketch().getEstimatedSerializedSizeInBytes() + SIZE_OF_DOUBLE);
+                // write sketch
+                currentValue.getSketch().serialize(sliceOutput);
                 // write percentile
                 sliceOutput.appendDouble(currentValue.getPercentile());
 
@@ -233,12 +250,12 @@ public class ApproximatePercentileAggregation
         @Override
         public void evaluateFinal(int groupId, BlockBuilder output)
         {
-            DigestAndPercentile currentValue = digests.get((long) groupId);
-            if (currentValue == null || currentValue.getDigest().getCount() == 0.0) {
+            SketchAndPercentile currentValue = sketches.get((long) groupId);
+            if (currentValue == null || currentValue.getSketch().getCount() == 0) {
                 output.appendNull();
             }
             else {
-                evaluate(output, parameterType, currentValue.getDigest(), currentValue.getPercentile());
+                evaluate(output, parameterType, currentValue.getSketch(), currentValue.getPercentile());
             }
         }
     }
@@ -247,14 +264,22 @@ public class ApproximatePercentileAggregation
     public ApproximatePercentileAccumulator createAggregation(Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel, double confidence, int... argumentChannels)
     {
         checkArgument(confidence == 1.0, "approximate percentile does not support approximate queries");
-        return new ApproximatePercentileAccumulator(argumentChannels[0], argumentChannels[1], parameterType, maskChannel, sampleWeightChannel);
+        return new ApproximatePercentileAccumulator(argumentChannels[0], argumentChannels[1], getAccuracyChannel(argumentChannels), parameterType, maskChannel, sampleWeightChannel);
     }
 
     @Override
     public ApproximatePercentileAccumulator createIntermediateAggregation(double confidence)
     {
         checkArgument(confidence == 1.0, "approximate percentile does not support approximate queries");
-        return new ApproximatePercentileAccumulator(-1, -1, parameterType, Optional.<Integer>absent(), Optional.<Integer>absent());
+        return new ApproximatePercentileAccumulator(-1, -1, Optional.<Integer>absent(), parameterType, Optional.<Integer>absent(), Optional.<Integer>absent());
+    }
+
+    private Optional<Integer> getAccuracyChannel(int[] argumentChannels)
+    {
+        if (hasAccuracy) {
+            return Optional.of(argumentChannels[2]);
+        }
+        return Optional.absent();
     }
 
     public static class ApproximatePercentileAccumulator
@@ -262,17 +287,19 @@ public class ApproximatePercentileAggregation
     {
         private final int valueChannel;
         private final int percentileChannel;
+        private final Optional<Integer> accuracyChannel;
         private final Type parameterType;
         private final Optional<Integer> maskChannel;
         private final Optional<Integer> sampleWeightChannel;
 
-        private final QuantileDigest digest = new QuantileDigest(0.01);
+        private PercentileSketch sketch;
         private double percentile = -1;
 
-        public ApproximatePercentileAccumulator(int valueChannel, int percentileChannel, Type parameterType, Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel)
+        public ApproximatePercentileAccumulator(int valueChannel, int percentileChannel, Optional<Integer> accuracyChannel, Type parameterType, Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel)
         {
             this.valueChannel = valueChannel;
             this.percentileChannel = percentileChannel;
+            this.accuracyChannel = accuracyChannel;
             this.parameterType = parameterType;
             this.maskChannel = maskChannel;
             this.sampleWeightChannel = sampleWeightChannel;
@@ -281,7 +308,10 @@ public class ApproximatePercentileAggregation
         @Override
         public long getEstimatedSize()
         {
-            return digest.estimatedInMemorySizeInBytes();
+            if (sketch == null) {
+                return 0;
+            }
+            return sketch.getEstimatedSizeInBytes();
         }
 
         @Override
@@ -303,6 +333,10 @@ public class ApproximatePercentileAggregation
 
             BlockCursor values = page.getBlock(valueChannel).cursor();
             BlockCursor percentiles = page.getBlock(percentileChannel).cursor();
+            BlockCursor accuracies = null;
+            if (accuracyChannel.isPresent()) {
+                accuracies = page.getBlock(accuracyChannel.get()).cursor();
+            }
             BlockCursor masks = null;
             if (maskChannel.isPresent()) {
                 masks = page.getBlock(maskChannel.get()).cursor();
@@ -315,12 +349,16 @@ public class ApproximatePercentileAggregation
             for (int position = 0; position < page.getPositionCount(); position++) {
                 checkState(values.advanceNextPosition());
                 checkState(percentiles.advanceNextPosition());
+                checkState(accuracies == null || accuracies.advanceNextPosition());
                 checkState(masks == null || masks.advanceNextPosition());
                 checkState(sampleWeights == null || sampleWeights.advanceNextPosition());
                 long sampleWeight = SimpleAggregationFunction.computeSampleWeight(masks, sampleWeights);
 
                 if (!values.isNull() && sampleWeight > 0) {
-                    addValue(digest, values, parameterType, sampleWeight);
+                    if (sketch == null) {
+                        sketch = new PercentileSketch(getAccuracy(accuracies));
+                    }
+                    addValue(sketch, values, parameterType, sampleWeight);
 
                     // use last non-null percentile
                     if (!percentiles.isNull()) {
@@ -341,8 +379,13 @@ public class ApproximatePercentileAggregation
                 checkState(intermediates.advanceNextPosition());
                 if (!intermediates.isNull()) {
                     SliceInput input = intermediates.getSlice().getInput();
-                    // read digest
-                    digest.merge(QuantileDigest.deserialize(input));
+                    // read sketch
+                    if (sketch == null) {
+                        sketch = PercentileSketch.deserialize(input);
+                    }
+                    else {
+                        sketch.merge(PercentileSketch.deserialize(input));
+                    }
                     // read percentile
                     percentile = input.readDouble();
                 }
@@ -354,13 +397,13 @@ public class ApproximatePercentileAggregation
         {
             BlockBuilder out = getIntermediateType().createBlockBuilder(new BlockBuilderStatus());
 
-            if (digest.getCount() == 0.0) {
+            if (sketch == null || sketch.getCount() == 0) {
                 out.appendNull();
             }
             else {
-                DynamicSliceOutput sliceOutput = new DynamicSliceOutput(digest.estimatedSerializedSizeInBytes() + SIZE_OF_DOUBLE);
-                // write digest
-                digest.serialize(sliceOutput);
+                DynamicSliceOutput sliceOutput = new DynamicSliceOutput(sketch.getEstimatedSerializedSizeInBytes() + SIZE_OF_DOUBLE);
+                // write sketch
+                sketch.serialize(sliceOutput);
                 // write percentile
                 sliceOutput.appendDouble(percentile);
 
@@ -375,11 +418,21 @@ public class ApproximatePercentileAggregation
         public final Block evaluateFinal()
         {
             BlockBuilder out = getFinalType().createBlockBuilder(new BlockBuilderStatus());
-            evaluate(out, parameterType, digest, percentile);
+            evaluate(out, parameterType, sketch, percentile);
             return out.build();
         }
     }
 
+    private static double getAccuracy(BlockCursor accuracies)
+    {
+        if (accuracies == null || accuracies.isNull()) {
+            return DEFAULT_ACCURACY;
+        }
+        double accuracy = accuracies.getDouble();
+        checkCondition(accuracy >= MIN_ACCURACY && accuracy < 1, INVALID_FUNCTION_ARGUMENT, "Percentile accuracy must be at least %s and less than 1", MIN_ACCURACY);
+        return accuracy;
+    }
+
     private static Type getOutputType(Type parameterType)
     {
         if (parameterType == BIGINT) {
@@ -393,7 +446,7 @@ public class ApproximatePercentileAggregation
         }
     }
 
-    private static void addValue(QuantileDigest digest, BlockCursor values, Type parameterType, long count)
+    private static void addValue(PercentileSketch sketch, BlockCursor values, Type parameterType, long count)
     {
         long value;
         if (parameterType == BIGINT) {
@@ -406,19 +459,19 @@ public class ApproximatePercentileAggregation
             throw new IllegalArgumentException("Expected parameter type to be BIGINT or DOUBLE");
         }
 
-        digest.add(value, count);
+        sketch.add(value, count);
     }
 
-    public static void evaluate(BlockBuilder out, Type parameterType, QuantileDigest digest, double percentile)
+    public static void evaluate(BlockBuilder out, Type parameterType, PercentileSketch sketch, double percentile)
     {
-        if (digest.getCount() == 0.0) {
+        if (sketch == null || sketch.getCount() == 0) {
             out.appendNull();
         }
         else {
             checkState(percentile != -1.0, "Percentile is missing");
             checkCondition(0 <= percentile && percentile <= 1, INVALID_FUNCTION_ARGUMENT, "Percentile must be between 0 and 1");
 
-            long value = digest.getQuantile(percentile);
+            long value = sketch.getQuantile(percentile);
 
             if (parameterType == BIGINT) {
                 out.appendLong(value);
@@ -452,19 +505,19 @@ public class ApproximatePercentileAggregation
         return result;
     }
 
-    public static final class DigestAndPercentile
+    public static final class SketchAndPercentile
     {
-        private final QuantileDigest digest;
+        private final PercentileSketch sketch;
         private double percentile = -1.0;
 
-        public DigestAndPercentile(QuantileDigest digest)
+        public SketchAndPercentile(PercentileSketch sketch)
         {
-            this.digest = digest;
+            this.sketch = sketch;
         }
 
-        public QuantileDigest getDigest()
+        public PercentileSketch getSketch()
         {
-            return digest;
+            return sketch;
         }
 
         public double getPercentile()
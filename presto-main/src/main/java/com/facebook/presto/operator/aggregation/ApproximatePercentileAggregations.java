@@ -15,7 +15,7 @@ package com.facebook.presto.operator.aggregation;
 
 import com.facebook.presto.operator.aggregation.ApproximatePercentileAggregation.ApproximatePercentileAccumulator;
 import com.facebook.presto.operator.aggregation.ApproximatePercentileAggregation.ApproximatePercentileGroupedAccumulator;
-import com.facebook.presto.operator.aggregation.ApproximatePercentileAggregation.DigestAndPercentile;
+import com.facebook.presto.operator.aggregation.ApproximatePercentileAggregation.SketchAndPercentile;
 import com.facebook.presto.operator.aggregation.SimpleAggregationFunction.SimpleAccumulator;
 import com.facebook.presto.operator.aggregation.SimpleAggregationFunction.SimpleGroupedAccumulator;
 import com.facebook.presto.spi.type.Type;
@@ -26,12 +26,14 @@ import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
 
 public final class ApproximatePercentileAggregations
 {
-    public static final AggregationFunction LONG_APPROXIMATE_PERCENTILE_AGGREGATION = createIsolatedAggregation(BIGINT);
-    public static final AggregationFunction DOUBLE_APPROXIMATE_PERCENTILE_AGGREGATION = createIsolatedAggregation(DOUBLE);
+    public static final AggregationFunction LONG_APPROXIMATE_PERCENTILE_AGGREGATION = createIsolatedAggregation(BIGINT, false);
+    public static final AggregationFunction DOUBLE_APPROXIMATE_PERCENTILE_AGGREGATION = createIsolatedAggregation(DOUBLE, false);
+    public static final AggregationFunction LONG_APPROXIMATE_PERCENTILE_WITH_ACCURACY_AGGREGATION = createIsolatedAggregation(BIGINT, true);
+    public static final AggregationFunction DOUBLE_APPROXIMATE_PERCENTILE_WITH_ACCURACY_AGGREGATION = createIsolatedAggregation(DOUBLE, true);
 
     private ApproximatePercentileAggregations() {}
 
-    private static AggregationFunction createIsolatedAggregation(Type parameterType)
+    private static AggregationFunction createIsolatedAggregation(Type parameterType, boolean hasAccuracy)
     {
         Class<? extends AggregationFunction> functionClass = IsolatedClass.isolateClass(
                 AggregationFunction.class,
@@ -45,12 +47,13 @@ public final class ApproximatePercentileAggregations
                 ApproximatePercentileAccumulator.class,
                 SimpleAccumulator.class,
 
-                DigestAndPercentile.class);
+                SketchAndPercentile.class,
+                PercentileSketch.class);
 
         try {
             return functionClass
-                    .getConstructor(Type.class)
-                    .newInstance(parameterType);
+                    .getConstructor(Type.class, boolean.class)
+                    .newInstance(parameterType, hasAccuracy);
         }
         catch (Exception e) {
             throw Throwables.propagate(e);
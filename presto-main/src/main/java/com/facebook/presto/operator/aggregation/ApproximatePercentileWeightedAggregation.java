@@ -26,7 +26,6 @@ import com.google.common.collect.ImmutableList;
 import io.airlift.slice.DynamicSliceOutput;
 import io.airlift.slice.Slice;
 import io.airlift.slice.SliceInput;
-import io.airlift.stats.QuantileDigest;
 
 import java.util.List;
 
@@ -92,14 +91,14 @@ public class ApproximatePercentileWeightedAggregation
         private final int weightChannel;
         private final int percentileChannel;
         private final Type parameterType;
-        private final ObjectBigArray<DigestAndPercentile> digests;
+        private final ObjectBigArray<SketchAndPercentile> sketches;
         private final Optional<Integer> maskChannel;
         private final Optional<Integer> sampleWeightChannel;
         private long sizeOfValues;
 
         public ApproximatePercentileWeightedGroupedAccumulator(int valueChannel, int weightChannel, int percentileChannel, Type parameterType, Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel)
         {
-            this.digests = new ObjectBigArray<>();
+            this.sketches = new ObjectBigArray<>();
             this.valueChannel = valueChannel;
             this.weightChannel = weightChannel;
             this.percentileChannel = percentileChannel;
@@ -111,7 +110,7 @@ public class ApproximatePercentileWeightedAggregation
         @Override
         public long getEstimatedSize()
         {
-            return digests.sizeOf() + sizeOfValues;
+            return sketches.sizeOf() + sizeOfValues;
         }
 
         @Override
@@ -131,7 +130,7 @@ public class ApproximatePercentileWeightedAggregation
         {
             checkArgument(percentileChannel != -1, "Raw input is not allowed for a final aggregation");
 
-            digests.ensureCapacity(groupIdsBlock.getGroupCount());
+            sketches.ensureCapacity(groupIdsBlock.getGroupCount());
 
             BlockCursor values = page.getBlock(valueChannel).cursor();
             BlockCursor weights = page.getBlock(weightChannel).cursor();
@@ -157,16 +156,16 @@ public class ApproximatePercentileWeightedAggregation
 
                 // skip null values
                 if (!values.isNull() && !weights.isNull() && sampleWeight > 0) {
-                    DigestAndPercentile currentValue = digests.get(groupId);
+                    SketchAndPercentile currentValue = sketches.get(groupId);
                     if (currentValue == null) {
-                        currentValue = new DigestAndPercentile(new QuantileDigest(0.01));
-                        digests.set(groupId, currentValue);
-                        sizeOfValues += currentValue.getDigest().estimatedInMemorySizeInBytes();
+                        currentValue = new SketchAndPercentile(new PercentileSketch(0.01));
+                        sketches.set(groupId, currentValue);
+                        sizeOfValues += currentValue.getSketch().getEstimatedSizeInBytes();
                     }
 
-                    sizeOfValues -= currentValue.getDigest().estimatedInMemorySizeInBytes();
-                    addValue(currentValue.getDigest(), values, sampleWeight * weights.getLong(), parameterType);
-                    sizeOfValues += currentValue.getDigest().estimatedInMemorySizeInBytes();
+                    sizeOfValues -= currentValue.getSketch().getEstimatedSizeInBytes();
+                    addValue(currentValue.getSketch(), values, sampleWeight * weights.getLong(), parameterType);
+                    sizeOfValues += currentValue.getSketch().getEstimatedSizeInBytes();
 
                     // use last non-null percentile
                     if (!percentiles.isNull()) {
@@ -184,7 +183,7 @@ public class ApproximatePercentileWeightedAggregation
         {
             checkArgument(percentileChannel == -1, "Intermediate input is only allowed for a final aggregation");
 
-            digests.ensureCapacity(groupIdsBlock.getGroupCount());
+            sketches.ensureCapacity(groupIdsBlock.getGroupCount());
 
             BlockCursor intermediates = block.cursor();
 
@@ -194,18 +193,18 @@ public class ApproximatePercentileWeightedAggregation
                 if (!intermediates.isNull()) {
                     long groupId = groupIdsBlock.getGroupId(position);
 
-                    DigestAndPercentile currentValue = digests.get(groupId);
+                    SketchAndPercentile currentValue = sketches.get(groupId);
                     if (currentValue == null) {
-                        currentValue = new DigestAndPercentile(new QuantileDigest(0.01));
-                        digests.set(groupId, currentValue);
-                        sizeOfValues += currentValue.getDigest().estimatedInMemorySizeInBytes();
+                        currentValue = new SketchAndPercentile(new PercentileSketch(0.01));
+                        sketches.set(groupId, currentValue);
+                        sizeOfValues += currentValue.getSketch().getEstimatedSizeInBytes();
                     }
 
                     SliceInput input = intermediates.getSlice().getInput();
 
-                    sizeOfValues -= currentValue.getDigest().estimatedInMemorySizeInBytes();
-                    currentValue.getDigest().merge(QuantileDigest.deserialize(input));
-                    sizeOfValues += currentValue.getDigest().estimatedInMemorySizeInBytes();
+                    sizeOfValues -= currentValue.getSketch().getEstimatedSizeInBytes();
+                    currentValue.getSketch().merge(PercentileSketch.deserialize(input));
+                    sizeOfValues += currentValue.getSketch().getEstimatedSizeInBytes();
 
                     currentValue.setPercentile(input.readDouble());
                 }
@@ -215,13 +214,13 @@ public class ApproximatePercentileWeightedAggregation
         @Override
         public void evaluateIntermediate(int groupId, BlockBuilder output)
         {
-            DigestAndPercentile currentValue = digests.get((long) groupId);
-            if (currentValue == null || currentValue.getDigest().getCount() == 0.0) {
+            SketchAndPercentile currentValue = sketches.get((long) groupId);
+            if (currentValue == null || currentValue.getSketch().getCount() == 0) {
                 output.appendNull();
             }
             else {
-                DynamicSliceOutput sliceOutput = new DynamicSliceOutput(currentValue.getDigest().estimatedSerializedSizeInBytes());
-                currentValue.getDigest().serialize(sliceOutput);
+                DynamicSliceOutput sliceOutput = new DynamicSliceOutput(currentValue.getSketch().getEstimatedSerializedSizeInBytes());
+                currentValue.getSketch().serialize(sliceOutput);
                 sliceOutput.appendDouble(currentValue.getPercentile());
 
                 output.appendSlice(sliceOutput.slice());
@@ -231,12 +230,12 @@ public class ApproximatePercentileWeightedAggregation
         @Override
         public void evaluateFinal(int groupId, BlockBuilder output)
         {
-            DigestAndPercentile currentValue = digests.get((long) groupId);
+            SketchAndPercentile currentValue = sketches.get((long) groupId);
             if (currentValue == null) {
                 output.appendNull();
             }
             else {
-                evaluate(output, parameterType, currentValue.getDigest(), currentValue.getPercentile());
+                evaluate(output, parameterType, currentValue.getSketch(), currentValue.getPercentile());
             }
         }
     }
@@ -265,7 +264,7 @@ public class ApproximatePercentileWeightedAggregation
         private final Optional<Integer> maskChannel;
         private final Optional<Integer> sampleWeightChannel;
 
-        private final QuantileDigest digest = new QuantileDigest(0.01);
+        private final PercentileSketch sketch = new PercentileSketch(0.01);
         private double percentile = -1;
 
         public ApproximatePercentileWeightedAccumulator(int valueChannel, int weightChannel, int percentileChannel, Type parameterType, Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel)
@@ -281,7 +280,7 @@ public class ApproximatePercentileWeightedAggregation
         @Override
         public long getEstimatedSize()
         {
-            return digest.estimatedInMemorySizeInBytes();
+            return sketch.getEstimatedSizeInBytes();
         }
 
         @Override
@@ -322,7 +321,7 @@ public class ApproximatePercentileWeightedAggregation
                 long sampleWeight = SimpleAggregationFunction.computeSampleWeight(masks, sampleWeights);
 
                 if (!values.isNull() && !weights.isNull() && sampleWeight > 0) {
-                    addValue(digest, values, sampleWeight * weights.getLong(), parameterType);
+                    addValue(sketch, values, sampleWeight * weights.getLong(), parameterType);
 
                     // use last non-null percentile
                     if (!percentiles.isNull()) {
@@ -343,8 +342,8 @@ public class ApproximatePercentileWeightedAggregation
                 checkState(intermediates.advanceNextPosition());
                 if (!intermediates.isNull()) {
                     SliceInput input = intermediates.getSlice().getInput();
-                    // read digest
-                    digest.merge(QuantileDigest.deserialize(input));
+                    // read sketch
+                    sketch.merge(PercentileSketch.deserialize(input));
                     // read percentile
                     percentile = input.readDouble();
                 }
@@ -356,13 +355,13 @@ public class ApproximatePercentileWeightedAggregation
         {
             BlockBuilder out = getIntermediateType().createBlockBuilder(new BlockBuilderStatus());
 
-            if (digest.getCount() == 0.0) {
+            if (sketch.getCount() == 0) {
                 out.appendNull();
             }
             else {
-                DynamicSliceOutput sliceOutput = new DynamicSliceOutput(digest.estimatedSerializedSizeInBytes() + SIZE_OF_DOUBLE);
-                // write digest
-                digest.serialize(sliceOutput);
+                DynamicSliceOutput sliceOutput = new DynamicSliceOutput(sketch.getEstimatedSerializedSizeInBytes() + SIZE_OF_DOUBLE);
+                // write sketch
+                sketch.serialize(sliceOutput);
                 // write percentile
                 sliceOutput.appendDouble(percentile);
 
@@ -378,7 +377,7 @@ public class ApproximatePercentileWeightedAggregation
         {
             BlockBuilder out = getFinalType().createBlockBuilder(new BlockBuilderStatus());
 
-            evaluate(out, parameterType, digest, percentile);
+            evaluate(out, parameterType, sketch, percentile);
 
             return out.build();
         }
@@ -397,7 +396,7 @@ public class ApproximatePercentileWeightedAggregation
         }
     }
 
-    private static void addValue(QuantileDigest digest, BlockCursor values, long weight, Type parameterType)
+    private static void addValue(PercentileSketch sketch, BlockCursor values, long weight, Type parameterType)
     {
         long value;
         if (parameterType == BIGINT) {
@@ -410,18 +409,18 @@ public class ApproximatePercentileWeightedAggregation
             throw new IllegalArgumentException("Expected parameter type to be BIGINT or DOUBLE");
         }
 
-        digest.add(value, weight);
+        sketch.add(value, weight);
     }
 
-    public static void evaluate(BlockBuilder out, Type parameterType, QuantileDigest digest, double percentile)
+    public static void evaluate(BlockBuilder out, Type parameterType, PercentileSketch sketch, double percentile)
     {
-        if (digest.getCount() == 0.0) {
+        if (sketch.getCount() == 0) {
             out.appendNull();
         }
         else {
             checkState(percentile != -1.0, "Percentile is missing");
 
-            long value = digest.getQuantile(percentile);
+            long value = sketch.getQuantile(percentile);
 
             if (parameterType == BIGINT) {
                 out.appendLong(value);
@@ -455,19 +454,19 @@ public class ApproximatePercentileWeightedAggregation
         return result;
     }
 
-    public static final class DigestAndPercentile
+    public static final class SketchAndPercentile
     {
-        private final QuantileDigest digest;
+        private final PercentileSketch sketch;
         private double percentile = -1;
 
-        public DigestAndPercentile(QuantileDigest digest)
+        public SketchAndPercentile(PercentileSketch sketch)
         {
-            this.digest = digest;
+            this.sketch = sketch;
         }
 
-        public QuantileDigest getDigest()
+        public PercentileSketch getSketch()
         {
-            return digest;
+            return sketch;
         }
 
         public double getPercentile()
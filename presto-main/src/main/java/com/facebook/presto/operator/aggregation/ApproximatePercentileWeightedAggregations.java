@@ -15,7 +15,7 @@ package com.facebook.presto.operator.aggregation;
 
 import com.facebook.presto.operator.aggregation.ApproximatePercentileWeightedAggregation.ApproximatePercentileWeightedAccumulator;
 import com.facebook.presto.operator.aggregation.ApproximatePercentileWeightedAggregation.ApproximatePercentileWeightedGroupedAccumulator;
-import com.facebook.presto.operator.aggregation.ApproximatePercentileWeightedAggregation.DigestAndPercentile;
+import com.facebook.presto.operator.aggregation.ApproximatePercentileWeightedAggregation.SketchAndPercentile;
 import com.facebook.presto.operator.aggregation.SimpleAggregationFunction.SimpleAccumulator;
 import com.facebook.presto.operator.aggregation.SimpleAggregationFunction.SimpleGroupedAccumulator;
 import com.facebook.presto.spi.type.Type;
@@ -45,7 +45,8 @@ public final class ApproximatePercentileWeightedAggregations
                 ApproximatePercentileWeightedAccumulator.class,
                 SimpleAccumulator.class,
 
-                DigestAndPercentile.class);
+                SketchAndPercentile.class,
+                PercentileSketch.class);
 
         try {
             return functionClass
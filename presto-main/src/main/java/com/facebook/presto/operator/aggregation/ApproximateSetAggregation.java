@@ -21,7 +21,7 @@ import com.facebook.presto.spi.type.HyperLogLogType;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.util.array.ObjectBigArray;
 import com.google.common.base.Optional;
-import io.airlift.stats.cardinality.HyperLogLog;
+import io.airlift.slice.Murmur3;
 
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
@@ -30,6 +30,10 @@ import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
+/**
+ * Builds an {@link AdaptiveHyperLogLog} sketch of the input, hashed the same way as approx_distinct, so a
+ * sketch of a few values stays small until its sparse entries would outgrow the dense bucket array.
+ */
 public class ApproximateSetAggregation
         extends SimpleAggregationFunction
 {
@@ -66,7 +70,7 @@ public class ApproximateSetAggregation
     {
         private final Type parameterType;
 
-        private HyperLogLog estimator;
+        private AdaptiveHyperLogLog estimator;
 
         public ApproximateSetAccumulator(Type parameterType, int valueChannel, Optional<Integer> maskChannel)
         {
@@ -88,7 +92,7 @@ public class ApproximateSetAggregation
                 checkState(masks == null || masks.advanceNextPosition());
                 if (!values.isNull() && (masks == null || masks.getBoolean())) {
                     if (estimator == null) {
-                        estimator = HyperLogLog.newInstance(NUMBER_OF_BUCKETS);
+                        estimator = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
                     }
 
                     add(values, parameterType, estimator);
@@ -104,13 +108,11 @@ public class ApproximateSetAggregation
             for (int position = 0; position < block.getPositionCount(); position++) {
                 checkState(intermediates.advanceNextPosition());
                 if (!intermediates.isNull()) {
-                    HyperLogLog instance = HyperLogLog.newInstance(intermediates.getSlice());
-
                     if (estimator == null) {
-                        estimator = instance;
+                        estimator = AdaptiveHyperLogLog.deserialize(intermediates.getSlice());
                     }
                     else {
-                        estimator.mergeWith(instance);
+                        estimator.mergeWith(intermediates.getSlice());
                     }
                 }
             }
@@ -134,16 +136,16 @@ public class ApproximateSetAggregation
         }
     }
 
-    private static void add(BlockCursor cursor, Type parameterType, HyperLogLog estimator)
+    private static void add(BlockCursor cursor, Type parameterType, AdaptiveHyperLogLog estimator)
     {
         if (parameterType.equals(BIGINT)) {
-            estimator.add(cursor.getLong());
+            estimator.add(Murmur3.hash64(cursor.getLong()));
         }
         else if (parameterType.equals(DOUBLE)) {
-            estimator.add(Double.doubleToLongBits(cursor.getDouble()));
+            estimator.add(Murmur3.hash64(Double.doubleToLongBits(cursor.getDouble())));
         }
         else if (parameterType.equals(VARCHAR)) {
-            estimator.add(cursor.getSlice());
+            estimator.add(Murmur3.hash64(cursor.getSlice()));
         }
         else {
             throw new IllegalArgumentException("Expected parameter type to be BIGINT, DOUBLE, or VARCHAR");
@@ -153,7 +155,7 @@ public class ApproximateSetAggregation
     static class ApproximateSetGroupedAccumulator
             extends SimpleGroupedAccumulator
     {
-        private final ObjectBigArray<HyperLogLog> estimators = new ObjectBigArray<>();
+        private final ObjectBigArray<AdaptiveHyperLogLog> estimators = new ObjectBigArray<>();
         private final Type parameterType;
         private long sizeOfValues;
 
@@ -188,16 +190,16 @@ public class ApproximateSetAggregation
                 if (!values.isNull() && (masks == null || masks.getBoolean())) {
                     long groupId = groupIdsBlock.getGroupId(position);
 
-                    HyperLogLog hll = estimators.get(groupId);
+                    AdaptiveHyperLogLog hll = estimators.get(groupId);
                     if (hll == null) {
-                        hll = HyperLogLog.newInstance(NUMBER_OF_BUCKETS);
+                        hll = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
                         estimators.set(groupId, hll);
-                        sizeOfValues += hll.estimatedInMemorySize();
+                        sizeOfValues += hll.getEstimatedSizeInBytes();
                     }
 
-                    sizeOfValues -= hll.estimatedInMemorySize();
+                    sizeOfValues -= hll.getEstimatedSizeInBytes();
                     add(values, parameterType, hll);
-                    sizeOfValues += hll.estimatedInMemorySize();
+                    sizeOfValues += hll.getEstimatedSizeInBytes();
                 }
             }
             checkState(!values.advanceNextPosition(), "group id and value blocks have different number of entries");
@@ -217,17 +219,16 @@ public class ApproximateSetAggregation
                 if (!intermediates.isNull()) {
                     long groupId = groupIdsBlock.getGroupId(position);
 
-                    HyperLogLog input = HyperLogLog.newInstance(intermediates.getSlice());
-
-                    HyperLogLog previous = estimators.get(groupId);
+                    AdaptiveHyperLogLog previous = estimators.get(groupId);
                     if (previous == null) {
+                        AdaptiveHyperLogLog input = AdaptiveHyperLogLog.deserialize(intermediates.getSlice());
                         estimators.set(groupId, input);
-                        sizeOfValues += input.estimatedInMemorySize();
+                        sizeOfValues += input.getEstimatedSizeInBytes();
                     }
                     else {
-                        sizeOfValues -= previous.estimatedInMemorySize();
-                        previous.mergeWith(input);
-                        sizeOfValues += previous.estimatedInMemorySize();
+                        sizeOfValues -= previous.getEstimatedSizeInBytes();
+                        previous.mergeWith(intermediates.getSlice());
+                        sizeOfValues += previous.getEstimatedSizeInBytes();
                     }
                 }
             }
@@ -243,7 +244,7 @@ public class ApproximateSetAggregation
         @Override
         public void evaluateFinal(int groupId, BlockBuilder output)
         {
-            HyperLogLog estimator = estimators.get(groupId);
+            AdaptiveHyperLogLog estimator = estimators.get(groupId);
             if (estimator == null) {
                 output.appendNull();
             }
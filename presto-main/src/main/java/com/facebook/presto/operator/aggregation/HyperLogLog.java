@@ -34,18 +34,33 @@ public class HyperLogLog
         alpha = 1 / (2 * Math.log(2) * (1 + (3 * Math.log(2) - 1) / numberOfBuckets));
     }
 
+    public int getNumberOfBuckets()
+    {
+        return numberOfBuckets;
+    }
+
     public int getSizeInBytes()
     {
         return numberOfBuckets * SizeOf.SIZE_OF_BYTE;
     }
 
-    public void update(long hash, Slice slice, int offset)
+    public int getBucket(long hash)
     {
         int bucketMask = numberOfBuckets - 1;
-        int bucket = (int) (hash & bucketMask);
+        return (int) (hash & bucketMask);
+    }
 
+    public int getValue(long hash)
+    {
+        int bucketMask = numberOfBuckets - 1;
         // set the lsb to 1 so that they don't introduce an error if the hash happens to be almost all 0 (very unlikely, but...)
-        int highestBit = Long.numberOfLeadingZeros(hash | bucketMask) + 1;
+        return Long.numberOfLeadingZeros(hash | bucketMask) + 1;
+    }
+
+    public void update(long hash, Slice slice, int offset)
+    {
+        int bucket = getBucket(hash);
+        int highestBit = getValue(hash);
 
         int previous = slice.getByte(offset + bucket);
         int updated = Math.max(highestBit, previous);
@@ -81,6 +96,14 @@ public class HyperLogLog
             currentSum += 1.0 / (1L << value);
         }
 
+        return estimate(currentSum, zeroBuckets);
+    }
+
+    /**
+     * Estimates the cardinality from the sum of 2^-value over all buckets and the number of empty buckets.
+     */
+    public long estimate(double currentSum, int zeroBuckets)
+    {
         double result = numberOfBuckets * numberOfBuckets * alpha / currentSum;
 
         // adjust for small cardinalities
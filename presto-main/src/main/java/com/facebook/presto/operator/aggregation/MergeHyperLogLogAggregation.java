@@ -14,18 +14,24 @@
 package com.facebook.presto.operator.aggregation;
 
 import com.facebook.presto.operator.GroupByIdBlock;
+import com.facebook.presto.spi.PrestoException;
 import com.facebook.presto.spi.block.Block;
 import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.block.BlockCursor;
 import com.facebook.presto.spi.type.HyperLogLogType;
 import com.facebook.presto.util.array.ObjectBigArray;
 import com.google.common.base.Optional;
-import io.airlift.stats.cardinality.HyperLogLog;
+import io.airlift.slice.Slice;
 
+import static com.facebook.presto.spi.StandardErrorCode.INVALID_FUNCTION_ARGUMENT;
 import static com.facebook.presto.spi.type.HyperLogLogType.HYPER_LOG_LOG;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
+/**
+ * Merges HyperLogLog sketches. Sketches with different numbers of buckets are merged at the smallest
+ * number of buckets, by downsampling the larger ones.
+ */
 public class MergeHyperLogLogAggregation
         extends SimpleAggregationFunction
 {
@@ -51,7 +57,7 @@ public class MergeHyperLogLogAggregation
     static class MergeHyperLogLogAccumulator
             extends SimpleAccumulator
     {
-        private HyperLogLog estimator;
+        private AdaptiveHyperLogLog estimator;
 
         public MergeHyperLogLogAccumulator(int valueChannel, Optional<Integer> maskChannel)
         {
@@ -89,21 +95,14 @@ public class MergeHyperLogLogAggregation
 
         private void add(BlockCursor cursor)
         {
-            HyperLogLog instance = HyperLogLog.newInstance(cursor.getSlice());
-
-            if (estimator == null) {
-                estimator = instance;
-            }
-            else {
-                estimator.mergeWith(instance);
-            }
+            estimator = merge(estimator, cursor.getSlice());
         }
     }
 
     static class MergeHyperLogLogGroupedAccumulator
             extends SimpleGroupedAccumulator
     {
-        private final ObjectBigArray<HyperLogLog> estimators = new ObjectBigArray<>();
+        private final ObjectBigArray<AdaptiveHyperLogLog> estimators = new ObjectBigArray<>();
         private long sizeOfValues;
 
         public MergeHyperLogLogGroupedAccumulator(int valueChannel, Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel)
@@ -143,7 +142,7 @@ public class MergeHyperLogLogAggregation
         @Override
         public void evaluateFinal(int groupId, BlockBuilder output)
         {
-            HyperLogLog estimator = estimators.get(groupId);
+            AdaptiveHyperLogLog estimator = estimators.get(groupId);
             if (estimator == null) {
                 output.appendNull();
             }
@@ -154,18 +153,46 @@ public class MergeHyperLogLogAggregation
 
         private void add(long groupId, BlockCursor cursor)
         {
-            HyperLogLog instance = HyperLogLog.newInstance(cursor.getSlice());
+            AdaptiveHyperLogLog previous = estimators.get(groupId);
+            if (previous != null) {
+                sizeOfValues -= previous.getEstimatedSizeInBytes();
+            }
+
+            // merging into a sketch with more buckets replaces it with a downsampled copy
+            AdaptiveHyperLogLog merged = merge(previous, cursor.getSlice());
+            estimators.set(groupId, merged);
+            sizeOfValues += merged.getEstimatedSizeInBytes();
+        }
+    }
 
-            HyperLogLog previous = estimators.get(groupId);
-            if (previous == null) {
-                estimators.set(groupId, instance);
-                sizeOfValues += instance.estimatedInMemorySize();
+    /**
+     * Returns the union of the estimator, which may be null, and the serialized sketch.
+     */
+    private static AdaptiveHyperLogLog merge(AdaptiveHyperLogLog estimator, Slice serialized)
+    {
+        try {
+            if (estimator == null) {
+                return AdaptiveHyperLogLog.deserialize(serialized);
             }
-            else {
-                sizeOfValues -= previous.estimatedInMemorySize();
-                previous.mergeWith(instance);
-                sizeOfValues += previous.estimatedInMemorySize();
+
+            int numberOfBuckets = AdaptiveHyperLogLog.getNumberOfBuckets(serialized);
+            if (numberOfBuckets == estimator.getNumberOfBuckets()) {
+                estimator.mergeWith(serialized);
+                return estimator;
             }
+
+            AdaptiveHyperLogLog input = AdaptiveHyperLogLog.deserialize(serialized);
+            if (numberOfBuckets > estimator.getNumberOfBuckets()) {
+                estimator.mergeWith(input.downsample(estimator.getNumberOfBuckets()));
+                return estimator;
+            }
+
+            AdaptiveHyperLogLog downsampled = estimator.downsample(numberOfBuckets);
+            downsampled.mergeWith(input);
+            return downsampled;
+        }
+        catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new PrestoException(INVALID_FUNCTION_ARGUMENT.toErrorCode(), "Cannot merge HyperLogLogs: " + e.getMessage(), e);
         }
     }
 }
@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.aggregation;
+
+import com.facebook.presto.operator.GroupByIdBlock;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockCursor;
+import com.facebook.presto.util.array.ObjectBigArray;
+import com.google.common.base.Optional;
+import io.airlift.stats.QuantileDigest;
+
+import static com.facebook.presto.operator.aggregation.QuantileDigestAggregation.appendDigest;
+import static com.facebook.presto.operator.aggregation.QuantileDigestAggregation.merge;
+import static com.facebook.presto.spi.type.QuantileDigestType.QUANTILE_DIGEST;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+public class MergeQuantileDigestAggregation
+        extends SimpleAggregationFunction
+{
+    public MergeQuantileDigestAggregation()
+    {
+        super(QUANTILE_DIGEST, QUANTILE_DIGEST, QUANTILE_DIGEST);
+    }
+
+    @Override
+    protected GroupedAccumulator createGroupedAccumulator(Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel, double confidence, int valueChannel)
+    {
+        checkArgument(confidence == 1.0, "confidence level must be 1.0");
+        return new MergeQuantileDigestGroupedAccumulator(valueChannel, maskChannel, sampleWeightChannel);
+    }
+
+    @Override
+    protected Accumulator createAccumulator(Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel, double confidence, int valueChannel)
+    {
+        checkArgument(confidence == 1.0, "confidence level must be 1.0");
+        return new MergeQuantileDigestAccumulator(valueChannel, maskChannel);
+    }
+
+    static class MergeQuantileDigestAccumulator
+            extends SimpleAccumulator
+    {
+        private QuantileDigest digest;
+
+        public MergeQuantileDigestAccumulator(int valueChannel, Optional<Integer> maskChannel)
+        {
+            super(valueChannel, QUANTILE_DIGEST, QUANTILE_DIGEST, maskChannel, Optional.<Integer>absent());
+        }
+
+        @Override
+        public long getEstimatedSize()
+        {
+            if (digest == null) {
+                return 0;
+            }
+            return digest.estimatedInMemorySizeInBytes();
+        }
+
+        @Override
+        protected void processInput(Block block, Optional<Block> maskBlock, Optional<Block> sampleWeightBlock)
+        {
+            BlockCursor values = block.cursor();
+            BlockCursor masks = null;
+            if (maskBlock.isPresent()) {
+                masks = maskBlock.get().cursor();
+            }
+
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                checkState(values.advanceNextPosition());
+                checkState(masks == null || masks.advanceNextPosition());
+                if (!values.isNull() && (masks == null || masks.getBoolean())) {
+                    QuantileDigest instance = QuantileDigest.deserialize(values.getSlice().getInput());
+                    if (digest == null) {
+                        digest = instance;
+                    }
+                    else {
+                        digest.merge(instance);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void evaluateFinal(BlockBuilder out)
+        {
+            appendDigest(digest, out);
+        }
+    }
+
+    static class MergeQuantileDigestGroupedAccumulator
+            extends SimpleGroupedAccumulator
+    {
+        private final ObjectBigArray<QuantileDigest> digests = new ObjectBigArray<>();
+        private long sizeOfValues;
+
+        public MergeQuantileDigestGroupedAccumulator(int valueChannel, Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel)
+        {
+            super(valueChannel, QUANTILE_DIGEST, QUANTILE_DIGEST, maskChannel, sampleWeightChannel);
+        }
+
+        @Override
+        public long getEstimatedSize()
+        {
+            return digests.sizeOf() + sizeOfValues;
+        }
+
+        @Override
+        protected void processInput(GroupByIdBlock groupIdsBlock, Block valuesBlock, Optional<Block> maskBlock, Optional<Block> sampleWeightBlock)
+        {
+            digests.ensureCapacity(groupIdsBlock.getGroupCount());
+
+            BlockCursor values = valuesBlock.cursor();
+            BlockCursor masks = null;
+            if (maskBlock.isPresent()) {
+                masks = maskBlock.get().cursor();
+            }
+
+            for (int position = 0; position < groupIdsBlock.getPositionCount(); position++) {
+                checkState(values.advanceNextPosition());
+                checkState(masks == null || masks.advanceNextPosition());
+
+                // skip null values
+                if (!values.isNull() && (masks == null || masks.getBoolean())) {
+                    sizeOfValues += merge(digests, groupIdsBlock.getGroupId(position), values.getSlice());
+                }
+            }
+            checkState(!values.advanceNextPosition(), "group id and value blocks have different number of entries");
+        }
+
+        @Override
+        public void evaluateFinal(int groupId, BlockBuilder output)
+        {
+            appendDigest(digests.get((long) groupId), output);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.aggregation;
+
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.SliceOutput;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.SIZE_OF_BYTE;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static io.airlift.slice.SizeOf.sizeOfIntArray;
+import static io.airlift.slice.SizeOf.sizeOfLongArray;
+import static io.airlift.slice.SizeOf.sizeOfObjectArray;
+
+/**
+ * A mergeable sketch of a weighted set of longs that answers quantile queries with a rank error
+ * of about {@code accuracy}. The values are kept in a stack of compactors (Karnin, Lang and Liberty):
+ * each value at level {@code h} stands for {@code 2^h} inputs, and a level that outgrows its capacity
+ * is sorted and every other value is promoted to the next level. The top level holds {@code k} values
+ * and each level below it two thirds of the one above, so a sketch never holds more than about
+ * {@code 3k} values no matter how many values are added or merged into it.
+ * <p>
+ * A value with weight {@code w} is added to the levels of the set bits of {@code w}, so weights do
+ * not take extra space. Until the first level fills up, the sketch is exact.
+ * <p>
+ * Serialized form: a format byte, {@code k}, the total weight, the min and max values, the number of
+ * levels, and for each level the number of values followed by the values.
+ */
+public class PercentileSketch
+{
+    private static final byte FORMAT = 0;
+
+    // object header and fields
+    private static final int INSTANCE_SIZE = 80;
+
+    // k = K_PER_ACCURACY / accuracy keeps the rank error below accuracy with high probability
+    private static final double K_PER_ACCURACY = 3.0;
+    private static final int MIN_LEVEL_CAPACITY = 8;
+    private static final double LEVEL_CAPACITY_DECAY = 2.0 / 3.0;
+
+    // a value at level 63 would stand for more than Long.MAX_VALUE inputs
+    private static final int MAX_LEVELS = Long.SIZE - 1;
+
+    private final int k;
+
+    private long[][] levels = new long[0][];
+    private int[] levelSizes = new int[0];
+    private int[] levelCapacities = new int[0];
+
+    // size of the level arrays, kept up to date so the size of a sketch can be checked after every value
+    private long levelsSizeInBytes;
+
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    // state of a xorshift generator used to pick which half of a level is promoted
+    private long random = 0x2545F4914F6CDD1DL;
+
+    public PercentileSketch(double accuracy)
+    {
+        this(getK(accuracy));
+    }
+
+    private PercentileSketch(int k)
+    {
+        checkArgument(k >= MIN_LEVEL_CAPACITY, "k must be at least %s: %s", MIN_LEVEL_CAPACITY, k);
+        this.k = k;
+        setLevelCount(1);
+    }
+
+    public static int getK(double accuracy)
+    {
+        checkArgument(accuracy > 0 && accuracy < 1, "accuracy must be between 0 and 1 (exclusive): %s", accuracy);
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(K_PER_ACCURACY / accuracy));
+    }
+
+    /**
+     * Returns the largest size a sketch with the given accuracy can reach.
+     */
+    public static long getMaxSizeInBytes(double accuracy)
+    {
+        int k = getK(accuracy);
+        long size = INSTANCE_SIZE + sizeOfObjectArray(MAX_LEVELS) + 2 * sizeOfIntArray(MAX_LEVELS);
+        for (int depth = 0; depth < MAX_LEVELS; depth++) {
+            // a level array holds at most one value more than the capacity of the level
+            size += sizeOfLongArray(getLevelCapacity(k, depth) + 1);
+        }
+        return size;
+    }
+
+    public static PercentileSketch deserialize(SliceInput input)
+    {
+        byte format = input.readByte();
+        checkArgument(format == FORMAT, "Unknown percentile sketch format: %s", format);
+
+        PercentileSketch sketch = new PercentileSketch(input.readInt());
+        sketch.count = input.readLong();
+        sketch.min = input.readLong();
+        sketch.max = input.readLong();
+
+        int levelCount = input.readByte();
+        checkArgument(levelCount >= 1 && levelCount <= MAX_LEVELS, "Invalid number of levels: %s", levelCount);
+        sketch.setLevelCount(levelCount);
+        for (int level = 0; level < levelCount; level++) {
+            int size = input.readInt();
+            long[] values = new long[Math.max(size, sketch.levelCapacities[level] + 1)];
+            for (int i = 0; i < size; i++) {
+                values[i] = input.readLong();
+            }
+            sketch.setLevel(level, values);
+            sketch.levelSizes[level] = size;
+        }
+        return sketch;
+    }
+
+    public int getK()
+    {
+        return k;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getEstimatedSizeInBytes()
+    {
+        return INSTANCE_SIZE + sizeOfObjectArray(levels.length) + sizeOf(levelSizes) + sizeOf(levelCapacities) + levelsSizeInBytes;
+    }
+
+    public int getEstimatedSerializedSizeInBytes()
+    {
+        int size = SIZE_OF_BYTE + SIZE_OF_INT + 3 * SIZE_OF_LONG + SIZE_OF_BYTE;
+        for (int level = 0; level < levels.length; level++) {
+            size += SIZE_OF_INT + levelSizes[level] * SIZE_OF_LONG;
+        }
+        return size;
+    }
+
+    public void add(long value)
+    {
+        add(value, 1);
+    }
+
+    public void add(long value, long weight)
+    {
+        checkArgument(weight > 0, "weight must be positive: %s", weight);
+
+        count += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+
+        long remaining = weight;
+        while (remaining != 0) {
+            int level = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            append(level, value);
+        }
+        compress();
+    }
+
+    /**
+     * Adds all values of the other sketch to this one. A sketch with a smaller {@code k} is merged as is,
+     * so the result is only as accurate as the least accurate input.
+     */
+    public void merge(PercentileSketch other)
+    {
+        if (other.count == 0) {
+            return;
+        }
+
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+
+        for (int level = 0; level < other.levels.length; level++) {
+            for (int i = 0; i < other.levelSizes[level]; i++) {
+                append(level, other.levels[level][i]);
+            }
+        }
+        compress();
+    }
+
+    /**
+     * Returns the smallest value whose rank is greater than {@code quantile} times the total weight.
+     */
+    public long getQuantile(double quantile)
+    {
+        checkArgument(quantile >= 0 && quantile <= 1, "quantile must be between 0 and 1: %s", quantile);
+        checkState(count > 0, "sketch is empty");
+
+        // walk the sorted levels together, from the smallest value up
+        long[][] sorted = new long[levels.length][];
+        int[] positions = new int[levels.length];
+        for (int level = 0; level < levels.length; level++) {
+            sorted[level] = Arrays.copyOf(levels[level], levelSizes[level]);
+            Arrays.sort(sorted[level]);
+        }
+
+        double rank = quantile * count;
+        long sum = 0;
+        while (true) {
+            int next = -1;
+            for (int level = 0; level < sorted.length; level++) {
+                if (positions[level] < sorted[level].length && (next == -1 || sorted[level][positions[level]] < sorted[next][positions[next]])) {
+                    next = level;
+                }
+            }
+            if (next == -1) {
+                // the remaining rank belongs to values that were compacted away
+                return max;
+            }
+
+            long value = sorted[next][positions[next]];
+            positions[next]++;
+            sum += 1L << next;
+            if (sum > rank) {
+                return value;
+            }
+        }
+    }
+
+    public void serialize(SliceOutput output)
+    {
+        output.appendByte(FORMAT);
+        output.appendInt(k);
+        output.appendLong(count);
+        output.appendLong(min);
+        output.appendLong(max);
+        output.appendByte(levels.length);
+        for (int level = 0; level < levels.length; level++) {
+            output.appendInt(levelSizes[level]);
+            for (int i = 0; i < levelSizes[level]; i++) {
+                output.appendLong(levels[level][i]);
+            }
+        }
+    }
+
+    private void append(int level, long value)
+    {
+        if (level >= levels.length) {
+            setLevelCount(level + 1);
+        }
+
+        long[] values = levels[level];
+        int size = levelSizes[level];
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(size + 1, Math.min(size * 2, levelCapacities[level] + 1)));
+            setLevel(level, values);
+        }
+        values[size] = value;
+        levelSizes[level] = size + 1;
+    }
+
+    private void compress()
+    {
+        // compacting a level adds to the one above it, and a new top level lowers the capacity
+        // of all levels below it, so repeat until every level fits
+        boolean compacted = true;
+        while (compacted) {
+            compacted = false;
+            for (int level = 0; level < levels.length; level++) {
+                if (levelSizes[level] > levelCapacities[level]) {
+                    compact(level);
+                    compacted = true;
+                }
+            }
+        }
+
+        // trim the arrays grown by a merge or left over from a higher capacity
+        for (int level = 0; level < levels.length; level++) {
+            int length = levelCapacities[level] + 1;
+            if (levels[level].length > length) {
+                setLevel(level, Arrays.copyOf(levels[level], length));
+            }
+        }
+    }
+
+    private void compact(int level)
+    {
+        checkState(level + 1 < MAX_LEVELS, "percentile sketch weight overflow");
+
+        long[] values = levels[level];
+        int size = levelSizes[level];
+        Arrays.sort(values, 0, size);
+
+        // an odd value out stays at this level
+        int start = size % 2;
+        int offset = nextRandomBit();
+        for (int i = start + offset; i < size; i += 2) {
+            append(level + 1, values[i]);
+        }
+        levelSizes[level] = start;
+    }
+
+    private static int getLevelCapacity(int k, int depth)
+    {
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(LEVEL_CAPACITY_DECAY, depth)));
+    }
+
+    private void setLevelCount(int levelCount)
+    {
+        checkArgument(levelCount <= MAX_LEVELS, "percentile sketch weight overflow");
+        int oldLevelCount = levels.length;
+        levels = Arrays.copyOf(levels, levelCount);
+        levelSizes = Arrays.copyOf(levelSizes, levelCount);
+        for (int level = oldLevelCount; level < levelCount; level++) {
+            setLevel(level, new long[MIN_LEVEL_CAPACITY]);
+        }
+
+        // the top level holds k values and each level below it two thirds of the one above
+        levelCapacities = new int[levelCount];
+        for (int level = 0; level < levelCount; level++) {
+            levelCapacities[level] = getLevelCapacity(k, levelCount - level - 1);
+        }
+    }
+
+    private void setLevel(int level, long[] values)
+    {
+        if (levels[level] != null) {
+            levelsSizeInBytes -= sizeOf(levels[level]);
+        }
+        levels[level] = values;
+        levelsSizeInBytes += sizeOf(values);
+    }
+
+    private int nextRandomBit()
+    {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) (random >>> 63);
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.aggregation;
+
+import com.facebook.presto.operator.GroupByIdBlock;
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.BlockCursor;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.util.array.ObjectBigArray;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+import io.airlift.stats.QuantileDigest;
+
+import java.util.List;
+
+import static com.facebook.presto.spi.StandardErrorCode.INVALID_FUNCTION_ARGUMENT;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.QuantileDigestType.QUANTILE_DIGEST;
+import static com.facebook.presto.util.Failures.checkCondition;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Builds a quantile digest of the input values, which can be stored and later merged with
+ * {@link MergeQuantileDigestAggregation} or queried for any number of quantiles.
+ */
+public class QuantileDigestAggregation
+        implements AggregationFunction
+{
+    private final boolean hasAccuracy;
+
+    public QuantileDigestAggregation(boolean hasAccuracy)
+    {
+        this.hasAccuracy = hasAccuracy;
+    }
+
+    @Override
+    public List<Type> getParameterTypes()
+    {
+        if (hasAccuracy) {
+            return ImmutableList.<Type>of(BIGINT, DOUBLE);
+        }
+        return ImmutableList.<Type>of(BIGINT);
+    }
+
+    @Override
+    public Type getFinalType()
+    {
+        return QUANTILE_DIGEST;
+    }
+
+    @Override
+    public Type getIntermediateType()
+    {
+        return QUANTILE_DIGEST;
+    }
+
+    @Override
+    public boolean isDecomposable()
+    {
+        return true;
+    }
+
+    @Override
+    public QuantileDigestGroupedAccumulator createGroupedAggregation(Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel, double confidence, int... argumentChannels)
+    {
+        checkArgument(confidence == 1.0, "quantile digest does not support approximate queries");
+        return new QuantileDigestGroupedAccumulator(argumentChannels[0], getAccuracyChannel(argumentChannels), maskChannel, sampleWeightChannel);
+    }
+
+    @Override
+    public QuantileDigestGroupedAccumulator createGroupedIntermediateAggregation(double confidence)
+    {
+        checkArgument(confidence == 1.0, "quantile digest does not support approximate queries");
+        return new QuantileDigestGroupedAccumulator(-1, Optional.<Integer>absent(), Optional.<Integer>absent(), Optional.<Integer>absent());
+    }
+
+    @Override
+    public QuantileDigestAccumulator createAggregation(Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel, double confidence, int... argumentChannels)
+    {
+        checkArgument(confidence == 1.0, "quantile digest does not support approximate queries");
+        return new QuantileDigestAccumulator(argumentChannels[0], getAccuracyChannel(argumentChannels), maskChannel, sampleWeightChannel);
+    }
+
+    @Override
+    public QuantileDigestAccumulator createIntermediateAggregation(double confidence)
+    {
+        checkArgument(confidence == 1.0, "quantile digest does not support approximate queries");
+        return new QuantileDigestAccumulator(-1, Optional.<Integer>absent(), Optional.<Integer>absent(), Optional.<Integer>absent());
+    }
+
+    private Optional<Integer> getAccuracyChannel(int[] argumentChannels)
+    {
+        if (hasAccuracy) {
+            return Optional.of(argumentChannels[1]);
+        }
+        return Optional.absent();
+    }
+
+    public static class QuantileDigestGroupedAccumulator
+            implements GroupedAccumulator
+    {
+        private final int valueChannel;
+        private final Optional<Integer> accuracyChannel;
+        private final Optional<Integer> maskChannel;
+        private final Optional<Integer> sampleWeightChannel;
+        private final ObjectBigArray<QuantileDigest> digests = new ObjectBigArray<>();
+        private long sizeOfValues;
+
+        public QuantileDigestGroupedAccumulator(int valueChannel, Optional<Integer> accuracyChannel, Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel)
+        {
+            this.valueChannel = valueChannel;
+            this.accuracyChannel = accuracyChannel;
+            this.maskChannel = maskChannel;
+            this.sampleWeightChannel = sampleWeightChannel;
+        }
+
+        @Override
+        public long getEstimatedSize()
+        {
+            return digests.sizeOf() + sizeOfValues;
+        }
+
+        @Override
+        public Type getFinalType()
+        {
+            return QUANTILE_DIGEST;
+        }
+
+        @Override
+        public Type getIntermediateType()
+        {
+            return QUANTILE_DIGEST;
+        }
+
+        @Override
+        public void addInput(GroupByIdBlock groupIdsBlock, Page page)
+        {
+            checkArgument(valueChannel != -1, "Raw input is not allowed for a final aggregation");
+
+            digests.ensureCapacity(groupIdsBlock.getGroupCount());
+
+            BlockCursor values = page.getBlock(valueChannel).cursor();
+            BlockCursor accuracies = null;
+            if (accuracyChannel.isPresent()) {
+                accuracies = page.getBlock(accuracyChannel.get()).cursor();
+            }
+            BlockCursor masks = null;
+            if (maskChannel.isPresent()) {
+                masks = page.getBlock(maskChannel.get()).cursor();
+            }
+            BlockCursor sampleWeights = null;
+            if (sampleWeightChannel.isPresent()) {
+                sampleWeights = page.getBlock(sampleWeightChannel.get()).cursor();
+            }
+
+            for (int position = 0; position < groupIdsBlock.getPositionCount(); position++) {
+                checkState(values.advanceNextPosition());
+                checkState(accuracies == null || accuracies.advanceNextPosition());
+                checkState(masks == null || masks.advanceNextPosition());
+                checkState(sampleWeights == null || sampleWeights.advanceNextPosition());
+                long sampleWeight = SimpleAggregationFunction.computeSampleWeight(masks, sampleWeights);
+
+                if (!values.isNull() && sampleWeight > 0) {
+                    long groupId = groupIdsBlock.getGroupId(position);
+
+                    QuantileDigest digest = digests.get(groupId);
+                    if (digest == null) {
+                        digest = new QuantileDigest(getAccuracy(accuracies));
+                        digests.set(groupId, digest);
+                        sizeOfValues += digest.estimatedInMemorySizeInBytes();
+                    }
+
+                    sizeOfValues -= digest.estimatedInMemorySizeInBytes();
+                    digest.add(values.getLong(), sampleWeight);
+                    sizeOfValues += digest.estimatedInMemorySizeInBytes();
+                }
+            }
+            checkState(!values.advanceNextPosition());
+        }
+
+        @Override
+        public void addIntermediate(GroupByIdBlock groupIdsBlock, Block block)
+        {
+            checkArgument(valueChannel == -1, "Intermediate input is only allowed for a final aggregation");
+
+            digests.ensureCapacity(groupIdsBlock.getGroupCount());
+
+            BlockCursor intermediates = block.cursor();
+
+            for (int position = 0; position < groupIdsBlock.getPositionCount(); position++) {
+                checkState(intermediates.advanceNextPosition());
+
+                if (!intermediates.isNull()) {
+                    sizeOfValues += merge(digests, groupIdsBlock.getGroupId(position), intermediates.getSlice());
+                }
+            }
+            checkState(!intermediates.advanceNextPosition());
+        }
+
+        @Override
+        public void evaluateIntermediate(int groupId, BlockBuilder output)
+        {
+            evaluateFinal(groupId, output);
+        }
+
+        @Override
+        public void evaluateFinal(int groupId, BlockBuilder output)
+        {
+            appendDigest(digests.get((long) groupId), output);
+        }
+    }
+
+    public static class QuantileDigestAccumulator
+            implements Accumulator
+    {
+        private final int valueChannel;
+        private final Optional<Integer> accuracyChannel;
+        private final Optional<Integer> maskChannel;
+        private final Optional<Integer> sampleWeightChannel;
+
+        private QuantileDigest digest;
+
+        public QuantileDigestAccumulator(int valueChannel, Optional<Integer> accuracyChannel, Optional<Integer> maskChannel, Optional<Integer> sampleWeightChannel)
+        {
+            this.valueChannel = valueChannel;
+            this.accuracyChannel = accuracyChannel;
+            this.maskChannel = maskChannel;
+            this.sampleWeightChannel = sampleWeightChannel;
+        }
+
+        @Override
+        public long getEstimatedSize()
+        {
+            if (digest == null) {
+                return 0;
+            }
+            return digest.estimatedInMemorySizeInBytes();
+        }
+
+        @Override
+        public Type getFinalType()
+        {
+            return QUANTILE_DIGEST;
+        }
+
+        @Override
+        public Type getIntermediateType()
+        {
+            return QUANTILE_DIGEST;
+        }
+
+        @Override
+        public void addInput(Page page)
+        {
+            checkArgument(valueChannel != -1, "Raw input is not allowed for a final aggregation");
+
+            BlockCursor values = page.getBlock(valueChannel).cursor();
+            BlockCursor accuracies = null;
+            if (accuracyChannel.isPresent()) {
+                accuracies = page.getBlock(accuracyChannel.get()).cursor();
+            }
+            BlockCursor masks = null;
+            if (maskChannel.isPresent()) {
+                masks = page.getBlock(maskChannel.get()).cursor();
+            }
+            BlockCursor sampleWeights = null;
+            if (sampleWeightChannel.isPresent()) {
+                sampleWeights = page.getBlock(sampleWeightChannel.get()).cursor();
+            }
+
+            for (int position = 0; position < page.getPositionCount(); position++) {
+                checkState(values.advanceNextPosition());
+                checkState(accuracies == null || accuracies.advanceNextPosition());
+                checkState(masks == null || masks.advanceNextPosition());
+                checkState(sampleWeights == null || sampleWeights.advanceNextPosition());
+                long sampleWeight = SimpleAggregationFunction.computeSampleWeight(masks, sampleWeights);
+
+                if (!values.isNull() && sampleWeight > 0) {
+                    if (digest == null) {
+                        digest = new QuantileDigest(getAccuracy(accuracies));
+                    }
+                    digest.add(values.getLong(), sampleWeight);
+                }
+            }
+        }
+
+        @Override
+        public void addIntermediate(Block block)
+        {
+            checkArgument(valueChannel == -1, "Intermediate input is only allowed for a final aggregation");
+
+            BlockCursor intermediates = block.cursor();
+
+            for (int position = 0; position < block.getPositionCount(); position++) {
+                checkState(intermediates.advanceNextPosition());
+                if (!intermediates.isNull()) {
+                    QuantileDigest input = QuantileDigest.deserialize(intermediates.getSlice().getInput());
+                    if (digest == null) {
+                        digest = input;
+                    }
+                    else {
+                        digest.merge(input);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Block evaluateIntermediate()
+        {
+            return evaluateFinal();
+        }
+
+        @Override
+        public Block evaluateFinal()
+        {
+            BlockBuilder out = getFinalType().createBlockBuilder(new BlockBuilderStatus());
+            appendDigest(digest, out);
+            return out.build();
+        }
+    }
+
+    /**
+     * Merges the serialized digest into the digest of the group and returns the change in memory size.
+     */
+    static long merge(ObjectBigArray<QuantileDigest> digests, long groupId, Slice serialized)
+    {
+        QuantileDigest input = QuantileDigest.deserialize(serialized.getInput());
+
+        QuantileDigest previous = digests.get(groupId);
+        if (previous == null) {
+            digests.set(groupId, input);
+            return input.estimatedInMemorySizeInBytes();
+        }
+
+        long previousSize = previous.estimatedInMemorySizeInBytes();
+        previous.merge(input);
+        return previous.estimatedInMemorySizeInBytes() - previousSize;
+    }
+
+    static void appendDigest(QuantileDigest digest, BlockBuilder out)
+    {
+        if (digest == null || digest.getCount() == 0.0) {
+            out.appendNull();
+        }
+        else {
+            DynamicSliceOutput sliceOutput = new DynamicSliceOutput(digest.estimatedSerializedSizeInBytes());
+            digest.serialize(sliceOutput);
+            out.appendSlice(sliceOutput.slice());
+        }
+    }
+
+    private static double getAccuracy(BlockCursor accuracies)
+    {
+        if (accuracies == null || accuracies.isNull()) {
+            return ApproximatePercentileAggregation.DEFAULT_ACCURACY;
+        }
+        double accuracy = accuracies.getDouble();
+        checkCondition(accuracy >= ApproximatePercentileAggregation.MIN_ACCURACY && accuracy < 1, INVALID_FUNCTION_ARGUMENT, "Digest accuracy must be at least %s and less than 1", ApproximatePercentileAggregation.MIN_ACCURACY);
+        return accuracy;
+    }
+}
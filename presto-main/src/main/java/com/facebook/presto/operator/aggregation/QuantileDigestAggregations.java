@@ -0,0 +1,24 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.aggregation;
+
+public final class QuantileDigestAggregations
+{
+    public static final AggregationFunction QUANTILE_DIGEST_AGGREGATION = new QuantileDigestAggregation(false);
+    public static final AggregationFunction QUANTILE_DIGEST_WITH_ACCURACY_AGGREGATION = new QuantileDigestAggregation(true);
+
+    public static final AggregationFunction MERGE_QUANTILE_DIGEST_AGGREGATION = new MergeQuantileDigestAggregation();
+
+    private QuantileDigestAggregations() {}
+}
@@ -20,6 +20,7 @@ import com.facebook.presto.operator.Driver;
 import com.facebook.presto.operator.DriverFactory;
 import com.facebook.presto.operator.LookupSource;
 import com.facebook.presto.operator.OperatorContext;
+import com.facebook.presto.operator.Page;
 import com.facebook.presto.operator.PageBuilder;
 import com.facebook.presto.operator.PagesIndex;
 import com.facebook.presto.operator.PipelineContext;
@@ -29,9 +30,11 @@ import com.facebook.presto.operator.index.UnloadedIndexKeyRecordSet.UnloadedInde
 import com.facebook.presto.spi.block.BlockCursor;
 import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import javax.annotation.concurrent.GuardedBy;
@@ -41,12 +44,15 @@ import javax.annotation.concurrent.ThreadSafe;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
 
 @ThreadSafe
 public class IndexLoader
@@ -64,6 +70,8 @@ public class IndexLoader
     private final AtomicReference<TaskContext> taskContextReference = new AtomicReference<>();
     private final List<Integer> indexChannels;
 
+    private final AtomicBoolean loaderScheduled = new AtomicBoolean();
+
     @GuardedBy("this")
     private IndexSnapshotBuilder indexSnapshotBuilder;
 
@@ -122,18 +130,92 @@ public class IndexLoader
 
         synchronized (this) {
             if (!updateRequest.isFinished()) {
-                List<UpdateRequest> requests = new ArrayList<>();
-                updateRequests.drainTo(requests);
+                loadPendingRequests();
+            }
+        }
+
+        // the request was loaded by another thread, which may have failed
+        getUnchecked(updateRequest.getFinishedFuture());
+        return indexSnapshot;
+    }
 
-                batchLoadRequests(requests);
+    /**
+     * Loads the keys of the page in the background, together with the keys requested by other drivers in the meantime.
+     * The returned future completes once all keys of the page are in the current snapshot.
+     * The loads run the index source, which may block, so the executor should be bounded.
+     */
+    public ListenableFuture<?> loadKeysAsync(Page page, List<Integer> keyChannels, Executor executor)
+    {
+        checkNotNull(page, "page is null");
+        checkNotNull(keyChannels, "keyChannels is null");
+        checkNotNull(executor, "executor is null");
 
-                for (UpdateRequest request : requests) {
-                    request.finished();
+        if (page.getPositionCount() == 0) {
+            return Futures.immediateFuture(null);
+        }
+
+        // update requests contain the keys from the current cursor position to the end of the page
+        BlockCursor[] cursors = new BlockCursor[keyChannels.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = page.getBlock(keyChannels.get(i)).cursor();
+            checkState(cursors[i].advanceNextPosition());
+        }
+        UpdateRequest updateRequest = new UpdateRequest(cursors);
+        updateRequests.add(updateRequest);
+
+        // only one load runs at a time, so the requests that arrive while a batch is loading form the next batch
+        if (loaderScheduled.compareAndSet(false, true)) {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    loadInBackground();
                 }
+            });
+        }
+        return updateRequest.getFinishedFuture();
+    }
+
+    private void loadInBackground()
+    {
+        while (true) {
+            try {
+                loadPendingRequests();
+            }
+            catch (Throwable ignored) {
+                // the failure has been reported to the drivers waiting for the requests
+            }
+
+            loaderScheduled.set(false);
+            // requests added before the flag was cleared would otherwise never be loaded
+            if (updateRequests.isEmpty() || !loaderScheduled.compareAndSet(false, true)) {
+                return;
             }
         }
+    }
 
-        return indexSnapshot;
+    private synchronized void loadPendingRequests()
+    {
+        List<UpdateRequest> requests = new ArrayList<>();
+        updateRequests.drainTo(requests);
+        if (requests.isEmpty()) {
+            return;
+        }
+
+        try {
+            batchLoadRequests(requests);
+        }
+        catch (Throwable e) {
+            for (UpdateRequest request : requests) {
+                request.failed(e);
+            }
+            throw Throwables.propagate(e);
+        }
+
+        for (UpdateRequest request : requests) {
+            request.finished();
+        }
     }
 
     private synchronized void batchLoadRequests(List<UpdateRequest> requests)
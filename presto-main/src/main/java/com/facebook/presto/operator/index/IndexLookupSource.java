@@ -46,6 +46,11 @@ public class IndexLookupSource
     public long getJoinPosition(BlockCursor... cursors)
     {
         long position = indexSnapshot.getJoinPosition(cursors);
+        if (position == UNLOADED_INDEX_KEY) {
+            // the key may have been loaded in the background since this snapshot was taken
+            indexSnapshot = indexLoader.getIndexSnapshot();
+            position = indexSnapshot.getJoinPosition(cursors);
+        }
         if (position == UNLOADED_INDEX_KEY) {
             indexSnapshot = indexLoader.getIndexSnapshotForKeys(cursors);
             position = indexSnapshot.getJoinPosition(cursors);
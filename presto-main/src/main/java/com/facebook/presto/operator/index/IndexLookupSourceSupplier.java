@@ -39,6 +39,11 @@ public class IndexLookupSourceSupplier
         this.indexLoader = new IndexLoader(indexChannels, types, snapshotOperatorId, indexBuildDriverFactory, pagesIndexOutput, 100_000);
     }
 
+    public IndexLoader getIndexLoader()
+    {
+        return indexLoader;
+    }
+
     @Override
     public List<Type> getTypes()
     {
@@ -0,0 +1,165 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.index;
+
+import com.facebook.presto.operator.DriverContext;
+import com.facebook.presto.operator.Operator;
+import com.facebook.presto.operator.OperatorContext;
+import com.facebook.presto.operator.OperatorFactory;
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+
+/**
+ * Passes the probe pages of an index join through unchanged, after the index keys of each
+ * page have been loaded in the background. The driver is blocked while the keys of a page
+ * are loading, so it does not hold a thread while the index source is being queried, and
+ * the index loader combines the keys of all drivers waiting at the same time into one batch.
+ */
+public class IndexPrefetchOperator
+        implements Operator
+{
+    public static class IndexPrefetchOperatorFactory
+            implements OperatorFactory
+    {
+        private final int operatorId;
+        private final List<Type> types;
+        private final IndexLoader indexLoader;
+        private final List<Integer> probeKeyChannels;
+        private boolean closed;
+
+        public IndexPrefetchOperatorFactory(int operatorId, List<Type> types, IndexLoader indexLoader, List<Integer> probeKeyChannels)
+        {
+            this.operatorId = operatorId;
+            this.types = ImmutableList.copyOf(checkNotNull(types, "types is null"));
+            this.indexLoader = checkNotNull(indexLoader, "indexLoader is null");
+            this.probeKeyChannels = ImmutableList.copyOf(checkNotNull(probeKeyChannels, "probeKeyChannels is null"));
+        }
+
+        @Override
+        public List<Type> getTypes()
+        {
+            return types;
+        }
+
+        @Override
+        public Operator createOperator(DriverContext driverContext)
+        {
+            checkState(!closed, "Factory is already closed");
+            OperatorContext operatorContext = driverContext.addOperatorContext(operatorId, IndexPrefetchOperator.class.getSimpleName());
+            return new IndexPrefetchOperator(operatorContext, types, indexLoader, probeKeyChannels);
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+
+    private final OperatorContext operatorContext;
+    private final List<Type> types;
+    private final IndexLoader indexLoader;
+    private final List<Integer> probeKeyChannels;
+
+    private Page pendingPage;
+    private ListenableFuture<?> pendingLoad;
+
+    private boolean finishing;
+
+    public IndexPrefetchOperator(OperatorContext operatorContext, List<Type> types, IndexLoader indexLoader, List<Integer> probeKeyChannels)
+    {
+        this.operatorContext = checkNotNull(operatorContext, "operatorContext is null");
+        this.types = ImmutableList.copyOf(checkNotNull(types, "types is null"));
+        this.indexLoader = checkNotNull(indexLoader, "indexLoader is null");
+        this.probeKeyChannels = ImmutableList.copyOf(checkNotNull(probeKeyChannels, "probeKeyChannels is null"));
+
+        indexLoader.setContext(operatorContext.getDriverContext().getPipelineContext().getTaskContext());
+    }
+
+    @Override
+    public OperatorContext getOperatorContext()
+    {
+        return operatorContext;
+    }
+
+    @Override
+    public List<Type> getTypes()
+    {
+        return types;
+    }
+
+    @Override
+    public void finish()
+    {
+        finishing = true;
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return finishing && pendingPage == null;
+    }
+
+    @Override
+    public ListenableFuture<?> isBlocked()
+    {
+        // the driver only wakes up for the futures it is handed, so block on the load
+        // instead of accepting more input while upstream may be blocked as well
+        if (pendingLoad != null && !pendingLoad.isDone()) {
+            return pendingLoad;
+        }
+        return NOT_BLOCKED;
+    }
+
+    @Override
+    public boolean needsInput()
+    {
+        return !finishing && pendingPage == null;
+    }
+
+    @Override
+    public void addInput(Page page)
+    {
+        checkNotNull(page, "page is null");
+        checkState(!finishing, "Operator is finishing");
+        checkState(pendingPage == null, "Operator already has a pending page");
+
+        pendingPage = page;
+        pendingLoad = indexLoader.loadKeysAsync(page, probeKeyChannels, operatorContext.getHelperExecutor());
+    }
+
+    @Override
+    public Page getOutput()
+    {
+        if (pendingLoad == null || !pendingLoad.isDone()) {
+            return null;
+        }
+
+        // fail the driver if the keys could not be loaded
+        getUnchecked(pendingLoad);
+
+        Page page = pendingPage;
+        pendingPage = null;
+        pendingLoad = null;
+        return page;
+    }
+}
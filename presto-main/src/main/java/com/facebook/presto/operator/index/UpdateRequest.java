@@ -15,11 +15,12 @@ package com.facebook.presto.operator.index;
 
 import com.facebook.presto.spi.block.BlockCursor;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -27,7 +28,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 class UpdateRequest
 {
     private final List<BlockCursor> cursors;
-    private final AtomicBoolean finished = new AtomicBoolean();
+    private final SettableFuture<?> finished = SettableFuture.create();
 
     public UpdateRequest(BlockCursor... cursors)
     {
@@ -51,11 +52,21 @@ class UpdateRequest
 
     public void finished()
     {
-        finished.set(true);
+        finished.set(null);
+    }
+
+    public void failed(Throwable cause)
+    {
+        finished.setException(cause);
     }
 
     public boolean isFinished()
     {
-        return finished.get();
+        return finished.isDone();
+    }
+
+    public ListenableFuture<?> getFinishedFuture()
+    {
+        return finished;
     }
 }
@@ -14,11 +14,11 @@
 package com.facebook.presto.operator.scalar;
 
 import com.facebook.presto.operator.Description;
+import com.facebook.presto.operator.aggregation.AdaptiveHyperLogLog;
 import com.facebook.presto.spi.type.BigintType;
 import com.facebook.presto.spi.type.HyperLogLogType;
 import com.facebook.presto.type.SqlType;
 import io.airlift.slice.Slice;
-import io.airlift.stats.cardinality.HyperLogLog;
 
 public final class HyperLogLogFunctions
 {
@@ -29,6 +29,6 @@ public final class HyperLogLogFunctions
     @SqlType(BigintType.class)
     public static long cardinality(@SqlType(HyperLogLogType.class) Slice serializedHll)
     {
-        return HyperLogLog.newInstance(serializedHll).cardinality();
+        return AdaptiveHyperLogLog.deserialize(serializedHll).estimate();
     }
 }
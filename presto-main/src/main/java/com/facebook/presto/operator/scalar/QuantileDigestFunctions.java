@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.scalar;
+
+import com.facebook.presto.operator.Description;
+import com.facebook.presto.spi.type.BigintType;
+import com.facebook.presto.spi.type.DoubleType;
+import com.facebook.presto.spi.type.QuantileDigestType;
+import com.facebook.presto.type.SqlType;
+import io.airlift.slice.Slice;
+import io.airlift.stats.QuantileDigest;
+
+import static com.facebook.presto.spi.StandardErrorCode.INVALID_FUNCTION_ARGUMENT;
+import static com.facebook.presto.util.Failures.checkCondition;
+
+public final class QuantileDigestFunctions
+{
+    private QuantileDigestFunctions() {}
+
+    @ScalarFunction
+    @Description("return the approximate value at the given quantile of a quantile digest")
+    @SqlType(BigintType.class)
+    public static long valueAtQuantile(@SqlType(QuantileDigestType.class) Slice serializedDigest, @SqlType(DoubleType.class) double quantile)
+    {
+        checkCondition(0 <= quantile && quantile <= 1, INVALID_FUNCTION_ARGUMENT, "Quantile must be between 0 and 1");
+        return QuantileDigest.deserialize(serializedDigest.getInput()).getQuantile(quantile);
+    }
+}
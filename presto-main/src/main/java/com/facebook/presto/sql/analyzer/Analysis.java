@@ -77,6 +77,9 @@ public class Analysis
     // for create table
     private Optional<QualifiedTableName> createTableDestination = Optional.absent();
 
+    // for explain analyze
+    private boolean explainAnalyze;
+
     public Query getQuery()
     {
         return query;
@@ -304,6 +307,16 @@ public class Analysis
         return createTableDestination;
     }
 
+    public void setExplainAnalyze(boolean explainAnalyze)
+    {
+        this.explainAnalyze = explainAnalyze;
+    }
+
+    public boolean isExplainAnalyze()
+    {
+        return explainAnalyze;
+    }
+
     public Query getNamedQuery(Table table)
     {
         return namedQueries.get(table);
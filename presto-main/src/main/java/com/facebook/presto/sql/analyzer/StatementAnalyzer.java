@@ -63,6 +63,7 @@ import static com.facebook.presto.connector.informationSchema.InformationSchemaM
 import static com.facebook.presto.connector.informationSchema.InformationSchemaMetadata.TABLE_TABLES;
 import static com.facebook.presto.connector.system.CatalogSystemTable.CATALOG_TABLE_NAME;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.sql.QueryUtil.aliased;
 import static com.facebook.presto.sql.QueryUtil.aliasedName;
 import static com.facebook.presto.sql.QueryUtil.ascending;
@@ -387,6 +388,10 @@ class StatementAnalyzer
     protected TupleDescriptor visitExplain(Explain node, AnalysisContext context)
             throws SemanticException
     {
+        if (node.isAnalyze()) {
+            return analyzeExplainAnalyze(node, context);
+        }
+
         checkState(queryExplainer.isPresent(), "query explainer not available");
         ExplainType.Type planType = LOGICAL;
         ExplainFormat.Type planFormat = TEXT;
@@ -430,6 +435,22 @@ class StatementAnalyzer
         return process(query, context);
     }
 
+    private TupleDescriptor analyzeExplainAnalyze(Explain node, AnalysisContext context)
+    {
+        if (!(node.getStatement() instanceof Query)) {
+            throw new SemanticException(NOT_SUPPORTED, node, "EXPLAIN ANALYZE is only supported for queries");
+        }
+        if (!node.getOptions().isEmpty()) {
+            throw new SemanticException(NOT_SUPPORTED, node, "EXPLAIN ANALYZE does not support options");
+        }
+
+        // run the query itself; the plan annotated with the runtime statistics replaces its output
+        analysis.setExplainAnalyze(true);
+        process(node.getStatement(), context);
+
+        return new TupleDescriptor(Field.newUnqualified("Query Plan", VARCHAR));
+    }
+
     private String getQueryPlan(Explain node, ExplainType.Type planType, ExplainFormat.Type planFormat)
             throws IllegalArgumentException
     {
@@ -120,7 +120,8 @@ public class JoinCompiler
         Class<? extends LookupSource> lookupSourceClass = IsolatedClass.isolateClass(
                 classLoader,
                 LookupSource.class,
-                InMemoryJoinHash.class);
+                InMemoryJoinHash.class,
+                InMemoryJoinHash.ParallelBuilder.class);
 
         return new LookupSourceFactory(lookupSourceClass, new PagesHashStrategyFactory(pagesHashStrategyClass));
     }
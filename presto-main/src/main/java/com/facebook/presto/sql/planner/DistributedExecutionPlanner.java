@@ -23,6 +23,7 @@ import com.facebook.presto.split.SplitManager;
 import com.facebook.presto.sql.planner.plan.AggregationNode;
 import com.facebook.presto.sql.planner.plan.DistinctLimitNode;
 import com.facebook.presto.sql.planner.plan.ExchangeNode;
+import com.facebook.presto.sql.planner.plan.ExplainAnalyzeNode;
 import com.facebook.presto.sql.planner.plan.FilterNode;
 import com.facebook.presto.sql.planner.plan.IndexJoinNode;
 import com.facebook.presto.sql.planner.plan.JoinNode;
@@ -252,6 +253,12 @@ public class DistributedExecutionPlanner
             return node.getSource().accept(this, context);
         }
 
+        @Override
+        public Optional<SplitSource> visitExplainAnalyze(ExplainAnalyzeNode node, Void context)
+        {
+            return node.getSource().accept(this, context);
+        }
+
         @Override
         protected Optional<SplitSource> visitPlan(PlanNode node, Void context)
         {
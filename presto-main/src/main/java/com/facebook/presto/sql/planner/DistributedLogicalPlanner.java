@@ -23,6 +23,7 @@ import com.facebook.presto.sql.planner.PlanFragment.PlanDistribution;
 import com.facebook.presto.sql.planner.plan.AggregationNode;
 import com.facebook.presto.sql.planner.plan.DistinctLimitNode;
 import com.facebook.presto.sql.planner.plan.ExchangeNode;
+import com.facebook.presto.sql.planner.plan.ExplainAnalyzeNode;
 import com.facebook.presto.sql.planner.plan.FilterNode;
 import com.facebook.presto.sql.planner.plan.IndexJoinNode;
 import com.facebook.presto.sql.planner.plan.JoinNode;
@@ -420,6 +421,24 @@ public class DistributedLogicalPlanner
             return current;
         }
 
+        @Override
+        public SubPlanBuilder visitExplainAnalyze(ExplainAnalyzeNode node, Void context)
+        {
+            SubPlanBuilder current = node.getSource().accept(this, context);
+
+            if (!createSingleNodePlan) {
+                current.setRoot(new SinkNode(idAllocator.getNextId(), current.getRoot(), current.getRoot().getOutputSymbols()));
+
+                // the statistics are collected from the query manager, so the analyzed query must run in stages below a coordinator-only fragment
+                current = createCoordinatorOnlyPlan(new ExchangeNode(idAllocator.getNextId(), current.getId(), current.getRoot().getOutputSymbols()))
+                        .addChild(current.build());
+            }
+
+            current.setRoot(new ExplainAnalyzeNode(node.getId(), current.getRoot(), node.getOutputSymbol()));
+
+            return current;
+        }
+
         @Override
         public SubPlanBuilder visitJoin(JoinNode node, Void context)
         {
@@ -14,6 +14,8 @@
 package com.facebook.presto.sql.planner;
 
 import com.facebook.presto.block.BlockUtils;
+import com.facebook.presto.execution.QueryPerformanceFetcher;
+import com.facebook.presto.execution.TaskManagerConfig;
 import com.facebook.presto.index.IndexManager;
 import com.facebook.presto.metadata.ColumnHandle;
 import com.facebook.presto.metadata.Metadata;
@@ -48,11 +50,13 @@ import com.facebook.presto.operator.ScanFilterAndProjectOperator.ScanFilterAndPr
 import com.facebook.presto.operator.SetBuilderOperator.SetBuilderOperatorFactory;
 import com.facebook.presto.operator.SetBuilderOperator.SetSupplier;
 import com.facebook.presto.operator.SourceOperatorFactory;
+import com.facebook.presto.operator.StreamingAggregationOperator.StreamingAggregationOperatorFactory;
 import com.facebook.presto.operator.TableScanOperator.TableScanOperatorFactory;
 import com.facebook.presto.operator.TopNOperator.TopNOperatorFactory;
 import com.facebook.presto.operator.ValuesOperator.ValuesOperatorFactory;
 import com.facebook.presto.operator.WindowOperator.WindowOperatorFactory;
 import com.facebook.presto.operator.index.IndexLookupSourceSupplier;
+import com.facebook.presto.operator.index.IndexPrefetchOperator.IndexPrefetchOperatorFactory;
 import com.facebook.presto.operator.index.IndexSourceOperator;
 import com.facebook.presto.operator.window.WindowFunction;
 import com.facebook.presto.spi.ConnectorSession;
@@ -67,6 +71,7 @@ import com.facebook.presto.sql.planner.optimizations.IndexJoinOptimizer;
 import com.facebook.presto.sql.planner.plan.AggregationNode;
 import com.facebook.presto.sql.planner.plan.DistinctLimitNode;
 import com.facebook.presto.sql.planner.plan.ExchangeNode;
+import com.facebook.presto.sql.planner.plan.ExplainAnalyzeNode;
 import com.facebook.presto.sql.planner.plan.FilterNode;
 import com.facebook.presto.sql.planner.plan.IndexJoinNode;
 import com.facebook.presto.sql.planner.plan.IndexSourceNode;
@@ -76,6 +81,7 @@ import com.facebook.presto.sql.planner.plan.MarkDistinctNode;
 import com.facebook.presto.sql.planner.plan.MaterializeSampleNode;
 import com.facebook.presto.sql.planner.plan.OutputNode;
 import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.sql.planner.plan.PlanVisitor;
 import com.facebook.presto.sql.planner.plan.ProjectNode;
 import com.facebook.presto.sql.planner.plan.SampleNode;
@@ -132,6 +138,7 @@ import java.util.Map;
 import java.util.Set;
 
 import static com.facebook.presto.operator.DistinctLimitOperator.DistinctLimitOperatorFactory;
+import static com.facebook.presto.operator.ExplainAnalyzeOperator.ExplainAnalyzeOperatorFactory;
 import static com.facebook.presto.operator.TableCommitOperator.TableCommitOperatorFactory;
 import static com.facebook.presto.operator.TableCommitOperator.TableCommitter;
 import static com.facebook.presto.operator.TableWriterOperator.TableWriterOperatorFactory;
@@ -160,6 +167,8 @@ public class LocalExecutionPlanner
     private final RecordSinkManager recordSinkManager;
     private final Supplier<ExchangeClient> exchangeClientSupplier;
     private final ExpressionCompiler compiler;
+    private final QueryPerformanceFetcher queryPerformanceFetcher;
+    private final int taskConcurrency;
 
     @Inject
     public LocalExecutionPlanner(NodeInfo nodeInfo,
@@ -168,7 +177,9 @@ public class LocalExecutionPlanner
             IndexManager indexManager,
             RecordSinkManager recordSinkManager,
             Supplier<ExchangeClient> exchangeClientSupplier,
-            ExpressionCompiler compiler)
+            ExpressionCompiler compiler,
+            QueryPerformanceFetcher queryPerformanceFetcher,
+            TaskManagerConfig taskManagerConfig)
     {
         this.nodeInfo = checkNotNull(nodeInfo, "nodeInfo is null");
         this.dataStreamProvider = dataStreamProvider;
@@ -177,6 +188,8 @@ public class LocalExecutionPlanner
         this.metadata = checkNotNull(metadata, "metadata is null");
         this.recordSinkManager = checkNotNull(recordSinkManager, "recordSinkManager is null");
         this.compiler = checkNotNull(compiler, "compiler is null");
+        this.queryPerformanceFetcher = checkNotNull(queryPerformanceFetcher, "queryPerformanceFetcher is null");
+        this.taskConcurrency = checkNotNull(taskManagerConfig, "taskManagerConfig is null").getTaskDefaultConcurrency();
     }
 
     public LocalExecutionPlan plan(ConnectorSession session,
@@ -192,8 +205,9 @@ public class LocalExecutionPlanner
                 true,
                 ImmutableList.<OperatorFactory>builder()
                         .addAll(physicalOperation.getOperatorFactories())
-                        .add(outputOperatorFactory.createOutputOperator(context.getNextOperatorId(), physicalOperation.getTypes()))
-                        .build());
+                        .add(outputOperatorFactory.createOutputOperator(context.getNextOperatorId(plan.getId()), physicalOperation.getTypes()))
+                        .build(),
+                context.getOperatorPlanNodeIds());
         context.addDriverFactory(driverFactory);
 
         return new LocalExecutionPlan(context.getDriverFactories());
@@ -206,6 +220,8 @@ public class LocalExecutionPlanner
         private final List<DriverFactory> driverFactories;
         private final Optional<IndexSourceContext> indexSourceContext;
 
+        private final Map<Integer, PlanNodeId> operatorPlanNodeIds = new HashMap<>();
+
         private int nextOperatorId;
         private boolean inputDriver = true;
 
@@ -247,11 +263,26 @@ public class LocalExecutionPlanner
             return indexSourceContext;
         }
 
+        private int getNextOperatorId(PlanNodeId planNodeId)
+        {
+            int operatorId = getNextOperatorId();
+            operatorPlanNodeIds.put(operatorId, planNodeId);
+            return operatorId;
+        }
+
+        /**
+         * Allocates an operator id that is not attributed to any plan node, such as the local exchanges added by the planner.
+         */
         private int getNextOperatorId()
         {
             return nextOperatorId++;
         }
 
+        private Map<Integer, PlanNodeId> getOperatorPlanNodeIds()
+        {
+            return ImmutableMap.copyOf(operatorPlanNodeIds);
+        }
+
         private boolean isInputDriver()
         {
             return inputDriver;
@@ -319,7 +350,7 @@ public class LocalExecutionPlanner
         {
             List<Type> types = getSourceOperatorTypes(node, context.getTypes());
 
-            OperatorFactory operatorFactory = new ExchangeOperatorFactory(context.getNextOperatorId(), node.getId(), exchangeClientSupplier, types);
+            OperatorFactory operatorFactory = new ExchangeOperatorFactory(context.getNextOperatorId(node.getId()), node.getId(), exchangeClientSupplier, types);
 
             ImmutableMap.Builder<Symbol, Input> outputMappings = ImmutableMap.builder();
             int channel = 0;
@@ -355,15 +386,25 @@ public class LocalExecutionPlanner
             // otherwise, introduce a projection to match the expected output
             IdentityProjectionInfo mappings = computeIdentityMapping(resultSymbols, source.getLayout(), context.getTypes());
 
-            OperatorFactory operatorFactory = new FilterAndProjectOperatorFactory(context.getNextOperatorId(), FilterFunctions.TRUE_FUNCTION, mappings.getProjections());
+            OperatorFactory operatorFactory = new FilterAndProjectOperatorFactory(context.getNextOperatorId(node.getId()), FilterFunctions.TRUE_FUNCTION, mappings.getProjections());
             return new PhysicalOperation(operatorFactory, mappings.getOutputLayout(), source);
         }
 
         @Override
         public PhysicalOperation visitWindow(WindowNode node, LocalExecutionPlanContext context)
         {
+            if (isLocallyPartitioned(node.getPartitionBy(), context)) {
+                LocalExecutionPlanContext partitionContext = context.createSubContext();
+                PhysicalOperation source = createPartitionedInMemoryExchange(node.getSource(), node.getPartitionBy(), partitionContext);
+                return createGatheringInMemoryExchange(planWindow(node, source, partitionContext), partitionContext, context);
+            }
+
             PhysicalOperation source = node.getSource().accept(this, context);
+            return planWindow(node, source, context);
+        }
 
+        private PhysicalOperation planWindow(WindowNode node, PhysicalOperation source, LocalExecutionPlanContext context)
+        {
             List<Symbol> partitionBySymbols = node.getPartitionBy();
             List<Symbol> orderBySymbols = node.getOrderBy();
 
@@ -408,7 +449,7 @@ public class LocalExecutionPlanner
             }
 
             OperatorFactory operatorFactory = new WindowOperatorFactory(
-                    context.getNextOperatorId(),
+                    context.getNextOperatorId(node.getId()),
                     source.getTypes(),
                     outputChannels.build(),
                     windowFunctions.build(),
@@ -437,7 +478,7 @@ public class LocalExecutionPlanner
             Optional<Integer> sampleWeightChannel = node.getSampleWeight().transform(source.channelGetter());
 
             OperatorFactory operator = new TopNOperatorFactory(
-                    context.getNextOperatorId(),
+                    context.getNextOperatorId(node.getId()),
                     source.getTypes(),
                     (int) node.getCount(),
                     sortChannels,
@@ -468,7 +509,7 @@ public class LocalExecutionPlanner
             }
 
             OperatorFactory operator = new OrderByOperatorFactory(
-                    context.getNextOperatorId(),
+                    context.getNextOperatorId(node.getId()),
                     source.getTypes(),
                     outputChannels.build(),
                     10_000,
@@ -485,7 +526,7 @@ public class LocalExecutionPlanner
 
             Optional<Integer> sampleWeightChannel = node.getSampleWeight().transform(source.channelGetter());
 
-            OperatorFactory operatorFactory = new LimitOperatorFactory(context.getNextOperatorId(), source.getTypes(), node.getCount(), sampleWeightChannel);
+            OperatorFactory operatorFactory = new LimitOperatorFactory(context.getNextOperatorId(node.getId()), source.getTypes(), node.getCount(), sampleWeightChannel);
             return new PhysicalOperation(operatorFactory, source.getLayout(), source);
         }
 
@@ -494,7 +535,7 @@ public class LocalExecutionPlanner
         {
             PhysicalOperation source = node.getSource().accept(this, context);
             OperatorFactory operatorFactory = new DistinctLimitOperatorFactory(
-                    context.getNextOperatorId(),
+                    context.getNextOperatorId(node.getId()),
                     source.getTypes(),
                     node.getLimit());
             return new PhysicalOperation(operatorFactory, source.getLayout(), source);
@@ -503,10 +544,17 @@ public class LocalExecutionPlanner
         @Override
         public PhysicalOperation visitAggregation(AggregationNode node, LocalExecutionPlanContext context)
         {
+            // partial aggregations already run in every driver of their source, and clustered input is aggregated while streaming
+            if (node.getStep() != AggregationNode.Step.PARTIAL && isLocallyPartitioned(node.getGroupBy(), context) && !isClusteredBy(node.getSource(), ImmutableSet.copyOf(node.getGroupBy()))) {
+                LocalExecutionPlanContext partitionContext = context.createSubContext();
+                PhysicalOperation source = createPartitionedInMemoryExchange(node.getSource(), node.getGroupBy(), partitionContext);
+                return createGatheringInMemoryExchange(planGroupByAggregation(node, source, partitionContext), partitionContext, context);
+            }
+
             PhysicalOperation source = node.getSource().accept(this, context);
 
             if (node.getGroupBy().isEmpty()) {
-                return planGlobalAggregation(context.getNextOperatorId(), node, source);
+                return planGlobalAggregation(context.getNextOperatorId(node.getId()), node, source);
             }
 
             return planGroupByAggregation(node, source, context);
@@ -526,7 +574,7 @@ public class LocalExecutionPlanner
 
             Optional<Integer> sampleWeightChannel = node.getSampleWeightSymbol().transform(source.channelGetter());
 
-            MarkDistinctOperatorFactory operator = new MarkDistinctOperatorFactory(context.getNextOperatorId(), source.getTypes(), channels, sampleWeightChannel);
+            MarkDistinctOperatorFactory operator = new MarkDistinctOperatorFactory(context.getNextOperatorId(node.getId()), source.getTypes(), channels, sampleWeightChannel);
             return new PhysicalOperation(operator, outputMappings, source);
         }
 
@@ -551,7 +599,7 @@ public class LocalExecutionPlanner
             types.addAll(source.getTypes());
             types.remove(sampleWeightChannel);
 
-            MaterializeSampleOperator.MaterializeSampleOperatorFactory operator = new MaterializeSampleOperator.MaterializeSampleOperatorFactory(context.getNextOperatorId(), types, sampleWeightChannel);
+            MaterializeSampleOperator.MaterializeSampleOperatorFactory operator = new MaterializeSampleOperator.MaterializeSampleOperatorFactory(context.getNextOperatorId(node.getId()), types, sampleWeightChannel);
             return new PhysicalOperation(operator, outputMappings.build(), source);
         }
 
@@ -565,7 +613,7 @@ public class LocalExecutionPlanner
 
             if (node.getSampleType() == SampleNode.Type.POISSONIZED) {
                 PhysicalOperation source = node.getSource().accept(this, context);
-                OperatorFactory operatorFactory = new SampleOperatorFactory(context.getNextOperatorId(), node.getSampleRatio(), node.isRescaled(), source.getTypes());
+                OperatorFactory operatorFactory = new SampleOperatorFactory(context.getNextOperatorId(node.getId()), node.getSampleRatio(), node.isRescaled(), source.getTypes());
                 checkState(node.getSampleWeightSymbol().isPresent(), "sample weight symbol missing");
                 Map<Symbol, Input> layout = ImmutableMap.<Symbol, Input>builder().putAll(source.getLayout()).put(node.getSampleWeightSymbol().get(), new Input(source.getTypes().size())).build();
                 return new PhysicalOperation(operatorFactory, layout, source);
@@ -589,7 +637,7 @@ public class LocalExecutionPlanner
 
             List<Symbol> outputSymbols = node.getOutputSymbols();
 
-            return visitScanFilterAndProject(context, sourceNode, filterExpression, projectionExpressions, outputSymbols);
+            return visitScanFilterAndProject(context, node.getId(), sourceNode, filterExpression, projectionExpressions, outputSymbols);
         }
 
         @Override
@@ -611,11 +659,12 @@ public class LocalExecutionPlanner
 
             List<Symbol> outputSymbols = node.getOutputSymbols();
 
-            return visitScanFilterAndProject(context, sourceNode, filterExpression, projectionExpressions, outputSymbols);
+            return visitScanFilterAndProject(context, node.getId(), sourceNode, filterExpression, projectionExpressions, outputSymbols);
         }
 
         private PhysicalOperation visitScanFilterAndProject(
                 LocalExecutionPlanContext context,
+                PlanNodeId planNodeId,
                 PlanNode sourceNode,
                 Expression filterExpression,
                 List<Expression> projectionExpressions,
@@ -683,7 +732,7 @@ public class LocalExecutionPlanner
 
                 if (columns != null) {
                     SourceOperatorFactory operatorFactory = compiler.compileScanFilterAndProjectOperator(
-                            context.getNextOperatorId(),
+                            context.getNextOperatorId(planNodeId),
                             sourceNode.getId(),
                             dataStreamProvider,
                             columns,
@@ -696,7 +745,7 @@ public class LocalExecutionPlanner
                 }
                 else {
                     OperatorFactory operatorFactory = compiler.compileFilterAndProjectOperator(
-                            context.getNextOperatorId(),
+                            context.getNextOperatorId(planNodeId),
                             rewrittenFilter,
                             rewrittenProjections,
                             expressionTypes,
@@ -739,7 +788,7 @@ public class LocalExecutionPlanner
 
             if (columns != null) {
                 OperatorFactory operatorFactory = new ScanFilterAndProjectOperatorFactory(
-                        context.getNextOperatorId(),
+                        context.getNextOperatorId(planNodeId),
                         sourceNode.getId(),
                         dataStreamProvider,
                         columns,
@@ -749,7 +798,7 @@ public class LocalExecutionPlanner
                 return new PhysicalOperation(operatorFactory, outputMappings);
             }
             else {
-                OperatorFactory operatorFactory = new FilterAndProjectOperatorFactory(context.getNextOperatorId(), filterFunction, projectionFunctions);
+                OperatorFactory operatorFactory = new FilterAndProjectOperatorFactory(context.getNextOperatorId(planNodeId), filterFunction, projectionFunctions);
                 return new PhysicalOperation(operatorFactory, outputMappings, source);
             }
         }
@@ -779,7 +828,7 @@ public class LocalExecutionPlanner
             }
 
             List<Type> types = getSourceOperatorTypes(node, context.getTypes());
-            OperatorFactory operatorFactory = new TableScanOperatorFactory(context.getNextOperatorId(), node.getId(), dataStreamProvider, types, columns);
+            OperatorFactory operatorFactory = new TableScanOperatorFactory(context.getNextOperatorId(node.getId()), node.getId(), dataStreamProvider, types, columns);
             return new PhysicalOperation(operatorFactory, outputMappings.build());
         }
 
@@ -811,7 +860,7 @@ public class LocalExecutionPlanner
                 }
             }
 
-            OperatorFactory operatorFactory = new ValuesOperatorFactory(context.getNextOperatorId(), ImmutableList.of(pageBuilder.build()));
+            OperatorFactory operatorFactory = new ValuesOperatorFactory(context.getNextOperatorId(node.getId()), ImmutableList.of(pageBuilder.build()));
             return new PhysicalOperation(operatorFactory, outputMappings);
         }
 
@@ -849,7 +898,7 @@ public class LocalExecutionPlanner
             Index index = indexManager.getIndex(node.getIndexHandle(), lookupSchema, outputSchema);
 
             List<Type> types = getSourceOperatorTypes(node, context.getTypes());
-            OperatorFactory operatorFactory = new IndexSourceOperator.IndexSourceOperatorFactory(context.getNextOperatorId(), node.getId(), index, types, remappedProbeKeyChannels);
+            OperatorFactory operatorFactory = new IndexSourceOperator.IndexSourceOperatorFactory(context.getNextOperatorId(node.getId()), node.getId(), index, types, remappedProbeKeyChannels);
             return new PhysicalOperation(operatorFactory, outputMappings.build());
         }
 
@@ -909,7 +958,7 @@ public class LocalExecutionPlanner
             List<Integer> indexChannels = getChannelsForSymbols(indexSymbols, indexSource.getLayout());
 
             PagesIndexBuilderOperatorFactory pagesIndexOutput = new PagesIndexBuilderOperatorFactory(
-                    indexContext.getNextOperatorId(),
+                    indexContext.getNextOperatorId(node.getId()),
                     indexSource.getTypes()
             );
 
@@ -919,15 +968,22 @@ public class LocalExecutionPlanner
                     ImmutableList.<OperatorFactory>builder()
                             .addAll(indexSource.getOperatorFactories())
                             .add(pagesIndexOutput)
-                            .build());
+                            .build(),
+                    indexContext.getOperatorPlanNodeIds());
 
             IndexLookupSourceSupplier indexLookupSourceSupplier = new IndexLookupSourceSupplier(
                     indexChannels,
                     indexSource.getTypes(),
-                    indexContext.getNextOperatorId(),
+                    indexContext.getNextOperatorId(node.getId()),
                     indexBuildDriverFactory,
                     pagesIndexOutput);
 
+            // load the index keys of the probe pages in the background before they reach the join
+            probeSource = new PhysicalOperation(
+                    new IndexPrefetchOperatorFactory(context.getNextOperatorId(node.getId()), probeSource.getTypes(), indexLookupSourceSupplier.getIndexLoader(), probeChannels),
+                    probeSource.getLayout(),
+                    probeSource);
+
             ImmutableMap.Builder<Symbol, Input> outputMappings = ImmutableMap.builder();
             outputMappings.putAll(probeSource.getLayout());
 
@@ -942,10 +998,10 @@ public class LocalExecutionPlanner
             OperatorFactory lookupJoinOperatorFactory;
             switch (node.getType()) {
                 case INNER:
-                    lookupJoinOperatorFactory = LookupJoinOperators.innerJoin(context.getNextOperatorId(), indexLookupSourceSupplier, probeSource.getTypes(), probeChannels);
+                    lookupJoinOperatorFactory = LookupJoinOperators.innerJoin(context.getNextOperatorId(node.getId()), indexLookupSourceSupplier, probeSource.getTypes(), probeChannels);
                     break;
                 case SOURCE_OUTER:
-                    lookupJoinOperatorFactory = LookupJoinOperators.outerJoin(context.getNextOperatorId(), indexLookupSourceSupplier, probeSource.getTypes(), probeChannels);
+                    lookupJoinOperatorFactory = LookupJoinOperators.outerJoin(context.getNextOperatorId(node.getId()), indexLookupSourceSupplier, probeSource.getTypes(), probeChannels);
                     break;
                 default:
                     throw new AssertionError("Unknown type: " + node.getType());
@@ -989,7 +1045,7 @@ public class LocalExecutionPlanner
             List<Integer> buildChannels = ImmutableList.copyOf(getChannelsForSymbols(buildSymbols, buildSource.getLayout()));
 
             HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(
-                    buildContext.getNextOperatorId(),
+                    buildContext.getNextOperatorId(node.getId()),
                     buildSource.getTypes(),
                     buildChannels,
                     100_000);
@@ -1000,7 +1056,8 @@ public class LocalExecutionPlanner
                     ImmutableList.<OperatorFactory>builder()
                             .addAll(buildSource.getOperatorFactories())
                             .add(hashBuilderOperatorFactory)
-                            .build());
+                            .build(),
+                    buildContext.getOperatorPlanNodeIds());
             context.addDriverFactory(buildDriverFactory);
 
             ImmutableMap.Builder<Symbol, Input> outputMappings = ImmutableMap.builder();
@@ -1027,10 +1084,10 @@ public class LocalExecutionPlanner
         {
             switch (type) {
                 case INNER:
-                    return LookupJoinOperators.innerJoin(context.getNextOperatorId(), lookupSourceSupplier, probeTypes, probeJoinChannels);
+                    return LookupJoinOperators.innerJoin(context.getNextOperatorId(node.getId()), lookupSourceSupplier, probeTypes, probeJoinChannels);
                 case LEFT:
                 case RIGHT:
-                    return LookupJoinOperators.outerJoin(context.getNextOperatorId(), lookupSourceSupplier, probeTypes, probeJoinChannels);
+                    return LookupJoinOperators.outerJoin(context.getNextOperatorId(node.getId()), lookupSourceSupplier, probeTypes, probeJoinChannels);
                 default:
                     throw new UnsupportedOperationException("Unsupported join type: " + type);
             }
@@ -1049,7 +1106,7 @@ public class LocalExecutionPlanner
             int probeChannel = probeSource.getLayout().get(node.getSourceJoinSymbol()).getChannel();
             int buildChannel = buildSource.getLayout().get(node.getFilteringSourceJoinSymbol()).getChannel();
 
-            SetBuilderOperatorFactory setBuilderOperatorFactory = new SetBuilderOperatorFactory(buildContext.getNextOperatorId(), buildSource.getTypes(), buildChannel, 100_000);
+            SetBuilderOperatorFactory setBuilderOperatorFactory = new SetBuilderOperatorFactory(buildContext.getNextOperatorId(node.getId()), buildSource.getTypes(), buildChannel, 100_000);
             SetSupplier setProvider = setBuilderOperatorFactory.getSetProvider();
             DriverFactory buildDriverFactory = new DriverFactory(
                     buildContext.isInputDriver(),
@@ -1057,7 +1114,8 @@ public class LocalExecutionPlanner
                     ImmutableList.<OperatorFactory>builder()
                             .addAll(buildSource.getOperatorFactories())
                             .add(setBuilderOperatorFactory)
-                            .build());
+                            .build(),
+                    buildContext.getOperatorPlanNodeIds());
             context.addDriverFactory(buildDriverFactory);
 
             // Source channels are always laid out first, followed by the boolean output symbol
@@ -1066,7 +1124,7 @@ public class LocalExecutionPlanner
                     .put(node.getSemiJoinOutput(), new Input(probeSource.getLayout().size()))
                     .build();
 
-            HashSemiJoinOperatorFactory operator = new HashSemiJoinOperatorFactory(context.getNextOperatorId(), setProvider, probeSource.getTypes(), probeChannel);
+            HashSemiJoinOperatorFactory operator = new HashSemiJoinOperatorFactory(context.getNextOperatorId(node.getId()), setProvider, probeSource.getTypes(), probeChannel);
             return new PhysicalOperation(operator, outputMappings, probeSource);
         }
 
@@ -1084,7 +1142,7 @@ public class LocalExecutionPlanner
 
             if (!projectionMatchesOutput) {
                 IdentityProjectionInfo mappings = computeIdentityMapping(node.getOutputSymbols(), source.getLayout(), context.getTypes());
-                OperatorFactory operatorFactory = new FilterAndProjectOperatorFactory(context.getNextOperatorId(), FilterFunctions.TRUE_FUNCTION, mappings.getProjections());
+                OperatorFactory operatorFactory = new FilterAndProjectOperatorFactory(context.getNextOperatorId(node.getId()), FilterFunctions.TRUE_FUNCTION, mappings.getProjections());
                 // NOTE: the generated output layout may not be completely accurate if the same field was projected as multiple inputs.
                 // However, this should not affect the operation of the sink.
                 return new PhysicalOperation(operatorFactory, mappings.getOutputLayout(), source);
@@ -1112,7 +1170,7 @@ public class LocalExecutionPlanner
                     .transform(exchange.channelGetter())
                     .list();
 
-            OperatorFactory operatorFactory = new TableWriterOperatorFactory(context.getNextOperatorId(), recordSink, types, inputChannels, sampleWeightChannel);
+            OperatorFactory operatorFactory = new TableWriterOperatorFactory(context.getNextOperatorId(node.getId()), recordSink, types, inputChannels, sampleWeightChannel);
 
             Map<Symbol, Input> layout = ImmutableMap.<Symbol, Input>builder()
                     .put(node.getOutputSymbols().get(0), new Input(0))
@@ -1132,11 +1190,11 @@ public class LocalExecutionPlanner
             // create exchange sink
             List<OperatorFactory> factories = ImmutableList.<OperatorFactory>builder()
                     .addAll(source.getOperatorFactories())
-                    .add(exchange.createSinkFactory(subContext.getNextOperatorId()))
+                    .add(exchange.createSinkFactory(subContext.getNextOperatorId(node.getId())))
                     .build();
 
             // add sub-context to current context
-            context.addDriverFactory(new DriverFactory(subContext.isInputDriver(), false, factories));
+            context.addDriverFactory(new DriverFactory(subContext.isInputDriver(), false, factories, subContext.getOperatorPlanNodeIds()));
 
             exchange.noMoreSinkFactories();
 
@@ -1150,21 +1208,86 @@ public class LocalExecutionPlanner
             }
 
             // add exchange source as first operator in the current context
-            OperatorFactory factory = new InMemoryExchangeSourceOperatorFactory(context.getNextOperatorId(), exchange);
+            OperatorFactory factory = new InMemoryExchangeSourceOperatorFactory(context.getNextOperatorId(node.getId()), exchange);
             return new PhysicalOperation(factory, outputMappings.build());
         }
 
+        private boolean isLocallyPartitioned(List<Symbol> partitionSymbols, LocalExecutionPlanContext context)
+        {
+            return taskConcurrency > 1 && !partitionSymbols.isEmpty() && !context.getIndexSourceContext().isPresent();
+        }
+
+        /**
+         * Plans the source in its own pipeline, which partitions its output by the hash of the partition symbols
+         * into one buffer per driver of the pipeline of the specified context.
+         */
+        private PhysicalOperation createPartitionedInMemoryExchange(PlanNode node, List<Symbol> partitionSymbols, LocalExecutionPlanContext context)
+        {
+            LocalExecutionPlanContext subContext = context.createSubContext();
+            PhysicalOperation source = node.accept(this, subContext);
+
+            List<Integer> partitionChannels = getChannelsForSymbols(partitionSymbols, source.getLayout());
+            InMemoryExchange exchange = new InMemoryExchange(source.getTypes(), taskConcurrency, partitionChannels);
+
+            List<OperatorFactory> factories = ImmutableList.<OperatorFactory>builder()
+                    .addAll(source.getOperatorFactories())
+                    .add(exchange.createSinkFactory(subContext.getNextOperatorId()))
+                    .build();
+            context.addDriverFactory(new DriverFactory(subContext.isInputDriver(), false, factories, subContext.getOperatorPlanNodeIds()));
+
+            exchange.noMoreSinkFactories();
+
+            // the partitioned drivers are not an input: the source is the input for the plan
+            context.setInputDriver(false);
+
+            OperatorFactory factory = new InMemoryExchangeSourceOperatorFactory(context.getNextOperatorId(), exchange);
+            return new PhysicalOperation(factory, source.getLayout());
+        }
+
+        /**
+         * Runs the operators of the partitioned context in one driver per buffer of its partitioned exchange,
+         * and gathers their output into a single stream for the current context.
+         */
+        private PhysicalOperation createGatheringInMemoryExchange(PhysicalOperation source, LocalExecutionPlanContext partitionContext, LocalExecutionPlanContext context)
+        {
+            InMemoryExchange exchange = new InMemoryExchange(source.getTypes());
+
+            List<OperatorFactory> factories = ImmutableList.<OperatorFactory>builder()
+                    .addAll(source.getOperatorFactories())
+                    .add(exchange.createSinkFactory(partitionContext.getNextOperatorId()))
+                    .build();
+            context.addDriverFactory(new DriverFactory(partitionContext.isInputDriver(), false, factories, partitionContext.getOperatorPlanNodeIds(), taskConcurrency));
+
+            exchange.noMoreSinkFactories();
+
+            context.setInputDriver(false);
+
+            OperatorFactory factory = new InMemoryExchangeSourceOperatorFactory(context.getNextOperatorId(), exchange);
+            return new PhysicalOperation(factory, source.getLayout());
+        }
+
         @Override
         public PhysicalOperation visitTableCommit(TableCommitNode node, LocalExecutionPlanContext context)
         {
             PhysicalOperation source = node.getSource().accept(this, context);
 
-            OperatorFactory operatorFactory = new TableCommitOperatorFactory(context.getNextOperatorId(), createTableCommitter(node, metadata));
+            OperatorFactory operatorFactory = new TableCommitOperatorFactory(context.getNextOperatorId(node.getId()), createTableCommitter(node, metadata));
             Map<Symbol, Input> layout = ImmutableMap.of(node.getOutputSymbols().get(0), new Input(0));
 
             return new PhysicalOperation(operatorFactory, layout, source);
         }
 
+        @Override
+        public PhysicalOperation visitExplainAnalyze(ExplainAnalyzeNode node, LocalExecutionPlanContext context)
+        {
+            PhysicalOperation source = node.getSource().accept(this, context);
+
+            OperatorFactory operatorFactory = new ExplainAnalyzeOperatorFactory(context.getNextOperatorId(node.getId()), queryPerformanceFetcher, metadata);
+            Map<Symbol, Input> layout = ImmutableMap.of(node.getOutputSymbol(), new Input(0));
+
+            return new PhysicalOperation(operatorFactory, layout, source);
+        }
+
         @Override
         public PhysicalOperation visitUnion(UnionNode node, LocalExecutionPlanContext context)
         {
@@ -1187,12 +1310,12 @@ public class LocalExecutionPlanner
 
                 if (!projectionMatchesOutput) {
                     IdentityProjectionInfo mappings = computeIdentityMapping(expectedLayout, source.getLayout(), context.getTypes());
-                    operatorFactories.add(new FilterAndProjectOperatorFactory(subContext.getNextOperatorId(), FilterFunctions.TRUE_FUNCTION, mappings.getProjections()));
+                    operatorFactories.add(new FilterAndProjectOperatorFactory(subContext.getNextOperatorId(node.getId()), FilterFunctions.TRUE_FUNCTION, mappings.getProjections()));
                 }
 
-                operatorFactories.add(inMemoryExchange.createSinkFactory(subContext.getNextOperatorId()));
+                operatorFactories.add(inMemoryExchange.createSinkFactory(subContext.getNextOperatorId(node.getId())));
 
-                DriverFactory driverFactory = new DriverFactory(subContext.isInputDriver(), false, operatorFactories);
+                DriverFactory driverFactory = new DriverFactory(subContext.isInputDriver(), false, operatorFactories, subContext.getOperatorPlanNodeIds());
                 context.addDriverFactory(driverFactory);
             }
             inMemoryExchange.noMoreSinkFactories();
@@ -1207,7 +1330,7 @@ public class LocalExecutionPlanner
                 channel++;
             }
 
-            return new PhysicalOperation(new InMemoryExchangeSourceOperatorFactory(context.getNextOperatorId(), inMemoryExchange), outputMappings.build());
+            return new PhysicalOperation(new InMemoryExchangeSourceOperatorFactory(context.getNextOperatorId(node.getId()), inMemoryExchange), outputMappings.build());
         }
 
         @Override
@@ -1303,16 +1426,68 @@ public class LocalExecutionPlanner
                 }
             }));
 
-            OperatorFactory operatorFactory = new HashAggregationOperatorFactory(
-                    context.getNextOperatorId(),
-                    groupByTypes,
-                    groupByChannels,
-                    node.getStep(),
-                    functionDefinitions,
-                    10_000);
+            OperatorFactory operatorFactory;
+            if (isClusteredBy(node.getSource(), ImmutableSet.copyOf(groupBySymbols))) {
+                operatorFactory = new StreamingAggregationOperatorFactory(
+                        context.getNextOperatorId(node.getId()),
+                        groupByTypes,
+                        groupByChannels,
+                        node.getStep(),
+                        functionDefinitions);
+            }
+            else {
+                operatorFactory = new HashAggregationOperatorFactory(
+                        context.getNextOperatorId(node.getId()),
+                        groupByTypes,
+                        groupByChannels,
+                        node.getStep(),
+                        functionDefinitions,
+                        10_000);
+            }
 
             return new PhysicalOperation(operatorFactory, outputMappings.build(), source);
         }
+
+        /**
+         * Are all rows with the same values for the symbols adjacent in the output of a driver running the node?
+         */
+        private boolean isClusteredBy(PlanNode node, Set<Symbol> symbols)
+        {
+            if (node instanceof SortNode) {
+                return isPrefix(((SortNode) node).getOrderBy(), symbols);
+            }
+            if (node instanceof WindowNode) {
+                WindowNode windowNode = (WindowNode) node;
+                // a locally partitioned window interleaves the output of its drivers
+                if (taskConcurrency > 1 && !windowNode.getPartitionBy().isEmpty()) {
+                    return false;
+                }
+                // the window operator sorts by the partition by symbols, then by the order by symbols
+                return isPrefix(ImmutableList.copyOf(concat(windowNode.getPartitionBy(), windowNode.getOrderBy())), symbols);
+            }
+            if (node instanceof FilterNode) {
+                return isClusteredBy(((FilterNode) node).getSource(), symbols);
+            }
+            if (node instanceof LimitNode) {
+                return isClusteredBy(((LimitNode) node).getSource(), symbols);
+            }
+            if (node instanceof ProjectNode) {
+                ProjectNode projectNode = (ProjectNode) node;
+                for (Symbol symbol : symbols) {
+                    Expression expression = projectNode.getOutputMap().get(symbol);
+                    if (!(expression instanceof QualifiedNameReference) || !Symbol.fromQualifiedName(((QualifiedNameReference) expression).getName()).equals(symbol)) {
+                        return false;
+                    }
+                }
+                return isClusteredBy(projectNode.getSource(), symbols);
+            }
+            return false;
+        }
+    }
+
+    private static boolean isPrefix(List<Symbol> orderBy, Set<Symbol> symbols)
+    {
+        return orderBy.size() >= symbols.size() && ImmutableSet.copyOf(orderBy.subList(0, symbols.size())).equals(symbols);
     }
 
     private static TableCommitter createTableCommitter(final TableCommitNode node, final Metadata metadata)
@@ -22,6 +22,7 @@ import com.facebook.presto.spi.ConnectorTableMetadata;
 import com.facebook.presto.sql.analyzer.Analysis;
 import com.facebook.presto.sql.analyzer.Field;
 import com.facebook.presto.sql.planner.optimizations.PlanOptimizer;
+import com.facebook.presto.sql.planner.plan.ExplainAnalyzeNode;
 import com.facebook.presto.sql.planner.plan.OutputNode;
 import com.facebook.presto.sql.planner.plan.PlanNode;
 import com.facebook.presto.sql.planner.plan.TableCommitNode;
@@ -71,6 +72,10 @@ public class LogicalPlanner
             plan = planner.process(analysis.getQuery(), null);
         }
 
+        if (analysis.isExplainAnalyze()) {
+            plan = createExplainAnalyzePlan(plan, analysis);
+        }
+
         PlanNode root = createOutputPlan(plan, analysis);
 
         // make sure we produce a valid plan. This is mainly to catch programming errors
@@ -122,6 +127,13 @@ public class LogicalPlanner
         return new RelationPlan(commitNode, analysis.getOutputDescriptor(), outputs);
     }
 
+    private RelationPlan createExplainAnalyzePlan(RelationPlan plan, Analysis analysis)
+    {
+        Symbol output = symbolAllocator.newSymbol("plan", VARCHAR);
+        ExplainAnalyzeNode explainNode = new ExplainAnalyzeNode(idAllocator.getNextId(), plan.getRoot(), output);
+        return new RelationPlan(explainNode, analysis.getOutputDescriptor(), ImmutableList.of(output));
+    }
+
     private PlanNode createOutputPlan(RelationPlan plan, Analysis analysis)
     {
         ImmutableList.Builder<String> names = ImmutableList.builder();
@@ -13,6 +13,8 @@
  */
 package com.facebook.presto.sql.planner;
 
+import com.facebook.presto.execution.PlanNodeStats;
+import com.facebook.presto.execution.StageInfo;
 import com.facebook.presto.metadata.ColumnHandle;
 import com.facebook.presto.metadata.Metadata;
 import com.facebook.presto.metadata.OperatorInfo;
@@ -30,6 +32,7 @@ import com.facebook.presto.sql.planner.PlanFragment.PlanDistribution;
 import com.facebook.presto.sql.planner.plan.AggregationNode;
 import com.facebook.presto.sql.planner.plan.DistinctLimitNode;
 import com.facebook.presto.sql.planner.plan.ExchangeNode;
+import com.facebook.presto.sql.planner.plan.ExplainAnalyzeNode;
 import com.facebook.presto.sql.planner.plan.FilterNode;
 import com.facebook.presto.sql.planner.plan.IndexJoinNode;
 import com.facebook.presto.sql.planner.plan.IndexSourceNode;
@@ -40,6 +43,7 @@ import com.facebook.presto.sql.planner.plan.MaterializeSampleNode;
 import com.facebook.presto.sql.planner.plan.OutputNode;
 import com.facebook.presto.sql.planner.plan.PlanFragmentId;
 import com.facebook.presto.sql.planner.plan.PlanNode;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.sql.planner.plan.PlanVisitor;
 import com.facebook.presto.sql.planner.plan.ProjectNode;
 import com.facebook.presto.sql.planner.plan.SampleNode;
@@ -66,6 +70,7 @@ import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -84,15 +89,23 @@ public class PlanPrinter
 {
     private final StringBuilder output = new StringBuilder();
     private final Metadata metadata;
+    private final Optional<Map<PlanNodeId, PlanNodeStats>> stats;
 
     private PlanPrinter(PlanNode plan, Map<Symbol, Type> types, Metadata metadata, Optional<Map<PlanFragmentId, PlanFragment>> fragmentsById)
+    {
+        this(plan, types, metadata, fragmentsById, Optional.<Map<PlanNodeId, PlanNodeStats>>absent());
+    }
+
+    private PlanPrinter(PlanNode plan, Map<Symbol, Type> types, Metadata metadata, Optional<Map<PlanFragmentId, PlanFragment>> fragmentsById, Optional<Map<PlanNodeId, PlanNodeStats>> stats)
     {
         checkNotNull(plan, "plan is null");
         checkNotNull(types, "types is null");
         checkNotNull(fragmentsById, "fragmentsById is null");
         checkNotNull(metadata, "metadata is null");
+        checkNotNull(stats, "stats is null");
 
         this.metadata = metadata;
+        this.stats = stats;
 
         Visitor visitor = new Visitor(types, fragmentsById);
         plan.accept(visitor, 0);
@@ -122,6 +135,22 @@ public class PlanPrinter
         return new PlanPrinter(fragment.getRoot(), fragment.getSymbols(), metadata, Optional.of(fragmentsById)).toString();
     }
 
+    /**
+     * Prints the executed plan rooted at the specified stage, annotating each node with its runtime statistics.
+     */
+    public static String textDistributedPlan(StageInfo stageInfo, Metadata metadata)
+    {
+        ImmutableMap.Builder<PlanFragmentId, PlanFragment> fragmentsById = ImmutableMap.builder();
+        for (StageInfo stage : StageInfo.getAllStages(stageInfo)) {
+            if (stage.getPlan() != null) {
+                fragmentsById.put(stage.getPlan().getId(), stage.getPlan());
+            }
+        }
+        PlanFragment fragment = checkNotNull(stageInfo.getPlan(), "stage %s does not have a plan", stageInfo.getStageId());
+        Map<PlanNodeId, PlanNodeStats> stats = PlanNodeStats.aggregatePlanNodeStats(stageInfo);
+        return new PlanPrinter(fragment.getRoot(), fragment.getSymbols(), metadata, Optional.<Map<PlanFragmentId, PlanFragment>>of(fragmentsById.build()), Optional.of(stats)).toString();
+    }
+
     public static String graphvizLogicalPlan(PlanNode plan, Map<Symbol, Type> types)
     {
         PlanFragment fragment = new PlanFragment(new PlanFragmentId("graphviz_plan"), plan, types, PlanDistribution.NONE, plan.getId(), OutputPartitioning.NONE, ImmutableList.<Symbol>of());
@@ -146,6 +175,28 @@ public class PlanPrinter
         output.append(Strings.repeat("    ", indent)).append(value).append('\n');
     }
 
+    private void printStats(int indent, PlanNodeId planNodeId)
+    {
+        if (!stats.isPresent()) {
+            return;
+        }
+        PlanNodeStats nodeStats = stats.get().get(planNodeId);
+        if (nodeStats == null) {
+            return;
+        }
+
+        print(indent, "CPU: %s, Wall: %s, Blocked: %s", nodeStats.getCpuTime(), nodeStats.getWallTime(), nodeStats.getBlockedTime());
+        print(indent, "Input: %s rows (%s), Output: %s rows (%s)",
+                nodeStats.getInputPositions(),
+                nodeStats.getInputDataSize(),
+                nodeStats.getOutputPositions(),
+                nodeStats.getOutputDataSize());
+        print(indent, "Tasks: %s, Output rows per task: min %s, max %s",
+                nodeStats.getTasks(),
+                nodeStats.getMinTaskOutputPositions(),
+                nodeStats.getMaxTaskOutputPositions());
+    }
+
     private class Visitor
             extends PlanVisitor<Integer, Void>
     {
@@ -169,6 +220,7 @@ public class PlanPrinter
             }
 
             print(indent, "- %s[%s] => [%s]", node.getType().getJoinLabel(), Joiner.on(" AND ").join(joinExpressions), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             node.getLeft().accept(this, indent + 1);
             node.getRight().accept(this, indent + 1);
 
@@ -179,6 +231,7 @@ public class PlanPrinter
         public Void visitSemiJoin(SemiJoinNode node, Integer indent)
         {
             print(indent, "- SemiJoin[%s = %s] => [%s]", node.getSourceJoinSymbol(), node.getFilteringSourceJoinSymbol(), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             node.getSource().accept(this, indent + 1);
             node.getFilteringSource().accept(this, indent + 1);
 
@@ -189,6 +242,7 @@ public class PlanPrinter
         public Void visitIndexSource(IndexSourceNode node, Integer indent)
         {
             print(indent, "- IndexSource[%s, lookup = %s] => [%s]", node.getIndexHandle(), node.getLookupSymbols(), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             for (Map.Entry<Symbol, ColumnHandle> entry : node.getAssignments().entrySet()) {
                 if (node.getOutputSymbols().contains(entry.getKey())) {
                     print(indent + 2, "%s := %s", entry.getKey(), entry.getValue());
@@ -208,6 +262,7 @@ public class PlanPrinter
             }
 
             print(indent, "- %sIndexJoin[%s] => [%s]", node.getType().getJoinLabel(), Joiner.on(" AND ").join(joinExpressions), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             node.getProbeSource().accept(this, indent + 1);
             node.getIndexSource().accept(this, indent + 1);
 
@@ -218,6 +273,7 @@ public class PlanPrinter
         public Void visitLimit(LimitNode node, Integer indent)
         {
             print(indent, "- Limit[%s] => [%s]", node.getCount(), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             return processChildren(node, indent + 1);
         }
 
@@ -225,6 +281,7 @@ public class PlanPrinter
         public Void visitDistinctLimit(DistinctLimitNode node, Integer indent)
         {
             print(indent, "- DistinctLimit[%s] => [%s]", node.getLimit(), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             return processChildren(node, indent + 1);
         }
 
@@ -245,6 +302,7 @@ public class PlanPrinter
             }
 
             print(indent, "- Aggregate%s%s%s => [%s]", type, key, sampleWeight, formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
 
             for (Map.Entry<Symbol, FunctionCall> entry : node.getAggregations().entrySet()) {
                 if (node.getMasks().containsKey(entry.getKey())) {
@@ -262,6 +320,7 @@ public class PlanPrinter
         public Void visitMarkDistinct(MarkDistinctNode node, Integer indent)
         {
             print(indent, "- MarkDistinct[distinct=%s marker=%s] => [%s]", formatOutputs(node.getDistinctSymbols()), node.getMarkerSymbol(), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             return processChildren(node, indent + 1);
         }
 
@@ -288,6 +347,7 @@ public class PlanPrinter
             }
 
             print(indent, "- Window[%s] => [%s]", Joiner.on(", ").join(args), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
 
             for (Map.Entry<Symbol, FunctionCall> entry : node.getWindowFunctions().entrySet()) {
                 print(indent + 2, "%s := %s(%s)", entry.getKey(), entry.getValue().getName(), Joiner.on(", ").join(entry.getValue().getArguments()));
@@ -301,6 +361,7 @@ public class PlanPrinter
         {
             TupleDomain<ColumnHandle> partitionsDomainSummary = node.getPartitionsDomainSummary();
             print(indent, "- TableScan[%s, original constraint=%s] => [%s]", node.getTable(), node.getOriginalConstraint(), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             for (Map.Entry<Symbol, ColumnHandle> entry : node.getAssignments().entrySet()) {
                 boolean isOutputSymbol = node.getOutputSymbols().contains(entry.getKey());
                 boolean isInOriginalConstraint = node.getOriginalConstraint() == null ? false : DependencyExtractor.extractUnique(node.getOriginalConstraint()).contains(entry.getKey());
@@ -323,6 +384,7 @@ public class PlanPrinter
         public Void visitValues(ValuesNode node, Integer indent)
         {
             print(indent, "- Values => [%s]", formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             for (List<Expression> row : node.getRows()) {
                 print(indent + 2, Joiner.on(", ").join(row));
             }
@@ -333,6 +395,7 @@ public class PlanPrinter
         public Void visitFilter(FilterNode node, Integer indent)
         {
             print(indent, "- Filter[%s] => [%s]", node.getPredicate(), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             return processChildren(node, indent + 1);
         }
 
@@ -340,6 +403,7 @@ public class PlanPrinter
         public Void visitProject(ProjectNode node, Integer indent)
         {
             print(indent, "- Project => [%s]", formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             for (Map.Entry<Symbol, Expression> entry : node.getOutputMap().entrySet()) {
                 if (entry.getValue() instanceof QualifiedNameReference && ((QualifiedNameReference) entry.getValue()).getName().equals(entry.getKey().toQualifiedName())) {
                     // skip identity assignments
@@ -355,6 +419,7 @@ public class PlanPrinter
         public Void visitOutput(OutputNode node, Integer indent)
         {
             print(indent, "- Output[%s]", Joiner.on(", ").join(node.getColumnNames()));
+            printStats(indent + 2, node.getId());
             for (int i = 0; i < node.getColumnNames().size(); i++) {
                 String name = node.getColumnNames().get(i);
                 Symbol symbol = node.getOutputSymbols().get(i);
@@ -366,6 +431,14 @@ public class PlanPrinter
             return processChildren(node, indent + 1);
         }
 
+        @Override
+        public Void visitExplainAnalyze(ExplainAnalyzeNode node, Integer indent)
+        {
+            print(indent, "- ExplainAnalyze => [%s]", formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
+            return processChildren(node, indent + 1);
+        }
+
         @Override
         public Void visitTopN(final TopNNode node, Integer indent)
         {
@@ -379,6 +452,7 @@ public class PlanPrinter
             });
 
             print(indent, "- TopN[%s by (%s)] => [%s]", node.getCount(), Joiner.on(", ").join(keys), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             return processChildren(node, indent + 1);
         }
 
@@ -386,6 +460,7 @@ public class PlanPrinter
         public Void visitMaterializeSample(final MaterializeSampleNode node, Integer indent)
         {
             print(indent, "- MaterializeSample[%s] => [%s]", node.getSampleWeightSymbol(), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             return processChildren(node, indent + 1);
         }
 
@@ -402,6 +477,7 @@ public class PlanPrinter
             });
 
             print(indent, "- Sort[%s] => [%s]", Joiner.on(", ").join(keys), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             return processChildren(node, indent + 1);
         }
 
@@ -409,6 +485,7 @@ public class PlanPrinter
         public Void visitExchange(ExchangeNode node, Integer indent)
         {
             print(indent, "- Exchange[%s] => [%s]", node.getSourceFragmentIds(), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
 
             return processExchange(node, indent + 1);
         }
@@ -417,6 +494,7 @@ public class PlanPrinter
         public Void visitSink(SinkNode node, Integer indent)
         {
             print(indent, "- Sink[%s] => [%s]", node.getId(), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
 
             return processChildren(node, indent + 1);
         }
@@ -425,6 +503,7 @@ public class PlanPrinter
         public Void visitUnion(UnionNode node, Integer indent)
         {
             print(indent, "- Union => [%s]", formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
 
             return processChildren(node, indent + 1);
         }
@@ -433,6 +512,7 @@ public class PlanPrinter
         public Void visitTableWriter(TableWriterNode node, Integer indent)
         {
             print(indent, "- TableWriter => [%s]", formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
             for (int i = 0; i < node.getColumnNames().size(); i++) {
                 String name = node.getColumnNames().get(i);
                 Symbol symbol = node.getColumns().get(i);
@@ -446,6 +526,7 @@ public class PlanPrinter
         public Void visitTableCommit(TableCommitNode node, Integer indent)
         {
             print(indent, "- TableCommit[%s] => [%s]", node.getTarget(), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
 
             return processChildren(node, indent + 1);
         }
@@ -454,6 +535,7 @@ public class PlanPrinter
         public Void visitSample(SampleNode node, Integer indent)
         {
             print(indent, "- Sample[%s: %s] => [%s]", node.getSampleType(), node.getSampleRatio(), formatOutputs(node.getOutputSymbols()));
+            printStats(indent + 2, node.getId());
 
             return processChildren(node, indent + 1);
         }
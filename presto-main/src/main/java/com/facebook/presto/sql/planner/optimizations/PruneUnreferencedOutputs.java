@@ -22,6 +22,7 @@ import com.facebook.presto.sql.planner.Symbol;
 import com.facebook.presto.sql.planner.SymbolAllocator;
 import com.facebook.presto.sql.planner.plan.AggregationNode;
 import com.facebook.presto.sql.planner.plan.DistinctLimitNode;
+import com.facebook.presto.sql.planner.plan.ExplainAnalyzeNode;
 import com.facebook.presto.sql.planner.plan.FilterNode;
 import com.facebook.presto.sql.planner.plan.IndexJoinNode;
 import com.facebook.presto.sql.planner.plan.IndexSourceNode;
@@ -351,6 +352,15 @@ public class PruneUnreferencedOutputs
             return new OutputNode(node.getId(), source, node.getColumnNames(), node.getOutputSymbols());
         }
 
+        @Override
+        public PlanNode rewriteExplainAnalyze(ExplainAnalyzeNode node, Set<Symbol> expectedOutputs, PlanRewriter<Set<Symbol>> planRewriter)
+        {
+            // the query is executed as written, so every output of the source is still produced
+            Set<Symbol> expectedInputs = ImmutableSet.copyOf(node.getSource().getOutputSymbols());
+            PlanNode source = planRewriter.rewrite(node.getSource(), expectedInputs);
+            return new ExplainAnalyzeNode(node.getId(), source, node.getOutputSymbol());
+        }
+
         @Override
         public PlanNode rewriteLimit(LimitNode node, Set<Symbol> expectedOutputs, PlanRewriter<Set<Symbol>> planRewriter)
         {
@@ -49,6 +49,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
         @JsonSubTypes.Type(value = IndexSourceNode.class, name = "indexsource"),
         @JsonSubTypes.Type(value = TableWriterNode.class, name = "tablewriter"),
         @JsonSubTypes.Type(value = TableCommitNode.class, name = "tablecommit"),
+        @JsonSubTypes.Type(value = ExplainAnalyzeNode.class, name = "explainAnalyze"),
 })
 public abstract class PlanNode
 {
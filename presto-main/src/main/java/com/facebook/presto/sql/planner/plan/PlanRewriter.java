@@ -364,6 +364,25 @@ public final class PlanRewriter<C>
             return node;
         }
 
+        @Override
+        public PlanNode visitExplainAnalyze(ExplainAnalyzeNode node, Context<C> context)
+        {
+            if (!context.isDefaultRewrite()) {
+                PlanNode result = nodeRewriter.rewriteExplainAnalyze(node, context.get(), PlanRewriter.this);
+                if (result != null) {
+                    return result;
+                }
+            }
+
+            PlanNode source = rewrite(node.getSource(), context.get());
+
+            if (source != node.getSource()) {
+                return new ExplainAnalyzeNode(node.getId(), source, node.getOutputSymbol());
+            }
+
+            return node;
+        }
+
         @Override
         public PlanNode visitIndexSource(IndexSourceNode node, Context<C> context)
         {
@@ -25,6 +25,7 @@ import com.facebook.presto.spi.type.DoubleType;
 import com.facebook.presto.spi.type.HyperLogLogType;
 import com.facebook.presto.spi.type.IntervalDayTimeType;
 import com.facebook.presto.spi.type.IntervalYearMonthType;
+import com.facebook.presto.spi.type.QuantileDigestType;
 import com.facebook.presto.spi.type.TimeType;
 import com.facebook.presto.spi.type.TimeWithTimeZoneType;
 import com.facebook.presto.spi.type.TimestampType;
@@ -62,6 +63,7 @@ public final class TestingBlockEncodingManager
                 DictionaryBlockEncoding.FACTORY,
                 SnappyBlockEncoding.FACTORY,
                 HyperLogLogType.BLOCK_ENCODING_FACTORY,
+                QuantileDigestType.BLOCK_ENCODING_FACTORY,
                 ColorType.BLOCK_ENCODING_FACTORY);
     }
 }
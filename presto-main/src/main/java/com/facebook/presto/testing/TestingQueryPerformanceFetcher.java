@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.testing;
+
+import com.facebook.presto.execution.QueryId;
+import com.facebook.presto.execution.QueryInfo;
+import com.facebook.presto.execution.QueryPerformanceFetcher;
+import com.facebook.presto.execution.StageInfo;
+import com.facebook.presto.execution.StateMachine.StateChangeListener;
+
+/**
+ * Fetcher for query runners without a query manager, which can not run EXPLAIN ANALYZE.
+ */
+public class TestingQueryPerformanceFetcher
+        implements QueryPerformanceFetcher
+{
+    @Override
+    public QueryInfo getQueryInfo(QueryId queryId)
+    {
+        throw new UnsupportedOperationException("Query performance is not available without a query manager");
+    }
+
+    @Override
+    public void addStageStateChangeListener(QueryId queryId, StateChangeListener<StageInfo> stateChangeListener)
+    {
+        throw new UnsupportedOperationException("Query performance is not available without a query manager");
+    }
+}
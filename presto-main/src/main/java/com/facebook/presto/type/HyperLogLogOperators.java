@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.type;
+
+import com.facebook.presto.operator.aggregation.AdaptiveHyperLogLog;
+import com.facebook.presto.operator.scalar.ScalarOperator;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.type.HyperLogLogType;
+import com.facebook.presto.spi.type.VarbinaryType;
+import io.airlift.slice.Slice;
+
+import static com.facebook.presto.metadata.OperatorInfo.OperatorType.CAST;
+import static com.facebook.presto.spi.StandardErrorCode.INVALID_CAST_ARGUMENT;
+
+/**
+ * Casts between a serialized HyperLogLog and varbinary, so that sketches stored
+ * as binary columns by connectors can be merged at query time.
+ */
+public final class HyperLogLogOperators
+{
+    private HyperLogLogOperators()
+    {
+    }
+
+    @ScalarOperator(CAST)
+    @SqlType(VarbinaryType.class)
+    public static Slice castToBinary(@SqlType(HyperLogLogType.class) Slice slice)
+    {
+        return slice;
+    }
+
+    @ScalarOperator(CAST)
+    @SqlType(HyperLogLogType.class)
+    public static Slice castFromBinary(@SqlType(VarbinaryType.class) Slice slice)
+    {
+        try {
+            AdaptiveHyperLogLog.deserialize(slice);
+        }
+        catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new PrestoException(INVALID_CAST_ARGUMENT.toErrorCode(), "Cannot cast value to HyperLogLog: " + e.getMessage(), e);
+        }
+        return slice;
+    }
+}
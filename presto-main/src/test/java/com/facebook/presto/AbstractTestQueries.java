@@ -36,6 +36,7 @@ import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.intellij.lang.annotations.Language;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -107,6 +108,18 @@ public abstract class AbstractTestQueries
         assertQuery("SELECT custkey, MAX(NULLIF(orderstatus, 'O')), MIN(NULLIF(orderstatus, 'O')) FROM orders GROUP BY custkey");
     }
 
+    @Test
+    public void testGroupByOnSortedInput()
+            throws Exception
+    {
+        assertQuery("SELECT custkey, orderstatus, COUNT(*), SUM(totalprice) " +
+                "FROM (SELECT * FROM orders ORDER BY custkey, orderstatus) " +
+                "GROUP BY custkey, orderstatus");
+        assertQuery("SELECT custkey, COUNT(*) " +
+                "FROM (SELECT custkey, orderkey FROM orders WHERE orderkey % 3 = 0 ORDER BY custkey, orderkey) " +
+                "GROUP BY custkey");
+    }
+
     @Test
     public void testApproxPercentile()
             throws Exception
@@ -154,6 +167,46 @@ public abstract class AbstractTestQueries
         }
     }
 
+    @Test
+    public void testQuantileDigest()
+            throws Exception
+    {
+        MaterializedResult raw = computeActual("SELECT orderkey FROM ORDERS");
+        List<Long> orderKeys = new ArrayList<>();
+        for (MaterializedRow row : raw.getMaterializedRows()) {
+            orderKeys.add((Long) row.getField(0));
+        }
+        orderKeys = Ordering.natural().sortedCopy(orderKeys);
+
+        MaterializedResult actual = computeActual("" +
+                "SELECT value_at_quantile(digest, 0.1), value_at_quantile(digest, 0.5), value_at_quantile(digest, 0.9)\n" +
+                "FROM (\n" +
+                "   SELECT merge(digest) digest\n" +
+                "   FROM (SELECT orderstatus, qdigest_agg(orderkey, 0.001) digest FROM ORDERS GROUP BY orderstatus)\n" +
+                ")");
+
+        MaterializedRow row = Iterables.getOnlyElement(actual.getMaterializedRows());
+        double[] quantiles = {0.1, 0.5, 0.9};
+        for (int i = 0; i < quantiles.length; i++) {
+            // verify real rank of returned value is within 1% of requested rank
+            Long orderKey = (Long) row.getField(i);
+            assertTrue(orderKey >= orderKeys.get((int) ((quantiles[i] - 0.01) * orderKeys.size())));
+            assertTrue(orderKey <= orderKeys.get((int) ((quantiles[i] + 0.01) * orderKeys.size())));
+        }
+    }
+
+    @Test
+    public void testQuantileDigestCastToVarbinary()
+            throws Exception
+    {
+        MaterializedResult actual = computeActual("" +
+                "SELECT value_at_quantile(CAST(CAST(digest AS VARBINARY) AS QuantileDigest), 0.5)\n" +
+                "FROM (SELECT qdigest_agg(orderkey) digest FROM orders)");
+        MaterializedResult expected = computeActual("SELECT value_at_quantile(qdigest_agg(orderkey), 0.5) FROM orders");
+
+        assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
+
     @Test
     public void testComplexQuery()
             throws Exception
@@ -205,6 +258,27 @@ public abstract class AbstractTestQueries
         assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
 
+    @Test
+    public void testApproximateCountDistinctWithStandardError()
+            throws Exception
+    {
+        // 0.023 selects the default 2048 buckets
+        MaterializedResult actual = computeActual("SELECT approx_distinct(custkey, 0.023) FROM orders");
+
+        MaterializedResult expected = resultBuilder(getSession(), BIGINT)
+                .row(971)
+                .build();
+
+        assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
+
+    @Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = "Max standard error must be constant for all input rows of a group")
+    public void testApproximateCountDistinctMixedMaxStandardError()
+            throws Exception
+    {
+        computeActual("SELECT approx_distinct(custkey, CASE WHEN orderkey % 2 = 0 THEN 0.1 ELSE 0.023 END) FROM orders");
+    }
+
     @Test
     public void testApproximateCountDistinctGroupBy()
             throws Exception
@@ -3035,15 +3109,24 @@ public abstract class AbstractTestQueries
         assertEquals(computeActual(sql), computeActual(sql.replace("custom_rank", "rank")));
     }
 
+    // approx_set and create_hll use 4096 buckets and hash like approx_distinct, whose standard error of 0.0163
+    // also selects 4096 buckets, so the cardinality of the sketch is exactly the approx_distinct estimate
     @Test
     public void testApproxSetBigint()
             throws Exception
     {
         MaterializedResult actual = computeActual("SELECT cardinality(approx_set(custkey)) FROM orders");
+        MaterializedResult expected = computeActual("SELECT approx_distinct(custkey, 0.0163) FROM orders");
 
-        MaterializedResult expected = resultBuilder(getSession(), BIGINT)
-                .row(999)
-                .build();
+        assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
+
+    @Test
+    public void testApproxSetCastToVarbinary()
+            throws Exception
+    {
+        MaterializedResult actual = computeActual("SELECT cardinality(CAST(CAST(approx_set(custkey) AS VARBINARY) AS HyperLogLog)) FROM orders");
+        MaterializedResult expected = computeActual("SELECT approx_distinct(custkey, 0.0163) FROM orders");
 
         assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
@@ -3053,10 +3136,7 @@ public abstract class AbstractTestQueries
             throws Exception
     {
         MaterializedResult actual = computeActual("SELECT cardinality(approx_set(CAST(custkey AS VARCHAR))) FROM orders");
-
-        MaterializedResult expected = resultBuilder(getSession(), BIGINT)
-                .row(1006)
-                .build();
+        MaterializedResult expected = computeActual("SELECT approx_distinct(CAST(custkey AS VARCHAR), 0.0163) FROM orders");
 
         assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
@@ -3066,10 +3146,7 @@ public abstract class AbstractTestQueries
             throws Exception
     {
         MaterializedResult actual = computeActual("SELECT cardinality(approx_set(CAST(custkey AS DOUBLE))) FROM orders");
-
-        MaterializedResult expected = resultBuilder(getSession(), BIGINT)
-                .row(1014)
-                .build();
+        MaterializedResult expected = computeActual("SELECT approx_distinct(CAST(custkey AS DOUBLE), 0.0163) FROM orders");
 
         assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
@@ -3082,12 +3159,10 @@ public abstract class AbstractTestQueries
                 "SELECT orderstatus, cardinality(approx_set(custkey)) " +
                 "FROM orders " +
                 "GROUP BY orderstatus");
-
-        MaterializedResult expected = resultBuilder(getSession(), actual.getTypes())
-                .row("O", 997)
-                .row("F", 995)
-                .row("P", 304)
-                .build();
+        MaterializedResult expected = computeActual("" +
+                "SELECT orderstatus, approx_distinct(custkey, 0.0163) " +
+                "FROM orders " +
+                "GROUP BY orderstatus");
 
         assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
@@ -3100,12 +3175,10 @@ public abstract class AbstractTestQueries
                 "SELECT orderstatus, cardinality(approx_set(CAST(custkey AS VARCHAR))) " +
                 "FROM orders " +
                 "GROUP BY orderstatus");
-
-        MaterializedResult expected = resultBuilder(getSession(), actual.getTypes())
-                .row("O", 1004)
-                .row("F", 1002)
-                .row("P", 305)
-                .build();
+        MaterializedResult expected = computeActual("" +
+                "SELECT orderstatus, approx_distinct(CAST(custkey AS VARCHAR), 0.0163) " +
+                "FROM orders " +
+                "GROUP BY orderstatus");
 
         assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
@@ -3118,12 +3191,10 @@ public abstract class AbstractTestQueries
                 "SELECT orderstatus, cardinality(approx_set(CAST(custkey AS DOUBLE))) " +
                 "FROM orders " +
                 "GROUP BY orderstatus");
-
-        MaterializedResult expected = resultBuilder(getSession(), actual.getTypes())
-                .row("O", 1002)
-                .row("F", 1000)
-                .row("P", 304)
-                .build();
+        MaterializedResult expected = computeActual("" +
+                "SELECT orderstatus, approx_distinct(CAST(custkey AS DOUBLE), 0.0163) " +
+                "FROM orders " +
+                "GROUP BY orderstatus");
 
         assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
@@ -3133,10 +3204,7 @@ public abstract class AbstractTestQueries
             throws Exception
     {
         MaterializedResult actual = computeActual("SELECT cardinality(approx_set(IF(orderstatus = 'O', custkey))) FROM orders");
-
-        MaterializedResult expected = resultBuilder(getSession(), actual.getTypes())
-                .row(997)
-                .build();
+        MaterializedResult expected = computeActual("SELECT approx_distinct(IF(orderstatus = 'O', custkey), 0.0163) FROM orders");
 
         assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
@@ -3162,12 +3230,10 @@ public abstract class AbstractTestQueries
                 "SELECT orderstatus, cardinality(approx_set(IF(orderstatus != 'O', custkey))) " +
                 "FROM orders " +
                 "GROUP BY orderstatus");
-
-        MaterializedResult expected = resultBuilder(getSession(), actual.getTypes())
-                .row("O", null)
-                .row("F", 995)
-                .row("P", 304)
-                .build();
+        MaterializedResult expected = computeActual("" +
+                "SELECT orderstatus, NULLIF(approx_distinct(IF(orderstatus != 'O', custkey), 0.0163), 0) " +
+                "FROM orders " +
+                "GROUP BY orderstatus");
 
         assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
@@ -3180,12 +3246,10 @@ public abstract class AbstractTestQueries
                 "SELECT orderstatus, cardinality(approx_set(IF(custkey % 2 <> 0, custkey))) " +
                 "FROM orders " +
                 "GROUP BY orderstatus");
-
-        MaterializedResult expected = resultBuilder(getSession(), actual.getTypes())
-                .row("O", 500)
-                .row("F", 497)
-                .row("P", 153)
-                .build();
+        MaterializedResult expected = computeActual("" +
+                "SELECT orderstatus, approx_distinct(IF(custkey % 2 <> 0, custkey), 0.0163) " +
+                "FROM orders " +
+                "GROUP BY orderstatus");
 
         assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
@@ -3195,10 +3259,7 @@ public abstract class AbstractTestQueries
             throws Exception
     {
         MaterializedResult actual = computeActual("SELECT cardinality(merge(create_hll(custkey))) FROM orders");
-
-        MaterializedResult expected = resultBuilder(getSession(), BIGINT)
-                .row(999)
-                .build();
+        MaterializedResult expected = computeActual("SELECT approx_distinct(custkey, 0.0163) FROM orders");
 
         assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
@@ -3211,12 +3272,10 @@ public abstract class AbstractTestQueries
                 "SELECT orderstatus, cardinality(merge(create_hll(custkey))) " +
                 "FROM orders " +
                 "GROUP BY orderstatus");
-
-        MaterializedResult expected = resultBuilder(getSession(), actual.getTypes())
-                .row("O", 997)
-                .row("F", 995)
-                .row("P", 304)
-                .build();
+        MaterializedResult expected = computeActual("" +
+                "SELECT orderstatus, approx_distinct(custkey, 0.0163) " +
+                "FROM orders " +
+                "GROUP BY orderstatus");
 
         assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
@@ -3226,10 +3285,7 @@ public abstract class AbstractTestQueries
             throws Exception
     {
         MaterializedResult actual = computeActual("SELECT cardinality(merge(create_hll(IF(orderstatus = 'O', custkey)))) FROM orders");
-
-        MaterializedResult expected = resultBuilder(getSession(), BIGINT)
-                .row(997)
-                .build();
+        MaterializedResult expected = computeActual("SELECT approx_distinct(IF(orderstatus = 'O', custkey), 0.0163) FROM orders");
 
         assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
@@ -3242,12 +3298,37 @@ public abstract class AbstractTestQueries
                 "SELECT orderstatus, cardinality(merge(create_hll(IF(orderstatus != 'O', custkey)))) " +
                 "FROM orders " +
                 "GROUP BY orderstatus");
+        MaterializedResult expected = computeActual("" +
+                "SELECT orderstatus, NULLIF(approx_distinct(IF(orderstatus != 'O', custkey), 0.0163), 0) " +
+                "FROM orders " +
+                "GROUP BY orderstatus");
 
-        MaterializedResult expected = resultBuilder(getSession(), actual.getTypes())
-                .row("O", null)
-                .row("F", 995)
-                .row("P", 304)
-                .build();
+        assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
+
+    @Test
+    public void testMergeHyperLogLogDifferentBucketCounts()
+            throws Exception
+    {
+        // sketches are merged at the smallest number of buckets, the default 2048 of approx_distinct
+        MaterializedResult actual = computeActual("SELECT cardinality(merge(create_hll(custkey, IF(custkey % 3 = 0, 2048, 4096)))) FROM orders");
+        MaterializedResult expected = computeActual("SELECT approx_distinct(custkey) FROM orders");
+
+        assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
+    }
+
+    @Test
+    public void testMergeHyperLogLogDifferentBucketCountsGroupBy()
+            throws Exception
+    {
+        MaterializedResult actual = computeActual("" +
+                "SELECT orderstatus, cardinality(merge(create_hll(custkey, IF(custkey % 3 = 0, 2048, 4096)))) " +
+                "FROM orders " +
+                "GROUP BY orderstatus");
+        MaterializedResult expected = computeActual("" +
+                "SELECT orderstatus, approx_distinct(custkey) " +
+                "FROM orders " +
+                "GROUP BY orderstatus");
 
         assertEqualsIgnoreOrder(actual.getMaterializedRows(), expected.getMaterializedRows());
     }
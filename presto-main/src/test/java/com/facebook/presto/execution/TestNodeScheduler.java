@@ -0,0 +1,410 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.OutputBuffers;
+import com.facebook.presto.execution.NodeScheduler.NodeSelector;
+import com.facebook.presto.execution.SharedBuffer.QueueState;
+import com.facebook.presto.execution.StateMachine.StateChangeListener;
+import com.facebook.presto.metadata.InMemoryNodeManager;
+import com.facebook.presto.metadata.NodeVersion;
+import com.facebook.presto.metadata.PrestoNode;
+import com.facebook.presto.metadata.Split;
+import com.facebook.presto.operator.PipelineStats;
+import com.facebook.presto.operator.TaskStats;
+import com.facebook.presto.spi.Node;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.joda.time.DateTime;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+
+public class TestNodeScheduler
+{
+    private static final String DATASOURCE = "foo";
+
+    private InMemoryNodeManager nodeManager;
+    private Node node1;
+    private Node node2;
+    private Node node3;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        // the testing split prefers 127.0.0.1, so all of these nodes are candidates for every split
+        nodeManager = new InMemoryNodeManager();
+        node1 = new PrestoNode("other1", URI.create("http://127.0.0.1:11"), NodeVersion.UNKNOWN);
+        node2 = new PrestoNode("other2", URI.create("http://127.0.0.1:12"), NodeVersion.UNKNOWN);
+        node3 = new PrestoNode("other3", URI.create("http://127.0.0.1:13"), NodeVersion.UNKNOWN);
+        nodeManager.addNode(DATASOURCE, node1, node2, node3);
+    }
+
+    @Test
+    public void testAssignToLeastLoadedNode()
+    {
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 0, 5),
+                node2, new TestingRemoteTask(node2, 1, 1),
+                node3, new TestingRemoteTask(node3, 0, 3));
+
+        Multimap<Node, Split> assignment = createNodeSelector(new NodeSchedulerConfig(), tasks, 10).computeAssignments(createSplits(1));
+        assertEquals(assignment.get(node2).size(), 1);
+        assertEquals(assignment.size(), 1);
+    }
+
+    @Test
+    public void testRunningSplitsCountTowardsLoad()
+    {
+        // node1 has the shortest queue, but it is already busy running splits
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 0, 8),
+                node2, new TestingRemoteTask(node2, 2, 0),
+                node3, new TestingRemoteTask(node3, 3, 3));
+
+        Multimap<Node, Split> assignment = createNodeSelector(new NodeSchedulerConfig(), tasks, 10).computeAssignments(createSplits(1));
+        assertEquals(assignment.get(node2).size(), 1);
+        assertEquals(assignment.size(), 1);
+    }
+
+    @Test
+    public void testBalancesSplitsAcrossNodes()
+    {
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 0, 0),
+                node2, new TestingRemoteTask(node2, 0, 2),
+                node3, new TestingRemoteTask(node3, 0, 4));
+
+        // the first splits fill up the idle nodes, then the nodes take turns
+        Multimap<Node, Split> assignment = createNodeSelector(new NodeSchedulerConfig(), tasks, 100).computeAssignments(createSplits(12));
+        assertEquals(assignment.get(node1).size(), 6);
+        assertEquals(assignment.get(node2).size(), 4);
+        assertEquals(assignment.get(node3).size(), 2);
+    }
+
+    @Test
+    public void testMaxSplitsPerNode()
+    {
+        // node1 runs more splits but node2 has the longer queue
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 0, 6),
+                node2, new TestingRemoteTask(node2, 5, 0));
+        nodeManager = new InMemoryNodeManager();
+        nodeManager.addNode(DATASOURCE, node1, node2);
+
+        // below the limit, the split goes to the node with the fewest splits
+        Multimap<Node, Split> assignment = createNodeSelector(new NodeSchedulerConfig().setMaxSplitsPerNode(100), tasks, 10).computeAssignments(createSplits(1));
+        assertEquals(assignment.get(node2).size(), 1);
+        assertEquals(assignment.size(), 1);
+
+        // once every node is at the limit, the split is queued on the node with the shortest queue
+        assignment = createNodeSelector(new NodeSchedulerConfig().setMaxSplitsPerNode(4), tasks, 10).computeAssignments(createSplits(1));
+        assertEquals(assignment.get(node1).size(), 1);
+        assertEquals(assignment.size(), 1);
+    }
+
+    @Test
+    public void testMaxSplitsPerNodeIncludesAssignedSplits()
+    {
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 0, 0),
+                node2, new TestingRemoteTask(node2, 0, 0),
+                node3, new TestingRemoteTask(node3, 0, 0));
+
+        Multimap<Node, Split> assignment = createNodeSelector(new NodeSchedulerConfig().setMaxSplitsPerNode(2), tasks, 10).computeAssignments(createSplits(6));
+        for (Node node : ImmutableList.of(node1, node2, node3)) {
+            assertEquals(assignment.get(node).size(), 2);
+        }
+    }
+
+    @Test
+    public void testMaxPendingSplitsPerTask()
+    {
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 3, 0),
+                node2, new TestingRemoteTask(node2, 1, 0),
+                node3, new TestingRemoteTask(node3, 3, 0));
+
+        // only node2 has room in its queue, and only for two more splits
+        Multimap<Node, Split> assignment = createNodeSelector(new NodeSchedulerConfig(), tasks, 3).computeAssignments(createSplits(5));
+        assertEquals(assignment.get(node2).size(), 2);
+        assertEquals(assignment.size(), 2);
+    }
+
+    @Test
+    public void testNodesWithoutTasks()
+    {
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(node1, new TestingRemoteTask(node1, 0, 1));
+
+        Multimap<Node, Split> assignment = createNodeSelector(new NodeSchedulerConfig(), tasks, 10).computeAssignments(createSplits(2));
+        assertEquals(assignment.get(node2).size(), 1);
+        assertEquals(assignment.get(node3).size(), 1);
+    }
+
+    @Test
+    public void testLaggingNodeIsAvoided()
+    {
+        // node3 has the fewest splits, but it takes ten times longer to process each one
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 0, 2, 10, new Duration(1, SECONDS)),
+                node2, new TestingRemoteTask(node2, 0, 2, 10, new Duration(1, SECONDS)),
+                node3, new TestingRemoteTask(node3, 0, 1, 10, new Duration(10, SECONDS)));
+
+        NodeSchedulerConfig config = new NodeSchedulerConfig().setStragglerThroughputRatio(0.5);
+        Multimap<Node, Split> assignment = createNodeSelector(config, tasks, 10).computeAssignments(createSplits(4));
+        assertEquals(assignment.get(node3).size(), 0);
+        assertEquals(assignment.get(node1).size(), 2);
+        assertEquals(assignment.get(node2).size(), 2);
+    }
+
+    @Test
+    public void testLaggingNodeIsAvoidedByDefault()
+    {
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 0, 2, 10, new Duration(1, SECONDS)),
+                node2, new TestingRemoteTask(node2, 0, 2, 10, new Duration(1, SECONDS)),
+                node3, new TestingRemoteTask(node3, 0, 1, 10, new Duration(10, SECONDS)));
+
+        Multimap<Node, Split> assignment = createNodeSelector(new NodeSchedulerConfig(), tasks, 10).computeAssignments(createSplits(1));
+        assertEquals(assignment.get(node3).size(), 0);
+        assertEquals(assignment.size(), 1);
+    }
+
+    @Test
+    public void testStragglerDetectionDisabled()
+    {
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 0, 2, 10, new Duration(1, SECONDS)),
+                node2, new TestingRemoteTask(node2, 0, 2, 10, new Duration(1, SECONDS)),
+                node3, new TestingRemoteTask(node3, 0, 1, 10, new Duration(10, SECONDS)));
+
+        NodeSchedulerConfig config = new NodeSchedulerConfig().setStragglerThroughputRatio(0);
+        Multimap<Node, Split> assignment = createNodeSelector(config, tasks, 10).computeAssignments(createSplits(1));
+        assertEquals(assignment.get(node3).size(), 1);
+    }
+
+    @Test
+    public void testLaggingNodeWithTwoTasks()
+    {
+        // the slower node is compared against the other node only, not against a median that includes itself
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 0, 2, 10, new Duration(1, SECONDS)),
+                node2, new TestingRemoteTask(node2, 0, 1, 10, new Duration(10, SECONDS)));
+        nodeManager = new InMemoryNodeManager();
+        nodeManager.addNode(DATASOURCE, node1, node2);
+
+        NodeSchedulerConfig config = new NodeSchedulerConfig().setStragglerThroughputRatio(0.5);
+        Multimap<Node, Split> assignment = createNodeSelector(config, tasks, 10).computeAssignments(createSplits(2));
+        assertEquals(assignment.get(node2).size(), 0);
+        assertEquals(assignment.get(node1).size(), 2);
+    }
+
+    @Test
+    public void testFewerSplitsIsNotLagging()
+    {
+        // node3 was given fewer splits, but processes each of them as fast as the other nodes
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 0, 2, 20, new Duration(2, SECONDS)),
+                node2, new TestingRemoteTask(node2, 0, 2, 20, new Duration(2, SECONDS)),
+                node3, new TestingRemoteTask(node3, 0, 1, 4, new Duration(400, MILLISECONDS)));
+
+        NodeSchedulerConfig config = new NodeSchedulerConfig().setStragglerThroughputRatio(0.5);
+        Multimap<Node, Split> assignment = createNodeSelector(config, tasks, 10).computeAssignments(createSplits(1));
+        assertEquals(assignment.get(node3).size(), 1);
+    }
+
+    @Test
+    public void testLaggingRequiresCompletedSplits()
+    {
+        // too few splits have finished on node3 to judge its rate
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 0, 2, 10, new Duration(1, SECONDS)),
+                node2, new TestingRemoteTask(node2, 0, 2, 10, new Duration(1, SECONDS)),
+                node3, new TestingRemoteTask(node3, 0, 1, 2, new Duration(10, SECONDS)));
+
+        NodeSchedulerConfig config = new NodeSchedulerConfig().setStragglerThroughputRatio(0.5);
+        Multimap<Node, Split> assignment = createNodeSelector(config, tasks, 10).computeAssignments(createSplits(1));
+        assertEquals(assignment.get(node3).size(), 1);
+    }
+
+    @Test
+    public void testIdleLaggingNodeRecovers()
+    {
+        // node3 is lagging, but once it has drained its splits it gets one more to refresh its rate
+        Map<Node, RemoteTask> tasks = ImmutableMap.<Node, RemoteTask>of(
+                node1, new TestingRemoteTask(node1, 0, 2, 10, new Duration(1, SECONDS)),
+                node2, new TestingRemoteTask(node2, 0, 2, 10, new Duration(1, SECONDS)),
+                node3, new TestingRemoteTask(node3, 0, 0, 10, new Duration(10, SECONDS)));
+
+        NodeSchedulerConfig config = new NodeSchedulerConfig().setStragglerThroughputRatio(0.5);
+        Multimap<Node, Split> assignment = createNodeSelector(config, tasks, 10).computeAssignments(createSplits(5));
+        assertEquals(assignment.get(node3).size(), 1);
+        assertEquals(assignment.get(node1).size(), 2);
+        assertEquals(assignment.get(node2).size(), 2);
+    }
+
+    private NodeSelector createNodeSelector(NodeSchedulerConfig config, Map<Node, RemoteTask> tasks, int maxPendingSplitsPerTask)
+    {
+        NodeScheduler nodeScheduler = new NodeScheduler(nodeManager, config);
+        return nodeScheduler.createNodeSelector(DATASOURCE, tasks, maxPendingSplitsPerTask);
+    }
+
+    private static Set<Split> createSplits(int count)
+    {
+        ImmutableSet.Builder<Split> splits = ImmutableSet.builder();
+        for (int i = 0; i < count; i++) {
+            splits.add(new Split("test", new TestingSplit()));
+        }
+        return splits.build();
+    }
+
+    private static TaskStats createTaskStats(int queuedSplits, int runningSplits, int completedSplits, Duration completedSplitsScheduledTime)
+    {
+        return new TaskStats(
+                DateTime.now(),
+                null,
+                null,
+                null,
+                new Duration(0, MILLISECONDS),
+                new Duration(0, MILLISECONDS),
+                queuedSplits + runningSplits + completedSplits,
+                queuedSplits,
+                runningSplits,
+                completedSplits,
+                queuedSplits,
+                runningSplits,
+                completedSplits,
+                completedSplitsScheduledTime,
+                new DataSize(0, BYTE),
+                new Duration(0, MILLISECONDS),
+                new Duration(0, MILLISECONDS),
+                new Duration(0, MILLISECONDS),
+                new Duration(0, MILLISECONDS),
+                new DataSize(0, BYTE),
+                0,
+                new DataSize(0, BYTE),
+                0,
+                new DataSize(0, BYTE),
+                0,
+                ImmutableList.<PipelineStats>of());
+    }
+
+    private static class TestingRemoteTask
+            implements RemoteTask
+    {
+        private final Node node;
+        private final int queuedSplits;
+        private final int runningSplits;
+        private final TaskStats taskStats;
+
+        private TestingRemoteTask(Node node, int queuedSplits, int runningSplits)
+        {
+            this(node, queuedSplits, runningSplits, 0, new Duration(0, MILLISECONDS));
+        }
+
+        private TestingRemoteTask(Node node, int queuedSplits, int runningSplits, int completedSplits, Duration completedSplitsScheduledTime)
+        {
+            this.node = node;
+            this.queuedSplits = queuedSplits;
+            this.runningSplits = runningSplits;
+            this.taskStats = createTaskStats(queuedSplits, runningSplits, completedSplits, completedSplitsScheduledTime);
+        }
+
+        @Override
+        public String getNodeId()
+        {
+            return node.getNodeIdentifier();
+        }
+
+        @Override
+        public TaskInfo getTaskInfo()
+        {
+            return new TaskInfo(
+                    new TaskId("query", "stage", node.getNodeIdentifier()),
+                    0,
+                    TaskState.RUNNING,
+                    node.getHttpUri(),
+                    DateTime.now(),
+                    new SharedBufferInfo(QueueState.OPEN, 0, 0, ImmutableList.<BufferInfo>of()),
+                    ImmutableSet.<PlanNodeId>of(),
+                    taskStats,
+                    ImmutableList.<ExecutionFailureInfo>of());
+        }
+
+        @Override
+        public void start()
+        {
+        }
+
+        @Override
+        public void addSplits(PlanNodeId sourceId, Iterable<Split> split)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void noMoreSplits(PlanNodeId sourceId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setOutputBuffers(OutputBuffers outputBuffers)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addStateChangeListener(StateChangeListener<TaskInfo> stateChangeListener)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void cancel()
+        {
+        }
+
+        @Override
+        public int getQueuedSplits()
+        {
+            return queuedSplits;
+        }
+
+        @Override
+        public int getRunningSplits()
+        {
+            return runningSplits;
+        }
+
+        @Override
+        public Duration waitForTaskToFinish(Duration maxWait)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.execution;
+
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.google.common.collect.ImmutableList;
+import io.airlift.json.JsonCodec;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.testng.Assert.assertEquals;
+
+public class TestPlanNodeStats
+{
+    public static final PlanNodeStats EXPECTED = new PlanNodeStats(
+            new PlanNodeId("node"),
+            new StageId("query", "stage"),
+            ImmutableList.of("FilterAndProjectOperator", "TableScanOperator"),
+
+            new Duration(1, NANOSECONDS),
+            new Duration(2, NANOSECONDS),
+            new Duration(3, NANOSECONDS),
+
+            new DataSize(4, BYTE),
+            5,
+
+            new DataSize(6, BYTE),
+            7,
+
+            new DataSize(8, BYTE),
+
+            9,
+            10,
+            11);
+
+    @Test
+    public void testJson()
+    {
+        JsonCodec<PlanNodeStats> codec = JsonCodec.jsonCodec(PlanNodeStats.class);
+
+        String json = codec.toJson(EXPECTED);
+        PlanNodeStats actual = codec.fromJson(json);
+
+        assertExpectedPlanNodeStats(actual);
+    }
+
+    public static void assertExpectedPlanNodeStats(PlanNodeStats actual)
+    {
+        assertEquals(actual.getPlanNodeId(), new PlanNodeId("node"));
+        assertEquals(actual.getStageId(), new StageId("query", "stage"));
+        assertEquals(actual.getOperatorTypes(), ImmutableList.of("FilterAndProjectOperator", "TableScanOperator"));
+
+        assertEquals(actual.getCpuTime(), new Duration(1, NANOSECONDS));
+        assertEquals(actual.getWallTime(), new Duration(2, NANOSECONDS));
+        assertEquals(actual.getBlockedTime(), new Duration(3, NANOSECONDS));
+
+        assertEquals(actual.getInputDataSize(), new DataSize(4, BYTE));
+        assertEquals(actual.getInputPositions(), 5);
+
+        assertEquals(actual.getOutputDataSize(), new DataSize(6, BYTE));
+        assertEquals(actual.getOutputPositions(), 7);
+
+        assertEquals(actual.getMemoryReservation(), new DataSize(8, BYTE));
+
+        assertEquals(actual.getTasks(), 9);
+        assertEquals(actual.getMinTaskOutputPositions(), 10);
+        assertEquals(actual.getMaxTaskOutputPositions(), 11);
+    }
+}
@@ -430,6 +430,35 @@ public class TestSharedBuffer
         assertBufferResultEquals(sharedBuffer.get("second", 1, sizeOfPages(1), NO_WAIT), emptyResults(0, true));
     }
 
+    @Test
+    public void testAbortAllQueuesBeforeFinish()
+            throws Exception
+    {
+        OutputBuffers outputBuffers = INITIAL_EMPTY_OUTPUT_BUFFERS
+                .withBuffer("first", new UnpartitionedPagePartitionFunction())
+                .withBuffer("second", new UnpartitionedPagePartitionFunction())
+                .withNoMoreBufferIds();
+        SharedBuffer sharedBuffer = new SharedBuffer(TASK_ID, executor, sizeOfPages(10), outputBuffers);
+
+        for (int i = 0; i < 3; i++) {
+            addPage(sharedBuffer, createPage(i));
+        }
+
+        // the buffer stays open while any consumer is still reading
+        sharedBuffer.abort("first");
+        assertQueueClosed(sharedBuffer, "first", 0);
+        assertFalse(sharedBuffer.isFinished());
+
+        // once every consumer is gone the remaining output is useless
+        sharedBuffer.abort("second");
+        assertQueueClosed(sharedBuffer, "second", 0);
+        assertFinished(sharedBuffer);
+
+        // pages added after this point are dropped
+        addPage(sharedBuffer, createPage(3));
+        assertEquals(sharedBuffer.getInfo().getPagesAdded(), 3);
+    }
+
     @Test
     public void testFinishClosesEmptyQueues()
             throws Exception
@@ -48,6 +48,7 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
 import io.airlift.units.DataSize;
 import io.airlift.units.DataSize.Unit;
@@ -70,6 +71,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.facebook.presto.OutputBuffers.INITIAL_EMPTY_OUTPUT_BUFFERS;
@@ -79,6 +81,7 @@ import static com.facebook.presto.sql.planner.plan.TableScanNode.GeneratedPartit
 import static com.facebook.presto.util.Failures.toFailures;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.testing.Assertions.assertLessThan;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
@@ -174,18 +177,68 @@ public class TestSqlStageExecution
         }
     }
 
+    @Test
+    public void testStopSchedulingWhenOutputIsNoLongerNeeded()
+            throws Exception
+    {
+        NodeScheduler nodeScheduler = new NodeScheduler(createNodeManager(), new NodeSchedulerConfig());
+
+        // the tasks finish once they have 20 splits, like tasks whose consumers aborted all of their buffers after a LIMIT
+        CountingSplitSource splitSource = new CountingSplitSource(createSplitSource(1000));
+        MockRemoteTaskFactory remoteTaskFactory = new MockRemoteTaskFactory(Executors.newCachedThreadPool(daemonThreadsNamed("remoteTaskExecutor")), 20);
+
+        SqlStageExecution stageExecution = createSqlStageExecution(nodeScheduler, remoteTaskFactory, createTableScanPlan("test", splitSource), 10, 1000);
+        stageExecution.start().get(1, TimeUnit.SECONDS);
+
+        // the stage stops enumerating splits after the batch in which the first task finished
+        assertLessThan(splitSource.getEnumeratedSplits(), 100);
+        assertEquals(remoteTaskFactory.getAssignedSplits(), splitSource.getEnumeratedSplits());
+    }
+
+    @Test
+    public void testScheduleAllSplitsWhenOutputIsNeeded()
+            throws Exception
+    {
+        NodeScheduler nodeScheduler = new NodeScheduler(createNodeManager(), new NodeSchedulerConfig());
+
+        CountingSplitSource splitSource = new CountingSplitSource(createSplitSource(1000));
+        MockRemoteTaskFactory remoteTaskFactory = new MockRemoteTaskFactory(Executors.newCachedThreadPool(daemonThreadsNamed("remoteTaskExecutor")));
+
+        SqlStageExecution stageExecution = createSqlStageExecution(nodeScheduler, remoteTaskFactory, createTableScanPlan("test", splitSource), 10, 1000);
+        stageExecution.start().get(1, TimeUnit.SECONDS);
+
+        assertEquals(splitSource.getEnumeratedSplits(), 1000);
+        assertEquals(remoteTaskFactory.getAssignedSplits(), 1000);
+    }
+
+    private static InMemoryNodeManager createNodeManager()
+    {
+        InMemoryNodeManager nodeManager = new InMemoryNodeManager();
+        nodeManager.addNode("foo",
+                new PrestoNode("other1", URI.create("http://127.0.0.1:11"), NodeVersion.UNKNOWN),
+                new PrestoNode("other2", URI.create("http://127.0.0.1:12"), NodeVersion.UNKNOWN),
+                new PrestoNode("other3", URI.create("http://127.0.0.1:13"), NodeVersion.UNKNOWN));
+        return nodeManager;
+    }
+
     private SqlStageExecution createSqlStageExecution(NodeScheduler nodeScheduler, int splitBatchSize, int maxPendingSplitsPerNode)
     {
         int splitCount = 20;
         ExecutorService remoteTaskExecutor = Executors.newCachedThreadPool(daemonThreadsNamed("remoteTaskExecutor"));
         MockRemoteTaskFactory remoteTaskFactory = new MockRemoteTaskFactory(remoteTaskExecutor);
+
+        StageExecutionPlan tableScanPlan = createTableScanPlan("test", splitCount);
+        return createSqlStageExecution(nodeScheduler, remoteTaskFactory, tableScanPlan, splitBatchSize, maxPendingSplitsPerNode);
+    }
+
+    private SqlStageExecution createSqlStageExecution(NodeScheduler nodeScheduler, RemoteTaskFactory remoteTaskFactory, StageExecutionPlan tableScanPlan, int splitBatchSize, int maxPendingSplitsPerNode)
+    {
         ExecutorService executor = Executors.newCachedThreadPool(daemonThreadsNamed("stageExecutor"));
 
         OutputBuffers outputBuffers = INITIAL_EMPTY_OUTPUT_BUFFERS
                 .withBuffer("out", new UnpartitionedPagePartitionFunction())
                 .withNoMoreBufferIds();
 
-        StageExecutionPlan tableScanPlan = createTableScanPlan("test", splitCount);
         return new SqlStageExecution(new QueryId("query"),
                 locationFactory,
                 tableScanPlan,
@@ -308,6 +361,20 @@ public class TestSqlStageExecution
     }
 
     private StageExecutionPlan createTableScanPlan(String planId, int splitCount)
+    {
+        return createTableScanPlan(planId, createSplitSource(splitCount));
+    }
+
+    private static SplitSource createSplitSource(int splitCount)
+    {
+        ImmutableList.Builder<ConnectorSplit> splits = ImmutableList.builder();
+        for (int i = 0; i < splitCount; i++) {
+            splits.add(new TestingSplit());
+        }
+        return new ConnectorAwareSplitSource("test", new FixedSplitSource(null, splits.build()));
+    }
+
+    private StageExecutionPlan createTableScanPlan(String planId, SplitSource splitSource)
     {
         Symbol symbol = new Symbol("column");
 
@@ -328,27 +395,81 @@ public class TestSqlStageExecution
                 OutputPartitioning.NONE,
                 ImmutableList.<Symbol>of());
 
-        ImmutableList.Builder<ConnectorSplit> splits = ImmutableList.builder();
-
-        for (int i = 0; i < splitCount; i++) {
-            splits.add(new TestingSplit());
-        }
-        SplitSource splitSource = new ConnectorAwareSplitSource("test", new FixedSplitSource(null, splits.build()));
-
         return new StageExecutionPlan(testFragment,
                 Optional.of(splitSource),
                 ImmutableList.<StageExecutionPlan>of()
         );
     }
 
+    private static class CountingSplitSource
+            implements SplitSource
+    {
+        private final SplitSource delegate;
+        private final AtomicInteger enumeratedSplits = new AtomicInteger();
+
+        private CountingSplitSource(SplitSource delegate)
+        {
+            this.delegate = checkNotNull(delegate, "delegate is null");
+        }
+
+        public int getEnumeratedSplits()
+        {
+            return enumeratedSplits.get();
+        }
+
+        @Override
+        public String getDataSourceName()
+        {
+            return delegate.getDataSourceName();
+        }
+
+        @Override
+        public List<Split> getNextBatch(int maxSize)
+                throws InterruptedException
+        {
+            List<Split> splits = delegate.getNextBatch(maxSize);
+            enumeratedSplits.addAndGet(splits.size());
+            return splits;
+        }
+
+        @Override
+        public void close()
+        {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isFinished()
+        {
+            return delegate.isFinished();
+        }
+    }
+
     private static class MockRemoteTaskFactory
             implements RemoteTaskFactory
     {
         private final Executor executor;
+        private final int finishAfterSplits;
+        private final AtomicInteger assignedSplits = new AtomicInteger();
 
         private MockRemoteTaskFactory(Executor executor)
+        {
+            this(executor, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Creates tasks that finish on their own once they have been given the specified number
+         * of splits, which is what a task does when all of its output buffers have been aborted.
+         */
+        private MockRemoteTaskFactory(Executor executor, int finishAfterSplits)
         {
             this.executor = executor;
+            this.finishAfterSplits = finishAfterSplits;
+        }
+
+        public int getAssignedSplits()
+        {
+            return assignedSplits.get();
         }
 
         @Override
@@ -363,7 +484,7 @@ public class TestSqlStageExecution
             return new MockRemoteTask(taskId, fragment, executor, initialSplits);
         }
 
-        private static class MockRemoteTask
+        private class MockRemoteTask
                 implements RemoteTask
         {
             private final AtomicLong nextTaskInfoVersion = new AtomicLong(TaskInfo.STARTING_VERSION);
@@ -396,6 +517,7 @@ public class TestSqlStageExecution
                 this.sharedBuffer = new SharedBuffer(taskId, executor, checkNotNull(new DataSize(1, Unit.BYTE), "maxBufferSize is null"), INITIAL_EMPTY_OUTPUT_BUFFERS);
                 this.fragment = checkNotNull(fragment, "fragment is null");
                 splits.putAll(initialSplits);
+                splitsAdded(initialSplits.size());
             }
 
             @Override
@@ -437,6 +559,15 @@ public class TestSqlStageExecution
                 for (Split split : splits) {
                     this.splits.put(sourceId, split);
                 }
+                splitsAdded(Iterables.size(splits));
+            }
+
+            private void splitsAdded(int count)
+            {
+                assignedSplits.addAndGet(count);
+                if (splits.size() >= finishAfterSplits) {
+                    taskStateMachine.finished();
+                }
             }
 
             @Override
@@ -494,6 +625,12 @@ public class TestSqlStageExecution
                 }
                 return splits.size();
             }
+
+            @Override
+            public int getRunningSplits()
+            {
+                return 0;
+            }
         }
     }
 }
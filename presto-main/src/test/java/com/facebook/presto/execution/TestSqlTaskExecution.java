@@ -18,10 +18,12 @@ import com.facebook.presto.ScheduledSplit;
 import com.facebook.presto.TaskSource;
 import com.facebook.presto.UnpartitionedPagePartitionFunction;
 import com.facebook.presto.event.query.QueryMonitor;
+import com.facebook.presto.execution.SharedBuffer.QueueState;
 import com.facebook.presto.execution.TestSqlTaskManager.MockExchangeClientSupplier;
 import com.facebook.presto.index.IndexManager;
 import com.facebook.presto.metadata.ColumnHandle;
 import com.facebook.presto.metadata.MetadataManager;
+import com.facebook.presto.metadata.Split;
 import com.facebook.presto.metadata.TableHandle;
 import com.facebook.presto.operator.RecordSinkManager;
 import com.facebook.presto.spi.ConnectorSession;
@@ -40,6 +42,7 @@ import com.facebook.presto.sql.planner.plan.PlanFragmentId;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.sql.planner.plan.TableScanNode;
 import com.facebook.presto.sql.planner.plan.TableScanNode.GeneratedPartitions;
+import com.facebook.presto.testing.TestingQueryPerformanceFetcher;
 import com.facebook.presto.type.TypeRegistry;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
@@ -71,6 +74,8 @@ import static org.testng.Assert.assertTrue;
 @Test(singleThreaded = true)
 public class TestSqlTaskExecution
 {
+    private LocalExecutionPlanner planner;
+    private PlanFragment testFragment;
     private TaskExecutor taskExecutor;
     private ExecutorService taskNotificationExecutor;
     private SqlTaskExecution taskExecution;
@@ -85,20 +90,22 @@ public class TestSqlTaskExecution
 
         MetadataManager metadata = new MetadataManager(new FeaturesConfig(), new TypeRegistry());
 
-        LocalExecutionPlanner planner = new LocalExecutionPlanner(
+        planner = new LocalExecutionPlanner(
                 new NodeInfo("test"),
                 metadata,
                 new DataStreamManager(),
                 new IndexManager(),
                 new RecordSinkManager(),
                 new MockExchangeClientSupplier(),
-                new ExpressionCompiler(metadata));
+                new ExpressionCompiler(metadata),
+                new TestingQueryPerformanceFetcher(),
+                new TaskManagerConfig());
 
         taskExecutor = new TaskExecutor(8);
         taskExecutor.start();
 
         tableScanNodeId = new PlanNodeId("tableScan");
-        PlanFragment testFragment = new PlanFragment(
+        testFragment = new PlanFragment(
                 new PlanFragmentId("fragment"),
                 new TableScanNode(
                         tableScanNodeId,
@@ -113,28 +120,11 @@ public class TestSqlTaskExecution
                 OutputPartitioning.NONE,
                 ImmutableList.<Symbol>of());
 
-        TaskId taskId = new TaskId("query", "stage", "task");
-        ConnectorSession session = new ConnectorSession("user", "test", "default", "default", UTC_KEY, Locale.ENGLISH, "test", "test");
-
         taskNotificationExecutor = Executors.newCachedThreadPool(threadsNamed("task-notification-%d"));
 
         outputBuffers = OutputBuffers.INITIAL_EMPTY_OUTPUT_BUFFERS;
 
-        taskExecution = SqlTaskExecution.createSqlTaskExecution(
-                session,
-                taskId,
-                URI.create("fake://task/" + taskId),
-                testFragment,
-                ImmutableList.<TaskSource>of(),
-                outputBuffers,
-                planner,
-                new DataSize(32, Unit.MEGABYTE),
-                taskExecutor,
-                taskNotificationExecutor,
-                new DataSize(256, Unit.MEGABYTE),
-                new DataSize(8, Unit.MEGABYTE),
-                new QueryMonitor(new ObjectMapperProvider().get(), new NullEventClient(), new NodeInfo("test")),
-                false);
+        taskExecution = createTaskExecution(taskExecutor);
     }
 
     @AfterMethod
@@ -216,4 +206,73 @@ public class TestSqlTaskExecution
         bufferResult = taskExecution.getResults("out", 0, new DataSize(1, Unit.MEGABYTE), new Duration(500, TimeUnit.MILLISECONDS));
         assertFalse(bufferResult.isBufferClosed());
     }
+
+    @Test
+    public void testFinishWhenAllConsumersAbort()
+            throws Exception
+    {
+        // the runner threads of this executor are never started, so the splits never run
+        TaskExecutor idleTaskExecutor = new TaskExecutor(1);
+        try {
+            SqlTaskExecution idleTaskExecution = createTaskExecution(idleTaskExecutor);
+            idleTaskExecution.addResultQueue(outputBuffers.withBuffer("out", new UnpartitionedPagePartitionFunction()).withNoMoreBufferIds());
+            idleTaskExecution.addSources(ImmutableList.of(new TaskSource(
+                    tableScanNodeId,
+                    ImmutableSet.of(
+                            new ScheduledSplit(0, new Split("test", new TestingSplit())),
+                            new ScheduledSplit(1, new Split("test", new TestingSplit())),
+                            new ScheduledSplit(2, new Split("test", new TestingSplit()))),
+                    false)));
+
+            // while the consumer is reading, the task waits for its splits and for more splits
+            assertFalse(idleTaskExecution.getTaskInfo(false).getState().isDone());
+
+            // once the only consumer aborts, the output would be discarded, so the task finishes without running its splits
+            idleTaskExecution.abortResults("out");
+            TaskInfo taskInfo = idleTaskExecution.getTaskInfo(false);
+            assertEquals(taskInfo.getState(), TaskState.FINISHED);
+            assertEquals(taskInfo.getOutputBuffers().getState(), QueueState.FINISHED);
+            assertEquals(taskInfo.getStats().getCompletedDrivers(), 0);
+        }
+        finally {
+            idleTaskExecutor.stop();
+        }
+    }
+
+    @Test
+    public void testNotFinishedWhileConsumerReads()
+            throws Exception
+    {
+        outputBuffers = outputBuffers.withBuffer("out", new UnpartitionedPagePartitionFunction()).withBuffer("other", new UnpartitionedPagePartitionFunction()).withNoMoreBufferIds();
+        taskExecution.addResultQueue(outputBuffers);
+
+        // one of the two consumers is still reading, so the task has to produce its output
+        taskExecution.abortResults("out");
+        assertFalse(taskExecution.getTaskInfo(false).getState().isDone());
+
+        taskExecution.addSources(ImmutableList.of(new TaskSource(tableScanNodeId, ImmutableSet.<ScheduledSplit>of(), true)));
+        assertEquals(taskExecution.getTaskInfo(false).getState(), TaskState.FINISHED);
+    }
+
+    private SqlTaskExecution createTaskExecution(TaskExecutor taskExecutor)
+    {
+        TaskId taskId = new TaskId("query", "stage", "task");
+        ConnectorSession session = new ConnectorSession("user", "test", "default", "default", UTC_KEY, Locale.ENGLISH, "test", "test");
+
+        return SqlTaskExecution.createSqlTaskExecution(
+                session,
+                taskId,
+                URI.create("fake://task/" + taskId),
+                testFragment,
+                ImmutableList.<TaskSource>of(),
+                outputBuffers,
+                planner,
+                new DataSize(32, Unit.MEGABYTE),
+                taskExecutor,
+                taskNotificationExecutor,
+                new DataSize(256, Unit.MEGABYTE),
+                new DataSize(8, Unit.MEGABYTE),
+                new QueryMonitor(new ObjectMapperProvider().get(), new NullEventClient(), new NodeInfo("test")),
+                false);
+    }
 }
@@ -23,6 +23,7 @@ import com.facebook.presto.metadata.MetadataManager;
 import com.facebook.presto.metadata.Split;
 import com.facebook.presto.metadata.TableHandle;
 import com.facebook.presto.operator.ExchangeClient;
+import com.facebook.presto.operator.PipelineStats;
 import com.facebook.presto.operator.RecordSinkManager;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.Node;
@@ -40,6 +41,7 @@ import com.facebook.presto.sql.planner.TestingTableHandle;
 import com.facebook.presto.sql.planner.plan.PlanFragmentId;
 import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.facebook.presto.sql.planner.plan.TableScanNode;
+import com.facebook.presto.testing.TestingQueryPerformanceFetcher;
 import com.facebook.presto.type.TypeRegistry;
 import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
@@ -66,8 +68,10 @@ import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.sql.planner.plan.TableScanNode.GeneratedPartitions;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 @Test(singleThreaded = true)
@@ -100,7 +104,9 @@ public class TestSqlTaskManager
                 new IndexManager(),
                 new RecordSinkManager(),
                 new MockExchangeClientSupplier(),
-                new ExpressionCompiler(metadata));
+                new ExpressionCompiler(metadata),
+                new TestingQueryPerformanceFetcher(),
+                new TaskManagerConfig());
 
         taskExecutor = new TaskExecutor(8);
         taskExecutor.start();
@@ -196,6 +202,48 @@ public class TestSqlTaskManager
         assertEquals(taskInfo.getState(), TaskState.FINISHED);
     }
 
+    @Test
+    public void testUpdateWithoutFragment()
+            throws Exception
+    {
+        TaskInfo taskInfo = sqlTaskManager.updateTask(session,
+                taskId,
+                testFragment,
+                ImmutableList.<TaskSource>of(),
+                INITIAL_EMPTY_OUTPUT_BUFFERS);
+        assertEquals(taskInfo.getState(), TaskState.RUNNING);
+
+        // running tasks only report the driver details when asked for the full info,
+        // but always report the pipelines and their operator summaries
+        assertFalse(taskInfo.getStats().getPipelines().isEmpty());
+        for (PipelineStats pipeline : sqlTaskManager.getTaskInfo(taskId, false).getStats().getPipelines()) {
+            assertTrue(pipeline.getDrivers().isEmpty());
+        }
+        assertFalse(sqlTaskManager.getTaskInfo(taskId, true).getStats().getPipelines().isEmpty());
+
+        // the fragment is not needed once the task exists
+        taskInfo = sqlTaskManager.updateTask(session,
+                taskId,
+                null,
+                ImmutableList.of(new TaskSource(tableScanNodeId, ImmutableSet.<ScheduledSplit>of(), true)),
+                INITIAL_EMPTY_OUTPUT_BUFFERS.withNoMoreBufferIds());
+        assertEquals(taskInfo.getState(), TaskState.FINISHED);
+
+        // the final info is always complete
+        assertFalse(sqlTaskManager.getTaskInfo(taskId, false).getStats().getPipelines().isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCreateWithoutFragment()
+            throws Exception
+    {
+        sqlTaskManager.updateTask(session,
+                taskId,
+                null,
+                ImmutableList.<TaskSource>of(),
+                INITIAL_EMPTY_OUTPUT_BUFFERS);
+    }
+
     @Test
     public void testCancel()
             throws Exception
@@ -34,11 +34,14 @@ public class TestTaskManagerConfig
         assertRecordedDefaults(recordDefaults(TaskManagerConfig.class)
                 .setTaskCpuTimerEnabled(true)
                 .setMaxShardProcessorThreads(Runtime.getRuntime().availableProcessors() * 4)
+                .setTaskDefaultConcurrency(1)
                 .setInfoMaxAge(new Duration(15, TimeUnit.MINUTES))
                 .setClientTimeout(new Duration(5, TimeUnit.MINUTES))
                 .setMaxTaskMemoryUsage(new DataSize(256, Unit.MEGABYTE))
                 .setOperatorPreAllocatedMemory(new DataSize(16, Unit.MEGABYTE))
-                .setSinkMaxBufferSize(new DataSize(32, Unit.MEGABYTE)));
+                .setSinkMaxBufferSize(new DataSize(32, Unit.MEGABYTE))
+                .setIndexCacheMaxMemory(new DataSize(0, Unit.BYTE))
+                .setIndexCacheTtl(new Duration(5, TimeUnit.MINUTES)));
     }
 
     @Test
@@ -49,9 +52,12 @@ public class TestTaskManagerConfig
                 .put("task.max-memory", "2GB")
                 .put("task.operator-pre-allocated-memory", "2MB")
                 .put("task.shard.max-threads", "3")
+                .put("task.default-concurrency", "8")
                 .put("task.info.max-age", "22m")
                 .put("task.client.timeout", "10s")
                 .put("sink.max-buffer-size", "42MB")
+                .put("task.index-cache.max-memory", "64MB")
+                .put("task.index-cache.ttl", "1h")
                 .build();
 
         TaskManagerConfig expected = new TaskManagerConfig()
@@ -59,9 +65,12 @@ public class TestTaskManagerConfig
                 .setMaxTaskMemoryUsage(new DataSize(2, Unit.GIGABYTE))
                 .setOperatorPreAllocatedMemory(new DataSize(2, Unit.MEGABYTE))
                 .setMaxShardProcessorThreads(3)
+                .setTaskDefaultConcurrency(8)
                 .setInfoMaxAge(new Duration(22, TimeUnit.MINUTES))
                 .setClientTimeout(new Duration(10, TimeUnit.SECONDS))
-                .setSinkMaxBufferSize(new DataSize(42, Unit.MEGABYTE));
+                .setSinkMaxBufferSize(new DataSize(42, Unit.MEGABYTE))
+                .setIndexCacheMaxMemory(new DataSize(64, Unit.MEGABYTE))
+                .setIndexCacheTtl(new Duration(1, TimeUnit.HOURS));
 
         assertFullMapping(properties, expected);
     }
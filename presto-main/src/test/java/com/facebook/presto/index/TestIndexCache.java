@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.index;
+
+import com.facebook.presto.metadata.ColumnHandle;
+import com.facebook.presto.metadata.IndexHandle;
+import com.facebook.presto.spi.ConnectorIndexHandle;
+import com.facebook.presto.spi.InMemoryRecordSet;
+import com.facebook.presto.spi.Index;
+import com.facebook.presto.spi.RecordCursor;
+import com.facebook.presto.spi.RecordSet;
+import com.facebook.presto.sql.planner.TestingColumnHandle;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class TestIndexCache
+{
+    private static final IndexHandle INDEX_HANDLE = new IndexHandle("test", new ConnectorIndexHandle() {});
+    private static final ColumnHandle KEY_COLUMN = new ColumnHandle("test", new TestingColumnHandle("key"));
+    private static final ColumnHandle VALUE_COLUMN = new ColumnHandle("test", new TestingColumnHandle("value"));
+
+    @Test
+    public void testCachedLookups()
+    {
+        IndexCache indexCache = new IndexCache(new DataSize(1, MEGABYTE), new Duration(1, MINUTES));
+        CountingIndex countingIndex = new CountingIndex();
+
+        Index index = indexCache.getIndex(INDEX_HANDLE, ImmutableList.of(KEY_COLUMN), ImmutableList.of(VALUE_COLUMN, KEY_COLUMN), countingIndex);
+        assertEquals(lookup(index, 1, 2, 3, 3), ImmutableList.of(
+                Arrays.<Object>asList("a", 1L),
+                Arrays.<Object>asList("b", 2L)));
+        assertEquals(countingIndex.getLookedUpKeys(), ImmutableList.of(1L, 2L, 3L));
+
+        // a new index from another query shares the cached keys, including the key without rows
+        index = indexCache.getIndex(INDEX_HANDLE, ImmutableList.of(KEY_COLUMN), ImmutableList.of(VALUE_COLUMN, KEY_COLUMN), countingIndex);
+        assertEquals(lookup(index, 3, 2, 4), ImmutableList.of(
+                Arrays.<Object>asList("b", 2L),
+                Arrays.<Object>asList("d", 4L)));
+        assertEquals(countingIndex.getLookedUpKeys(), ImmutableList.of(1L, 2L, 3L, 4L));
+
+        assertEquals(indexCache.getHitCount(), 2);
+        assertEquals(indexCache.getMissCount(), 4);
+        assertEquals(indexCache.getSize(), 4);
+
+        // a different output schema is cached separately
+        index = indexCache.getIndex(INDEX_HANDLE, ImmutableList.of(KEY_COLUMN), ImmutableList.of(KEY_COLUMN, VALUE_COLUMN), new CountingIndex());
+        lookup(index, 1);
+        assertEquals(indexCache.getSize(), 5);
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        IndexCache indexCache = new IndexCache(new DataSize(0, MEGABYTE), new Duration(1, MINUTES));
+        CountingIndex countingIndex = new CountingIndex();
+        assertSame(indexCache.getIndex(INDEX_HANDLE, ImmutableList.of(KEY_COLUMN), ImmutableList.of(VALUE_COLUMN, KEY_COLUMN), countingIndex), countingIndex);
+    }
+
+    private static List<List<Object>> lookup(Index index, long... keys)
+    {
+        List<List<Object>> keyRows = new ArrayList<>();
+        for (long key : keys) {
+            keyRows.add(ImmutableList.<Object>of(key));
+        }
+
+        List<List<Object>> rows = new ArrayList<>();
+        RecordCursor cursor = index.lookup(new InMemoryRecordSet(ImmutableList.of(BIGINT), keyRows)).cursor();
+        while (cursor.advanceNextPosition()) {
+            rows.add(Arrays.<Object>asList(cursor.getSlice(0).toStringUtf8(), cursor.getLong(1)));
+        }
+        return rows;
+    }
+
+    /**
+     * Returns a row for every even key and for key 1, where the value is the key as a letter.
+     */
+    private static class CountingIndex
+            implements Index
+    {
+        private final List<Long> lookedUpKeys = new ArrayList<>();
+
+        @Override
+        public RecordSet lookup(RecordSet recordSet)
+        {
+            Set<Long> keys = new HashSet<>();
+            List<List<Object>> rows = new ArrayList<>();
+            RecordCursor cursor = recordSet.cursor();
+            while (cursor.advanceNextPosition()) {
+                long key = cursor.getLong(0);
+                lookedUpKeys.add(key);
+                if (keys.add(key) && (key == 1 || key % 2 == 0)) {
+                    rows.add(ImmutableList.<Object>of(String.valueOf((char) ('a' + key - 1)), key));
+                }
+            }
+            return new InMemoryRecordSet(ImmutableList.of(VARCHAR, BIGINT), rows);
+        }
+
+        public List<Long> getLookedUpKeys()
+        {
+            return lookedUpKeys;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertTrue;
+
+public class TestBlockedBloomFilter
+{
+    @Test
+    public void testNoFalseNegatives()
+    {
+        BlockedBloomFilter filter = new BlockedBloomFilter(100_000);
+        for (int i = 0; i < 100_000; i++) {
+            filter.add(i * 31);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain(i * 31));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate()
+    {
+        BlockedBloomFilter filter = new BlockedBloomFilter(100_000);
+        for (int i = 0; i < 100_000; i++) {
+            filter.add(i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 100_000; i < 200_000; i++) {
+            if (filter.mightContain(i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 5_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        BlockedBloomFilter filter = new BlockedBloomFilter(0);
+        filter.add(42);
+        assertTrue(filter.mightContain(42));
+        assertTrue(filter.getSizeInBytes() > 0);
+    }
+}
@@ -18,6 +18,7 @@ import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.operator.HashAggregationOperator.HashAggregationOperatorFactory;
 import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.block.BlockCursor;
 import com.facebook.presto.spi.block.BlockBuilder;
 import com.facebook.presto.spi.block.BlockBuilderStatus;
 import com.facebook.presto.sql.planner.plan.AggregationNode.Step;
@@ -59,6 +60,8 @@ import static io.airlift.slice.SizeOf.SIZE_OF_DOUBLE;
 import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestHashAggregationOperator
@@ -282,4 +285,77 @@ public class TestHashAggregationOperator
 
         assertEquals(toPages(operator, input).size(), 2);
     }
+
+    @Test
+    public void testPartialAggregationPassThrough()
+    {
+        RowPagesBuilder inputBuilder = rowPagesBuilder(BIGINT, BIGINT);
+        for (int i = 0; i < 200; i++) {
+            inputBuilder.addSequencePage(1000, i * 1000, 0);
+        }
+        List<Page> input = inputBuilder.build();
+
+        Operator operator = createPartialAggregation();
+        List<Page> output = toPages(operator, input);
+
+        // every key is unique, so the output has one row per input row with the same count and sum
+        long positions = 0;
+        long count = 0;
+        long sum = 0;
+        for (Page page : output) {
+            positions += page.getPositionCount();
+            BlockCursor countCursor = page.getBlock(1).cursor();
+            BlockCursor sumCursor = page.getBlock(2).cursor();
+            while (countCursor.advanceNextPosition() && sumCursor.advanceNextPosition()) {
+                count += countCursor.getLong();
+                sum += sumCursor.getLong();
+            }
+        }
+        assertEquals(positions, 200_000);
+        assertEquals(count, 200_000);
+        assertEquals(sum, 200 * (999 * 1000 / 2));
+
+        PartialAggregationInfo info = (PartialAggregationInfo) operator.getOperatorContext().getOperatorStats().getInfo();
+        assertTrue(info.isPassThrough());
+        assertEquals(info.getAggregatedPositions(), 100_000);
+        assertEquals(info.getGroups(), 100_000);
+        assertEquals(info.getPassThroughPositions(), 100_000);
+    }
+
+    @Test
+    public void testPartialAggregationWithReduction()
+    {
+        RowPagesBuilder inputBuilder = rowPagesBuilder(BIGINT, BIGINT);
+        for (int i = 0; i < 200; i++) {
+            inputBuilder.addSequencePage(1000, 0, 0);
+        }
+        List<Page> input = inputBuilder.build();
+
+        Operator operator = createPartialAggregation();
+        long positions = 0;
+        for (Page page : toPages(operator, input)) {
+            positions += page.getPositionCount();
+        }
+        assertEquals(positions, 1000);
+
+        PartialAggregationInfo info = (PartialAggregationInfo) operator.getOperatorContext().getOperatorStats().getInfo();
+        assertFalse(info.isPassThrough());
+        assertEquals(info.getAggregatedPositions(), 200_000);
+        assertEquals(info.getGroups(), 1000);
+        assertEquals(info.getPassThroughPositions(), 0);
+    }
+
+    private Operator createPartialAggregation()
+    {
+        HashAggregationOperatorFactory operatorFactory = new HashAggregationOperatorFactory(
+                0,
+                ImmutableList.of(BIGINT),
+                Ints.asList(0),
+                Step.PARTIAL,
+                ImmutableList.of(aggregation(COUNT, ImmutableList.of(new Input(1)), Optional.<Input>absent(), Optional.<Input>absent(), 1.0),
+                        aggregation(LONG_SUM, ImmutableList.of(new Input(1)), Optional.<Input>absent(), Optional.<Input>absent(), 1.0)),
+                100_000);
+
+        return operatorFactory.createOperator(driverContext);
+    }
 }
@@ -35,8 +35,10 @@ import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.slice.SizeOf.sizeOfIntArray;
 import static io.airlift.units.DataSize.Unit.BYTE;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestHashJoinOperator
@@ -106,6 +108,50 @@ public class TestHashJoinOperator
         assertOperatorEquals(joinOperator, probeInput, expected);
     }
 
+    @Test
+    public void testInnerJoinWithLargeBuild()
+            throws Exception
+    {
+        DriverContext driverContext = taskContext.addPipelineContext(true, true).addDriverContext();
+
+        // build a hash large enough to be partitioned and built in parallel
+        OperatorContext operatorContext = driverContext.addOperatorContext(0, ValuesOperator.class.getSimpleName());
+        Operator buildOperator = new ValuesOperator(operatorContext, rowPagesBuilder(BIGINT, BIGINT)
+                .addSequencePage(300_000, 0, 1_000_000)
+                .build());
+        HashBuilderOperatorFactory hashBuilderOperatorFactory = new HashBuilderOperatorFactory(1, buildOperator.getTypes(), Ints.asList(0), 100);
+        Operator sourceHashProvider = hashBuilderOperatorFactory.createOperator(driverContext);
+
+        Driver driver = new Driver(driverContext, buildOperator, sourceHashProvider);
+        while (!driver.isFinished()) {
+            driver.process();
+        }
+
+        // the temporary arrays of the build are charged to the hash builder
+        OperatorStats buildStats = driverContext.getOperatorContexts().get(1).getOperatorStats();
+        assertTrue(buildStats.getMemoryReservation().toBytes() >= sizeOfIntArray(300_000) * 3);
+
+        // probe
+        List<Page> probeInput = rowPagesBuilder(BIGINT)
+                .addSequencePage(4, 299_998)
+                .build();
+        OperatorFactory joinOperatorFactory = LookupJoinOperators.innerJoin(
+                0,
+                hashBuilderOperatorFactory.getLookupSourceSupplier(),
+                ImmutableList.of(BIGINT),
+                Ints.asList(0));
+
+        Operator joinOperator = joinOperatorFactory.createOperator(taskContext.addPipelineContext(true, true).addDriverContext());
+
+        // expected
+        MaterializedResult expected = MaterializedResult.resultBuilder(taskContext.getSession(), BIGINT, BIGINT, BIGINT)
+                .row(299_998, 299_998, 1_299_998)
+                .row(299_999, 299_999, 1_299_999)
+                .build();
+
+        assertOperatorEquals(joinOperator, probeInput, expected);
+    }
+
     @Test
     public void testInnerJoinWithNullProbe()
             throws Exception
@@ -250,6 +250,49 @@ public class TestHashSemiJoinOperator
         OperatorAssertion.assertOperatorEquals(joinOperator, probeInput, expected);
     }
 
+    @Test
+    public void testLargeBuildSide()
+            throws Exception
+    {
+        DriverContext driverContext = taskContext.addPipelineContext(true, true).addDriverContext();
+
+        // build a set large enough to be probed through a bloom filter
+        OperatorContext operatorContext = driverContext.addOperatorContext(0, ValuesOperator.class.getSimpleName());
+        Operator buildOperator = new ValuesOperator(operatorContext, rowPagesBuilder(BIGINT)
+                .addSequencePage(100_000, 0)
+                .build());
+        SetBuilderOperatorFactory setBuilderOperatorFactory = new SetBuilderOperatorFactory(1, buildOperator.getTypes(), 0, 10);
+        Operator setBuilderOperator = setBuilderOperatorFactory.createOperator(driverContext);
+
+        Driver driver = new Driver(driverContext, buildOperator, setBuilderOperator);
+        while (!driver.isFinished()) {
+            driver.process();
+        }
+
+        // probe
+        List<Page> probeInput = rowPagesBuilder(BIGINT)
+                .addSequencePage(6, 99_997)
+                .build();
+        HashSemiJoinOperatorFactory joinOperatorFactory = new HashSemiJoinOperatorFactory(
+                2,
+                setBuilderOperatorFactory.getSetProvider(),
+                ImmutableList.of(BIGINT),
+                0);
+        Operator joinOperator = joinOperatorFactory.createOperator(driverContext);
+
+        // expected
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT, BOOLEAN)
+                .row(99_997, true)
+                .row(99_998, true)
+                .row(99_999, true)
+                .row(100_000, false)
+                .row(100_001, false)
+                .row(100_002, false)
+                .build();
+
+        OperatorAssertion.assertOperatorEquals(joinOperator, probeInput, expected);
+    }
+
     @Test(expectedExceptions = ExceededMemoryLimitException.class, expectedExceptionsMessageRegExp = "Task exceeded max memory size.*")
     public void testMemoryLimit()
             throws Exception
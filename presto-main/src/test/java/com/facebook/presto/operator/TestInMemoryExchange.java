@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.operator.InMemoryExchangeSourceOperator.InMemoryExchangeSourceOperatorFactory;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.block.BlockCursor;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.operator.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestInMemoryExchange
+{
+    private ExecutorService executor;
+    private TaskContext taskContext;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test"));
+        ConnectorSession session = new ConnectorSession("user", "source", "catalog", "schema", UTC_KEY, Locale.ENGLISH, "address", "agent");
+        taskContext = new TaskContext(new TaskId("query", "stage", "task"), executor, session);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPartitionedExchange()
+            throws Exception
+    {
+        int bufferCount = 3;
+        InMemoryExchange exchange = new InMemoryExchange(ImmutableList.of(BIGINT, BIGINT), bufferCount, ImmutableList.of(0));
+
+        OperatorFactory sinkFactory = exchange.createSinkFactory(0);
+        exchange.noMoreSinkFactories();
+        Operator sink = sinkFactory.createOperator(taskContext.addPipelineContext(true, false).addDriverContext());
+        sinkFactory.close();
+
+        // every key is added twice, so both rows of a key must end up in the same buffer
+        List<Page> input = rowPagesBuilder(BIGINT, BIGINT)
+                .addSequencePage(1000, 0, 0)
+                .addSequencePage(1000, 0, 1000)
+                .build();
+        for (Page page : input) {
+            assertTrue(sink.needsInput());
+            sink.addInput(page);
+        }
+        sink.finish();
+        assertTrue(exchange.isFinishing());
+
+        InMemoryExchangeSourceOperatorFactory sourceFactory = new InMemoryExchangeSourceOperatorFactory(1, exchange);
+        PipelineContext sourcePipeline = taskContext.addPipelineContext(false, true);
+        Map<Long, Integer> keyBuffers = new HashMap<>();
+        int positions = 0;
+        for (int bufferIndex = 0; bufferIndex < bufferCount; bufferIndex++) {
+            Operator source = sourceFactory.createOperator(sourcePipeline.addDriverContext());
+
+            int bufferPages = 0;
+            int bufferPositions = 0;
+            for (Page page = source.getOutput(); page != null; page = source.getOutput()) {
+                bufferPages++;
+                BlockCursor cursor = page.getBlock(0).cursor();
+                while (cursor.advanceNextPosition()) {
+                    Integer previousBuffer = keyBuffers.put(cursor.getLong(), bufferIndex);
+                    if (previousBuffer != null) {
+                        assertEquals(previousBuffer.intValue(), bufferIndex);
+                    }
+                    bufferPositions++;
+                }
+            }
+            assertTrue(bufferPositions > 0, "buffer " + bufferIndex + " is empty");
+            // the rows of both input pages are added to each buffer as a single page when the sink finishes
+            assertEquals(bufferPages, 1);
+            assertTrue(source.isFinished());
+            assertNull(source.getOutput());
+            positions += bufferPositions;
+        }
+        sourceFactory.close();
+
+        assertEquals(positions, 2000);
+        assertEquals(keyBuffers.size(), 1000);
+        assertTrue(exchange.isFinished());
+    }
+}
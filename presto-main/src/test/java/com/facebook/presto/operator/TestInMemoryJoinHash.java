@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockCursor;
+import com.facebook.presto.spi.block.RandomAccessBlock;
+import com.google.common.collect.ImmutableList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.operator.SyntheticAddress.decodePosition;
+import static com.facebook.presto.operator.SyntheticAddress.decodeSliceIndex;
+import static com.facebook.presto.operator.SyntheticAddress.encodeSyntheticAddress;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestInMemoryJoinHash
+{
+    private static final int KEY_COUNT = 100_000;
+    private static final int POSITIONS_PER_BLOCK = 10_000;
+
+    private ExecutorService executor;
+    private OperatorContext operatorContext;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test"));
+        ConnectorSession session = new ConnectorSession("user", "source", "catalog", "schema", UTC_KEY, Locale.ENGLISH, "address", "agent");
+        operatorContext = new TaskContext(new TaskId("query", "stage", "task"), executor, session)
+                .addPipelineContext(true, true)
+                .addDriverContext()
+                .addOperatorContext(0, InMemoryJoinHash.class.getSimpleName());
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testHashCollisions()
+            throws Exception
+    {
+        // every key has a twin with the same hash code, and both appear twice; the 400K positions
+        // are enough for a partitioned build, so the collisions are spread over all partitions
+        List<Long> values = new ArrayList<>();
+        for (int key = 0; key < KEY_COUNT; key++) {
+            values.add(collidingValue(key, 0));
+            values.add(collidingValue(key, 1));
+        }
+        values.addAll(ImmutableList.copyOf(values));
+
+        List<RandomAccessBlock> blocks = new ArrayList<>();
+        LongArrayList addresses = new LongArrayList();
+        for (int start = 0; start < values.size(); start += POSITIONS_PER_BLOCK) {
+            int end = Math.min(values.size(), start + POSITIONS_PER_BLOCK);
+            blocks.add(createBlock(values.subList(start, end)));
+            for (int position = 0; position < end - start; position++) {
+                addresses.add(encodeSyntheticAddress(blocks.size() - 1, position));
+            }
+        }
+
+        PagesHashStrategy hashStrategy = new SimplePagesHashStrategy(ImmutableList.<List<RandomAccessBlock>>of(blocks), ImmutableList.of(0));
+        InMemoryJoinHash joinHash = new InMemoryJoinHash(addresses, hashStrategy, operatorContext);
+
+        // a third value with the same hash code is not in the build side
+        List<Long> probeValues = new ArrayList<>();
+        for (int key = 0; key < KEY_COUNT; key++) {
+            probeValues.add(collidingValue(key, 0));
+            probeValues.add(collidingValue(key, 1));
+            probeValues.add(collidingValue(key, 2));
+        }
+
+        BlockCursor cursor = createBlock(probeValues).cursor();
+        while (cursor.advanceNextPosition()) {
+            long value = cursor.getLong();
+            int matches = 0;
+            for (long position = joinHash.getJoinPosition(cursor); position >= 0; position = joinHash.getNextJoinPosition(position)) {
+                long address = addresses.getLong((int) position);
+                assertEquals(blocks.get(decodeSliceIndex(address)).getLong(decodePosition(address)), value);
+                matches++;
+            }
+            assertEquals(matches, value >>> 32 == 2 ? 0 : 2, "matches for " + value);
+        }
+        assertTrue(operatorContext.getOperatorStats().getMemoryReservation().toBytes() > 0);
+    }
+
+    /**
+     * Returns a value that has the bigint hash code {@code key} and differs for every {@code twin}.
+     */
+    private static long collidingValue(int key, int twin)
+    {
+        return ((long) twin << 32) | (key ^ twin);
+    }
+
+    private static RandomAccessBlock createBlock(List<Long> values)
+    {
+        BlockBuilder blockBuilder = BIGINT.createFixedSizeBlockBuilder(values.size());
+        for (long value : values) {
+            blockBuilder.appendLong(value);
+        }
+        return blockBuilder.build();
+    }
+}
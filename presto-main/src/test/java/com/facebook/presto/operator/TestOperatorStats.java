@@ -13,6 +13,7 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import io.airlift.json.JsonCodec;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
@@ -27,6 +28,7 @@ public class TestOperatorStats
     public static final OperatorStats EXPECTED = new OperatorStats(
             41,
             "test",
+            new PlanNodeId("test-node"),
 
             1,
             new Duration(2, NANOSECONDS),
@@ -67,6 +69,7 @@ public class TestOperatorStats
     {
         Assert.assertEquals(actual.getOperatorId(), 41);
         Assert.assertEquals(actual.getOperatorType(), "test");
+        Assert.assertEquals(actual.getPlanNodeId(), new PlanNodeId("test-node"));
 
         Assert.assertEquals(actual.getAddInputCalls(), 1);
         Assert.assertEquals(actual.getAddInputWall(), new Duration(2, NANOSECONDS));
@@ -100,6 +103,7 @@ public class TestOperatorStats
 
         Assert.assertEquals(actual.getOperatorId(), 41);
         Assert.assertEquals(actual.getOperatorType(), "test");
+        Assert.assertEquals(actual.getPlanNodeId(), new PlanNodeId("test-node"));
 
         Assert.assertEquals(actual.getAddInputCalls(), 3 * 1);
         Assert.assertEquals(actual.getAddInputWall(), new Duration(3 * 2, NANOSECONDS));
@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.operator.StreamingAggregationOperator.StreamingAggregationOperatorFactory;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.sql.planner.plan.AggregationNode.Step;
+import com.facebook.presto.sql.tree.Input;
+import com.facebook.presto.testing.MaterializedResult;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.operator.AggregationFunctionDefinition.aggregation;
+import static com.facebook.presto.operator.OperatorAssertion.assertOperatorEquals;
+import static com.facebook.presto.operator.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.operator.aggregation.CountAggregation.COUNT;
+import static com.facebook.presto.operator.aggregation.LongSumAggregation.LONG_SUM;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestStreamingAggregationOperator
+{
+    private ExecutorService executor;
+    private DriverContext driverContext;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test"));
+        ConnectorSession session = new ConnectorSession("user", "source", "catalog", "schema", UTC_KEY, Locale.ENGLISH, "address", "agent");
+        driverContext = new TaskContext(new TaskId("query", "stage", "task"), executor, session)
+                .addPipelineContext(true, true)
+                .addDriverContext();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testStreamingAggregation()
+            throws Exception
+    {
+        // groups continue across page boundaries, and the null group is kept apart
+        List<Page> input = rowPagesBuilder(VARCHAR, BIGINT)
+                .row("a", 1)
+                .row("a", 2)
+                .pageBreak()
+                .row("a", 3)
+                .row("b", 4)
+                .row("c", 5)
+                .pageBreak()
+                .row("c", 6)
+                .pageBreak()
+                .row(null, 7)
+                .row(null, 8)
+                .row("a", 9)
+                .build();
+
+        Operator operator = createOperator(Step.SINGLE);
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT, BIGINT)
+                .row("a", 3, 6)
+                .row("b", 1, 4)
+                .row("c", 2, 11)
+                .row(null, 2, 15)
+                .row("a", 1, 9)
+                .build();
+
+        assertOperatorEquals(operator, input, expected);
+    }
+
+    @Test
+    public void testManyGroups()
+            throws Exception
+    {
+        // enough groups to replace the accumulators several times, with groups that span pages
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(VARCHAR, BIGINT);
+        MaterializedResult.Builder expected = resultBuilder(driverContext.getSession(), VARCHAR, BIGINT, BIGINT);
+        int rows = 0;
+        for (int group = 0; group < 5000; group++) {
+            int groupRows = group % 3 + 1;
+            for (int i = 0; i < groupRows; i++) {
+                rowPagesBuilder.row("group" + group, group);
+                rows++;
+                if (rows % 1000 == 0) {
+                    rowPagesBuilder.pageBreak();
+                }
+            }
+            expected.row("group" + group, groupRows, (long) group * groupRows);
+        }
+
+        assertOperatorEquals(createOperator(Step.SINGLE), rowPagesBuilder.build(), expected.build());
+    }
+
+    @Test
+    public void testGroupsAreNotEmittedBeforeTheyClose()
+            throws Exception
+    {
+        Operator operator = createOperator(Step.SINGLE);
+
+        operator.addInput(rowPagesBuilder(VARCHAR, BIGINT)
+                .row("a", 1)
+                .row("a", 2)
+                .build()
+                .get(0));
+        assertNull(operator.getOutput());
+
+        operator.finish();
+        Page page = operator.getOutput();
+        assertEquals(page.getPositionCount(), 1);
+        assertTrue(operator.isFinished());
+    }
+
+    @Test
+    public void testNoInput()
+            throws Exception
+    {
+        Operator operator = createOperator(Step.SINGLE);
+        operator.finish();
+        assertNull(operator.getOutput());
+        assertTrue(operator.isFinished());
+    }
+
+    private Operator createOperator(Step step)
+    {
+        StreamingAggregationOperatorFactory operatorFactory = new StreamingAggregationOperatorFactory(
+                0,
+                ImmutableList.of(VARCHAR),
+                Ints.asList(0),
+                step,
+                ImmutableList.of(aggregation(COUNT, ImmutableList.of(new Input(1)), Optional.<Input>absent(), Optional.<Input>absent(), 1.0),
+                        aggregation(LONG_SUM, ImmutableList.of(new Input(1)), Optional.<Input>absent(), Optional.<Input>absent(), 1.0)));
+
+        return operatorFactory.createOperator(driverContext);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator;
+
+import com.facebook.presto.OutputBuffers;
+import com.facebook.presto.UnpartitionedPagePartitionFunction;
+import com.facebook.presto.execution.SharedBuffer;
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.operator.TaskOutputOperator.TaskOutputOperatorFactory;
+import com.facebook.presto.spi.ConnectorSession;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.OutputBuffers.INITIAL_EMPTY_OUTPUT_BUFFERS;
+import static com.facebook.presto.operator.SequencePageBuilder.createSequencePage;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestTaskOutputOperator
+{
+    private static final TaskId TASK_ID = new TaskId("query", "stage", "task");
+
+    private ExecutorService executor;
+    private DriverContext driverContext;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test"));
+        ConnectorSession session = new ConnectorSession("user", "source", "catalog", "schema", UTC_KEY, Locale.ENGLISH, "address", "agent");
+        driverContext = new TaskContext(TASK_ID, executor, session)
+                .addPipelineContext(true, true)
+                .addDriverContext();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFinishedWhenAllConsumersAbort()
+    {
+        // the buffer holds a single page, so the second page blocks the operator
+        SharedBuffer sharedBuffer = createSharedBuffer(INITIAL_EMPTY_OUTPUT_BUFFERS
+                .withBuffer("out", new UnpartitionedPagePartitionFunction())
+                .withNoMoreBufferIds());
+        Operator operator = new TaskOutputOperatorFactory(0, sharedBuffer).createOperator(driverContext);
+
+        operator.addInput(createSequencePage(ImmutableList.of(BIGINT), 10, 0));
+        operator.addInput(createSequencePage(ImmutableList.of(BIGINT), 10, 10));
+        assertFalse(operator.isBlocked().isDone());
+        assertFalse(operator.isFinished());
+
+        // the operator was never told to finish, but its output is no longer wanted
+        sharedBuffer.abort("out");
+        assertTrue(operator.isFinished());
+        assertFalse(operator.needsInput());
+        assertTrue(operator.isBlocked().isDone());
+    }
+
+    @Test
+    public void testNotFinishedWhileConsumerReads()
+    {
+        SharedBuffer sharedBuffer = createSharedBuffer(INITIAL_EMPTY_OUTPUT_BUFFERS
+                .withBuffer("out", new UnpartitionedPagePartitionFunction())
+                .withBuffer("other", new UnpartitionedPagePartitionFunction())
+                .withNoMoreBufferIds());
+        Operator operator = new TaskOutputOperatorFactory(0, sharedBuffer).createOperator(driverContext);
+
+        sharedBuffer.abort("out");
+        assertFalse(operator.isFinished());
+        assertTrue(operator.needsInput());
+
+        operator.finish();
+        assertTrue(operator.isFinished());
+        assertFalse(operator.needsInput());
+    }
+
+    private SharedBuffer createSharedBuffer(OutputBuffers outputBuffers)
+    {
+        return new SharedBuffer(TASK_ID, executor, new DataSize(1, BYTE), outputBuffers);
+    }
+}
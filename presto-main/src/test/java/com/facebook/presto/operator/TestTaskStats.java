@@ -13,18 +13,31 @@
  */
 package com.facebook.presto.operator;
 
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.airlift.json.JsonCodec;
 import io.airlift.units.DataSize;
 import io.airlift.units.Duration;
 import org.joda.time.DateTime;
 import org.testng.annotations.Test;
 
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.operator.TestOperatorStats.assertExpectedOperatorStats;
 import static com.facebook.presto.operator.TestPipelineStats.assertExpectedPipelineStats;
+import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.units.DataSize.Unit.BYTE;
+import static java.util.concurrent.Executors.newCachedThreadPool;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.joda.time.DateTimeZone.UTC;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 public class TestTaskStats
 {
@@ -41,6 +54,11 @@ public class TestTaskStats
             8,
             10,
 
+            22,
+            23,
+            24,
+            new Duration(25, NANOSECONDS),
+
             new DataSize(11, BYTE),
             new Duration(12, NANOSECONDS),
             new Duration(13, NANOSECONDS),
@@ -69,6 +87,46 @@ public class TestTaskStats
         assertExpectedTaskStats(actual);
     }
 
+    @Test
+    public void testSummarize()
+    {
+        TaskStats actual = EXPECTED.summarize();
+
+        assertEquals(actual.getTotalDrivers(), 6);
+        assertEquals(actual.getCompletedPartitionedDrivers(), 24);
+        assertEquals(actual.getOutputPositions(), 21);
+
+        // the driver details are dropped, but the operator summaries are kept for the plan node stats
+        PipelineStats pipeline = getOnlyElement(actual.getPipelines());
+        assertTrue(pipeline.getDrivers().isEmpty());
+        assertEquals(pipeline.getOperatorSummaries().size(), 1);
+        assertExpectedOperatorStats(pipeline.getOperatorSummaries().get(0));
+    }
+
+    @Test
+    public void testSummarizeRunningTask()
+    {
+        ExecutorService executor = newCachedThreadPool(daemonThreadsNamed("test"));
+        try {
+            ConnectorSession session = new ConnectorSession("user", "source", "catalog", "schema", UTC_KEY, Locale.ENGLISH, "address", "agent");
+            TaskContext taskContext = new TaskContext(new TaskId("query", "stage", "task"), executor, session);
+            DriverContext driverContext = taskContext.addPipelineContext(true, true, ImmutableMap.of(0, new PlanNodeId("scan")))
+                    .addDriverContext();
+            OperatorContext operatorContext = driverContext.addOperatorContext(0, "TableScanOperator");
+            operatorContext.recordGeneratedOutput(new DataSize(10, BYTE), 5);
+
+            // operators of running drivers are included in the summary
+            PipelineStats pipeline = getOnlyElement(taskContext.getTaskStats().summarize().getPipelines());
+            assertTrue(pipeline.getDrivers().isEmpty());
+            OperatorStats operator = getOnlyElement(pipeline.getOperatorSummaries());
+            assertEquals(operator.getPlanNodeId(), new PlanNodeId("scan"));
+            assertEquals(operator.getOutputPositions(), 5);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
     public static void assertExpectedTaskStats(TaskStats actual)
     {
         assertEquals(actual.getCreateTime(), new DateTime(1, UTC));
@@ -83,6 +141,11 @@ public class TestTaskStats
         assertEquals(actual.getRunningDrivers(), 8);
         assertEquals(actual.getCompletedDrivers(), 10);
 
+        assertEquals(actual.getQueuedPartitionedDrivers(), 22);
+        assertEquals(actual.getRunningPartitionedDrivers(), 23);
+        assertEquals(actual.getCompletedPartitionedDrivers(), 24);
+        assertEquals(actual.getCompletedPartitionedDriversScheduledTime(), new Duration(25, NANOSECONDS));
+
         assertEquals(actual.getMemoryReservation(), new DataSize(11, BYTE));
 
         assertEquals(actual.getTotalScheduledTime(), new Duration(12, NANOSECONDS));
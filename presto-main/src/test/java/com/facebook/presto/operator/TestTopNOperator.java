@@ -19,6 +19,7 @@ import com.facebook.presto.spi.ConnectorSession;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -38,7 +39,9 @@ import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.testing.MaterializedResult.resultBuilder;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertTrue;
 
 @Test(singleThreaded = true)
 public class TestTopNOperator
@@ -208,4 +211,71 @@ public class TestTopNOperator
 
         assertOperatorEquals(operator, input, expected);
     }
+
+    @Test
+    public void testManyInputPages()
+            throws Exception
+    {
+        // every page displaces the current candidates, so each page is released as soon as the next one arrives
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(BIGINT);
+        for (int i = 0; i < 200; i++) {
+            rowPagesBuilder.addSequencePage(10_000, i * 10_000);
+        }
+
+        TopNOperatorFactory operatorFactory = new TopNOperatorFactory(
+                0,
+                ImmutableList.of(BIGINT),
+                3,
+                ImmutableList.of(0),
+                ImmutableList.of(DESC_NULLS_LAST),
+                Optional.<Integer>absent(),
+                false);
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        MaterializedResult expected = resultBuilder(driverContext.getSession(), BIGINT)
+                .row(1_999_999)
+                .row(1_999_998)
+                .row(1_999_997)
+                .build();
+
+        assertOperatorEquals(operator, rowPagesBuilder.build(), expected);
+    }
+
+    @Test
+    public void testCompaction()
+            throws Exception
+    {
+        // the first 100 pages each contribute one candidate, so they stay referenced until the live rows are compacted
+        RowPagesBuilder rowPagesBuilder = rowPagesBuilder(BIGINT);
+        for (int page = 0; page < 200; page++) {
+            rowPagesBuilder.row(page);
+            for (int position = 1; position < 10_000; position++) {
+                rowPagesBuilder.row(1_000_000L + position);
+            }
+            rowPagesBuilder.pageBreak();
+        }
+        List<Page> input = rowPagesBuilder.build();
+
+        TopNOperatorFactory operatorFactory = new TopNOperatorFactory(
+                0,
+                ImmutableList.of(BIGINT),
+                100,
+                ImmutableList.of(0),
+                ImmutableList.of(ASC_NULLS_LAST),
+                Optional.<Integer>absent(),
+                false);
+
+        Operator operator = operatorFactory.createOperator(driverContext);
+
+        MaterializedResult.Builder expected = resultBuilder(driverContext.getSession(), BIGINT);
+        for (int i = 0; i < 100; i++) {
+            expected.row(i);
+        }
+        assertOperatorEquals(operator, input, expected.build());
+
+        // without compaction the 100 retained pages would need about 8MB
+        long memoryReservation = operator.getOperatorContext().getOperatorStats().getMemoryReservation().toBytes();
+        assertTrue(memoryReservation < new DataSize(2, MEGABYTE).toBytes(), "memory reservation is " + memoryReservation);
+    }
 }
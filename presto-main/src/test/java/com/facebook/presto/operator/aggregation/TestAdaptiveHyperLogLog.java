@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.aggregation;
+
+import io.airlift.slice.Murmur3;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestAdaptiveHyperLogLog
+{
+    private static final int NUMBER_OF_BUCKETS = 2048;
+    private static final HyperLogLog ESTIMATOR = new HyperLogLog(NUMBER_OF_BUCKETS);
+
+    @Test
+    public void testMatchesDenseEstimate()
+    {
+        for (int count : new int[] {0, 1, 10, 100, 511, 512, 513, 1000, 100_000}) {
+            AdaptiveHyperLogLog adaptive = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
+            Slice dense = Slices.allocate(ESTIMATOR.getSizeInBytes());
+            for (long value = 0; value < count; value++) {
+                long hash = Murmur3.hash64(value);
+                adaptive.add(hash);
+                ESTIMATOR.update(hash, dense, 0);
+            }
+            assertEquals(adaptive.estimate(), ESTIMATOR.estimate(dense, 0));
+        }
+    }
+
+    @Test
+    public void testSparseIsSmall()
+    {
+        AdaptiveHyperLogLog adaptive = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
+        for (long value = 0; value < 3; value++) {
+            adaptive.add(Murmur3.hash64(value));
+        }
+        assertTrue(adaptive.getEstimatedSizeInBytes() < ESTIMATOR.getSizeInBytes());
+        assertTrue(adaptive.serialize().length() < ESTIMATOR.getSizeInBytes());
+    }
+
+    @Test
+    public void testSerializationRoundTrip()
+    {
+        for (int count : new int[] {0, 5, 10_000}) {
+            AdaptiveHyperLogLog adaptive = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
+            for (long value = 0; value < count; value++) {
+                adaptive.add(Murmur3.hash64(value));
+            }
+            AdaptiveHyperLogLog copy = AdaptiveHyperLogLog.deserialize(adaptive.serialize());
+            assertEquals(copy.getNumberOfBuckets(), NUMBER_OF_BUCKETS);
+            assertEquals(copy.estimate(), adaptive.estimate());
+            assertEquals(copy.serialize(), adaptive.serialize());
+        }
+    }
+
+    @Test
+    public void testMerge()
+    {
+        // merge every combination of sparse and dense
+        for (int leftCount : new int[] {10, 10_000}) {
+            for (int rightCount : new int[] {10, 10_000}) {
+                AdaptiveHyperLogLog left = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
+                AdaptiveHyperLogLog right = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
+                AdaptiveHyperLogLog expected = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
+                for (long value = 0; value < leftCount; value++) {
+                    left.add(Murmur3.hash64(value));
+                    expected.add(Murmur3.hash64(value));
+                }
+                for (long value = -rightCount; value < 0; value++) {
+                    right.add(Murmur3.hash64(value));
+                    expected.add(Murmur3.hash64(value));
+                }
+
+                left.mergeWith(right.serialize());
+                assertEquals(left.estimate(), expected.estimate());
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMergeDifferentBucketCounts()
+    {
+        new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS).mergeWith(new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS * 2).serialize());
+    }
+
+    @Test
+    public void testDownsample()
+    {
+        // cover sparse and dense sources and targets
+        for (int count : new int[] {0, 10, 300, 100_000}) {
+            for (int numberOfBuckets : new int[] {NUMBER_OF_BUCKETS, 256, AdaptiveHyperLogLog.MIN_NUMBER_OF_BUCKETS}) {
+                AdaptiveHyperLogLog source = new AdaptiveHyperLogLog(AdaptiveHyperLogLog.MAX_NUMBER_OF_BUCKETS);
+                AdaptiveHyperLogLog expected = new AdaptiveHyperLogLog(numberOfBuckets);
+                for (long value = 0; value < count; value++) {
+                    source.add(Murmur3.hash64(value));
+                    expected.add(Murmur3.hash64(value));
+                }
+
+                AdaptiveHyperLogLog downsampled = source.downsample(numberOfBuckets);
+                assertEquals(downsampled.getNumberOfBuckets(), numberOfBuckets);
+                assertEquals(downsampled.serialize(), expected.serialize());
+            }
+        }
+    }
+
+    @Test
+    public void testDownsampleKeepsLongRuns()
+    {
+        // hashes whose bits above the bucket index are all zero carry the dropped index bits into the value
+        AdaptiveHyperLogLog source = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
+        AdaptiveHyperLogLog expected = new AdaptiveHyperLogLog(AdaptiveHyperLogLog.MIN_NUMBER_OF_BUCKETS);
+        for (long hash : new long[] {0, 1, 0x10, 0x7FF, 0x400, 0x800, 1L << 40}) {
+            source.add(hash);
+            expected.add(hash);
+        }
+        assertEquals(source.downsample(AdaptiveHyperLogLog.MIN_NUMBER_OF_BUCKETS).serialize(), expected.serialize());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDownsampleToMoreBuckets()
+    {
+        new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS).downsample(NUMBER_OF_BUCKETS * 2);
+    }
+
+    @Test
+    public void testMergeInstance()
+    {
+        for (int leftCount : new int[] {10, 10_000}) {
+            for (int rightCount : new int[] {10, 10_000}) {
+                AdaptiveHyperLogLog left = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
+                AdaptiveHyperLogLog right = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
+                AdaptiveHyperLogLog expected = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
+                for (long value = 0; value < leftCount; value++) {
+                    left.add(Murmur3.hash64(value));
+                    expected.add(Murmur3.hash64(value));
+                }
+                for (long value = -rightCount; value < 0; value++) {
+                    right.add(Murmur3.hash64(value));
+                    expected.add(Murmur3.hash64(value));
+                }
+
+                left.mergeWith(right);
+                assertEquals(left.serialize(), expected.serialize());
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Unsupported HyperLogLog format version: 7")
+    public void testUnknownVersion()
+    {
+        Slice serialized = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS).serialize();
+        serialized.setByte(0, 7);
+        AdaptiveHyperLogLog.deserialize(serialized);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Unknown HyperLogLog encoding: 5")
+    public void testUnknownEncoding()
+    {
+        Slice serialized = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS).serialize();
+        serialized.setByte(1, 5);
+        AdaptiveHyperLogLog.deserialize(serialized);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Invalid HyperLogLog bucket: .*")
+    public void testInvalidBucket()
+    {
+        AdaptiveHyperLogLog adaptive = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
+        adaptive.add(Murmur3.hash64(1));
+        Slice serialized = adaptive.serialize();
+        // the single sparse entry follows the header and the entry count
+        serialized.setInt(serialized.length() - 4, (NUMBER_OF_BUCKETS << 8) | 1);
+        AdaptiveHyperLogLog.deserialize(serialized);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Invalid dense HyperLogLog size: .*")
+    public void testTruncatedDense()
+    {
+        AdaptiveHyperLogLog adaptive = new AdaptiveHyperLogLog(NUMBER_OF_BUCKETS);
+        for (long value = 0; value < 10_000; value++) {
+            adaptive.add(Murmur3.hash64(value));
+        }
+        Slice serialized = adaptive.serialize();
+        AdaptiveHyperLogLog.deserialize(serialized.slice(0, serialized.length() - 1));
+    }
+}
@@ -13,12 +13,19 @@
  */
 package com.facebook.presto.operator.aggregation;
 
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
 import com.facebook.presto.spi.type.Type;
+import com.google.common.base.Optional;
+import org.testng.annotations.Test;
 
 import java.util.concurrent.ThreadLocalRandom;
 
 import static com.facebook.presto.operator.aggregation.ApproximateCountDistinctAggregations.LONG_APPROXIMATE_COUNT_DISTINCT_AGGREGATIONS;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 
 public class TestApproximateCountDistinctLong
         extends AbstractTestApproximateCountDistinct
@@ -40,4 +47,28 @@ public class TestApproximateCountDistinctLong
     {
         return ThreadLocalRandom.current().nextLong();
     }
+
+    @Test(expectedExceptions = PrestoException.class, expectedExceptionsMessageRegExp = "Max standard error must be constant for all input rows of a group")
+    public void testMixedMaxStandardErrors()
+    {
+        Page page = new Page(
+                BIGINT.createBlockBuilder(new BlockBuilderStatus()).appendLong(1).appendLong(2).build(),
+                DOUBLE.createBlockBuilder(new BlockBuilderStatus()).appendDouble(0.023).appendDouble(0.1).build());
+
+        new ApproximateCountDistinctAggregation(BIGINT, true)
+                .createAggregation(Optional.<Integer>absent(), Optional.<Integer>absent(), 1.0, 0, 1)
+                .addInput(page);
+    }
+
+    @Test(expectedExceptions = PrestoException.class, expectedExceptionsMessageRegExp = "Max standard error must be constant for all input rows of a group")
+    public void testMergeMixedMaxStandardErrors()
+    {
+        // partial results computed with different errors on different workers
+        AdaptiveHyperLogLog precise = new AdaptiveHyperLogLog(ApproximateCountDistinctAggregation.standardErrorToBuckets(0.023));
+        AdaptiveHyperLogLog coarse = new AdaptiveHyperLogLog(ApproximateCountDistinctAggregation.standardErrorToBuckets(0.1));
+
+        new ApproximateCountDistinctAggregation(BIGINT, true)
+                .createIntermediateAggregation(1.0)
+                .addIntermediate(VARCHAR.createBlockBuilder(new BlockBuilderStatus()).appendSlice(precise.serialize()).appendSlice(coarse.serialize()).build());
+    }
 }
@@ -18,18 +18,28 @@ import com.facebook.presto.spi.block.BlockBuilderStatus;
 import com.facebook.presto.spi.block.RandomAccessBlock;
 import com.facebook.presto.block.rle.RunLengthEncodedBlock;
 import com.facebook.presto.operator.Page;
+import com.facebook.presto.spi.PrestoException;
+import com.facebook.presto.util.array.ObjectBigArray;
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import org.testng.annotations.Test;
 
+import java.util.Random;
+
 import static com.facebook.presto.block.BlockAssertions.createDoublesBlock;
 import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
 import static com.facebook.presto.operator.aggregation.AggregationTestUtils.assertAggregation;
+import static com.facebook.presto.operator.aggregation.AggregationTestUtils.createGroupByIdBlock;
+import static com.facebook.presto.operator.aggregation.ApproximatePercentileAggregation.DEFAULT_ACCURACY;
 import static com.facebook.presto.operator.aggregation.ApproximatePercentileAggregations.DOUBLE_APPROXIMATE_PERCENTILE_AGGREGATION;
+import static com.facebook.presto.operator.aggregation.ApproximatePercentileAggregations.DOUBLE_APPROXIMATE_PERCENTILE_WITH_ACCURACY_AGGREGATION;
 import static com.facebook.presto.operator.aggregation.ApproximatePercentileAggregations.LONG_APPROXIMATE_PERCENTILE_AGGREGATION;
+import static com.facebook.presto.operator.aggregation.ApproximatePercentileAggregations.LONG_APPROXIMATE_PERCENTILE_WITH_ACCURACY_AGGREGATION;
 import static com.facebook.presto.operator.aggregation.ApproximatePercentileWeightedAggregations.DOUBLE_APPROXIMATE_PERCENTILE_WEIGHTED_AGGREGATION;
 import static com.facebook.presto.operator.aggregation.ApproximatePercentileWeightedAggregations.LONG_APPROXIMATE_PERCENTILE_WEIGHTED_AGGREGATION;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static org.testng.Assert.assertTrue;
 
 public class TestApproximatePercentileAggregation
 {
@@ -288,6 +298,81 @@ public class TestApproximatePercentileAggregation
                         0.5));
     }
 
+    @Test(expectedExceptions = PrestoException.class, expectedExceptionsMessageRegExp = "Percentile accuracy must be at least .*")
+    public void testAccuracyBelowMinimum()
+            throws Exception
+    {
+        assertAggregation(
+                LONG_APPROXIMATE_PERCENTILE_WITH_ACCURACY_AGGREGATION,
+                1.0,
+                1L,
+                createPage(
+                        new Long[] {1L},
+                        0.5,
+                        0.0001));
+    }
+
+    @Test
+    public void testAccuracy()
+            throws Exception
+    {
+        assertAggregation(
+                LONG_APPROXIMATE_PERCENTILE_WITH_ACCURACY_AGGREGATION,
+                1.0,
+                null,
+                createPage(
+                        new Long[] {null},
+                        0.5,
+                        0.001));
+
+        assertAggregation(
+                LONG_APPROXIMATE_PERCENTILE_WITH_ACCURACY_AGGREGATION,
+                1.0,
+                3L,
+                createPage(
+                        new Long[] {1L, null, 2L, null},
+                        0.5,
+                        0.001),
+                createPage(
+                        new Long[] {3L, 4L, 5L},
+                        0.5,
+                        0.001));
+
+        assertAggregation(
+                DOUBLE_APPROXIMATE_PERCENTILE_WITH_ACCURACY_AGGREGATION,
+                1.0,
+                3.0,
+                createPage(
+                        new Double[] {1.0, null, 2.0, null},
+                        0.5,
+                        0.001),
+                createPage(
+                        new Double[] {3.0, 4.0, 5.0},
+                        0.5,
+                        0.001));
+    }
+
+    @Test
+    public void testGroupMemoryIsBounded()
+            throws Exception
+    {
+        GroupedAccumulator accumulator = LONG_APPROXIMATE_PERCENTILE_AGGREGATION.createGroupedAggregation(Optional.<Integer>absent(), Optional.<Integer>absent(), 1.0, new int[] {0, 1});
+
+        ObjectBigArray<Object> groups = new ObjectBigArray<>();
+        groups.ensureCapacity(1);
+        long maxSize = groups.sizeOf() + PercentileSketch.getMaxSizeInBytes(DEFAULT_ACCURACY);
+
+        Random random = new Random(0);
+        for (int page = 0; page < 100; page++) {
+            Long[] values = new Long[10_000];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = random.nextLong();
+            }
+            accumulator.addInput(createGroupByIdBlock(0, values.length), createPage(values, 0.5));
+            assertTrue(accumulator.getEstimatedSize() <= maxSize);
+        }
+    }
+
     private static Page createPage(Double[] values, double percentile)
     {
         Block valuesBlock;
@@ -367,6 +452,18 @@ public class TestApproximatePercentileAggregation
         return new Page(valuesBlock, weightsBlock, percentilesBlock);
     }
 
+    private static Page createPage(Long[] values, double percentile, double accuracy)
+    {
+        Page page = createPage(values, percentile);
+        return new Page(page.getBlock(0), page.getBlock(1), createRLEBlock(accuracy, page.getPositionCount()));
+    }
+
+    private static Page createPage(Double[] values, double percentile, double accuracy)
+    {
+        Page page = createPage(values, percentile);
+        return new Page(page.getBlock(0), page.getBlock(1), createRLEBlock(accuracy, page.getPositionCount()));
+    }
+
     private static RunLengthEncodedBlock createRLEBlock(double percentile, int positionCount)
     {
         RandomAccessBlock value = DOUBLE.createBlockBuilder(new BlockBuilderStatus())
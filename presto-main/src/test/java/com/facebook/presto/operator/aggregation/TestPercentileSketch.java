@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.aggregation;
+
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestPercentileSketch
+{
+    private static final double ACCURACY = 0.01;
+    private static final double[] QUANTILES = {0.0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1.0};
+
+    @Test
+    public void testExactForSmallInputs()
+    {
+        PercentileSketch sketch = new PercentileSketch(ACCURACY);
+        for (long value = 100; value >= 1; value--) {
+            sketch.add(value);
+        }
+
+        assertEquals(sketch.getCount(), 100);
+        assertEquals(sketch.getQuantile(0.0), 1);
+        assertEquals(sketch.getQuantile(0.5), 51);
+        assertEquals(sketch.getQuantile(0.99), 100);
+        assertEquals(sketch.getQuantile(1.0), 100);
+    }
+
+    @Test
+    public void testWeights()
+    {
+        PercentileSketch sketch = new PercentileSketch(ACCURACY);
+        sketch.add(1, 3);
+        sketch.add(2, 1);
+        sketch.add(3, 4);
+
+        assertEquals(sketch.getCount(), 8);
+        assertEquals(sketch.getQuantile(0.25), 1);
+        assertEquals(sketch.getQuantile(0.375), 2);
+        assertEquals(sketch.getQuantile(0.5), 3);
+    }
+
+    @Test
+    public void testRankError()
+    {
+        List<Long> values = createRandomValues(1_000_000, 0);
+        PercentileSketch sketch = new PercentileSketch(ACCURACY);
+        for (long value : values) {
+            sketch.add(value);
+        }
+        assertRankError(sketch, values, ACCURACY);
+    }
+
+    @Test
+    public void testRankErrorOfWeightedValues()
+    {
+        Random random = new Random(1);
+        List<Long> values = new ArrayList<>();
+        PercentileSketch sketch = new PercentileSketch(ACCURACY);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong();
+            int weight = 1 + random.nextInt(100);
+            sketch.add(value, weight);
+            values.addAll(Collections.nCopies(weight, value));
+        }
+        assertRankError(sketch, values, ACCURACY);
+    }
+
+    @Test
+    public void testRankErrorAfterMerge()
+    {
+        List<Long> values = new ArrayList<>();
+        PercentileSketch merged = new PercentileSketch(ACCURACY);
+        for (int part = 0; part < 100; part++) {
+            List<Long> partValues = createRandomValues(10_000, part);
+            PercentileSketch sketch = new PercentileSketch(ACCURACY);
+            for (long value : partValues) {
+                sketch.add(value);
+            }
+            merged.merge(roundTrip(sketch));
+            values.addAll(partValues);
+        }
+
+        assertEquals(merged.getCount(), values.size());
+        assertRankError(merged, values, ACCURACY);
+    }
+
+    @Test
+    public void testMemoryIsBounded()
+    {
+        for (double accuracy : new double[] {0.001, 0.01, 0.1}) {
+            long maxSize = PercentileSketch.getMaxSizeInBytes(accuracy);
+
+            PercentileSketch sketch = new PercentileSketch(accuracy);
+            Random random = new Random(0);
+            for (int i = 0; i < 1_000_000; i++) {
+                sketch.add(random.nextLong());
+                if (i % 1000 == 0) {
+                    assertTrue(sketch.getEstimatedSizeInBytes() <= maxSize);
+                }
+            }
+            assertTrue(sketch.getEstimatedSizeInBytes() <= maxSize);
+
+            // merging many full sketches does not grow past the bound either
+            for (int i = 0; i < 10; i++) {
+                sketch.merge(roundTrip(sketch));
+                assertTrue(sketch.getEstimatedSizeInBytes() <= maxSize);
+            }
+
+            // large weights only add levels
+            sketch.add(0, Long.MAX_VALUE / 4);
+            assertTrue(sketch.getEstimatedSizeInBytes() <= maxSize);
+        }
+
+        // the bound grows with the inverse of the accuracy, not with the input
+        assertTrue(PercentileSketch.getMaxSizeInBytes(0.01) < 16 * 1024);
+        assertTrue(PercentileSketch.getMaxSizeInBytes(0.001) < 128 * 1024);
+    }
+
+    @Test
+    public void testSerializationRoundTrip()
+    {
+        for (int count : new int[] {1, 100, 100_000}) {
+            PercentileSketch sketch = new PercentileSketch(ACCURACY);
+            for (long value = 0; value < count; value++) {
+                sketch.add(value * 7 % count, 1 + value % 3);
+            }
+
+            PercentileSketch copy = roundTrip(sketch);
+            assertEquals(copy.getK(), sketch.getK());
+            assertEquals(copy.getCount(), sketch.getCount());
+            for (double quantile : QUANTILES) {
+                assertEquals(copy.getQuantile(quantile), sketch.getQuantile(quantile));
+            }
+            assertEquals(serialize(copy), serialize(sketch));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonPositiveWeight()
+    {
+        new PercentileSketch(ACCURACY).add(1, 0);
+    }
+
+    private static void assertRankError(PercentileSketch sketch, List<Long> values, double accuracy)
+    {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+
+        for (double quantile : QUANTILES) {
+            long value = sketch.getQuantile(quantile);
+            // the values that are equal to the result cover a range of ranks
+            int lowRank = Collections.binarySearch(sorted, value);
+            assertTrue(lowRank >= 0, "sketch returned a value that was never added");
+            while (lowRank > 0 && sorted.get(lowRank - 1) == value) {
+                lowRank--;
+            }
+            int highRank = lowRank;
+            while (highRank < sorted.size() - 1 && sorted.get(highRank + 1) == value) {
+                highRank++;
+            }
+
+            double error = Math.max(0, Math.max(lowRank - quantile * sorted.size(), quantile * sorted.size() - highRank - 1)) / sorted.size();
+            assertTrue(error <= accuracy, String.format("rank error %s at quantile %s", error, quantile));
+        }
+    }
+
+    private static List<Long> createRandomValues(int count, long seed)
+    {
+        Random random = new Random(seed);
+        List<Long> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add((long) random.nextInt(1_000_000));
+        }
+        return values;
+    }
+
+    private static PercentileSketch roundTrip(PercentileSketch sketch)
+    {
+        return PercentileSketch.deserialize(serialize(sketch).getInput());
+    }
+
+    private static Slice serialize(PercentileSketch sketch)
+    {
+        DynamicSliceOutput output = new DynamicSliceOutput(sketch.getEstimatedSerializedSizeInBytes());
+        sketch.serialize(output);
+        return output.slice();
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.operator.index;
+
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.operator.DriverContext;
+import com.facebook.presto.operator.DriverFactory;
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.operator.TaskContext;
+import com.facebook.presto.operator.index.IndexSourceOperator.IndexSourceOperatorFactory;
+import com.facebook.presto.operator.index.PagesIndexBuilderOperator.PagesIndexBuilderOperatorFactory;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.InMemoryRecordSet;
+import com.facebook.presto.spi.Index;
+import com.facebook.presto.spi.RecordCursor;
+import com.facebook.presto.spi.RecordSet;
+import com.facebook.presto.spi.block.BlockCursor;
+import com.facebook.presto.spi.type.Type;
+import com.facebook.presto.sql.planner.plan.PlanNodeId;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.facebook.presto.block.BlockAssertions.createLongsBlock;
+import static com.facebook.presto.operator.RowPagesBuilder.rowPagesBuilder;
+import static com.facebook.presto.operator.index.IndexSnapshot.UNLOADED_INDEX_KEY;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
+import static com.google.common.base.Throwables.getRootCause;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(singleThreaded = true)
+public class TestIndexLoader
+{
+    private static final List<Type> TYPES = ImmutableList.<Type>of(BIGINT);
+    private static final List<Integer> KEY_CHANNELS = ImmutableList.of(0);
+
+    private ExecutorService executor;
+    private TaskContext taskContext;
+    private TestingIndex index;
+    private IndexLoader indexLoader;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("test-%s"));
+        ConnectorSession session = new ConnectorSession("user", "source", "catalog", "schema", UTC_KEY, Locale.ENGLISH, "address", "agent");
+        taskContext = new TaskContext(new TaskId("query", "stage", "task"), executor, session);
+
+        index = new TestingIndex();
+        PagesIndexBuilderOperatorFactory pagesIndexOutput = new PagesIndexBuilderOperatorFactory(1, TYPES);
+        DriverFactory driverFactory = new DriverFactory(
+                true,
+                false,
+                new IndexSourceOperatorFactory(0, new PlanNodeId("index"), index, TYPES, KEY_CHANNELS),
+                pagesIndexOutput);
+        indexLoader = new IndexLoader(KEY_CHANNELS, TYPES, 2, driverFactory, pagesIndexOutput, 100);
+        indexLoader.setContext(taskContext);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        index.unblock();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testLoadKeysAsync()
+            throws Exception
+    {
+        indexLoader.loadKeysAsync(createPage(0, 10), KEY_CHANNELS, executor).get(10, SECONDS);
+
+        IndexSnapshot snapshot = indexLoader.getIndexSnapshot();
+        assertTrue(getJoinPosition(snapshot, 5) >= 0);
+        assertEquals(getJoinPosition(snapshot, 20), UNLOADED_INDEX_KEY);
+    }
+
+    @Test
+    public void testRequestsWhileLoadingFormNextBatch()
+            throws Exception
+    {
+        CountingExecutor countingExecutor = new CountingExecutor(executor);
+
+        index.block();
+        ListenableFuture<?> first = indexLoader.loadKeysAsync(createPage(0, 10), KEY_CHANNELS, countingExecutor);
+        index.awaitLookup();
+
+        ListenableFuture<?> second = indexLoader.loadKeysAsync(createPage(10, 10), KEY_CHANNELS, countingExecutor);
+        ListenableFuture<?> third = indexLoader.loadKeysAsync(createPage(20, 10), KEY_CHANNELS, countingExecutor);
+
+        // the running loader picks up the new requests, so no other loader is scheduled
+        assertEquals(countingExecutor.getExecuteCount(), 1);
+        assertFalse(second.isDone());
+        assertFalse(third.isDone());
+
+        index.unblock();
+        first.get(10, SECONDS);
+        second.get(10, SECONDS);
+        third.get(10, SECONDS);
+
+        // the second and third request were loaded together
+        assertEquals(index.getLookupCount(), 2);
+        IndexSnapshot snapshot = indexLoader.getIndexSnapshot();
+        assertTrue(getJoinPosition(snapshot, 5) >= 0);
+        assertTrue(getJoinPosition(snapshot, 15) >= 0);
+        assertTrue(getJoinPosition(snapshot, 25) >= 0);
+    }
+
+    @Test
+    public void testConcurrentLoads()
+            throws Exception
+    {
+        int threads = 8;
+        final int pagesPerThread = 50;
+
+        // every request must be loaded, even if it is added while the loader is handing off
+        List<Future<List<ListenableFuture<?>>>> producers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            final int firstKey = thread * pagesPerThread * 2;
+            producers.add(executor.submit(new Callable<List<ListenableFuture<?>>>()
+            {
+                @Override
+                public List<ListenableFuture<?>> call()
+                {
+                    ImmutableList.Builder<ListenableFuture<?>> loads = ImmutableList.builder();
+                    for (int page = 0; page < pagesPerThread; page++) {
+                        loads.add(indexLoader.loadKeysAsync(createPage(firstKey + page * 2, 2), KEY_CHANNELS, executor));
+                    }
+                    return loads.build();
+                }
+            }));
+        }
+
+        for (Future<List<ListenableFuture<?>>> producer : producers) {
+            for (ListenableFuture<?> load : producer.get(10, SECONDS)) {
+                load.get(10, SECONDS);
+            }
+        }
+
+        IndexSnapshot snapshot = indexLoader.getIndexSnapshot();
+        for (int key = 0; key < threads * pagesPerThread * 2; key++) {
+            assertTrue(getJoinPosition(snapshot, key) >= 0, "key " + key + " not loaded");
+        }
+    }
+
+    @Test
+    public void testFailedLoadFailsWaitingRequests()
+            throws Exception
+    {
+        index.block();
+        ListenableFuture<?> first = indexLoader.loadKeysAsync(createPage(0, 10), KEY_CHANNELS, executor);
+        index.awaitLookup();
+        ListenableFuture<?> second = indexLoader.loadKeysAsync(createPage(10, 10), KEY_CHANNELS, executor);
+
+        index.setFailure(new IllegalStateException("lookup failed"));
+        index.unblock();
+
+        assertLoadFailed(first);
+        assertLoadFailed(second);
+
+        // a failed load does not leave the loader scheduled
+        index.setFailure(null);
+        indexLoader.loadKeysAsync(createPage(20, 10), KEY_CHANNELS, executor).get(10, SECONDS);
+        assertTrue(getJoinPosition(indexLoader.getIndexSnapshot(), 25) >= 0);
+    }
+
+    @Test
+    public void testSnapshotForKeysWaitsForBackgroundLoad()
+            throws Exception
+    {
+        index.block();
+        ListenableFuture<?> background = indexLoader.loadKeysAsync(createPage(0, 10), KEY_CHANNELS, executor);
+        index.awaitLookup();
+
+        Future<IndexSnapshot> snapshotForKeys = executor.submit(new Callable<IndexSnapshot>()
+        {
+            @Override
+            public IndexSnapshot call()
+            {
+                return indexLoader.getIndexSnapshotForKeys(new BlockCursor[] {createCursor(50)});
+            }
+        });
+
+        index.unblock();
+        IndexSnapshot snapshot = snapshotForKeys.get(10, SECONDS);
+        background.get(10, SECONDS);
+
+        // the synchronous request sees the keys of the background load as well as its own
+        assertTrue(getJoinPosition(snapshot, 5) >= 0);
+        assertTrue(getJoinPosition(snapshot, 50) >= 0);
+    }
+
+    @Test
+    public void testSnapshotForKeysFailure()
+            throws Exception
+    {
+        index.setFailure(new IllegalStateException("lookup failed"));
+
+        try {
+            indexLoader.getIndexSnapshotForKeys(new BlockCursor[] {createCursor(50)});
+            fail("expected exception");
+        }
+        catch (RuntimeException e) {
+            assertEquals(getRootCause(e).getMessage(), "lookup failed");
+        }
+
+        assertLoadFailed(indexLoader.loadKeysAsync(createPage(0, 10), KEY_CHANNELS, executor));
+    }
+
+    @Test
+    public void testPrefetchOperatorBlocksUntilKeysAreLoaded()
+            throws Exception
+    {
+        DriverContext driverContext = taskContext.addPipelineContext(true, true).addDriverContext();
+        IndexPrefetchOperator operator = new IndexPrefetchOperator(driverContext.addOperatorContext(0, "test"), TYPES, indexLoader, KEY_CHANNELS);
+
+        index.block();
+        Page page = createPage(0, 10);
+        assertTrue(operator.needsInput());
+        operator.addInput(page);
+        assertFalse(operator.needsInput());
+
+        // the driver is woken up by the load, not by upstream
+        ListenableFuture<?> blocked = operator.isBlocked();
+        assertFalse(blocked.isDone());
+        assertNull(operator.getOutput());
+
+        index.unblock();
+        blocked.get(10, SECONDS);
+        assertSame(operator.getOutput(), page);
+        assertTrue(operator.isBlocked().isDone());
+        assertTrue(operator.needsInput());
+
+        operator.finish();
+        assertTrue(operator.isFinished());
+    }
+
+    private static void assertLoadFailed(ListenableFuture<?> load)
+            throws Exception
+    {
+        try {
+            load.get(10, SECONDS);
+            fail("expected load to fail");
+        }
+        catch (ExecutionException e) {
+            assertEquals(getRootCause(e).getMessage(), "lookup failed");
+        }
+    }
+
+    private static Page createPage(int firstKey, int keyCount)
+    {
+        return rowPagesBuilder(TYPES).addSequencePage(keyCount, firstKey).build().get(0);
+    }
+
+    private static BlockCursor createCursor(int key)
+    {
+        BlockCursor cursor = createLongsBlock(key).cursor();
+        assertTrue(cursor.advanceNextPosition());
+        return cursor;
+    }
+
+    private static long getJoinPosition(IndexSnapshot snapshot, int key)
+    {
+        return snapshot.getJoinPosition(createCursor(key));
+    }
+
+    /**
+     * Returns one row for every key it is asked for.
+     */
+    private static class TestingIndex
+            implements Index
+    {
+        private final AtomicInteger lookupCount = new AtomicInteger();
+        private final Semaphore lookupsStarted = new Semaphore(0);
+        private volatile CountDownLatch unblocked = new CountDownLatch(0);
+        private volatile RuntimeException failure;
+
+        @Override
+        public RecordSet lookup(RecordSet recordSet)
+        {
+            lookupCount.incrementAndGet();
+            lookupsStarted.release();
+            Uninterruptibles.awaitUninterruptibly(unblocked);
+
+            RuntimeException failure = this.failure;
+            if (failure != null) {
+                throw failure;
+            }
+
+            ImmutableList.Builder<List<?>> records = ImmutableList.builder();
+            RecordCursor cursor = recordSet.cursor();
+            while (cursor.advanceNextPosition()) {
+                records.add(ImmutableList.of(cursor.getLong(0)));
+            }
+            return new InMemoryRecordSet(TYPES, records.build());
+        }
+
+        public void block()
+        {
+            unblocked = new CountDownLatch(1);
+        }
+
+        public void unblock()
+        {
+            unblocked.countDown();
+        }
+
+        public void awaitLookup()
+                throws InterruptedException
+        {
+            assertTrue(lookupsStarted.tryAcquire(10, SECONDS), "lookup did not start");
+        }
+
+        public void setFailure(RuntimeException failure)
+        {
+            this.failure = failure;
+        }
+
+        public int getLookupCount()
+        {
+            return lookupCount.get();
+        }
+    }
+
+    private static class CountingExecutor
+            implements Executor
+    {
+        private final Executor delegate;
+        private final AtomicInteger executeCount = new AtomicInteger();
+
+        private CountingExecutor(Executor delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command)
+        {
+            executeCount.incrementAndGet();
+            delegate.execute(command);
+        }
+
+        public int getExecuteCount()
+        {
+            return executeCount.get();
+        }
+    }
+}
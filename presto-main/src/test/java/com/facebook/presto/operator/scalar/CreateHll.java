@@ -13,11 +13,13 @@
  */
 package com.facebook.presto.operator.scalar;
 
+import com.facebook.presto.operator.aggregation.AdaptiveHyperLogLog;
 import com.facebook.presto.spi.type.BigintType;
 import com.facebook.presto.spi.type.HyperLogLogType;
 import com.facebook.presto.type.SqlType;
 import io.airlift.slice.Slice;
-import io.airlift.stats.cardinality.HyperLogLog;
+import com.google.common.primitives.Ints;
+import io.airlift.slice.Murmur3;
 
 public final class CreateHll
 {
@@ -27,8 +29,15 @@ public final class CreateHll
     @SqlType(HyperLogLogType.class)
     public static Slice createHll(@SqlType(BigintType.class) long value)
     {
-        HyperLogLog hll = HyperLogLog.newInstance(4096);
-        hll.add(value);
+        return createHll(value, 4096);
+    }
+
+    @ScalarFunction
+    @SqlType(HyperLogLogType.class)
+    public static Slice createHll(@SqlType(BigintType.class) long value, @SqlType(BigintType.class) long numberOfBuckets)
+    {
+        AdaptiveHyperLogLog hll = new AdaptiveHyperLogLog(Ints.checkedCast(numberOfBuckets));
+        hll.add(Murmur3.hash64(value));
         return hll.serialize();
     }
 }
@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.microbenchmark;
+
+import com.facebook.presto.block.dictionary.DictionaryEncodedBlock;
+import com.facebook.presto.block.rle.RunLengthEncodedBlock;
+import com.facebook.presto.block.snappy.SnappyBlockEncoding;
+import com.facebook.presto.microbenchmark.BenchmarkData.Distribution;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockCursor;
+import com.facebook.presto.spi.block.BlockEncoding;
+import com.facebook.presto.spi.block.RandomAccessBlock;
+import com.facebook.presto.spi.type.Type;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.facebook.presto.microbenchmark.BenchmarkData.createBlock;
+import static com.facebook.presto.microbenchmark.BenchmarkData.createKeys;
+import static com.facebook.presto.microbenchmark.BenchmarkData.createSequence;
+import static com.facebook.presto.microbenchmark.BenchmarkData.getType;
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+
+/**
+ * Measures writing, reading and scanning a block in each of the block encodings,
+ * per position. The cardinality is the dictionary size of the dictionary encoding
+ * and the number of distinct values for the others.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class BenchmarkBlockEncoding
+{
+    static final int POSITIONS = 10_000;
+
+    @Param({"plain", "rle", "dictionary", "snappy"})
+    public String encoding = "plain";
+
+    @Param({"bigint", "varchar"})
+    public String type = "bigint";
+
+    @Param({"10", "10000"})
+    public int cardinality = 10;
+
+    @Param({"UNIFORM", "ZIPF"})
+    public Distribution distribution = Distribution.UNIFORM;
+
+    @Param({"8", "64"})
+    public int stringLength = 8;
+
+    private Block block;
+    private BlockEncoding blockEncoding;
+    private Slice encodedBlock;
+
+    @Setup
+    public void setup()
+    {
+        Type valueType = getType(type);
+        long[] keys = createKeys(distribution, cardinality, POSITIONS);
+        RandomAccessBlock values = createBlock(valueType, keys, stringLength);
+
+        switch (encoding) {
+            case "plain":
+                block = values;
+                blockEncoding = values.getEncoding();
+                break;
+            case "rle":
+                block = new RunLengthEncodedBlock(values.getSingleValueBlock(0), POSITIONS);
+                blockEncoding = block.getEncoding();
+                break;
+            case "dictionary":
+                RandomAccessBlock dictionary = createBlock(valueType, createSequence(cardinality), stringLength);
+                block = new DictionaryEncodedBlock(dictionary, createBlock(BIGINT, keys, 0));
+                blockEncoding = block.getEncoding();
+                break;
+            case "snappy":
+                block = values;
+                blockEncoding = new SnappyBlockEncoding(valueType, values.getEncoding());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+        }
+
+        DynamicSliceOutput output = new DynamicSliceOutput(1024);
+        blockEncoding.writeBlock(output, block);
+        encodedBlock = output.slice();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public int writeBlock()
+    {
+        DynamicSliceOutput output = new DynamicSliceOutput(encodedBlock.length());
+        blockEncoding.writeBlock(output, block);
+        return output.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public int readBlock()
+    {
+        return blockEncoding.readBlock(encodedBlock.getInput()).getPositionCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public long scanBlock()
+    {
+        long hash = 0;
+        BlockCursor cursor = block.cursor();
+        while (cursor.advanceNextPosition()) {
+            hash += cursor.hash();
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.microbenchmark;
+
+import com.facebook.presto.execution.TaskId;
+import com.facebook.presto.execution.TaskStateMachine;
+import com.facebook.presto.operator.OperatorContext;
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.operator.PageBuilder;
+import com.facebook.presto.operator.TaskContext;
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.RandomAccessBlock;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import io.airlift.units.DataSize;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Strings.padStart;
+import static io.airlift.slice.Slices.utf8Slice;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+
+/**
+ * Generates the synthetic inputs shared by the microbenchmarks. All data is
+ * derived from a fixed seed so results are comparable across runs and releases.
+ */
+public final class BenchmarkData
+{
+    private static final long SEED = 42;
+
+    public enum Distribution
+    {
+        /**
+         * Every key is equally likely.
+         */
+        UNIFORM,
+        /**
+         * Key frequency is inversely proportional to its rank, so a few keys dominate.
+         */
+        ZIPF
+    }
+
+    private BenchmarkData()
+    {
+    }
+
+    public static Type getType(String name)
+    {
+        switch (name) {
+            case "bigint":
+                return BIGINT;
+            case "varchar":
+                return VARCHAR;
+            default:
+                throw new IllegalArgumentException("Unsupported type: " + name);
+        }
+    }
+
+    public static long[] createKeys(Distribution distribution, int cardinality, int positions)
+    {
+        checkArgument(cardinality > 0, "cardinality must be positive");
+
+        Random random = new Random(SEED);
+        long[] keys = new long[positions];
+        switch (distribution) {
+            case UNIFORM:
+                for (int i = 0; i < positions; i++) {
+                    keys[i] = random.nextInt(cardinality);
+                }
+                break;
+            case ZIPF:
+                double[] cumulative = new double[cardinality];
+                double sum = 0;
+                for (int rank = 0; rank < cardinality; rank++) {
+                    sum += 1.0 / (rank + 1);
+                    cumulative[rank] = sum;
+                }
+                for (int i = 0; i < positions; i++) {
+                    int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                    keys[i] = Math.min(rank < 0 ? -(rank + 1) : rank, cardinality - 1);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported distribution: " + distribution);
+        }
+        return keys;
+    }
+
+    public static long[] createSequence(int positions)
+    {
+        long[] keys = new long[positions];
+        for (int i = 0; i < positions; i++) {
+            keys[i] = i;
+        }
+        return keys;
+    }
+
+    public static List<Page> createPages(Type type, long[] keys, int stringLength)
+    {
+        ImmutableList.Builder<Page> pages = ImmutableList.builder();
+        PageBuilder pageBuilder = new PageBuilder(ImmutableList.of(type));
+        for (long key : keys) {
+            appendKey(pageBuilder.getBlockBuilder(0), key, stringLength);
+            if (pageBuilder.isFull()) {
+                pages.add(pageBuilder.build());
+                pageBuilder.reset();
+            }
+        }
+        if (!pageBuilder.isEmpty()) {
+            pages.add(pageBuilder.build());
+        }
+        return pages.build();
+    }
+
+    public static RandomAccessBlock createBlock(Type type, long[] keys, int stringLength)
+    {
+        BlockBuilder blockBuilder = type.createBlockBuilder(new BlockBuilderStatus());
+        for (long key : keys) {
+            appendKey(blockBuilder, key, stringLength);
+        }
+        return blockBuilder.build();
+    }
+
+    /**
+     * Varchar keys are the decimal key left padded to the requested length, so
+     * equal keys share long prefixes as they do in real identifiers.
+     */
+    private static void appendKey(BlockBuilder blockBuilder, long key, int stringLength)
+    {
+        if (blockBuilder.getType().equals(VARCHAR)) {
+            blockBuilder.appendSlice(utf8Slice(padStart(String.valueOf(key), stringLength, '0')));
+        }
+        else {
+            blockBuilder.appendLong(key);
+        }
+    }
+
+    public static OperatorContext createOperatorContext(ExecutorService executor)
+    {
+        ConnectorSession session = new ConnectorSession("user", "source", "catalog", "schema", UTC_KEY, Locale.ENGLISH, "address", "agent");
+        TaskContext taskContext = new TaskContext(
+                new TaskStateMachine(new TaskId("query", "stage", "task"), executor),
+                executor,
+                session,
+                new DataSize(1, GIGABYTE),
+                new DataSize(1, MEGABYTE),
+                false);
+        return taskContext.addPipelineContext(true, true).addDriverContext().addOperatorContext(0, "microbenchmark");
+    }
+}
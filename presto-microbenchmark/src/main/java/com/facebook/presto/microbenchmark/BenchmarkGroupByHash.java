@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.microbenchmark;
+
+import com.facebook.presto.microbenchmark.BenchmarkData.Distribution;
+import com.facebook.presto.operator.GroupByHash;
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.spi.block.BlockCursor;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.facebook.presto.microbenchmark.BenchmarkData.createKeys;
+import static com.facebook.presto.microbenchmark.BenchmarkData.createPages;
+import static com.facebook.presto.microbenchmark.BenchmarkData.getType;
+
+/**
+ * Measures {@link GroupByHash#putIfAbsent} per input position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class BenchmarkGroupByHash
+{
+    static final int POSITIONS = 1_000_000;
+    private static final int EXPECTED_GROUPS = 10_000;
+
+    @Param({"bigint", "varchar"})
+    public String type = "bigint";
+
+    @Param({"10", "1000", "100000"})
+    public int groupCount = 1000;
+
+    @Param({"UNIFORM", "ZIPF"})
+    public Distribution distribution = Distribution.UNIFORM;
+
+    @Param({"8", "32"})
+    public int stringLength = 8;
+
+    private List<Type> types;
+    private List<Page> pages;
+
+    @Setup
+    public void setup()
+    {
+        Type keyType = getType(type);
+        types = ImmutableList.of(keyType);
+        pages = createPages(keyType, createKeys(distribution, groupCount, POSITIONS), stringLength);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public long putIfAbsent()
+    {
+        GroupByHash groupByHash = new GroupByHash(types, new int[] {0}, EXPECTED_GROUPS);
+
+        long groupIds = 0;
+        BlockCursor[] cursors = new BlockCursor[1];
+        for (Page page : pages) {
+            cursors[0] = page.getBlock(0).cursor();
+            while (cursors[0].advanceNextPosition()) {
+                groupIds += groupByHash.putIfAbsent(cursors);
+            }
+        }
+        return groupIds;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.microbenchmark;
+
+import com.facebook.presto.microbenchmark.BenchmarkData.Distribution;
+import com.facebook.presto.operator.InMemoryJoinHash;
+import com.facebook.presto.operator.LookupSource;
+import com.facebook.presto.operator.OperatorContext;
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.operator.PagesIndex;
+import com.facebook.presto.operator.SimplePagesHashStrategy;
+import com.facebook.presto.spi.block.BlockCursor;
+import com.facebook.presto.spi.block.RandomAccessBlock;
+import com.facebook.presto.spi.type.Type;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.facebook.presto.microbenchmark.BenchmarkData.createKeys;
+import static com.facebook.presto.microbenchmark.BenchmarkData.createOperatorContext;
+import static com.facebook.presto.microbenchmark.BenchmarkData.createPages;
+import static com.facebook.presto.microbenchmark.BenchmarkData.createSequence;
+import static com.facebook.presto.microbenchmark.BenchmarkData.getType;
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+
+/**
+ * Measures {@link LookupSource#getJoinPosition} per probe position. The build side
+ * holds each key once and probe keys are drawn from twice the build key range, so a
+ * uniform probe matches half the time while a skewed probe mostly hits a few keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class BenchmarkJoinProbe
+{
+    static final int PROBE_POSITIONS = 1_000_000;
+
+    @Param({"bigint", "varchar"})
+    public String type = "bigint";
+
+    @Param({"1000", "100000", "1000000"})
+    public int buildSize = 1000;
+
+    @Param({"UNIFORM", "ZIPF"})
+    public Distribution distribution = Distribution.UNIFORM;
+
+    @Param({"8", "32"})
+    public int stringLength = 8;
+
+    /**
+     * Either the generated lookup source or the {@link InMemoryJoinHash} fallback.
+     */
+    @Param({"compiled", "interpreted"})
+    public String lookupSourceType = "compiled";
+
+    private ExecutorService executor;
+    private LookupSource lookupSource;
+    private List<Page> probePages;
+
+    @Setup
+    public void setup()
+    {
+        executor = newCachedThreadPool(daemonThreadsNamed("microbenchmark-%d"));
+
+        Type keyType = getType(type);
+        OperatorContext operatorContext = createOperatorContext(executor);
+        PagesIndex pagesIndex = new PagesIndex(ImmutableList.of(keyType), buildSize, operatorContext);
+        for (Page page : createPages(keyType, createSequence(buildSize), stringLength)) {
+            pagesIndex.addPage(page);
+        }
+
+        switch (lookupSourceType) {
+            case "compiled":
+                lookupSource = pagesIndex.createLookupSource(ImmutableList.of(0));
+                break;
+            case "interpreted":
+                SimplePagesHashStrategy hashStrategy = new SimplePagesHashStrategy(
+                        ImmutableList.<List<RandomAccessBlock>>of(pagesIndex.getChannel(0)),
+                        ImmutableList.of(0));
+                lookupSource = new InMemoryJoinHash(pagesIndex.getValueAddresses(), hashStrategy, operatorContext);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported lookup source: " + lookupSourceType);
+        }
+
+        probePages = createPages(keyType, createKeys(distribution, buildSize * 2, PROBE_POSITIONS), stringLength);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBE_POSITIONS)
+    public long getJoinPosition()
+    {
+        long matches = 0;
+        BlockCursor[] cursors = new BlockCursor[1];
+        for (Page page : probePages) {
+            cursors[0] = page.getBlock(0).cursor();
+            while (cursors[0].advanceNextPosition()) {
+                if (lookupSource.getJoinPosition(cursors) >= 0) {
+                    matches++;
+                }
+            }
+        }
+        return matches;
+    }
+}
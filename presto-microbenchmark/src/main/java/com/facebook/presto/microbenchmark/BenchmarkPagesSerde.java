@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.microbenchmark;
+
+import com.facebook.presto.microbenchmark.BenchmarkData.Distribution;
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.spi.block.BlockEncodingSerde;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Slice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.facebook.presto.microbenchmark.BenchmarkData.createKeys;
+import static com.facebook.presto.microbenchmark.BenchmarkData.createPages;
+import static com.facebook.presto.microbenchmark.BenchmarkData.getType;
+import static com.facebook.presto.serde.PagesSerde.readPages;
+import static com.facebook.presto.serde.PagesSerde.writePages;
+import static com.facebook.presto.testing.TestingBlockEncodingManager.createTestingBlockEncodingManager;
+
+/**
+ * Measures writing and reading pages with {@link com.facebook.presto.serde.PagesSerde}, per position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class BenchmarkPagesSerde
+{
+    static final int POSITIONS = 100_000;
+
+    @Param({"bigint", "varchar"})
+    public String type = "bigint";
+
+    @Param({"8", "32", "256"})
+    public int stringLength = 8;
+
+    @Param({"UNIFORM", "ZIPF"})
+    public Distribution distribution = Distribution.UNIFORM;
+
+    private final BlockEncodingSerde blockEncodingSerde = createTestingBlockEncodingManager();
+    private List<Page> pages;
+    private Slice serializedPages;
+
+    @Setup
+    public void setup()
+    {
+        pages = createPages(getType(type), createKeys(distribution, POSITIONS, POSITIONS), stringLength);
+
+        DynamicSliceOutput output = new DynamicSliceOutput(1024);
+        writePages(blockEncodingSerde, output, pages);
+        serializedPages = output.slice();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public int writePages()
+    {
+        DynamicSliceOutput output = new DynamicSliceOutput(serializedPages.length());
+        writePages(blockEncodingSerde, output, pages);
+        return output.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public int readPages()
+    {
+        int positions = 0;
+        Iterator<Page> iterator = readPages(blockEncodingSerde, serializedPages.getInput());
+        while (iterator.hasNext()) {
+            positions += iterator.next().getPositionCount();
+        }
+        return positions;
+    }
+}
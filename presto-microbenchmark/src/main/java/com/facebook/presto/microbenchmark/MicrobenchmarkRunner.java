@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.microbenchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static com.google.common.base.Objects.firstNonNull;
+
+/**
+ * Runs the microbenchmarks with the standard JMH command line options. Unless
+ * {@code -rf} or {@code -rff} are given, the results are written as JSON to
+ * {@code microbenchmark-<version>.json}, so results of different releases can be diffed.
+ */
+public final class MicrobenchmarkRunner
+{
+    private MicrobenchmarkRunner()
+    {
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        String version = firstNonNull(MicrobenchmarkRunner.class.getPackage().getImplementationVersion(), "dev");
+        Options options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .resultFormat(commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(commandLineOptions.getResult().orElse("microbenchmark-" + version + ".json"))
+                .build();
+
+        new Runner(options).run();
+    }
+}
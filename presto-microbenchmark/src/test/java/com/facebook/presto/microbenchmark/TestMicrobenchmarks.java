@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.microbenchmark;
+
+import com.facebook.presto.microbenchmark.BenchmarkData.Distribution;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestMicrobenchmarks
+{
+    @Test
+    public void testGroupByHash()
+    {
+        for (String type : new String[] {"bigint", "varchar"}) {
+            BenchmarkGroupByHash benchmark = new BenchmarkGroupByHash();
+            benchmark.type = type;
+            benchmark.groupCount = 10;
+            benchmark.distribution = Distribution.ZIPF;
+            benchmark.setup();
+            // group ids are dense, so every id below the group count is produced
+            assertTrue(benchmark.putIfAbsent() >= 45);
+        }
+    }
+
+    @Test
+    public void testJoinProbe()
+    {
+        for (String lookupSourceType : new String[] {"compiled", "interpreted"}) {
+            BenchmarkJoinProbe benchmark = new BenchmarkJoinProbe();
+            benchmark.type = "varchar";
+            benchmark.lookupSourceType = lookupSourceType;
+            benchmark.setup();
+            try {
+                long matches = benchmark.getJoinPosition();
+                // half of the uniformly drawn probe keys are on the build side
+                assertTrue(matches > BenchmarkJoinProbe.PROBE_POSITIONS * 0.45 && matches < BenchmarkJoinProbe.PROBE_POSITIONS * 0.55, "matches: " + matches);
+            }
+            finally {
+                benchmark.tearDown();
+            }
+        }
+    }
+
+    @Test
+    public void testPagesSerde()
+    {
+        BenchmarkPagesSerde benchmark = new BenchmarkPagesSerde();
+        benchmark.type = "varchar";
+        benchmark.setup();
+        assertTrue(benchmark.writePages() > 0);
+        assertEquals(benchmark.readPages(), BenchmarkPagesSerde.POSITIONS);
+    }
+
+    @Test
+    public void testBlockEncoding()
+    {
+        for (String encoding : new String[] {"plain", "rle", "dictionary", "snappy"}) {
+            BenchmarkBlockEncoding benchmark = new BenchmarkBlockEncoding();
+            benchmark.encoding = encoding;
+            benchmark.type = "varchar";
+            benchmark.setup();
+            assertTrue(benchmark.writeBlock() > 0, encoding);
+            assertEquals(benchmark.readBlock(), BenchmarkBlockEncoding.POSITIONS, encoding);
+            benchmark.scanBlock();
+        }
+    }
+
+    @Test
+    public void testZipfKeysAreSkewed()
+    {
+        long[] keys = BenchmarkData.createKeys(Distribution.ZIPF, 1000, 10_000);
+        int hottest = 0;
+        for (long key : keys) {
+            assertTrue(key >= 0 && key < 1000);
+            if (key == 0) {
+                hottest++;
+            }
+        }
+        // the first rank has a probability of 1 / H(1000), about 13%
+        assertTrue(hottest > 1000, "hottest: " + hottest);
+    }
+}
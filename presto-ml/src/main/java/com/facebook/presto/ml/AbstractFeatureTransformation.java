@@ -13,19 +13,18 @@
  */
 package com.facebook.presto.ml;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public abstract class AbstractFeatureTransformation
     implements FeatureTransformation
 {
     @Override
     public Dataset transform(Dataset dataset)
     {
-        List<FeatureVector> transformed = new ArrayList<>();
-        for (FeatureVector features : dataset.getDatapoints()) {
-            transformed.add(transform(features));
+        // transform one row at a time, so only the transformed buffer is added to the size of the dataset
+        FeatureBuffer rows = dataset.getRows();
+        FeatureBuffer transformed = new FeatureBuffer();
+        for (int row = 0; row < rows.size(); row++) {
+            transformed.add(rows.getLabel(row), transform(rows.getFeatures(row)));
         }
-        return new Dataset(dataset.getLabels(), transformed);
+        return new Dataset(transformed);
     }
 }
@@ -23,7 +23,6 @@ import libsvm.svm_problem;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
 import java.util.SortedMap;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -93,16 +92,24 @@ public abstract class AbstractSvmModel
 
     private static svm_problem toSvmProblem(Dataset dataset)
     {
+        // read the rows directly, since libsvm needs its own copy of every feature anyway
+        FeatureBuffer rows = dataset.getRows();
         svm_problem problem = new svm_problem();
-        List<Double> labels = dataset.getLabels();
-        problem.l = labels.size();
-        problem.y = new double[labels.size()];
-        for (int i = 0; i < labels.size(); i++) {
-            problem.y[i] = labels.get(i);
-        }
-        problem.x = new svm_node[labels.size()][];
-        for (int i = 0; i < dataset.getDatapoints().size(); i++) {
-            problem.x[i] = toSvmNodes(dataset.getDatapoints().get(i));
+        problem.l = rows.size();
+        problem.y = new double[rows.size()];
+        problem.x = new svm_node[rows.size()][];
+        for (int row = 0; row < rows.size(); row++) {
+            problem.y[row] = rows.getLabel(row);
+
+            // features of a row are sorted by index, as libsvm requires
+            int start = rows.getFeatureStart(row);
+            svm_node[] nodes = new svm_node[rows.getFeatureEnd(row) - start];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = new svm_node();
+                nodes[i].index = rows.getFeatureIndex(start + i);
+                nodes[i].value = rows.getFeatureValue(start + i);
+            }
+            problem.x[row] = nodes;
         }
         return problem;
     }
@@ -20,27 +20,64 @@ import java.util.List;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Labeled training rows, backed by a {@link FeatureBuffer} so large datasets do not
+ * need a boxed object per label and feature.
+ */
 public class Dataset
 {
-    private final List<FeatureVector> datapoints;
-    private final List<Double> labels;
+    private final FeatureBuffer rows;
 
     public Dataset(List<Double> labels, List<FeatureVector> datapoints)
     {
         checkNotNull(datapoints, "datapoints is null");
         checkNotNull(labels, "labels is null");
         checkArgument(datapoints.size() == labels.size(), "datapoints and labels have different sizes");
-        this.labels = ImmutableList.copyOf(labels);
-        this.datapoints = ImmutableList.copyOf(datapoints);
+        rows = new FeatureBuffer();
+        for (int i = 0; i < labels.size(); i++) {
+            rows.add(labels.get(i), datapoints.get(i));
+        }
+    }
+
+    /**
+     * Creates a dataset over the rows of the buffer, which must not be modified afterwards.
+     */
+    public Dataset(FeatureBuffer rows)
+    {
+        this.rows = checkNotNull(rows, "rows is null");
+    }
+
+    public FeatureBuffer getRows()
+    {
+        return rows;
+    }
+
+    public int size()
+    {
+        return rows.size();
     }
 
+    /**
+     * Returns a boxed copy of the features of every row.
+     */
     public List<FeatureVector> getDatapoints()
     {
-        return datapoints;
+        ImmutableList.Builder<FeatureVector> datapoints = ImmutableList.builder();
+        for (int row = 0; row < rows.size(); row++) {
+            datapoints.add(rows.getFeatures(row));
+        }
+        return datapoints.build();
     }
 
+    /**
+     * Returns a boxed copy of the label of every row.
+     */
     public List<Double> getLabels()
     {
-        return labels;
+        ImmutableList.Builder<Double> labels = ImmutableList.builder();
+        for (int row = 0; row < rows.size(); row++) {
+            labels.add(rows.getLabel(row));
+        }
+        return labels.build();
     }
 }
@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.ml;
+
+import com.facebook.presto.spi.PrestoException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSortedMap;
+import io.airlift.slice.Slice;
+import io.airlift.slice.SliceInput;
+import io.airlift.slice.SliceOutput;
+import io.airlift.slice.Slices;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.facebook.presto.spi.StandardErrorCode.EXCEEDED_MEMORY_LIMIT;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.airlift.slice.SizeOf.SIZE_OF_DOUBLE;
+import static io.airlift.slice.SizeOf.SIZE_OF_INT;
+import static io.airlift.slice.SizeOf.sizeOf;
+import static java.lang.String.format;
+
+/**
+ * Labeled training rows stored column-wise in primitive arrays. The features of all
+ * rows are concatenated, and each row records the offset where its features end.
+ */
+public class FeatureBuffer
+{
+    private static final int INITIAL_ROWS = 16;
+    private static final int INITIAL_FEATURES = 64;
+
+    private double[] labels;
+    private int[] rowEnds;
+    private int[] featureIndexes;
+    private double[] featureValues;
+    private int rowCount;
+    private int featureCount;
+
+    public FeatureBuffer()
+    {
+        this(INITIAL_ROWS, INITIAL_FEATURES);
+    }
+
+    private FeatureBuffer(int rows, int features)
+    {
+        labels = new double[Math.max(rows, 1)];
+        rowEnds = new int[Math.max(rows, 1)];
+        featureIndexes = new int[Math.max(features, 1)];
+        featureValues = new double[Math.max(features, 1)];
+    }
+
+    public int size()
+    {
+        return rowCount;
+    }
+
+    public long getEstimatedSize()
+    {
+        return sizeOf(labels) + sizeOf(rowEnds) + sizeOf(featureIndexes) + sizeOf(featureValues);
+    }
+
+    public void add(double label, FeatureVector features)
+    {
+        checkNotNull(features, "features is null");
+        ensureCapacity(rowCount + 1, featureCount + features.size());
+        for (Map.Entry<Integer, Double> feature : features.getFeatures().entrySet()) {
+            featureIndexes[featureCount] = feature.getKey();
+            featureValues[featureCount] = feature.getValue();
+            featureCount++;
+        }
+        labels[rowCount] = label;
+        rowEnds[rowCount] = featureCount;
+        rowCount++;
+    }
+
+    public void addAll(FeatureBuffer other)
+    {
+        checkNotNull(other, "other is null");
+        ensureCapacity(rowCount + other.rowCount, featureCount + other.featureCount);
+        System.arraycopy(other.labels, 0, labels, rowCount, other.rowCount);
+        for (int row = 0; row < other.rowCount; row++) {
+            rowEnds[rowCount + row] = featureCount + other.rowEnds[row];
+        }
+        System.arraycopy(other.featureIndexes, 0, featureIndexes, featureCount, other.featureCount);
+        System.arraycopy(other.featureValues, 0, featureValues, featureCount, other.featureCount);
+        rowCount += other.rowCount;
+        featureCount += other.featureCount;
+    }
+
+    public double getLabel(int row)
+    {
+        checkElementIndex(row, rowCount, "row");
+        return labels[row];
+    }
+
+    public FeatureVector getFeatures(int row)
+    {
+        ImmutableSortedMap.Builder<Integer, Double> features = ImmutableSortedMap.naturalOrder();
+        for (int i = getFeatureStart(row); i < rowEnds[row]; i++) {
+            features.put(featureIndexes[i], featureValues[i]);
+        }
+        return new FeatureVector(features.build());
+    }
+
+    /**
+     * Returns the position of the first feature of the row.
+     */
+    public int getFeatureStart(int row)
+    {
+        checkElementIndex(row, rowCount, "row");
+        return row == 0 ? 0 : rowEnds[row - 1];
+    }
+
+    /**
+     * Returns the position after the last feature of the row.
+     */
+    public int getFeatureEnd(int row)
+    {
+        checkElementIndex(row, rowCount, "row");
+        return rowEnds[row];
+    }
+
+    public int getFeatureIndex(int position)
+    {
+        checkElementIndex(position, featureCount, "position");
+        return featureIndexes[position];
+    }
+
+    public double getFeatureValue(int position)
+    {
+        checkElementIndex(position, featureCount, "position");
+        return featureValues[position];
+    }
+
+    public Slice serialize()
+    {
+        long size = getSerializedSize(rowCount, featureCount);
+        if (size > Integer.MAX_VALUE) {
+            throw new PrestoException(EXCEEDED_MEMORY_LIMIT.toErrorCode(), format("Training data of %s bytes is too large to send between aggregation steps", size));
+        }
+        Slice slice = Slices.allocate((int) size);
+        SliceOutput output = slice.getOutput();
+        output.writeInt(rowCount);
+        output.writeInt(featureCount);
+        for (int row = 0; row < rowCount; row++) {
+            output.writeDouble(labels[row]);
+            output.writeInt(rowEnds[row]);
+        }
+        for (int i = 0; i < featureCount; i++) {
+            output.writeInt(featureIndexes[i]);
+            output.writeDouble(featureValues[i]);
+        }
+        return slice;
+    }
+
+    public static FeatureBuffer deserialize(Slice slice)
+    {
+        SliceInput input = slice.getInput();
+        int rows = input.readInt();
+        int features = input.readInt();
+        FeatureBuffer buffer = new FeatureBuffer(rows, features);
+        for (int row = 0; row < rows; row++) {
+            buffer.labels[row] = input.readDouble();
+            buffer.rowEnds[row] = input.readInt();
+        }
+        for (int i = 0; i < features; i++) {
+            buffer.featureIndexes[i] = input.readInt();
+            buffer.featureValues[i] = input.readDouble();
+        }
+        buffer.rowCount = rows;
+        buffer.featureCount = features;
+        return buffer;
+    }
+
+    @VisibleForTesting
+    static long getSerializedSize(long rowCount, long featureCount)
+    {
+        return 2L * SIZE_OF_INT + rowCount * (SIZE_OF_DOUBLE + SIZE_OF_INT) + featureCount * (SIZE_OF_INT + SIZE_OF_DOUBLE);
+    }
+
+    private void ensureCapacity(int rows, int features)
+    {
+        if (rows > labels.length) {
+            int newSize = Math.max(rows, labels.length * 2);
+            labels = Arrays.copyOf(labels, newSize);
+            rowEnds = Arrays.copyOf(rowEnds, newSize);
+        }
+        if (features > featureIndexes.length) {
+            int newSize = Math.max(features, featureIndexes.length * 2);
+            featureIndexes = Arrays.copyOf(featureIndexes, newSize);
+            featureValues = Arrays.copyOf(featureValues, newSize);
+        }
+    }
+}
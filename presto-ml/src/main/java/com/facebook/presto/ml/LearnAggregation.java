@@ -24,33 +24,40 @@ import com.facebook.presto.spi.block.BlockCursor;
 import com.facebook.presto.spi.type.Type;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.math.DoubleMath;
 
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.google.common.base.Preconditions.checkArgument;
-import static io.airlift.slice.SizeOf.SIZE_OF_DOUBLE;
+import static com.google.common.base.Preconditions.checkState;
 
 public class LearnAggregation
         implements AggregationFunction
 {
     private final Type modelType;
     private final Type labelType;
+    private final Type featuresType;
 
     public LearnAggregation(Type modelType, Type labelType)
+    {
+        this(modelType, labelType, VARCHAR);
+    }
+
+    public LearnAggregation(Type modelType, Type labelType, Type featuresType)
     {
         this.modelType = modelType;
         this.labelType = labelType;
+        this.featuresType = featuresType;
     }
 
     @Override
     public List<Type> getParameterTypes()
     {
-        return ImmutableList.of(labelType, VARCHAR);
+        return ImmutableList.of(labelType, featuresType);
     }
 
     @Override
@@ -62,13 +69,13 @@ public class LearnAggregation
     @Override
     public Type getIntermediateType()
     {
-        throw new UnsupportedOperationException("LEARN must run on a single machine");
+        return VARCHAR;
     }
 
     @Override
     public boolean isDecomposable()
     {
-        return false;
+        return true;
     }
 
     @Override
@@ -83,7 +90,8 @@ public class LearnAggregation
     @Override
     public Accumulator createIntermediateAggregation(double confidence)
     {
-        throw new UnsupportedOperationException("LEARN must run on a single machine");
+        checkArgument(confidence == 1, "approximation is not supported");
+        return new LearnAccumulator();
     }
 
     @Override
@@ -98,15 +106,18 @@ public class LearnAggregation
         throw new UnsupportedOperationException("LEARN doesn't support GROUP BY");
     }
 
+    /**
+     * Partial steps parse and collect the rows of their input into a {@link FeatureBuffer}.
+     * The buffers are merged in the final step, which trains the model, since the libsvm
+     * models can not be combined.
+     */
     public static class LearnAccumulator
             implements Accumulator
     {
         private final int labelChannel;
         private final int featuresChannel;
         private final boolean labelIsLong;
-        //TODO: these could get very big, so they should be reported like the estimated memory for GroupedAccumulator
-        private final List<Double> labels = new ArrayList<>();
-        private final List<FeatureVector> rows = new ArrayList<>();
+        private final FeatureBuffer rows = new FeatureBuffer();
 
         public LearnAccumulator(int labelChannel, int featuresChannel, boolean labelIsLong)
         {
@@ -115,14 +126,18 @@ public class LearnAggregation
             this.labelIsLong = labelIsLong;
         }
 
+        /**
+         * Creates an accumulator that only receives intermediate results.
+         */
+        public LearnAccumulator()
+        {
+            this(-1, -1, false);
+        }
+
         @Override
         public long getEstimatedSize()
         {
-            long size = SIZE_OF_DOUBLE * (long) labels.size();
-            for (FeatureVector vector : rows) {
-                size += vector.getEstimatedSize();
-            }
-            return size;
+            return rows.getEstimatedSize();
         }
 
         @Override
@@ -134,52 +149,53 @@ public class LearnAggregation
         @Override
         public Type getIntermediateType()
         {
-            throw new UnsupportedOperationException("LEARN must run on a single machine");
+            return VARCHAR;
         }
 
         @Override
         public void addInput(Page page)
         {
-            BlockCursor cursor = page.getBlock(labelChannel).cursor();
-            while (cursor.advanceNextPosition()) {
-                if (labelIsLong) {
-                    labels.add((double) cursor.getLong());
-                }
-                else {
-                    labels.add(cursor.getDouble());
-                }
-            }
-
-            cursor = page.getBlock(featuresChannel).cursor();
-            while (cursor.advanceNextPosition()) {
-                rows.add(ModelUtils.jsonToFeatures(cursor.getSlice()));
+            checkState(labelChannel >= 0, "accumulator only accepts intermediate results");
+            BlockCursor labels = page.getBlock(labelChannel).cursor();
+            BlockCursor features = page.getBlock(featuresChannel).cursor();
+            while (labels.advanceNextPosition()) {
+                checkState(features.advanceNextPosition(), "label and feature blocks have different number of entries");
+                double label = labelIsLong ? (double) labels.getLong() : labels.getDouble();
+                rows.add(label, ModelUtils.toFeatures(features.getSlice()));
             }
         }
 
         @Override
         public void addIntermediate(Block block)
         {
-            throw new UnsupportedOperationException("LEARN must run on a single machine");
+            BlockCursor cursor = block.cursor();
+            while (cursor.advanceNextPosition()) {
+                if (!cursor.isNull()) {
+                    rows.addAll(FeatureBuffer.deserialize(cursor.getSlice()));
+                }
+            }
         }
 
         @Override
         public Block evaluateIntermediate()
         {
-            throw new UnsupportedOperationException("LEARN must run on a single machine");
+            BlockBuilder builder = getIntermediateType().createBlockBuilder(new BlockBuilderStatus());
+            builder.appendSlice(rows.serialize());
+            return builder.build();
         }
 
         @Override
         public Block evaluateFinal()
         {
-            Dataset dataset = new Dataset(labels, rows);
+            Dataset dataset = new Dataset(rows);
 
             // Heuristic to decide if this is a classification or a regression problem
-            boolean regression = ImmutableSet.copyOf(labels).size() > 100;
-            for (double label : labels) {
-                if (!DoubleMath.isMathematicalInteger(label)) {
-                    regression = true;
-                    break;
-                }
+            boolean regression = false;
+            Set<Double> distinctLabels = new HashSet<>();
+            for (int row = 0; row < rows.size() && !regression; row++) {
+                double label = rows.getLabel(row);
+                distinctLabels.add(label);
+                regression = distinctLabels.size() > 100 || !DoubleMath.isMathematicalInteger(label);
             }
 
             Model model;
@@ -24,6 +24,7 @@ import static com.facebook.presto.ml.type.ClassifierType.CLASSIFIER;
 import static com.facebook.presto.ml.type.RegressorType.REGRESSOR;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
 import static com.facebook.presto.spi.type.DoubleType.DOUBLE;
+import static com.facebook.presto.spi.type.VarbinaryType.VARBINARY;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static com.facebook.presto.type.UnknownType.UNKNOWN;
 
@@ -31,10 +32,14 @@ public class MLFunctionFactory
         implements FunctionFactory
 {
     private static final List<FunctionInfo> FUNCTIONS = new FunctionListBuilder()
-            .aggregate("learn_classifier", CLASSIFIER, ImmutableList.of(BIGINT, VARCHAR), UNKNOWN, new LearnAggregation(CLASSIFIER, BIGINT))
-            .aggregate("learn_classifier", CLASSIFIER, ImmutableList.of(DOUBLE, VARCHAR), UNKNOWN, new LearnAggregation(CLASSIFIER, DOUBLE))
-            .aggregate("learn_regressor", REGRESSOR, ImmutableList.of(BIGINT, VARCHAR), UNKNOWN, new LearnAggregation(REGRESSOR, BIGINT))
-            .aggregate("learn_regressor", REGRESSOR, ImmutableList.of(DOUBLE, VARCHAR), UNKNOWN, new LearnAggregation(REGRESSOR, DOUBLE))
+            .aggregate("learn_classifier", CLASSIFIER, ImmutableList.of(BIGINT, VARCHAR), VARCHAR, new LearnAggregation(CLASSIFIER, BIGINT))
+            .aggregate("learn_classifier", CLASSIFIER, ImmutableList.of(BIGINT, VARBINARY), VARCHAR, new LearnAggregation(CLASSIFIER, BIGINT, VARBINARY))
+            .aggregate("learn_classifier", CLASSIFIER, ImmutableList.of(DOUBLE, VARCHAR), VARCHAR, new LearnAggregation(CLASSIFIER, DOUBLE))
+            .aggregate("learn_classifier", CLASSIFIER, ImmutableList.of(DOUBLE, VARBINARY), VARCHAR, new LearnAggregation(CLASSIFIER, DOUBLE, VARBINARY))
+            .aggregate("learn_regressor", REGRESSOR, ImmutableList.of(BIGINT, VARCHAR), VARCHAR, new LearnAggregation(REGRESSOR, BIGINT))
+            .aggregate("learn_regressor", REGRESSOR, ImmutableList.of(BIGINT, VARBINARY), VARCHAR, new LearnAggregation(REGRESSOR, BIGINT, VARBINARY))
+            .aggregate("learn_regressor", REGRESSOR, ImmutableList.of(DOUBLE, VARCHAR), VARCHAR, new LearnAggregation(REGRESSOR, DOUBLE))
+            .aggregate("learn_regressor", REGRESSOR, ImmutableList.of(DOUBLE, VARBINARY), VARCHAR, new LearnAggregation(REGRESSOR, DOUBLE, VARBINARY))
             .aggregate("evaluate_classifier_predictions", VARCHAR, ImmutableList.of(BIGINT, BIGINT), UNKNOWN, new EvaluateClassifierPredictionsAggregation())
             .scalar(MLFunctions.class)
             .getFunctions();
@@ -13,28 +13,40 @@
  */
 package com.facebook.presto.ml;
 
+import com.facebook.presto.byteCode.ByteCodeNode;
+import com.facebook.presto.byteCode.instruction.Constant;
 import com.facebook.presto.ml.type.ClassifierType;
 import com.facebook.presto.ml.type.RegressorType;
 import com.facebook.presto.operator.scalar.ScalarFunction;
 import com.facebook.presto.spi.type.BigintType;
 import com.facebook.presto.spi.type.DoubleType;
+import com.facebook.presto.spi.type.VarbinaryType;
 import com.facebook.presto.spi.type.VarcharType;
+import com.facebook.presto.sql.gen.DefaultFunctionBinder;
+import com.facebook.presto.sql.gen.FunctionBinder;
+import com.facebook.presto.sql.gen.FunctionBinding;
 import com.facebook.presto.type.SqlType;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.hash.HashCode;
 import io.airlift.slice.Slice;
 import io.airlift.slice.Slices;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.facebook.presto.ml.type.ClassifierType.CLASSIFIER;
 import static com.facebook.presto.ml.type.RegressorType.REGRESSOR;
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.invoke.MethodHandles.lookup;
+import static java.lang.invoke.MethodType.methodType;
 
 public final class MLFunctions
 {
@@ -45,24 +57,54 @@ public final class MLFunctions
     {
     }
 
-    @ScalarFunction
+    @ScalarFunction(functionBinder = ModelFunctionBinder.class)
     @SqlType(BigintType.class)
     public static long classify(@SqlType(VarcharType.class) Slice featuresMap, @SqlType(ClassifierType.class) Slice modelSlice)
     {
-        FeatureVector features = ModelUtils.jsonToFeatures(featuresMap);
-        Model model = getOrLoadModel(modelSlice);
-        checkArgument(model instanceof Classifier && model.getType().equals(CLASSIFIER), "model is not a classifier");
-        return ((Classifier) model).classify(features);
+        return classify(featuresMap, getOrLoadModel(modelSlice));
     }
 
-    @ScalarFunction
+    @ScalarFunction(value = "classify", functionBinder = ModelFunctionBinder.class)
+    @SqlType(BigintType.class)
+    public static long classifyBinary(@SqlType(VarbinaryType.class) Slice features, @SqlType(ClassifierType.class) Slice modelSlice)
+    {
+        return classify(features, getOrLoadModel(modelSlice));
+    }
+
+    @ScalarFunction(functionBinder = ModelFunctionBinder.class)
     @SqlType(DoubleType.class)
     public static double regress(@SqlType(VarcharType.class) Slice featuresMap, @SqlType(RegressorType.class) Slice modelSlice)
     {
-        FeatureVector features = ModelUtils.jsonToFeatures(featuresMap);
-        Model model = getOrLoadModel(modelSlice);
+        return regress(featuresMap, getOrLoadModel(modelSlice));
+    }
+
+    @ScalarFunction(value = "regress", functionBinder = ModelFunctionBinder.class)
+    @SqlType(DoubleType.class)
+    public static double regressBinary(@SqlType(VarbinaryType.class) Slice features, @SqlType(RegressorType.class) Slice modelSlice)
+    {
+        return regress(features, getOrLoadModel(modelSlice));
+    }
+
+    public static long classify(Slice features, Model model)
+    {
+        checkArgument(model instanceof Classifier && model.getType().equals(CLASSIFIER), "model is not a classifier");
+        return ((Classifier) model).classify(ModelUtils.toFeatures(features));
+    }
+
+    public static long classify(ModelCache modelCache, Slice features, Slice modelSlice)
+    {
+        return classify(features, modelCache.get(modelSlice));
+    }
+
+    public static double regress(Slice features, Model model)
+    {
         checkArgument(model instanceof Regressor && model.getType().equals(REGRESSOR), "model is not a regressor");
-        return ((Regressor) model).regress(features);
+        return ((Regressor) model).regress(ModelUtils.toFeatures(features));
+    }
+
+    public static double regress(ModelCache modelCache, Slice features, Slice modelSlice)
+    {
+        return regress(features, modelCache.get(modelSlice));
     }
 
     private static Model getOrLoadModel(Slice slice)
@@ -148,6 +190,76 @@ public final class MLFunctions
         return featuresHelper(f1, f2, f3, f4, f5, f6, f7, f8, f9, f10);
     }
 
+    @ScalarFunction("binary_features")
+    @SqlType(VarbinaryType.class)
+    public static Slice binaryFeatures(@SqlType(DoubleType.class) double f1)
+    {
+        return binaryFeaturesHelper(f1);
+    }
+
+    @ScalarFunction("binary_features")
+    @SqlType(VarbinaryType.class)
+    public static Slice binaryFeatures(@SqlType(DoubleType.class) double f1, @SqlType(DoubleType.class) double f2)
+    {
+        return binaryFeaturesHelper(f1, f2);
+    }
+
+    @ScalarFunction("binary_features")
+    @SqlType(VarbinaryType.class)
+    public static Slice binaryFeatures(@SqlType(DoubleType.class) double f1, @SqlType(DoubleType.class) double f2, @SqlType(DoubleType.class) double f3)
+    {
+        return binaryFeaturesHelper(f1, f2, f3);
+    }
+
+    @ScalarFunction("binary_features")
+    @SqlType(VarbinaryType.class)
+    public static Slice binaryFeatures(@SqlType(DoubleType.class) double f1, @SqlType(DoubleType.class) double f2, @SqlType(DoubleType.class) double f3, @SqlType(DoubleType.class) double f4)
+    {
+        return binaryFeaturesHelper(f1, f2, f3, f4);
+    }
+
+    @ScalarFunction("binary_features")
+    @SqlType(VarbinaryType.class)
+    public static Slice binaryFeatures(@SqlType(DoubleType.class) double f1, @SqlType(DoubleType.class) double f2, @SqlType(DoubleType.class) double f3, @SqlType(DoubleType.class) double f4, @SqlType(DoubleType.class) double f5)
+    {
+        return binaryFeaturesHelper(f1, f2, f3, f4, f5);
+    }
+
+    @ScalarFunction("binary_features")
+    @SqlType(VarbinaryType.class)
+    public static Slice binaryFeatures(@SqlType(DoubleType.class) double f1, @SqlType(DoubleType.class) double f2, @SqlType(DoubleType.class) double f3, @SqlType(DoubleType.class) double f4, @SqlType(DoubleType.class) double f5, @SqlType(DoubleType.class) double f6)
+    {
+        return binaryFeaturesHelper(f1, f2, f3, f4, f5, f6);
+    }
+
+    @ScalarFunction("binary_features")
+    @SqlType(VarbinaryType.class)
+    public static Slice binaryFeatures(@SqlType(DoubleType.class) double f1, @SqlType(DoubleType.class) double f2, @SqlType(DoubleType.class) double f3, @SqlType(DoubleType.class) double f4, @SqlType(DoubleType.class) double f5, @SqlType(DoubleType.class) double f6, @SqlType(DoubleType.class) double f7)
+    {
+        return binaryFeaturesHelper(f1, f2, f3, f4, f5, f6, f7);
+    }
+
+    @ScalarFunction("binary_features")
+    @SqlType(VarbinaryType.class)
+    public static Slice binaryFeatures(@SqlType(DoubleType.class) double f1, @SqlType(DoubleType.class) double f2, @SqlType(DoubleType.class) double f3, @SqlType(DoubleType.class) double f4, @SqlType(DoubleType.class) double f5, @SqlType(DoubleType.class) double f6, @SqlType(DoubleType.class) double f7, @SqlType(DoubleType.class) double f8)
+    {
+        return binaryFeaturesHelper(f1, f2, f3, f4, f5, f6, f7, f8);
+    }
+
+    @ScalarFunction("binary_features")
+    @SqlType(VarbinaryType.class)
+    public static Slice binaryFeatures(@SqlType(DoubleType.class) double f1, @SqlType(DoubleType.class) double f2, @SqlType(DoubleType.class) double f3, @SqlType(DoubleType.class) double f4, @SqlType(DoubleType.class) double f5, @SqlType(DoubleType.class) double f6, @SqlType(DoubleType.class) double f7, @SqlType(DoubleType.class) double f8, @SqlType(DoubleType.class) double f9)
+    {
+        return binaryFeaturesHelper(f1, f2, f3, f4, f5, f6, f7, f8, f9);
+    }
+
+    @ScalarFunction("binary_features")
+    @SqlType(VarbinaryType.class)
+    public static Slice binaryFeatures(@SqlType(DoubleType.class) double f1, @SqlType(DoubleType.class) double f2, @SqlType(DoubleType.class) double f3, @SqlType(DoubleType.class) double f4, @SqlType(DoubleType.class) double f5, @SqlType(DoubleType.class) double f6, @SqlType(DoubleType.class) double f7, @SqlType(DoubleType.class) double f8, @SqlType(DoubleType.class) double f9, @SqlType(DoubleType.class) double f10)
+    {
+        return binaryFeaturesHelper(f1, f2, f3, f4, f5, f6, f7, f8, f9, f10);
+    }
+
     private static Slice featuresHelper(double... features)
     {
         Map<Integer, Double> featureMap = new HashMap<>();
@@ -163,4 +275,65 @@ public final class MLFunctions
             throw Throwables.propagate(e);
         }
     }
+
+    private static Slice binaryFeaturesHelper(double... features)
+    {
+        return ModelUtils.featuresToBinary(features);
+    }
+
+    /**
+     * Deserializes a constant model once when the expression is compiled. Otherwise,
+     * each call site remembers the last few models it has seen.
+     */
+    public static class ModelFunctionBinder
+            implements FunctionBinder
+    {
+        private static final MethodHandle CLASSIFY_CONSTANT;
+        private static final MethodHandle CLASSIFY_DYNAMIC;
+        private static final MethodHandle REGRESS_CONSTANT;
+        private static final MethodHandle REGRESS_DYNAMIC;
+
+        static {
+            try {
+                CLASSIFY_CONSTANT = lookup().findStatic(MLFunctions.class, "classify", methodType(long.class, Slice.class, Model.class));
+                CLASSIFY_DYNAMIC = lookup().findStatic(MLFunctions.class, "classify", methodType(long.class, ModelCache.class, Slice.class, Slice.class));
+                REGRESS_CONSTANT = lookup().findStatic(MLFunctions.class, "regress", methodType(double.class, Slice.class, Model.class));
+                REGRESS_DYNAMIC = lookup().findStatic(MLFunctions.class, "regress", methodType(double.class, ModelCache.class, Slice.class, Slice.class));
+            }
+            catch (ReflectiveOperationException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+
+        @Override
+        public FunctionBinding bindFunction(long bindingId, String name, ByteCodeNode getSessionByteCode, List<ByteCodeNode> arguments)
+        {
+            boolean classify;
+            switch (name) {
+                case "classify":
+                    classify = true;
+                    break;
+                case "regress":
+                    classify = false;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported method " + name);
+            }
+
+            ByteCodeNode modelNode = arguments.get(1);
+            MethodHandle methodHandle;
+            if (modelNode instanceof Constant) {
+                Model model = ModelUtils.deserialize((Slice) ((Constant) modelNode).getValue());
+                methodHandle = MethodHandles.insertArguments(classify ? CLASSIFY_CONSTANT : REGRESS_CONSTANT, 1, model);
+
+                // remove the model argument
+                arguments = ImmutableList.of(arguments.get(0));
+            }
+            else {
+                methodHandle = (classify ? CLASSIFY_DYNAMIC : REGRESS_DYNAMIC).bindTo(new ModelCache());
+            }
+
+            return DefaultFunctionBinder.bindConstantArguments(bindingId, name, getSessionByteCode, arguments, methodHandle, false);
+        }
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.ml;
+
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Remembers the last few models deserialized by one call site. The rows seen by a call site
+ * usually share one model. A model is only reused when the serialized model is byte for byte
+ * equal to the one that was verified against its hash on deserialization, so a corrupted
+ * entry with a valid header is never mistaken for a cached model. The number of models is
+ * bounded, so a compiled expression never pins more than a handful of them.
+ */
+public class ModelCache
+{
+    private static final int MAX_MODELS = 4;
+
+    private final AtomicReferenceArray<CachedModel> models = new AtomicReferenceArray<>(MAX_MODELS);
+    private final AtomicInteger nextReplacement = new AtomicInteger();
+
+    public Model get(Slice slice)
+    {
+        for (int i = 0; i < MAX_MODELS; i++) {
+            CachedModel cached = models.get(i);
+            if (cached != null && slice.equals(cached.getSerializedModel())) {
+                return cached.getModel();
+            }
+        }
+
+        Model model = ModelUtils.deserialize(slice);
+        int replacement = (nextReplacement.getAndIncrement() & Integer.MAX_VALUE) % MAX_MODELS;
+        models.set(replacement, new CachedModel(Slices.copyOf(slice), model));
+        return model;
+    }
+
+    private static class CachedModel
+    {
+        private final Slice serializedModel;
+        private final Model model;
+
+        private CachedModel(Slice serializedModel, Model model)
+        {
+            this.serializedModel = serializedModel;
+            this.model = model;
+        }
+
+        public Slice getSerializedModel()
+        {
+            return serializedModel;
+        }
+
+        public Model getModel()
+        {
+            return model;
+        }
+    }
+}
@@ -38,6 +38,8 @@ import static com.fasterxml.jackson.core.JsonFactory.Feature.CANONICALIZE_FIELD_
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.slice.SizeOf.SIZE_OF_BYTE;
+import static io.airlift.slice.SizeOf.SIZE_OF_DOUBLE;
 import static io.airlift.slice.SizeOf.SIZE_OF_INT;
 import static io.airlift.slice.SizeOf.SIZE_OF_LONG;
 import static java.lang.String.format;
@@ -55,6 +57,10 @@ public final class ModelUtils
 
     private static final int CURRENT_FORMAT_VERSION = 1;
 
+    // JSON never starts with this byte, so binary features can be told apart from a JSON map
+    private static final byte BINARY_FEATURES_MARKER = 1;
+    private static final int BINARY_FEATURE_SIZE = SIZE_OF_INT + SIZE_OF_DOUBLE;
+
     // These ids are serialized to disk. Do not change them.
     @VisibleForTesting
     static final BiMap<? extends Class<? extends Model>, Integer> MODEL_SERIALIZATION_IDS = ImmutableBiMap.of(
@@ -197,6 +203,43 @@ public final class ModelUtils
         return models.build();
     }
 
+    /**
+     * Decodes features in either the binary encoding or as a JSON map.
+     */
+    public static FeatureVector toFeatures(Slice slice)
+    {
+        if (slice.length() > 0 && slice.getByte(0) == BINARY_FEATURES_MARKER) {
+            return binaryToFeatures(slice);
+        }
+        return jsonToFeatures(slice);
+    }
+
+    /**
+     * Encodes the features as a marker byte followed by (int index, double value)
+     * pairs, where the index of each value is its position.
+     */
+    public static Slice featuresToBinary(double... features)
+    {
+        Slice slice = Slices.allocate(SIZE_OF_BYTE + features.length * BINARY_FEATURE_SIZE);
+        slice.setByte(0, BINARY_FEATURES_MARKER);
+        for (int i = 0; i < features.length; i++) {
+            int offset = SIZE_OF_BYTE + i * BINARY_FEATURE_SIZE;
+            slice.setInt(offset, i);
+            slice.setDouble(offset + SIZE_OF_INT, features[i]);
+        }
+        return slice;
+    }
+
+    private static FeatureVector binaryToFeatures(Slice slice)
+    {
+        checkArgument((slice.length() - SIZE_OF_BYTE) % BINARY_FEATURE_SIZE == 0, "Bad features. Unexpected length %s", slice.length());
+        Map<Integer, Double> features = new HashMap<>();
+        for (int offset = SIZE_OF_BYTE; offset < slice.length(); offset += BINARY_FEATURE_SIZE) {
+            features.put(slice.getInt(offset), slice.getDouble(offset + SIZE_OF_INT));
+        }
+        return new FeatureVector(features);
+    }
+
     //TODO: instead of having this function, we should add feature extractors that extend Model and extract features from Strings
     public static FeatureVector jsonToFeatures(Slice json)
     {
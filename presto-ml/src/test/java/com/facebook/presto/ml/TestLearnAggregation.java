@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.ml;
+
+import com.facebook.presto.ml.LearnAggregation.LearnAccumulator;
+import com.facebook.presto.operator.Page;
+import com.facebook.presto.spi.block.BlockBuilder;
+import com.facebook.presto.spi.block.BlockBuilderStatus;
+import com.facebook.presto.spi.block.BlockCursor;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestLearnAggregation
+{
+    @Test
+    public void testFeatureBufferRoundTrip()
+    {
+        FeatureBuffer buffer = new FeatureBuffer();
+        buffer.add(1, new FeatureVector(ImmutableMap.of(3, 0.5, 1, -2.0)));
+        buffer.add(0, new FeatureVector(ImmutableMap.<Integer, Double>of()));
+        buffer.add(2, new FeatureVector(7, 1.5));
+
+        FeatureBuffer merged = new FeatureBuffer();
+        merged.add(5, new FeatureVector(0, 1.0));
+        merged.addAll(FeatureBuffer.deserialize(buffer.serialize()));
+
+        assertEquals(merged.size(), 4);
+        assertEquals(merged.getLabel(0), 5.0);
+        assertEquals(merged.getFeatures(0).getFeatures(), ImmutableMap.of(0, 1.0));
+        assertEquals(merged.getLabel(1), 1.0);
+        assertEquals(merged.getFeatures(1).getFeatures(), ImmutableMap.of(1, -2.0, 3, 0.5));
+        assertEquals(merged.getLabel(2), 0.0);
+        assertEquals(merged.getFeatures(2).size(), 0);
+        assertEquals(merged.getLabel(3), 2.0);
+        assertEquals(merged.getFeatures(3).getFeatures(), ImmutableMap.of(7, 1.5));
+    }
+
+    @Test
+    public void testSerializedSize()
+    {
+        FeatureBuffer buffer = new FeatureBuffer();
+        buffer.add(1, new FeatureVector(ImmutableMap.of(3, 0.5, 1, -2.0)));
+        buffer.add(0, new FeatureVector(7, 1.5));
+        assertEquals(buffer.serialize().length(), FeatureBuffer.getSerializedSize(2, 3));
+
+        // the size is computed without overflowing, so oversized buffers are rejected instead of corrupted
+        assertTrue(FeatureBuffer.getSerializedSize(1, Integer.MAX_VALUE / 8) > Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testDatasetTransformation()
+    {
+        FeatureBuffer buffer = new FeatureBuffer();
+        buffer.add(1, new FeatureVector(ImmutableMap.of(1, 3.0, 2, 4.0)));
+        buffer.add(0, new FeatureVector(5, -2.0));
+        Dataset dataset = new Dataset(buffer);
+
+        Dataset transformed = new FeatureVectorUnitNormalizer().transform(dataset);
+        assertEquals(transformed.getLabels(), ImmutableList.of(1.0, 0.0));
+        assertEquals(transformed.getDatapoints().get(0).getFeatures(), ImmutableMap.of(1, 0.6, 2, 0.8));
+        assertEquals(transformed.getDatapoints().get(1).getFeatures(), ImmutableMap.of(5, -1.0));
+
+        // the source rows are not modified
+        assertEquals(dataset.getDatapoints().get(0).getFeatures(), ImmutableMap.of(1, 3.0, 2, 4.0));
+    }
+
+    @Test
+    public void testPartialAndFinalTraining()
+    {
+        LearnAggregation aggregation = new LearnAggregation(VARCHAR, BIGINT);
+        assertTrue(aggregation.isDecomposable());
+
+        // each partial collects the rows of its own input
+        Random random = new Random(0);
+        LearnAccumulator finalAccumulator = (LearnAccumulator) aggregation.createIntermediateAggregation(1.0);
+        for (int partial = 0; partial < 3; partial++) {
+            LearnAccumulator accumulator = new LearnAccumulator(0, 1, true);
+            accumulator.addInput(createPage(random, 50));
+            finalAccumulator.addIntermediate(accumulator.evaluateIntermediate());
+        }
+
+        BlockCursor cursor = finalAccumulator.evaluateFinal().cursor();
+        assertTrue(cursor.advanceNextPosition());
+        Model model = ModelUtils.deserialize(cursor.getSlice());
+        assertTrue(model instanceof ClassifierFeatureTransformer, "expected a classifier");
+    }
+
+    private static Page createPage(Random random, int rows)
+    {
+        BlockBuilder labels = BIGINT.createBlockBuilder(new BlockBuilderStatus());
+        BlockBuilder features = VARCHAR.createBlockBuilder(new BlockBuilderStatus());
+        for (int i = 0; i < rows; i++) {
+            long label = random.nextBoolean() ? 1 : 0;
+            labels.appendLong(label);
+            features.appendSlice(utf8Slice("{\"0\": " + (label + random.nextGaussian()) + "}"));
+        }
+        return new Page(labels.build(), features.build());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.ml;
+
+import com.facebook.presto.byteCode.ByteCodeNode;
+import com.facebook.presto.ml.MLFunctions.ModelFunctionBinder;
+import com.facebook.presto.sql.gen.FunctionBinding;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.testng.annotations.Test;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.facebook.presto.byteCode.OpCodes.NOP;
+import static com.facebook.presto.sql.gen.SliceConstant.sliceConstant;
+import static io.airlift.slice.Slices.utf8Slice;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class TestMLFunctions
+{
+    @Test
+    public void testFeatureEncodings()
+    {
+        assertEquals(ModelUtils.toFeatures(MLFunctions.features(1.0, -2.5, 0.0)).getFeatures(), ImmutableMap.of(0, 1.0, 1, -2.5, 2, 0.0));
+        assertEquals(ModelUtils.toFeatures(MLFunctions.binaryFeatures(1.0, -2.5, 0.0)).getFeatures(), ImmutableMap.of(0, 1.0, 1, -2.5, 2, 0.0));
+        assertEquals(ModelUtils.toFeatures(utf8Slice("{\"0\": 1.0, \"3\": -2.5}")).getFeatures(), ImmutableMap.of(0, 1.0, 3, -2.5));
+    }
+
+    @Test
+    public void testClassifyWithBothEncodings()
+    {
+        Slice model = ModelUtils.serialize(trainClassifier());
+        for (double value = -2; value <= 3; value += 0.5) {
+            assertEquals(
+                    MLFunctions.classifyBinary(MLFunctions.binaryFeatures(value), model),
+                    MLFunctions.classify(MLFunctions.features(value), model));
+        }
+    }
+
+    @Test
+    public void testModelCache()
+    {
+        Slice first = ModelUtils.serialize(trainClassifier());
+        Slice second = ModelUtils.serialize(trainRegressor());
+
+        ModelCache cache = new ModelCache();
+        Model model = cache.get(first);
+        assertSame(cache.get(Slices.copyOf(first)), model);
+        assertNotSame(cache.get(second), model);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "model hash does not match data")
+    public void testModelCacheRejectsCorruptedModel()
+    {
+        Slice model = ModelUtils.serialize(trainClassifier());
+        ModelCache cache = new ModelCache();
+        cache.get(model);
+
+        // same header and hash, but the last byte of the model data is changed
+        Slice corrupted = Slices.copyOf(model);
+        corrupted.setByte(corrupted.length() - 1, corrupted.getByte(corrupted.length() - 1) ^ 1);
+        cache.get(corrupted);
+    }
+
+    @Test
+    public void testModelCacheIsBounded()
+    {
+        List<Slice> models = new ArrayList<>();
+        for (int seed = 0; seed < 5; seed++) {
+            models.add(ModelUtils.serialize(trainClassifier(seed)));
+        }
+
+        ModelCache cache = new ModelCache();
+        Model first = cache.get(models.get(0));
+        for (int i = 1; i < 4; i++) {
+            cache.get(models.get(i));
+        }
+        assertSame(cache.get(models.get(0)), first);
+
+        // the fifth model replaces the oldest one
+        cache.get(models.get(4));
+        assertNotSame(cache.get(models.get(0)), first);
+    }
+
+    @Test
+    public void testBindConstantModel()
+            throws Throwable
+    {
+        Slice model = ModelUtils.serialize(trainClassifier());
+        FunctionBinding binding = new ModelFunctionBinder().bindFunction(0, "classify", NOP, ImmutableList.<ByteCodeNode>of(NOP, sliceConstant(model)));
+
+        // the model is deserialized at bind time and only the features remain
+        assertEquals(binding.getArguments().size(), 1);
+        MethodHandle methodHandle = binding.getCallSite().dynamicInvoker();
+        for (double value = -2; value <= 3; value += 0.5) {
+            Slice features = MLFunctions.binaryFeatures(value);
+            assertEquals((long) methodHandle.invoke(features), MLFunctions.classifyBinary(features, model));
+        }
+    }
+
+    @Test
+    public void testBindDynamicModel()
+            throws Throwable
+    {
+        Slice model = ModelUtils.serialize(trainRegressor());
+        FunctionBinding binding = new ModelFunctionBinder().bindFunction(0, "regress", NOP, ImmutableList.<ByteCodeNode>of(NOP, NOP));
+
+        assertEquals(binding.getArguments().size(), 2);
+        MethodHandle methodHandle = binding.getCallSite().dynamicInvoker();
+        for (double value = -2; value <= 3; value += 0.5) {
+            Slice features = MLFunctions.binaryFeatures(value);
+            assertEquals((double) methodHandle.invoke(features, model), MLFunctions.regressBinary(features, model));
+        }
+    }
+
+    private static Model trainClassifier()
+    {
+        return trainClassifier(0);
+    }
+
+    private static Model trainClassifier(long seed)
+    {
+        Model model = new SvmClassifier();
+        model.train(getDataset(seed));
+        return model;
+    }
+
+    private static Model trainRegressor()
+    {
+        Model model = new SvmRegressor();
+        model.train(getDataset(0));
+        return model;
+    }
+
+    private static Dataset getDataset(long seed)
+    {
+        List<Double> labels = new ArrayList<>();
+        List<FeatureVector> features = new ArrayList<>();
+        Random random = new Random(seed);
+        for (int i = 0; i < 100; i++) {
+            double label = random.nextDouble() < 0.5 ? 0 : 1;
+            labels.add(label);
+            features.add(new FeatureVector(0, label + random.nextGaussian()));
+        }
+        return new Dataset(labels, features);
+    }
+}
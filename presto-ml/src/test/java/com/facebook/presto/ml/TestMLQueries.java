@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.ml;
+
+import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.testing.LocalQueryRunner;
+import com.facebook.presto.testing.MaterializedResult;
+import com.facebook.presto.testing.MaterializedRow;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+import static com.facebook.presto.ml.type.ClassifierType.CLASSIFIER;
+import static com.facebook.presto.ml.type.ModelType.MODEL;
+import static com.facebook.presto.ml.type.RegressorType.REGRESSOR;
+import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.testng.Assert.assertEquals;
+
+public class TestMLQueries
+{
+    private static final String TRAINING_DATA = "(VALUES (0, -3.0), (0, -2.0), (0, -1.0), (1, 1.0), (1, 2.0), (1, 3.0)) t (label, x)";
+
+    private ExecutorService executor;
+    private LocalQueryRunner queryRunner;
+
+    @BeforeClass
+    public void setUp()
+    {
+        executor = newCachedThreadPool();
+        ConnectorSession session = new ConnectorSession("user", "test", "default", "default", UTC_KEY, Locale.ENGLISH, null, null);
+        queryRunner = new LocalQueryRunner(session, executor);
+        queryRunner.getTypeManager().addType(MODEL);
+        queryRunner.getTypeManager().addType(CLASSIFIER);
+        queryRunner.getTypeManager().addType(REGRESSOR);
+        queryRunner.getMetadata().addFunctions(new MLFunctionFactory().listFunctions());
+    }
+
+    @AfterClass
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testClassify()
+    {
+        MaterializedResult result = queryRunner.execute("" +
+                "SELECT v.x, classify(features(v.x), model), classify(binary_features(v.x), binary_model)\n" +
+                "FROM (\n" +
+                "    SELECT learn_classifier(label, features(x)) AS model, learn_classifier(label, binary_features(x)) AS binary_model\n" +
+                "    FROM " + TRAINING_DATA + "\n" +
+                ")\n" +
+                "CROSS JOIN (VALUES -2.5, -1.5, 1.5, 2.5) v (x)\n" +
+                "ORDER BY v.x");
+
+        List<MaterializedRow> rows = result.getMaterializedRows();
+        assertEquals(rows.size(), 4);
+        for (MaterializedRow row : rows) {
+            long expected = ((Double) row.getField(0)) < 0 ? 0 : 1;
+            assertEquals(row.getField(1), expected);
+            assertEquals(row.getField(2), expected);
+        }
+    }
+
+    @Test
+    public void testRegress()
+    {
+        MaterializedResult result = queryRunner.execute("" +
+                "SELECT regress(features(v.x), model), regress(binary_features(v.x), model)\n" +
+                "FROM (\n" +
+                "    SELECT learn_regressor(label, features(x)) AS model\n" +
+                "    FROM " + TRAINING_DATA + "\n" +
+                ")\n" +
+                "CROSS JOIN (VALUES -2.5, -1.5, 1.5, 2.5) v (x)");
+
+        List<MaterializedRow> rows = result.getMaterializedRows();
+        assertEquals(rows.size(), 4);
+        for (MaterializedRow row : rows) {
+            assertEquals(row.getField(1), row.getField(0));
+        }
+    }
+}
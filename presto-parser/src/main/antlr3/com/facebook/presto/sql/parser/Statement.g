@@ -560,7 +560,7 @@ useCollectionStmt
     ;
 
 explainStmt
-    : EXPLAIN explainOptions? statement -> ^(EXPLAIN explainOptions? statement)
+    : EXPLAIN ANALYZE? explainOptions? statement -> ^(EXPLAIN ANALYZE? explainOptions? statement)
     ;
 
 explainOptions
@@ -704,7 +704,7 @@ nonReserved
     | OVER | PARTITION | RANGE | ROWS | PRECEDING | FOLLOWING | CURRENT | ROW
     | DATE | TIME | TIMESTAMP | INTERVAL
     | YEAR | MONTH | DAY | HOUR | MINUTE | SECOND
-    | EXPLAIN | FORMAT | TYPE | TEXT | GRAPHVIZ | LOGICAL | DISTRIBUTED
+    | EXPLAIN | ANALYZE | FORMAT | TYPE | TEXT | GRAPHVIZ | LOGICAL | DISTRIBUTED
     | TABLESAMPLE | SYSTEM | BERNOULLI | POISSONIZED | USE | SCHEMA | CATALOG | JSON | TO
     | RESCALED | APPROXIMATE | AT | CONFIDENCE
     ;
@@ -807,6 +807,7 @@ BOOLEAN: 'BOOLEAN';
 CONSTRAINT: 'CONSTRAINT';
 DESCRIBE: 'DESCRIBE';
 EXPLAIN: 'EXPLAIN';
+ANALYZE: 'ANALYZE';
 FORMAT: 'FORMAT';
 TYPE: 'TYPE';
 TEXT: 'TEXT';
@@ -485,7 +485,12 @@ whenList returns [List<WhenClause> value = new ArrayList<>()]
     ;
 
 explain returns [Statement value]
-    : ^(EXPLAIN explainOptions? statement) { $value = new Explain($statement.value, $explainOptions.value); }
+    : ^(EXPLAIN a=analyze explainOptions? statement) { $value = new Explain($statement.value, $a.value, $explainOptions.value); }
+    ;
+
+analyze returns [boolean value]
+    : ANALYZE { $value = true; }
+    |         { $value = false; }
     ;
 
 explainOptions returns [List<ExplainOption> value = new ArrayList<>()]
@@ -24,11 +24,18 @@ public class Explain
         extends Statement
 {
     private final Statement statement;
+    private final boolean analyze;
     private final List<ExplainOption> options;
 
     public Explain(Statement statement, List<ExplainOption> options)
+    {
+        this(statement, false, options);
+    }
+
+    public Explain(Statement statement, boolean analyze, List<ExplainOption> options)
     {
         this.statement = checkNotNull(statement, "statement is null");
+        this.analyze = analyze;
         if (options == null) {
             this.options = ImmutableList.of();
         }
@@ -42,6 +49,11 @@ public class Explain
         return statement;
     }
 
+    public boolean isAnalyze()
+    {
+        return analyze;
+    }
+
     public List<ExplainOption> getOptions()
     {
         return options;
@@ -56,7 +68,7 @@ public class Explain
     @Override
     public int hashCode()
     {
-        return Objects.hashCode(statement, options);
+        return Objects.hashCode(statement, analyze, options);
     }
 
     @Override
@@ -70,6 +82,7 @@ public class Explain
         }
         Explain o = (Explain) obj;
         return Objects.equal(statement, o.statement) &&
+                Objects.equal(analyze, o.analyze) &&
                 Objects.equal(options, o.options);
     }
 
@@ -78,6 +91,7 @@ public class Explain
     {
         return Objects.toStringHelper(this)
                 .add("statement", statement)
+                .add("analyze", analyze)
                 .add("options", options)
                 .toString();
     }
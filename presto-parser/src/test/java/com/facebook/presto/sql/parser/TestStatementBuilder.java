@@ -37,6 +37,7 @@ public class TestStatementBuilder
         printStatement("select * from foo");
         printStatement("explain select * from foo");
         printStatement("explain (type distributed, format graphviz) select * from foo");
+        printStatement("explain analyze select * from foo");
 
         printStatement("select * from foo a (x, y, z)");
 
@@ -20,13 +20,20 @@ import com.facebook.presto.operator.Operator;
 import com.facebook.presto.operator.OperatorAssertion;
 import com.facebook.presto.operator.Page;
 import com.facebook.presto.operator.TaskContext;
+import com.facebook.presto.operator.aggregation.AdaptiveHyperLogLog;
 import com.facebook.presto.raptor.RaptorColumnHandle;
+import com.facebook.presto.raptor.RaptorRecordSink;
 import com.facebook.presto.spi.ConnectorColumnHandle;
 import com.facebook.presto.spi.ConnectorSession;
+import com.facebook.presto.spi.block.Block;
+import com.facebook.presto.spi.block.BlockCursor;
+import com.facebook.presto.spi.type.Type;
 import com.facebook.presto.testing.MaterializedResult;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.io.Files;
+import io.airlift.slice.Murmur3;
+import io.airlift.slice.Slice;
 import io.airlift.testing.FileUtils;
 import org.skife.jdbi.v2.DBI;
 import org.skife.jdbi.v2.Handle;
@@ -37,6 +44,7 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
@@ -47,6 +55,7 @@ import static com.facebook.presto.operator.RowPagesBuilder.rowPagesBuilder;
 import static com.facebook.presto.raptor.storage.DatabaseLocalStorageManager.getShardPath;
 import static com.facebook.presto.testing.TestingBlockEncodingManager.createTestingBlockEncodingManager;
 import static com.facebook.presto.spi.type.BigintType.BIGINT;
+import static com.facebook.presto.spi.type.HyperLogLogType.HYPER_LOG_LOG;
 import static com.facebook.presto.spi.type.TimeZoneKey.UTC_KEY;
 import static com.facebook.presto.spi.type.VarcharType.VARCHAR;
 import static io.airlift.concurrent.Threads.daemonThreadsNamed;
@@ -135,6 +144,45 @@ public class TestDatabaseLocalStorageManager
         OperatorAssertion.assertOperatorEquals(operator, expected);
     }
 
+    @Test
+    public void testHyperLogLogRecordSink()
+            throws IOException
+    {
+        UUID shardUuid = UUID.randomUUID();
+        List<ConnectorColumnHandle> columnHandles = ImmutableList.<ConnectorColumnHandle>of(new RaptorColumnHandle("test", "column_17", 17L));
+
+        // sketches are stored as written, in both the sparse and the dense encoding
+        List<Slice> sketches = new ArrayList<>();
+        for (int count : new int[] {3, 10_000}) {
+            AdaptiveHyperLogLog hll = new AdaptiveHyperLogLog(4096);
+            for (long value = 0; value < count; value++) {
+                hll.add(Murmur3.hash64(value));
+            }
+            for (int i = 0; i < 100; i++) {
+                sketches.add(hll.serialize());
+            }
+        }
+
+        ColumnFileHandle fileHandles = storageManager.createStagingFileHandles(shardUuid, columnHandles);
+        RaptorRecordSink sink = new RaptorRecordSink("node", fileHandles, storageManager, ImmutableList.<Type>of(HYPER_LOG_LOG), null);
+        for (Slice sketch : sketches) {
+            sink.beginRecord(1);
+            sink.appendString(sketch.getBytes());
+            sink.finishRecord();
+        }
+        sink.commit();
+
+        List<Slice> actual = new ArrayList<>();
+        for (Block block : storageManager.getBlocks(shardUuid, columnHandles.get(0))) {
+            BlockCursor cursor = block.cursor();
+            while (cursor.advanceNextPosition()) {
+                actual.add(cursor.getSlice());
+            }
+        }
+        assertEquals(actual, sketches);
+        assertEquals(AdaptiveHyperLogLog.deserialize(actual.get(actual.size() - 1)).estimate(), AdaptiveHyperLogLog.deserialize(sketches.get(sketches.size() - 1)).estimate());
+    }
+
     @Test
     public void testImportEmptySource()
             throws IOException
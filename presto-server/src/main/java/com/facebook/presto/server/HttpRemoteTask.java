@@ -124,6 +124,8 @@ public class HttpRemoteTask
     private final Set<PlanNodeId> noMoreSplits = new HashSet<>();
     @GuardedBy("this")
     private final AtomicReference<OutputBuffers> outputBuffers = new AtomicReference<>();
+    @GuardedBy("this")
+    private boolean sendPlan = true;
 
     @GuardedBy("this")
     private ContinuousTaskInfoFetcher continuousTaskInfoFetcher;
@@ -284,7 +286,15 @@ public class HttpRemoteTask
         try (SetThreadName setThreadName = new SetThreadName("HttpRemoteTask-%s", taskId)) {
             int pendingSplitCount = 0;
             pendingSplitCount = pendingSplits.get(planFragment.getPartitionedSource()).size();
-            return pendingSplitCount + taskInfo.get().getStats().getQueuedDrivers();
+            return pendingSplitCount + taskInfo.get().getStats().getQueuedPartitionedDrivers();
+        }
+    }
+
+    @Override
+    public synchronized int getRunningSplits()
+    {
+        try (SetThreadName setThreadName = new SetThreadName("HttpRemoteTask-%s", taskId)) {
+            return taskInfo.get().getStats().getRunningPartitionedDrivers();
         }
     }
 
@@ -361,9 +371,10 @@ public class HttpRemoteTask
             errorRequestRateLimiter.acquire();
         }
 
+        // splits are only sent until acknowledged, and the fragment is only sent until the task is created
         List<TaskSource> sources = getSources();
         TaskUpdateRequest updateRequest = new TaskUpdateRequest(session,
-                planFragment,
+                sendPlan ? planFragment : null,
                 sources,
                 outputBuffers.get());
 
@@ -459,6 +470,9 @@ public class HttpRemoteTask
         try (SetThreadName setThreadName = new SetThreadName("HttpRemoteTask-%s", taskId)) {
             updateTaskInfo(newValue);
             lastSuccessfulRequest.set(System.nanoTime());
+
+            // any successful response means the task exists on the worker
+            sendPlan = false;
             errorCount.set(0);
             errorsSinceLastSuccess.clear();
 
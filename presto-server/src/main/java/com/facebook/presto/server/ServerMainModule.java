@@ -63,6 +63,7 @@ import com.facebook.presto.spi.type.DoubleType;
 import com.facebook.presto.spi.type.HyperLogLogType;
 import com.facebook.presto.spi.type.IntervalDayTimeType;
 import com.facebook.presto.spi.type.IntervalYearMonthType;
+import com.facebook.presto.spi.type.QuantileDigestType;
 import com.facebook.presto.spi.type.TimeType;
 import com.facebook.presto.spi.type.TimeWithTimeZoneType;
 import com.facebook.presto.spi.type.TimestampType;
@@ -183,6 +184,7 @@ public class ServerMainModule
 
         // index manager
         binder.bind(IndexManager.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(IndexManager.class).withGeneratedName();
 
         // handle resolver
         binder.install(new HandleJsonModule());
@@ -268,6 +270,7 @@ public class ServerMainModule
         blockEncodingFactoryBinder.addBinding().toInstance(DictionaryBlockEncoding.FACTORY);
         blockEncodingFactoryBinder.addBinding().toInstance(SnappyBlockEncoding.FACTORY);
         blockEncodingFactoryBinder.addBinding().toInstance(HyperLogLogType.BLOCK_ENCODING_FACTORY);
+        blockEncodingFactoryBinder.addBinding().toInstance(QuantileDigestType.BLOCK_ENCODING_FACTORY);
         blockEncodingFactoryBinder.addBinding().toInstance(ColorType.BLOCK_ENCODING_FACTORY);
 
         // thread visualizer
@@ -26,6 +26,7 @@ import com.facebook.presto.execution.StageId;
 import com.facebook.presto.execution.StageInfo;
 import com.facebook.presto.execution.StageState;
 import com.facebook.presto.execution.StageStats;
+import com.facebook.presto.execution.StateMachine.StateChangeListener;
 import com.facebook.presto.execution.TaskId;
 import com.facebook.presto.execution.TaskInfo;
 import com.facebook.presto.spi.ConnectorSession;
@@ -140,6 +141,12 @@ public class MockQueryManager
         // mock queries don't have stages
     }
 
+    @Override
+    public void addStageStateChangeListener(QueryId queryId, StateChangeListener<StageInfo> stateChangeListener)
+    {
+        // mock queries don't have stages
+    }
+
     private static class SimpleQuery
     {
         private final TaskId outputTaskId;
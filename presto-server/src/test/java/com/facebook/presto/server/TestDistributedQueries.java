@@ -85,6 +85,7 @@ import static com.facebook.presto.util.DateTimeUtils.parseTimestamp;
 import static com.facebook.presto.util.DateTimeUtils.parseTimestampWithTimeZone;
 import static com.facebook.presto.util.Types.checkType;
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.collect.Iterables.transform;
 import static io.airlift.json.JsonCodec.jsonCodec;
 import static io.airlift.testing.Assertions.assertLessThan;
@@ -134,6 +135,20 @@ public class TestDistributedQueries
         assertQuery("SELECT " + Joiner.on(" AND ").join(nCopies(500, "1 = 1")), "SELECT true");
     }
 
+    @Test
+    public void testExplainAnalyze()
+            throws Exception
+    {
+        MaterializedResult result = computeActual("EXPLAIN ANALYZE SELECT orderstatus, count(*) FROM orders GROUP BY orderstatus");
+        String plan = (String) getOnlyElement(result.getMaterializedRows()).getField(0);
+
+        // the analyzed query ran to completion and the statistics of every stage were collected
+        assertTrue(plan.contains("- Aggregate"), plan);
+        assertTrue(plan.contains("- TableScan"), plan);
+        assertTrue(plan.contains("CPU: "), plan);
+        assertTrue(plan.contains("Output: 15000 rows"), plan);
+    }
+
     @Test
     public void testTableSampleSystem()
             throws Exception
@@ -203,6 +218,19 @@ public class TestDistributedQueries
                 "SELECT 1");
     }
 
+    @Test
+    public void testCreateTableAsSelectHyperLogLog()
+            throws Exception
+    {
+        assertQuery("CREATE TABLE test_hll AS SELECT orderstatus, approx_set(custkey) users FROM orders GROUP BY orderstatus", "SELECT 3");
+
+        MaterializedResult actual = computeActual("SELECT cardinality(merge(users)) FROM test_hll");
+        MaterializedResult expected = computeActual("SELECT cardinality(approx_set(custkey)) FROM orders");
+        assertEquals(actual.getMaterializedRows(), expected.getMaterializedRows());
+
+        assertQueryTrue("DROP TABLE test_hll");
+    }
+
     @Test
     public void testCreateSampledTableAsSelectLimit()
             throws Exception
@@ -479,7 +507,8 @@ public class TestDistributedQueries
         ImmutableMap.Builder<String, String> properties = ImmutableMap.<String, String>builder()
                 .put("query.client.timeout", "10m")
                 .put("exchange.http-client.read-timeout", "1h")
-                .put("datasources", "default,tpch,tpch_sampled");
+                .put("datasources", "default,tpch,tpch_sampled")
+                .put("task.default-concurrency", "4");
         if (coordinator) {
             properties.put("node-scheduler.include-coordinator", "false");
         }
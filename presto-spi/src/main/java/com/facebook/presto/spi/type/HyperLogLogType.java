@@ -78,22 +78,28 @@ public class HyperLogLogType
         return length + SIZE_OF_SHORT;
     }
 
+    // serialized values are compared byte-wise, which lets storage dictionary and run-length encode them
     @Override
     public boolean equalTo(Slice leftSlice, int leftOffset, Slice rightSlice, int rightOffset)
     {
-        throw new UnsupportedOperationException("HyperLogLog type is not comparable");
+        int leftLength = getValueSize(leftSlice, leftOffset);
+        int rightLength = getValueSize(rightSlice, rightOffset);
+        return leftSlice.equals(leftOffset + SIZE_OF_SHORT, leftLength, rightSlice, rightOffset + SIZE_OF_SHORT, rightLength);
     }
 
     @Override
     public boolean equalTo(Slice leftSlice, int leftOffset, BlockCursor rightCursor)
     {
-        throw new UnsupportedOperationException("HyperLogLog type is not comparable");
+        int leftLength = getValueSize(leftSlice, leftOffset);
+        Slice rightSlice = rightCursor.getSlice();
+        return leftSlice.equals(leftOffset + SIZE_OF_SHORT, leftLength, rightSlice, 0, rightSlice.length());
     }
 
     @Override
     public int hash(Slice slice, int offset)
     {
-        throw new UnsupportedOperationException("HyperLogLog type is not comparable");
+        int length = getValueSize(slice, offset);
+        return slice.hashCode(offset + SIZE_OF_SHORT, length);
     }
 
     @Override
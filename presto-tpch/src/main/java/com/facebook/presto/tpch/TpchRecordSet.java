@@ -111,7 +111,7 @@ public class TpchRecordSet<E extends TpchEntity>
         @Override
         public Type getType(int field)
         {
-            return getPrestoType(getTpchColumn(field).getType());
+            return columnTypes.get(field);
         }
 
         @Override
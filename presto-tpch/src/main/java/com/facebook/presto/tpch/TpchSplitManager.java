@@ -26,9 +26,12 @@ import com.facebook.presto.spi.NodeManager;
 import com.facebook.presto.spi.TupleDomain;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.primitives.Ints;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -38,6 +41,21 @@ import static com.google.common.base.Preconditions.checkState;
 public class TpchSplitManager
         implements ConnectorSplitManager
 {
+    // splits smaller than this are not worth scheduling, while larger ones limit load balancing
+    private static final long MIN_ROWS_PER_SPLIT = 10_000;
+    private static final long MAX_ROWS_PER_SPLIT = 1_000_000;
+
+    // rows at scale factor 1; region and nation have a fixed size
+    private static final Map<String, Long> ROWS_PER_SCALE_FACTOR = ImmutableMap.<String, Long>builder()
+            .put("supplier", 10_000L)
+            .put("part", 200_000L)
+            .put("partsupp", 800_000L)
+            .put("customer", 150_000L)
+            .put("orders", 1_500_000L)
+            .put("lineitem", 6_000_000L)
+            .build();
+    private static final Map<String, Long> FIXED_ROWS = ImmutableMap.of("region", 5L, "nation", 25L);
+
     private final String connectorId;
     private final NodeManager nodeManager;
     private final int splitsPerNode;
@@ -78,19 +96,46 @@ public class TpchSplitManager
         Set<Node> nodes = nodeManager.getActiveDatasourceNodes(connectorId);
         checkState(!nodes.isEmpty(), "No TPCH nodes available");
 
-        int totalParts = nodes.size() * splitsPerNode;
-        int partNumber = 0;
+        int totalParts = getTotalParts(tableHandle, nodes.size() * splitsPerNode);
+        List<Node> nodeList = ImmutableList.copyOf(nodes);
 
-        // Split the data using split and skew by the number of nodes available.
+        // Every part can be generated independently, so spread them over the nodes
         ImmutableList.Builder<ConnectorSplit> splits = ImmutableList.builder();
-        for (Node node : nodes) {
-            for (int i = 0; i < splitsPerNode; i++) {
-                splits.add(new TpchSplit(tableHandle, partNumber++, totalParts, ImmutableList.of(node.getHostAndPort())));
-            }
+        for (int partNumber = 0; partNumber < totalParts; partNumber++) {
+            Node node = nodeList.get(partNumber % nodeList.size());
+            splits.add(new TpchSplit(tableHandle, partNumber, totalParts, ImmutableList.of(node.getHostAndPort())));
         }
         return new FixedSplitSource(connectorId, splits.build());
     }
 
+    /**
+     * Uses the requested parallelism unless the parts would be smaller than {@link #MIN_ROWS_PER_SPLIT},
+     * and adds parts when they would be larger than {@link #MAX_ROWS_PER_SPLIT}.
+     */
+    private static int getTotalParts(TpchTableHandle tableHandle, int desiredParts)
+    {
+        long rows = getEstimatedRowCount(tableHandle);
+        long parts = Math.min(desiredParts, divideRoundingUp(rows, MIN_ROWS_PER_SPLIT));
+        parts = Math.max(parts, divideRoundingUp(rows, MAX_ROWS_PER_SPLIT));
+        return Ints.saturatedCast(Math.max(parts, 1));
+    }
+
+    private static long getEstimatedRowCount(TpchTableHandle tableHandle)
+    {
+        String tableName = tableHandle.getTableName();
+        if (FIXED_ROWS.containsKey(tableName)) {
+            return FIXED_ROWS.get(tableName);
+        }
+        Long rows = ROWS_PER_SCALE_FACTOR.get(tableName);
+        checkArgument(rows != null, "Unknown table %s", tableName);
+        return (long) (rows * tableHandle.getScaleFactor());
+    }
+
+    private static long divideRoundingUp(long dividend, long divisor)
+    {
+        return (dividend + divisor - 1) / divisor;
+    }
+
     public static class TpchPartition
             implements ConnectorPartition
     {
@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.facebook.presto.tpch;
+
+import com.facebook.presto.spi.ConnectorColumnHandle;
+import com.facebook.presto.spi.ConnectorPartition;
+import com.facebook.presto.spi.ConnectorSplit;
+import com.facebook.presto.spi.HostAddress;
+import com.facebook.presto.spi.Node;
+import com.facebook.presto.spi.NodeManager;
+import com.facebook.presto.spi.TupleDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestTpchSplitManager
+{
+    private static final String CONNECTOR_ID = "tpch";
+    private static final int SPLITS_PER_NODE = 4;
+
+    private final List<Node> nodes = ImmutableList.<Node>of(new TestingNode(1), new TestingNode(2), new TestingNode(3), new TestingNode(4));
+    private final TpchSplitManager splitManager = new TpchSplitManager(CONNECTOR_ID, new TestingNodeManager(nodes), SPLITS_PER_NODE);
+
+    @Test
+    public void testTinyScaleFactor()
+            throws Exception
+    {
+        // parts are never smaller than 10,000 rows
+        assertSplits("orders", 0.01, 2);
+        assertSplits("lineitem", 0.01, 6);
+        assertSplits("nation", 0.01, 1);
+        assertSplits("region", 0.01, 1);
+    }
+
+    @Test
+    public void testScaleFactorOne()
+            throws Exception
+    {
+        // every node gets the requested number of splits
+        assertSplits("orders", 1, nodes.size() * SPLITS_PER_NODE);
+        assertSplits("lineitem", 1, nodes.size() * SPLITS_PER_NODE);
+        assertSplits("supplier", 1, 1);
+        assertSplits("nation", 1, 1);
+    }
+
+    @Test
+    public void testLargeScaleFactor()
+            throws Exception
+    {
+        // parts are never larger than 1,000,000 rows
+        assertSplits("orders", 1000, 1500);
+        assertSplits("lineitem", 1000, 6000);
+        assertSplits("supplier", 1000, nodes.size() * SPLITS_PER_NODE);
+        assertSplits("region", 1000, 1);
+    }
+
+    private void assertSplits(String tableName, double scaleFactor, int expectedParts)
+            throws InterruptedException
+    {
+        TpchTableHandle tableHandle = new TpchTableHandle(CONNECTOR_ID, tableName, scaleFactor);
+        List<ConnectorPartition> partitions = splitManager.getPartitions(tableHandle, TupleDomain.<ConnectorColumnHandle>all()).getPartitions();
+        List<ConnectorSplit> splits = splitManager.getPartitionSplits(tableHandle, partitions).getNextBatch(10_000);
+
+        assertEquals(splits.size(), expectedParts);
+        for (int i = 0; i < splits.size(); i++) {
+            TpchSplit split = (TpchSplit) splits.get(i);
+            assertEquals(split.getPartNumber(), i);
+            assertEquals(split.getTotalParts(), expectedParts);
+            // the parts are assigned to the nodes round robin
+            assertEquals(split.getAddresses(), ImmutableList.of(nodes.get(i % nodes.size()).getHostAndPort()));
+        }
+    }
+
+    private static class TestingNodeManager
+            implements NodeManager
+    {
+        private final Set<Node> nodes;
+
+        private TestingNodeManager(List<Node> nodes)
+        {
+            this.nodes = ImmutableSet.copyOf(nodes);
+        }
+
+        @Override
+        public Set<Node> getActiveNodes()
+        {
+            return nodes;
+        }
+
+        @Override
+        public Set<Node> getActiveDatasourceNodes(String datasourceName)
+        {
+            return nodes;
+        }
+
+        @Override
+        public Node getCurrentNode()
+        {
+            return nodes.iterator().next();
+        }
+    }
+
+    private static class TestingNode
+            implements Node
+    {
+        private final int id;
+
+        private TestingNode(int id)
+        {
+            this.id = id;
+        }
+
+        @Override
+        public HostAddress getHostAndPort()
+        {
+            return HostAddress.fromParts("10.0.0." + id, 8080);
+        }
+
+        @Override
+        public URI getHttpUri()
+        {
+            return URI.create("http://10.0.0." + id + ":8080");
+        }
+
+        @Override
+        public String getNodeIdentifier()
+        {
+            return "node" + id;
+        }
+    }
+}